@@ -0,0 +1,100 @@
+package com.bubua12.mcp.nacos.benchmark;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.NacosTokenManager;
+import com.bubua12.mcp.nacos.service.NamespaceResolver;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * token 和 namespace 解析的开销：缓存命中的热路径，以及一次完整登录、namespace 列表拉取的冷路径
+ *
+ * @author bubua12
+ * @since 2026/10/17 21:50
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolutionBenchmark {
+
+    private FakeNacosServer fakeNacos;
+    private WebClient webClient;
+    private NacosTokenManager tokenManager;
+    private NamespaceResolver namespaceResolver;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fakeNacos = new FakeNacosServer(Duration.ZERO);
+        webClient = WebClient.create(fakeNacos.baseUrl());
+        tokenManager = new NacosTokenManager(webClient, "nacos", "nacos");
+        namespaceResolver = new NamespaceResolver(webClient, tokenManager, new NacosProperties.Namespace());
+        tokenManager.getToken().then(namespaceResolver.reload()).block();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        tokenManager.close();
+        fakeNacos.close();
+    }
+
+    @Benchmark
+    public String cachedToken() {
+        return tokenManager.getToken().block();
+    }
+
+    @Benchmark
+    public String resolveNamespaceByName() {
+        return namespaceResolver.resolve("dev").block();
+    }
+
+    @Benchmark
+    public String resolveNamespaceById() {
+        return namespaceResolver.resolve("dev-id").block();
+    }
+
+    @Benchmark
+    public String resolvePublic() {
+        return namespaceResolver.resolve("public").block();
+    }
+
+    /**
+     * 冷启动：新的 token 管理器完成一次登录
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String login() {
+        NacosTokenManager fresh = new NacosTokenManager(webClient, "nacos", "nacos");
+        try {
+            return fresh.getToken().block();
+        } finally {
+            fresh.close();
+        }
+    }
+
+    /**
+     * 强制刷新一次 namespace 列表
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void reloadNamespaces() {
+        namespaceResolver.reload().block();
+    }
+}
@@ -0,0 +1,101 @@
+package com.bubua12.mcp.nacos.benchmark;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.NacosMCPService;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单次工具调用的延迟分布，对比 Nacos 延迟、负载大小和精简输出的影响
+ * <p>
+ * 配合 -prof gc 查看每次调用的分配量（gc.alloc.rate.norm）。
+ *
+ * @author bubua12
+ * @since 2026/10/17 21:40
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ToolLatencyBenchmark {
+
+    /**
+     * Nacos 响应延迟（毫秒），0 时只测本地开销
+     */
+    @Param({"0", "5"})
+    public int latencyMillis;
+
+    /**
+     * 负载规模：配置字节数、实例数、历史条数、服务数都按该值生成
+     */
+    @Param({"100", "5000"})
+    public int payloadSize;
+
+    @Param({"true", "false"})
+    public boolean compact;
+
+    private FakeNacosServer fakeNacos;
+    private NacosMCPService nacosService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fakeNacos = new FakeNacosServer(Duration.ofMillis(latencyMillis))
+                .configSize(payloadSize)
+                .instances(payloadSize / 10)
+                .historyEntries(Math.min(payloadSize / 10, 100))
+                .services(payloadSize)
+                .configs(payloadSize / 10);
+        NacosProperties properties = fakeNacos.properties();
+        properties.getResponse().setCompact(compact);
+        nacosService = new NacosMCPService(properties);
+        nacosService.init();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        nacosService.destroy();
+        fakeNacos.close();
+    }
+
+    @Benchmark
+    public String getConfig() {
+        return nacosService.getConfig("common.properties", "order", "dev", null, null).block();
+    }
+
+    @Benchmark
+    public String listServiceInstances() {
+        return nacosService.listServiceInstances("service-order", null).block();
+    }
+
+    @Benchmark
+    public String getConfigHistory() {
+        return nacosService.getConfigHistory("common.properties", "order", "dev", null).block();
+    }
+
+    @Benchmark
+    public String listServices() {
+        return nacosService.listServices("dev", null, null, null).block();
+    }
+
+    @Benchmark
+    public String listConfigsByNamespace() {
+        return nacosService.listConfigsByNamespace("dev", null, null, null).block();
+    }
+}
@@ -0,0 +1,79 @@
+package com.bubua12.mcp.nacos.benchmark;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.NacosMCPService;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 并发调用下的吞吐：多个 JMH 线程同时调用同一个 NacosMCPService，测连接池、token、namespace 解析在竞争下的表现
+ * <p>
+ * 线程数可用 -t 覆盖，如 -t 64。
+ *
+ * @author bubua12
+ * @since 2026/10/17 21:45
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class ToolThroughputBenchmark {
+
+    @Param({"0", "5"})
+    public int latencyMillis;
+
+    /**
+     * 是否合并相同的并发调用；16 个线程调用同一个工具，开启后大部分调用共享在途请求
+     */
+    @Param({"true", "false"})
+    public boolean coalesce;
+
+    private FakeNacosServer fakeNacos;
+    private NacosMCPService nacosService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fakeNacos = new FakeNacosServer(Duration.ofMillis(latencyMillis))
+                .configSize(1024)
+                .instances(20);
+        NacosProperties properties = fakeNacos.properties();
+        properties.getCoalesce().setEnabled(coalesce);
+        nacosService = new NacosMCPService(properties);
+        nacosService.init();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        nacosService.destroy();
+        fakeNacos.close();
+    }
+
+    @Benchmark
+    public String getConfig() {
+        return nacosService.getConfig("common.properties", "order", "dev", null, null).block();
+    }
+
+    @Benchmark
+    public String listServiceInstances() {
+        return nacosService.listServiceInstances("service-order", null).block();
+    }
+}
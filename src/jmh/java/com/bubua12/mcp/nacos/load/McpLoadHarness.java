@@ -0,0 +1,350 @@
+package com.bubua12.mcp.nacos.load;
+
+import com.bubua12.mcp.nacos.NacosWebfluxMCPServerApplication;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.modelcontextprotocol.client.McpAsyncClient;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.transport.WebFluxSseClientTransport;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MCP SSE 端到端压测：打开 N 个 MCP 会话，按配置的工具比例持续调用，统计吞吐、p50/p99、错误率和每个会话的内存占用
+ * <p>
+ * 不指定 --url 时在进程内启动 MCP Server，并把它指向本地的 Nacos 替身；--saturate 时从 --sessions 开始按倍数增加会话数，
+ * 吞吐不再增长、p99 超过 --slo-p99 或错误率超过 1% 时停止，报告饱和点。
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec@load -Dload.args="--sessions=100 --duration=30s"
+ * mvn -Pbenchmark test-compile exec:exec@load -Dload.args="--saturate --sessions=8 --max-sessions=1024"
+ * </pre>
+ *
+ * @author bubua12
+ * @since 2026/10/17 22:10
+ */
+public final class McpLoadHarness {
+
+    private static final String DEFAULT_MIX = "getConfig=50,listServiceInstances=30,getConfigHistory=10,listServices=10";
+
+    /**
+     * 各工具调用时使用的参数
+     */
+    private static final Map<String, Map<String, Object>> TOOL_ARGUMENTS = Map.of(
+            "getConfig", Map.of("dataId", "common.properties", "group", "order", "namespace", "dev"),
+            "getConfigHistory", Map.of("dataId", "common.properties", "group", "order", "namespace", "dev"),
+            "listServiceInstances", Map.of("serviceName", "service-order"),
+            "getServiceDetail", Map.of("serviceName", "service-order"),
+            "listServices", Map.of("namespace", "dev"),
+            "listConfigsByNamespace", Map.of("namespace", "dev"),
+            "listNamespaces", Map.of(),
+            "getCurrentNodeHealth", Map.of());
+
+    private final Options options;
+    private final String url;
+    private final ConnectionProvider connectionProvider;
+
+    private McpLoadHarness(Options options, String url) {
+        this.options = options;
+        this.url = url;
+        // SSE 长连接会一直占用连接，连接池必须能容纳全部会话的 SSE 连接和消息请求
+        this.connectionProvider = ConnectionProvider.builder("mcp-load")
+                .maxConnections(options.maxSessions() * 2 + 16)
+                .pendingAcquireMaxCount(-1)
+                .build();
+    }
+
+    public static void main(String[] args) {
+        Options options = Options.parse(args);
+        FakeNacosServer fakeNacos = null;
+        ConfigurableApplicationContext server = null;
+        String url = options.url();
+        if (url == null) {
+            fakeNacos = new FakeNacosServer(options.nacosLatency())
+                    .configSize(options.payload())
+                    .instances(Math.max(options.payload() / 100, 1))
+                    .historyEntries(Math.min(Math.max(options.payload() / 100, 1), 100))
+                    .services(options.payload() / 10);
+            server = startServer(fakeNacos);
+            url = "http://127.0.0.1:" + ((WebServerApplicationContext) server).getWebServer().getPort();
+        }
+        McpLoadHarness harness = new McpLoadHarness(options, url);
+        try {
+            System.out.printf("目标 %s，工具比例 %s%n", url, options.mix());
+            System.out.println(Result.HEADER);
+            if (options.saturate()) {
+                harness.saturate();
+            } else {
+                System.out.println(harness.run(options.sessions()));
+            }
+        } finally {
+            harness.connectionProvider.dispose();
+            if (server != null) {
+                server.close();
+            }
+            if (fakeNacos != null) {
+                fakeNacos.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startServer(FakeNacosServer fakeNacos) {
+        return new SpringApplication(NacosWebfluxMCPServerApplication.class).run(
+                "--server.port=0",
+                "--nacos.server=" + fakeNacos.baseUrl(),
+                // 替身不提供 gRPC 推送和集群接口
+                "--nacos.config-cache.enabled=false",
+                "--nacos.registry.enabled=false",
+                "--nacos.cluster.enabled=false",
+                "--logging.level.com.bubua12.mcp.nacos=WARN");
+    }
+
+    /**
+     * 按倍数增加会话数，直到吞吐不再增长、p99 超出 SLO 或错误率超过 1%
+     */
+    private void saturate() {
+        Result best = null;
+        for (int sessions = options.sessions(); sessions <= options.maxSessions(); sessions *= 2) {
+            Result result = run(sessions);
+            System.out.println(result);
+            boolean flat = best != null && result.throughput() < best.throughput() * 1.05;
+            boolean slow = result.p99Millis() > options.sloP99().toMillis();
+            boolean failing = result.errorRate() > 0.01;
+            if (flat || slow || failing) {
+                String reason = failing ? "错误率超过 1%" : slow ? "p99 超过 " + options.sloP99().toMillis() + "ms" : "吞吐不再增长";
+                System.out.printf("饱和点：%s 个会话（%s 个会话时%s）%n",
+                        best == null ? "<" + sessions : best.sessions(), sessions, reason);
+                return;
+            }
+            best = result;
+        }
+        System.out.printf("达到 --max-sessions=%d 仍未饱和%n", options.maxSessions());
+    }
+
+    /**
+     * 打开指定数量的会话，预热后按 duration 压测，最后关闭会话
+     */
+    private Result run(int sessions) {
+        long heapBefore = usedHeapAfterGc();
+        List<McpAsyncClient> clients = Flux.range(0, sessions)
+                .flatMap(i -> openSession(), 32)
+                .collectList()
+                .block(Duration.ofMinutes(5));
+        long heapPerSession = (usedHeapAfterGc() - heapBefore) / Math.max(sessions, 1);
+        try {
+            drive(clients, options.warmup(), new Recorder());
+            Recorder recorder = new Recorder();
+            long start = System.nanoTime();
+            drive(clients, options.duration(), recorder);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return recorder.result(sessions, seconds, heapPerSession);
+        } finally {
+            Flux.fromIterable(clients)
+                    .flatMap(client -> client.closeGracefully().onErrorComplete(), 32)
+                    .blockLast(Duration.ofMinutes(1));
+        }
+    }
+
+    private Mono<McpAsyncClient> openSession() {
+        WebClient.Builder webClient = WebClient.builder()
+                .baseUrl(url)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)));
+        McpAsyncClient client = McpClient.async(new WebFluxSseClientTransport(webClient))
+                .requestTimeout(Duration.ofSeconds(30))
+                .build();
+        return client.initialize().thenReturn(client);
+    }
+
+    /**
+     * 每个会话串行地按比例挑选工具调用，直到时间用完
+     */
+    private void drive(List<McpAsyncClient> clients, Duration duration, Recorder recorder) {
+        long deadline = System.nanoTime() + duration.toNanos();
+        Flux.fromIterable(clients)
+                .flatMap(client -> Mono.defer(() -> call(client, pickTool(), recorder))
+                        .then(options.think().isZero() ? Mono.empty() : Mono.delay(options.think()).then())
+                        .repeat(() -> System.nanoTime() < deadline)
+                        .then(), clients.size())
+                .blockLast();
+    }
+
+    private Mono<Void> call(McpAsyncClient client, String tool, Recorder recorder) {
+        long start = System.nanoTime();
+        return client.callTool(new McpSchema.CallToolRequest(tool, TOOL_ARGUMENTS.getOrDefault(tool, Map.of())))
+                .doOnNext(result -> recorder.record(tool, System.nanoTime() - start, Boolean.TRUE.equals(result.isError())))
+                .onErrorResume(e -> {
+                    recorder.record(tool, System.nanoTime() - start, true);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private String pickTool() {
+        int total = options.mix().values().stream().mapToInt(Integer::intValue).sum();
+        int point = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<String, Integer> entry : options.mix().entrySet()) {
+            point -= entry.getValue();
+            if (point < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("工具比例为空");
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * 记录每次调用的耗时和结果
+     */
+    private static final class Recorder {
+
+        private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final Map<String, Timer> byTool = new HashMap<>();
+        private final Timer all = timer("all");
+
+        void record(String tool, long nanos, boolean error) {
+            calls.incrementAndGet();
+            if (error) {
+                errors.incrementAndGet();
+            }
+            all.record(nanos, TimeUnit.NANOSECONDS);
+            timer(tool).record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        private synchronized Timer timer(String tool) {
+            return byTool.computeIfAbsent(tool, name -> Timer.builder("mcp.call")
+                    .tag("tool", name)
+                    .publishPercentiles(0.5, 0.99)
+                    .distributionStatisticExpiry(Duration.ofHours(1))
+                    .register(registry));
+        }
+
+        Result result(int sessions, double seconds, long heapPerSession) {
+            Map<String, Double> toolP99 = new LinkedHashMap<>();
+            byTool.forEach((tool, timer) -> {
+                if (!"all".equals(tool)) {
+                    toolP99.put(tool, percentile(timer, 0.99));
+                }
+            });
+            long total = calls.get();
+            return new Result(sessions, total, total / seconds, total == 0 ? 0 : (double) errors.get() / total,
+                    percentile(all, 0.5), percentile(all, 0.99), heapPerSession, toolP99);
+        }
+
+        private static double percentile(Timer timer, double percentile) {
+            for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+                if (value.percentile() == percentile) {
+                    return value.value(TimeUnit.MILLISECONDS);
+                }
+            }
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * 一轮压测的结果
+     *
+     * @param sessions        会话数
+     * @param calls           完成的调用数
+     * @param throughput      每秒调用数
+     * @param errorRate       错误率
+     * @param p50Millis       p50 延迟
+     * @param p99Millis       p99 延迟
+     * @param heapPerSession  每个会话占用的堆内存（进程内模式包含服务端和客户端两侧）
+     * @param toolP99Millis   各工具的 p99 延迟
+     */
+    private record Result(int sessions, long calls, double throughput, double errorRate, double p50Millis,
+                          double p99Millis, long heapPerSession, Map<String, Double> toolP99Millis) {
+
+        static final String HEADER = String.format("%8s %10s %10s %8s %10s %10s %12s  %s",
+                "sessions", "calls", "calls/s", "errors", "p50(ms)", "p99(ms)", "heap/session", "p99 by tool(ms)");
+
+        @Override
+        public String toString() {
+            List<String> tools = new ArrayList<>();
+            toolP99Millis.forEach((tool, p99) -> tools.add(String.format("%s=%.1f", tool, p99)));
+            return String.format("%8d %10d %10.1f %7.2f%% %10.1f %10.1f %11dK  %s",
+                    sessions, calls, throughput, errorRate * 100, p50Millis, p99Millis, heapPerSession / 1024, String.join(" ", tools));
+        }
+    }
+
+    /**
+     * 命令行参数，格式为 --name=value
+     */
+    private record Options(String url, int sessions, int maxSessions, Duration duration, Duration warmup, Duration think,
+                           Map<String, Integer> mix, Duration nacosLatency, int payload, boolean saturate, Duration sloP99) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                if (!arg.startsWith("--")) {
+                    throw new IllegalArgumentException("无法识别的参数: " + arg);
+                }
+                int eq = arg.indexOf('=');
+                values.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+            }
+            int sessions = Integer.parseInt(values.getOrDefault("sessions", "50"));
+            return new Options(
+                    values.get("url"),
+                    sessions,
+                    Integer.parseInt(values.getOrDefault("max-sessions", String.valueOf(Math.max(sessions, 1024)))),
+                    duration(values.getOrDefault("duration", "30s")),
+                    duration(values.getOrDefault("warmup", "5s")),
+                    duration(values.getOrDefault("think", "0ms")),
+                    mix(values.getOrDefault("mix", DEFAULT_MIX)),
+                    duration(values.getOrDefault("nacos-latency", "5ms")),
+                    Integer.parseInt(values.getOrDefault("payload", "1000")),
+                    Boolean.parseBoolean(values.getOrDefault("saturate", "false")),
+                    duration(values.getOrDefault("slo-p99", "500ms")));
+        }
+
+        private static Duration duration(String value) {
+            if (value.endsWith("ms")) {
+                return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+            }
+            if (value.endsWith("s")) {
+                return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+            }
+            if (value.endsWith("m")) {
+                return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+            }
+            return Duration.ofSeconds(Long.parseLong(value));
+        }
+
+        private static Map<String, Integer> mix(String value) {
+            Map<String, Integer> mix = new LinkedHashMap<>();
+            for (String item : value.split(",")) {
+                String[] parts = item.trim().split("=");
+                mix.put(parts[0], parts.length > 1 ? Integer.parseInt(parts[1]) : 1);
+            }
+            return mix;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.bubua12.mcp.nacos.config;
+
+import com.bubua12.mcp.nacos.service.NacosBootstrap;
+import com.bubua12.mcp.nacos.service.NacosMCPService;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Nacos 连接状态，加入 readiness 分组：容器启动后即存活，连上 Nacos（或已从本地快照恢复）后才就绪
+ *
+ * @author bubua12
+ * @since 2026/10/18 01:20
+ */
+@Component
+public class NacosHealthIndicator implements ReactiveHealthIndicator {
+
+    private final NacosBootstrap bootstrap;
+
+    public NacosHealthIndicator(NacosMCPService nacosMCPService) {
+        this.bootstrap = nacosMCPService.bootstrap();
+    }
+
+    @Override
+    public Mono<Health> health() {
+        return Mono.fromSupplier(() -> {
+            NacosBootstrap.Status status = bootstrap.status();
+            Health.Builder builder = bootstrap.isReady() ? Health.up()
+                    : status.state() == NacosBootstrap.State.UNAVAILABLE ? Health.down() : Health.status(Status.OUT_OF_SERVICE);
+            builder.withDetail("state", status.state())
+                    .withDetail("since", status.since().toString())
+                    .withDetail("attempts", status.attempts());
+            if (status.lastError() != null) {
+                builder.withDetail("lastError", status.lastError());
+            }
+            return builder.build();
+        });
+    }
+}
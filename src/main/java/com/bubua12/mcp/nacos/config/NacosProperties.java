@@ -0,0 +1,560 @@
+package com.bubua12.mcp.nacos.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Nacos 连接配置
+ *
+ * @author bubua12
+ * @since 2026/10/17 13:05
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "nacos")
+public class NacosProperties {
+
+    /**
+     * Nacos 地址，如：http://127.0.0.1:8848
+     */
+    private String server;
+
+    private String username = "nacos";
+
+    private String password = "nacos";
+
+    private Http http = new Http();
+
+    private Cluster cluster = new Cluster();
+
+    private Sweep sweep = new Sweep();
+
+    private Namespace namespace = new Namespace();
+
+    private ConfigCache configCache = new ConfigCache();
+
+    private ConfigRead configRead = new ConfigRead();
+
+    private History history = new History();
+
+    private Search search = new Search();
+
+    private Watch watch = new Watch();
+
+    private Snapshot snapshot = new Snapshot();
+
+    private Bootstrap bootstrap = new Bootstrap();
+
+    private Coalesce coalesce = new Coalesce();
+
+    private Registry registry = new Registry();
+
+    private InstanceSearch instanceSearch = new InstanceSearch();
+
+    private Paging paging = new Paging();
+
+    private Batch batch = new Batch();
+
+    private Bulk bulk = new Bulk();
+
+    private Response response = new Response();
+
+    @Data
+    public static class Http {
+
+        /**
+         * 每个 Nacos 节点的最大连接数
+         */
+        private int maxConnections = 64;
+
+        /**
+         * 连接用尽时最多排队的请求数，超过直接失败
+         */
+        private int pendingAcquireMaxCount = 256;
+
+        /**
+         * 排队等待连接的超时时间
+         */
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+
+        /**
+         * 连接空闲超过该时长后被回收
+         */
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+
+        /**
+         * 连接的最长存活时间，到期后不再复用，便于 Nacos 扩缩容后重新分布连接
+         */
+        private Duration maxLifeTime = Duration.ofMinutes(10);
+
+        /**
+         * 后台回收空闲、过期连接的间隔
+         */
+        private Duration evictInterval = Duration.ofSeconds(30);
+
+        /**
+         * 建立连接的超时时间
+         */
+        private Duration connectTimeout = Duration.ofSeconds(3);
+
+        /**
+         * 每次调用等待响应的超时时间（两次读取之间的最长间隔）
+         */
+        private Duration responseTimeout = Duration.ofSeconds(10);
+
+        /**
+         * 是否请求 gzip 压缩的响应
+         */
+        private boolean compression = true;
+
+        /**
+         * GET 请求遇到网络错误或超时时的最大重试次数，0 表示不重试
+         */
+        private int maxRetries = 2;
+
+        /**
+         * 首次重试的退避时间，之后指数增长
+         */
+        private Duration retryBackoff = Duration.ofMillis(200);
+
+        /**
+         * 重试退避时间上限
+         */
+        private Duration maxRetryBackoff = Duration.ofSeconds(2);
+
+        /**
+         * 单个响应体在内存中的最大大小，超过则调用失败
+         */
+        private DataSize maxInMemorySize = DataSize.ofMegabytes(16);
+    }
+
+    @Data
+    public static class Cluster {
+
+        /**
+         * 是否把读请求分摊到集群各节点，关闭后全部请求发往 nacos.server
+         */
+        private boolean enabled = true;
+
+        /**
+         * 节点选择策略
+         */
+        private Strategy strategy = Strategy.LEAST_OUTSTANDING;
+
+        /**
+         * 集群成员的刷新间隔
+         */
+        private Duration refreshInterval = Duration.ofSeconds(30);
+
+        /**
+         * 连续失败多少次后摘除节点
+         */
+        private int failureThreshold = 3;
+
+        /**
+         * 被摘除节点的探活间隔
+         */
+        private Duration probeInterval = Duration.ofSeconds(5);
+
+        /**
+         * 读请求超过该时长未响应时向另一个节点发出对冲请求，不配置则不对冲
+         */
+        private Duration hedgeDelay;
+
+        public enum Strategy {
+            /**
+             * 在途请求最少
+             */
+            LEAST_OUTSTANDING,
+            /**
+             * 在途请求数 × 平均延迟最小
+             */
+            LATENCY_WEIGHTED
+        }
+    }
+
+    @Data
+    public static class Sweep {
+
+        /**
+         * 巡检整个集群的截止时间，到期仍未响应的节点标记为 TIMEOUT
+         */
+        private Duration timeout = Duration.ofSeconds(3);
+
+        /**
+         * 服务数、实例数低于集群最大值超过该比例时标记为 LAGGING
+         */
+        private double lagRatio = 0.05;
+
+        /**
+         * 客户端数、订阅数、CPU、负载、内存、响应耗时偏离集群中位数超过该倍数时标记为 OUTLIER，至少 3 个节点响应时才判断
+         */
+        private double outlierRatio = 1.0;
+    }
+
+    @Data
+    public static class Namespace {
+
+        /**
+         * namespace 列表缓存有效期，过期后在后台刷新
+         */
+        private Duration cacheTtl = Duration.ofMinutes(5);
+
+        /**
+         * 未知 namespace 的负缓存时长，窗口内重复查询同一个名称不再请求 Nacos
+         */
+        private Duration missTtl = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class ConfigCache {
+
+        /**
+         * 是否缓存 getConfig 结果，缓存依赖 nacos-client 的配置变更推送失效
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最大条目数
+         */
+        private int maxEntries = 1000;
+
+        /**
+         * 缓存内容的最大总大小
+         */
+        private DataSize maxBytes = DataSize.ofMegabytes(32);
+    }
+
+    @Data
+    public static class ConfigRead {
+
+        /**
+         * 按范围或配置项读取时流式读取配置内容的上限，超出后停止读取
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+
+        /**
+         * getConfig 单次返回的内容上限，完整读取超出时只返回开头部分并附上大小和 MD5
+         */
+        private DataSize maxInlineSize = DataSize.ofMegabytes(1);
+    }
+
+    @Data
+    public static class History {
+
+        /**
+         * 是否缓存配置历史：历史列表增量拉取，历史详情按 id 永久缓存
+         */
+        private boolean enabled = true;
+
+        /**
+         * 首次拉取历史列表的分页大小，也是 getConfigHistory 返回的最大条数
+         */
+        private int pageSize = 100;
+
+        /**
+         * 每个配置最多保留的历史条数
+         */
+        private int maxEntriesPerConfig = 200;
+
+        /**
+         * 最多缓存历史列表的配置数
+         */
+        private int maxConfigs = 200;
+
+        /**
+         * 历史详情（配置内容）的最大总大小
+         */
+        private DataSize maxBytes = DataSize.ofMegabytes(16);
+
+        /**
+         * diffConfigHistory 默认的上下文行数
+         */
+        private int diffContext = 3;
+    }
+
+    @Data
+    public static class Search {
+
+        /**
+         * 每个名称空间索引的最大估算内存
+         */
+        private DataSize maxBytes = DataSize.ofMegabytes(64);
+
+        /**
+         * 每个名称空间最多索引的配置数
+         */
+        private int maxDocuments = 20000;
+
+        /**
+         * 最多同时保留索引的名称空间数，超出按 LRU 淘汰
+         */
+        private int maxNamespaces = 8;
+
+        /**
+         * 索引的重建间隔，变更通知发现不了新建的配置，靠定期重建补齐
+         */
+        private Duration refreshInterval = Duration.ofMinutes(5);
+
+        /**
+         * 是否为已索引的配置注册变更监听、收到推送即增量更新，关闭后只按 refreshInterval 重建
+         */
+        private boolean liveUpdates = true;
+
+        /**
+         * 为已索引配置注册变更监听的并发数
+         */
+        private int watchConcurrency = 16;
+
+        /**
+         * 不传 limit 时返回的条数
+         */
+        private int defaultLimit = 50;
+
+        /**
+         * 每个配置最多返回的匹配行数
+         */
+        private int maxMatchesPerConfig = 3;
+
+        /**
+         * 匹配行的最大长度，超出截断
+         */
+        private int maxLineLength = 200;
+
+        /**
+         * 一次正则搜索的匹配时长上限，超时按参数错误返回，防止灾难性回溯的表达式长时间占用线程
+         */
+        private Duration regexTimeout = Duration.ofSeconds(2);
+    }
+
+    @Data
+    public static class Watch {
+
+        /**
+         * 每个 MCP 会话最多订阅的配置数
+         */
+        private int maxKeysPerSession = 200;
+
+        /**
+         * 订阅的有效期，到期后自动取消，避免断开的会话一直占用监听
+         */
+        private Duration ttl = Duration.ofHours(1);
+
+        /**
+         * 清理过期订阅的间隔
+         */
+        private Duration cleanupInterval = Duration.ofMinutes(1);
+
+        /**
+         * 变更通知中 diff 的上下文行数
+         */
+        private int diffContext = 3;
+
+        /**
+         * 变更通知中 diff 的最大长度，超出截断
+         */
+        private DataSize maxDiffSize = DataSize.ofKilobytes(16);
+    }
+
+    @Data
+    public static class Snapshot {
+
+        /**
+         * 是否在本地磁盘保存 namespace、最近读取的配置和实例列表的快照，启动时先加载快照，Nacos 不可达时返回快照并标记为过期；
+         * 快照以明文保存配置内容（可能包含密码等敏感信息），文件只有属主可读写，默认关闭
+         */
+        private boolean enabled = false;
+
+        /**
+         * 快照文件路径，目录不存在时自动创建
+         */
+        private String path = "data/nacos-snapshot.bin";
+
+        /**
+         * 快照最多保留的条目数，超出按 LRU 淘汰
+         */
+        private int maxEntries = 2000;
+
+        /**
+         * 快照内容的最大总大小
+         */
+        private DataSize maxBytes = DataSize.ofMegabytes(64);
+    }
+
+    @Data
+    public static class Bootstrap {
+
+        /**
+         * 启动时连接 Nacos 失败后的首次重试间隔，之后按指数退避
+         */
+        private Duration retryBackoff = Duration.ofSeconds(1);
+
+        /**
+         * 重试间隔上限
+         */
+        private Duration maxRetryBackoff = Duration.ofSeconds(30);
+
+        /**
+         * 尚未连上 Nacos 但已从本地快照恢复时，readiness 是否报告就绪
+         */
+        private boolean readyOnSnapshot = true;
+    }
+
+    @Data
+    public static class Coalesce {
+
+        /**
+         * 是否合并参数相同的并发读工具调用，共享同一次上游请求
+         */
+        private boolean enabled = true;
+
+        /**
+         * 成功结果在调用完成后继续复用的时长，用于吸收突发的重复调用，0 表示只合并在途调用
+         */
+        private Duration ttl = Duration.ZERO;
+
+        /**
+         * ttl 内保留的结果数上限
+         */
+        private int maxEntries = 10000;
+    }
+
+    @Data
+    public static class Registry {
+
+        /**
+         * 是否通过 NamingService 订阅推送维护实例列表，关闭后每次都走 OpenAPI 查询
+         */
+        private boolean enabled = true;
+
+        /**
+         * 服务超过该时长未被查询则取消订阅
+         */
+        private Duration idleTimeout = Duration.ofMinutes(10);
+
+        /**
+         * 首次订阅的超时时间，超时回退到 OpenAPI 查询
+         */
+        private Duration subscribeTimeout = Duration.ofSeconds(3);
+
+        /**
+         * 服务详情的缓存时长，实例变更推送到达时提前失效
+         */
+        private Duration detailTtl = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class InstanceSearch {
+
+        /**
+         * 每个分组最多索引的服务数
+         */
+        private int maxServices = 5000;
+
+        /**
+         * 每个分组最多索引的实例数，超出的服务不再加入索引
+         */
+        private int maxInstances = 200000;
+
+        /**
+         * 最多同时保留索引的分组数，超出按 LRU 淘汰
+         */
+        private int maxScopes = 8;
+
+        /**
+         * 索引的重建间隔，实例订阅发现不了新注册的服务，靠定期重建补齐
+         */
+        private Duration refreshInterval = Duration.ofMinutes(5);
+
+        /**
+         * 是否为已索引的服务订阅实例变更、收到推送即增量更新，关闭后只按 refreshInterval 重建
+         */
+        private boolean liveUpdates = true;
+
+        /**
+         * 构建索引时拉取实例列表、订阅实例变更的并发数
+         */
+        private int concurrency = 16;
+
+        /**
+         * 构建索引时等待实例推送通道（NamingService）建立的时长上限，超时则本次构建不订阅，只按 refreshInterval 重建
+         */
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        /**
+         * 不传 limit 时返回的条数
+         */
+        private int defaultLimit = 100;
+    }
+
+    @Data
+    public static class Paging {
+
+        /**
+         * 服务列表每页条数
+         */
+        private int pageSize = 500;
+
+        /**
+         * 配置列表每页条数，配置列表接口会带回配置内容，页不宜过大
+         */
+        private int configPageSize = 100;
+
+        /**
+         * 同时在途的分页请求数
+         */
+        private int concurrency = 4;
+
+        /**
+         * 单次调用最多返回的条数
+         */
+        private int maxLimit = 2000;
+    }
+
+    @Data
+    public static class Batch {
+
+        /**
+         * 批量获取配置时同时在途的请求数
+         */
+        private int concurrency = 8;
+
+        /**
+         * 单个配置的超时时间，超时只影响该配置
+         */
+        private Duration itemTimeout = Duration.ofSeconds(5);
+
+        /**
+         * 单次批量获取的配置数上限
+         */
+        private int maxItems = 100;
+    }
+
+    @Data
+    public static class Bulk {
+
+        /**
+         * 批量上下线时同时在途的请求数
+         */
+        private int concurrency = 4;
+
+        /**
+         * 批量上下线每秒最多发出的请求数，避免压垮 Nacos leader
+         */
+        private int ratePerSecond = 20;
+    }
+
+    @Data
+    public static class Response {
+
+        /**
+         * 是否把工具结果精简为表格/键值文本，去掉响应包装和空字段；关闭后原样返回 Nacos 的 JSON
+         */
+        private boolean compact = true;
+    }
+}
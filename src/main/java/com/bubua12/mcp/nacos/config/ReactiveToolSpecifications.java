@@ -0,0 +1,185 @@
+package com.bubua12.mcp.nacos.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.modelcontextprotocol.server.McpAsyncServerExchange;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.spec.McpSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.mcp.McpToolUtils;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.method.MethodToolCallbackProvider;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 将 @Tool 方法注册为 MCP 异步工具
+ * <p>
+ * MethodToolCallback 只能同步调用工具方法，返回 Mono 的工具会被阻塞等待。这里复用它生成的工具定义（名称、描述、入参 Schema），
+ * 但直接反射调用工具方法并把返回的 Mono 交给 MCP 异步服务端订阅，整个调用链不占用任何线程等待 Nacos 响应。
+ * 每次调用按工具名、HTTP 状态码和结果记录到 nacos.mcp.tool 计时器，进行中的调用数记录到 nacos.mcp.tool.inflight；
+ * 从 JVM 启动到首次成功调用的耗时记录到 nacos.mcp.tool.first.success，用于衡量冷启动。
+ *
+ * @author bubua12
+ * @since 2026/10/17 10:20
+ */
+@Slf4j
+public final class ReactiveToolSpecifications {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private ReactiveToolSpecifications() {
+    }
+
+    public static List<McpServerFeatures.AsyncToolSpecification> from(MeterRegistry meterRegistry, Object... toolObjects) {
+        AtomicInteger inflight = meterRegistry.gauge("nacos.mcp.tool.inflight", new AtomicInteger());
+        AtomicLong firstSuccess = new AtomicLong();
+        TimeGauge.builder("nacos.mcp.tool.first.success", firstSuccess, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("从 JVM 启动到首次成功调用工具的耗时，尚未成功调用时为 0")
+                .register(meterRegistry);
+        List<McpServerFeatures.AsyncToolSpecification> specifications = new ArrayList<>();
+        for (Object toolObject : toolObjects) {
+            Map<String, Method> toolMethods = toolMethods(AopUtils.getTargetClass(toolObject));
+            ToolCallback[] callbacks = MethodToolCallbackProvider.builder()
+                    .toolObjects(toolObject)
+                    .build()
+                    .getToolCallbacks();
+            for (ToolCallback callback : callbacks) {
+                ToolDefinition definition = callback.getToolDefinition();
+                Method method = toolMethods.get(definition.name());
+                McpSchema.Tool tool = new McpSchema.Tool(definition.name(), definition.description(), definition.inputSchema());
+                specifications.add(new McpServerFeatures.AsyncToolSpecification(tool,
+                        (exchange, arguments) -> timed(meterRegistry, inflight, firstSuccess, definition.name(),
+                                invoke(toolObject, method, arguments, exchange))));
+            }
+        }
+        return specifications;
+    }
+
+    private static Map<String, Method> toolMethods(Class<?> toolClass) {
+        Map<String, Method> methods = new HashMap<>();
+        ReflectionUtils.doWithMethods(toolClass, method -> {
+            Tool tool = method.getAnnotation(Tool.class);
+            methods.put(StringUtils.hasText(tool.name()) ? tool.name() : method.getName(), method);
+        }, method -> method.isAnnotationPresent(Tool.class));
+        return methods;
+    }
+
+    private static Mono<McpSchema.CallToolResult> invoke(Object toolObject, Method method, Map<String, Object> arguments,
+                                                         McpAsyncServerExchange exchange) {
+        return Mono.defer(() -> {
+                    ReflectionUtils.makeAccessible(method);
+                    Object result = ReflectionUtils.invokeMethod(method, toolObject, buildArguments(method, arguments, exchange));
+                    if (result instanceof Mono<?> mono) {
+                        return mono.map(String::valueOf);
+                    }
+                    return Mono.justOrEmpty(result).map(String::valueOf);
+                })
+                .defaultIfEmpty("")
+                .map(text -> new McpSchema.CallToolResult(List.of(new McpSchema.TextContent(text)), false))
+                .onErrorResume(e -> {
+                    log.error("工具 {} 调用失败", method.getName(), e);
+                    return Mono.just(new McpSchema.CallToolResult(List.of(new McpSchema.TextContent(String.valueOf(e.getMessage()))), true));
+                });
+    }
+
+    /**
+     * 记录一次工具调用：工具返回的 "HTTP 状态码" 作为 status，调用抛出异常时 outcome 为 ERROR
+     */
+    private static Mono<McpSchema.CallToolResult> timed(MeterRegistry meterRegistry, AtomicInteger inflight, AtomicLong firstSuccess,
+                                                       String toolName, Mono<McpSchema.CallToolResult> call) {
+        return Mono.defer(() -> {
+            inflight.incrementAndGet();
+            // 在结果交给调用方之前减掉在途数，调用方看到结果时 gauge 已经一致；终止后的取消不重复减
+            AtomicBoolean done = new AtomicBoolean();
+            Runnable finish = () -> {
+                if (done.compareAndSet(false, true)) {
+                    inflight.decrementAndGet();
+                }
+            };
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return call.doOnNext(result -> {
+                        String status = status(result);
+                        String outcome = Boolean.TRUE.equals(result.isError()) ? "ERROR"
+                                : status.startsWith("2") ? "SUCCESS"
+                                : status.startsWith("4") ? "CLIENT_ERROR"
+                                : status.startsWith("5") ? "SERVER_ERROR" : "UNKNOWN";
+                        sample.stop(toolTimer(meterRegistry, toolName, status, outcome));
+                        if ("SUCCESS".equals(outcome) && firstSuccess.get() == 0) {
+                            long sinceStart = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+                            if (firstSuccess.compareAndSet(0, sinceStart)) {
+                                log.info("JVM 启动后 {} ms 完成首次成功的工具调用: {}", sinceStart, toolName);
+                            }
+                        }
+                    })
+                    .doOnTerminate(finish)
+                    .doOnCancel(() -> {
+                        if (!done.get()) {
+                            sample.stop(toolTimer(meterRegistry, toolName, "NONE", "CANCELLED"));
+                        }
+                        finish.run();
+                    });
+        });
+    }
+
+    private static Timer toolTimer(MeterRegistry meterRegistry, String toolName, String status, String outcome) {
+        return Timer.builder("nacos.mcp.tool")
+                .description("MCP 工具调用耗时")
+                .tag("tool", toolName)
+                .tag("status", status)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * 从 "HTTP 200 OK" 开头的工具输出中取出状态码
+     */
+    private static String status(McpSchema.CallToolResult result) {
+        if (result.content().isEmpty() || !(result.content().get(0) instanceof McpSchema.TextContent content)) {
+            return "NONE";
+        }
+        String text = content.text();
+        if (text == null || !text.startsWith("HTTP ") || text.length() < 8) {
+            return "NONE";
+        }
+        return text.substring(5, 8);
+    }
+
+    /**
+     * 按参数名从调用参数中取值；ToolContext 参数不出现在入参 Schema 中，传入当前 MCP 会话
+     */
+    private static Object[] buildArguments(Method method, Map<String, Object> arguments, McpAsyncServerExchange exchange) {
+        Parameter[] parameters = method.getParameters();
+        Object[] values = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            if (ToolContext.class.isAssignableFrom(parameters[i].getType())) {
+                values[i] = new ToolContext(exchange == null ? Map.of() : Map.of(McpToolUtils.TOOL_CONTEXT_MCP_EXCHANGE_KEY, exchange));
+                continue;
+            }
+            Object raw = arguments == null ? null : arguments.get(parameters[i].getName());
+            values[i] = raw == null ? null
+                    : OBJECT_MAPPER.convertValue(raw, OBJECT_MAPPER.constructType(parameters[i].getParameterizedType()));
+        }
+        return values;
+    }
+}
@@ -1,11 +1,13 @@
 package com.bubua12.mcp.nacos.config;
 
 import com.bubua12.mcp.nacos.service.NacosMCPService;
-import org.springframework.ai.tool.ToolCallbackProvider;
-import org.springframework.ai.tool.method.MethodToolCallbackProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.modelcontextprotocol.server.McpServerFeatures;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
 /**
  * import tools
  *
@@ -16,7 +18,7 @@ import org.springframework.context.annotation.Configuration;
 public class ToosConfig {
 
     @Bean
-    public ToolCallbackProvider nacosTools(NacosMCPService nacosMCPService) {
-        return MethodToolCallbackProvider.builder().toolObjects(nacosMCPService).build();
+    public List<McpServerFeatures.AsyncToolSpecification> nacosTools(NacosMCPService nacosMCPService, MeterRegistry meterRegistry) {
+        return ReactiveToolSpecifications.from(meterRegistry, nacosMCPService);
     }
 }
@@ -0,0 +1,332 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 集群巡检：并发查询每个节点的健康状态、节点信息和数据指标，合并为一份报告
+ * <p>
+ * 所有节点共用一个截止时间，到期未响应的接口记为 TIMEOUT，不影响其他节点的结果。请求直接发往各节点，不经过负载均衡和重试。
+ * 节点之间互相比较：服务数、实例数明显低于集群最大值或 Raft term 落后的标记为 LAGGING，
+ * 版本与多数节点不同的标记为 VERSION，客户端数、订阅数、CPU、负载、内存、响应耗时明显偏离中位数的标记为 OUTLIER。
+ *
+ * @author bubua12
+ * @since 2026/10/18 02:20
+ */
+public class ClusterSweep {
+
+    private static final String SELF_PATH = "/nacos/v2/core/cluster/node/self";
+    private static final String HEALTH_PATH = "/nacos/v2/core/cluster/node/self/health";
+    private static final String METRICS_PATH = "/nacos/v2/ns/operator/metrics";
+
+    private static final List<String> LAG_METRICS = List.of("serviceCount", "instanceCount");
+
+    /**
+     * 判断离群的指标和各自的最小基数：中位数很小时按基数计算允许的偏离，避免 0.01 和 0.03 这类差异被当成离群
+     */
+    private static final Map<String, Double> OUTLIER_METRICS = new LinkedHashMap<>();
+
+    static {
+        OUTLIER_METRICS.put("clientCount", 10.0);
+        OUTLIER_METRICS.put("subscribeCount", 10.0);
+        OUTLIER_METRICS.put("cpu", 0.1);
+        OUTLIER_METRICS.put("load", 1.0);
+        OUTLIER_METRICS.put("mem", 0.1);
+        OUTLIER_METRICS.put("latencyMillis", 50.0);
+    }
+
+    private final WebClient directClient;
+    private final String scheme;
+    private final NacosProperties.Sweep sweep;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * @param directClient 不经过负载均衡的 WebClient
+     * @param server       nacos.server，节点地址沿用它的协议
+     * @param sweep        巡检配置
+     */
+    public ClusterSweep(WebClient directClient, String server, NacosProperties.Sweep sweep) {
+        this.directClient = directClient;
+        this.scheme = URI.create(server).getScheme();
+        this.sweep = sweep;
+    }
+
+    /**
+     * @param members  /nacos/v2/core/cluster/node/list 返回的成员列表
+     * @param token    accessToken
+     * @param deadline 截止时间，System.nanoTime() 的取值
+     * @return 集群报告：汇总计数和每个节点一行
+     */
+    public Mono<ObjectNode> sweep(JsonNode members, String token, long deadline) {
+        long start = System.nanoTime();
+        List<JsonNode> list = new ArrayList<>();
+        members.forEach(list::add);
+        return Flux.fromIterable(list)
+                .flatMap(member -> probe(member, token, deadline), Math.max(list.size(), 1))
+                .collectList()
+                .map(nodes -> report(nodes, start));
+    }
+
+    private Mono<NodeResult> probe(JsonNode member, String token, long deadline) {
+        String address = member.hasNonNull("address") ? member.path("address").asText()
+                : member.path("ip").asText() + ":" + member.path("port").asInt();
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            Duration remaining = Duration.ofNanos(Math.max(deadline - start, TimeUnit.MILLISECONDS.toNanos(1)));
+            return Mono.zip(fetch(address, SELF_PATH, token, remaining),
+                            fetch(address, HEALTH_PATH, token, remaining),
+                            fetch(address, METRICS_PATH, token, remaining))
+                    .map(probes -> new NodeResult(address, member, probes.getT1(), probes.getT2(), probes.getT3(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        });
+    }
+
+    /**
+     * 请求单个接口，失败和超时记录在结果里而不是抛出
+     */
+    private Mono<Probe> fetch(String address, String path, String token, Duration timeout) {
+        return directClient.get()
+                .uri(scheme + "://" + address + path + "?accessToken={token}", token)
+                .exchangeToMono(response -> response.bodyToMono(String.class)
+                        .defaultIfEmpty("")
+                        .map(body -> new NacosResponse(response.statusCode(), body)))
+                .timeout(timeout)
+                .map(response -> {
+                    if (!response.isOk()) {
+                        return Probe.failed("HTTP " + response.status().value());
+                    }
+                    try {
+                        return Probe.ok(objectMapper.readTree(response.body()).path("data"));
+                    } catch (Exception e) {
+                        return Probe.failed("解析响应失败");
+                    }
+                })
+                .onErrorResume(e -> Mono.just(e instanceof TimeoutException ? Probe.timedOut() : Probe.failed(String.valueOf(e.getMessage()))));
+    }
+
+    private ObjectNode report(List<NodeResult> nodes, long start) {
+        nodes = nodes.stream().sorted(Comparator.comparing(NodeResult::address)).toList();
+        List<NodeResult> answered = nodes.stream().filter(NodeResult::answered).toList();
+        Map<String, List<String>> flags = new HashMap<>();
+        nodes.forEach(node -> flags.put(node.address(), new ArrayList<>()));
+
+        for (String metric : LAG_METRICS) {
+            double max = answered.stream().mapToDouble(node -> node.metric(metric)).filter(v -> v >= 0).max().orElse(-1);
+            for (NodeResult node : answered) {
+                double value = node.metric(metric);
+                if (value >= 0 && value < max * (1 - sweep.getLagRatio())) {
+                    flags.get(node.address()).add("LAGGING(" + metric + "=" + format(value) + ",max=" + format(max) + ")");
+                }
+            }
+        }
+        Map<String, Long> maxTerms = new HashMap<>();
+        answered.forEach(node -> node.raftTerms().forEach((group, term) -> maxTerms.merge(group, term, Math::max)));
+        for (NodeResult node : answered) {
+            node.raftTerms().forEach((group, term) -> {
+                if (term < maxTerms.get(group)) {
+                    flags.get(node.address()).add("LAGGING(" + group + ".term=" + term + ",max=" + maxTerms.get(group) + ")");
+                }
+            });
+        }
+        // 只有过半节点版本一致时才判断版本差异，各版本数量相当时无从判断哪个是异常
+        Map<String, Long> versions = answered.stream().map(NodeResult::version).filter(v -> !v.isEmpty())
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        long reported = versions.values().stream().mapToLong(Long::longValue).sum();
+        String majority = versions.entrySet().stream()
+                .filter(entry -> entry.getValue() * 2 > reported)
+                .map(Map.Entry::getKey).findFirst().orElse("");
+        for (NodeResult node : answered) {
+            if (!majority.isEmpty() && !node.version().isEmpty() && !node.version().equals(majority)) {
+                flags.get(node.address()).add("VERSION(" + node.version() + ",majority=" + majority + ")");
+            }
+        }
+        if (answered.size() >= 3) {
+            OUTLIER_METRICS.forEach((metric, floor) -> {
+                double[] values = answered.stream().mapToDouble(node -> node.metric(metric)).filter(v -> v >= 0).sorted().toArray();
+                if (values.length < 3) {
+                    return;
+                }
+                double median = values.length % 2 == 1 ? values[values.length / 2]
+                        : (values[values.length / 2 - 1] + values[values.length / 2]) / 2;
+                double allowed = sweep.getOutlierRatio() * Math.max(median, floor);
+                for (NodeResult node : answered) {
+                    double value = node.metric(metric);
+                    if (value >= 0 && Math.abs(value - median) > allowed) {
+                        flags.get(node.address()).add("OUTLIER(" + metric + "=" + format(value) + ",median=" + format(median) + ")");
+                    }
+                }
+            });
+        }
+
+        ObjectNode data = objectMapper.createObjectNode();
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        List<ObjectNode> rows = new ArrayList<>();
+        for (NodeResult node : nodes) {
+            String status = node.status();
+            counts.merge(status, 1, Integer::sum);
+            rows.add(node.toRow(objectMapper.createObjectNode(), status, flags.get(node.address())));
+        }
+        data.put("total", nodes.size());
+        data.put("up", counts.getOrDefault("UP", 0));
+        data.put("partial", counts.getOrDefault("PARTIAL", 0));
+        data.put("down", counts.getOrDefault("DOWN", 0));
+        data.put("timeout", counts.getOrDefault("TIMEOUT", 0));
+        data.put("flagged", flags.values().stream().filter(list -> !list.isEmpty()).count());
+        data.put("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        data.putArray("nodes").addAll(rows);
+        return data;
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    /**
+     * 单个接口的探测结果
+     */
+    private record Probe(JsonNode data, String error, boolean timeout) {
+
+        static Probe ok(JsonNode data) {
+            return new Probe(data, null, false);
+        }
+
+        static Probe failed(String error) {
+            return new Probe(null, error, false);
+        }
+
+        static Probe timedOut() {
+            return new Probe(null, "TIMEOUT", true);
+        }
+
+        boolean isOk() {
+            return data != null;
+        }
+    }
+
+    /**
+     * 单个节点的探测结果
+     */
+    private record NodeResult(String address, JsonNode member, Probe self, Probe health, Probe metrics, long latencyMillis) {
+
+        boolean answered() {
+            return self.isOk() || health.isOk() || metrics.isOk();
+        }
+
+        /**
+         * 三个接口都超时为 TIMEOUT，都失败为 DOWN；节点自报或成员列表中不是 UP 的为 DOWN；部分接口失败为 PARTIAL
+         */
+        String status() {
+            if (!answered()) {
+                return self.timeout() && health.timeout() && metrics.timeout() ? "TIMEOUT" : "DOWN";
+            }
+            if (!healthy()) {
+                return "DOWN";
+            }
+            return self.isOk() && health.isOk() && metrics.isOk() ? "UP" : "PARTIAL";
+        }
+
+        /**
+         * /self/health 在 2.x 返回状态字符串，也兼容 {"healthy": false} 的形式
+         */
+        private boolean healthy() {
+            String memberState = member.path("state").asText("UP");
+            if (!"UP".equals(memberState)) {
+                return false;
+            }
+            if (health.isOk()) {
+                JsonNode data = health.data();
+                if (data.isTextual() && !"UP".equalsIgnoreCase(data.asText())) {
+                    return false;
+                }
+                if (data.isObject() && !data.path("healthy").asBoolean(true)) {
+                    return false;
+                }
+            }
+            return !metrics.isOk() || metrics.data().path("status").asText("UP").equalsIgnoreCase("UP");
+        }
+
+        String version() {
+            if (self.isOk()) {
+                return self.data().path("extendInfo").path("version").asText("");
+            }
+            return member.path("extendInfo").path("version").asText("");
+        }
+
+        /**
+         * 数值指标，节点没有返回时为 -1
+         */
+        double metric(String name) {
+            if ("latencyMillis".equals(name)) {
+                return latencyMillis;
+            }
+            if (!metrics.isOk()) {
+                return -1;
+            }
+            JsonNode value = metrics.data().path(name);
+            return value.isNumber() || value.isTextual() && !value.asText().isEmpty() ? value.asDouble(-1) : -1;
+        }
+
+        /**
+         * 节点自报的各 Raft 组 term
+         */
+        Map<String, Long> raftTerms() {
+            Map<String, Long> terms = new LinkedHashMap<>();
+            if (self.isOk()) {
+                self.data().path("extendInfo").path("raftMetaData").path("metaDataMap")
+                        .fields().forEachRemaining(entry -> {
+                            JsonNode term = entry.getValue().path("term");
+                            if (term.canConvertToLong()) {
+                                terms.put(entry.getKey(), term.asLong());
+                            }
+                        });
+            }
+            return terms;
+        }
+
+        ObjectNode toRow(ObjectNode row, String status, List<String> flags) {
+            row.put("address", address);
+            row.put("status", status);
+            row.put("flags", String.join("; ", flags));
+            row.put("latencyMillis", latencyMillis);
+            row.put("version", version());
+            if (metrics.isOk()) {
+                for (String field : List.of("serviceCount", "instanceCount", "clientCount", "subscribeCount", "cpu", "load", "mem")) {
+                    if (metrics.data().has(field)) {
+                        row.set(field, metrics.data().get(field));
+                    }
+                }
+            }
+            List<String> errors = new ArrayList<>();
+            if (!self.isOk()) {
+                errors.add("self: " + self.error());
+            }
+            if (!health.isOk()) {
+                errors.add("health: " + health.error());
+            }
+            if (!metrics.isOk()) {
+                errors.add("metrics: " + metrics.error());
+            }
+            row.put("error", String.join("; ", errors));
+            return row;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * 配置历史缓存
+ * <p>
+ * Nacos 的历史记录写入后不再变化：历史列表按配置记住已拉取的条目，之后只从第一页起拉取比已知最新 id 更新的条目；
+ * 历史详情（含配置内容）按历史 id 永久缓存，只在超出总大小时按 LRU 淘汰。
+ * Nacos 按保留期清理掉的历史在本地仍然可见，直到被淘汰。
+ *
+ * @author bubua12
+ * @since 2026/10/17 22:30
+ */
+@Slf4j
+public class ConfigHistoryCache {
+
+    /**
+     * 已有历史列表时增量拉取的分页大小，通常一页就能接上已知的最新条目
+     */
+    private static final int INCREMENTAL_PAGE_SIZE = 10;
+
+    /**
+     * 每个条目除内容以外的估算开销（字节）
+     */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final NacosProperties.History properties;
+
+    /**
+     * 每个配置已知的历史条目，按 id 倒序
+     */
+    private final LinkedHashMap<ConfigKey, List<JsonNode>> timelines = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Revision, String> revisions = new LinkedHashMap<>(16, 0.75f, true);
+    private long revisionBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong fetchedEntries = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ConfigHistoryCache(NacosProperties.History properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 读取配置的历史列表，只向 Nacos 拉取比已知最新条目更新的部分
+     *
+     * @param key        配置坐标
+     * @param pageLoader 按页码和分页大小拉取一页历史，条目按 id 倒序
+     * @return 本次拉取时 Nacos 返回的历史总数，以及本地已知的历史条目（按 id 倒序，最多 maxEntriesPerConfig 条）
+     */
+    public Mono<PagedFetcher.Page<JsonNode>> entries(ConfigKey key, BiFunction<Integer, Integer, Mono<PagedFetcher.Page<JsonNode>>> pageLoader) {
+        if (!properties.isEnabled()) {
+            return pageLoader.apply(1, properties.getPageSize());
+        }
+        return Mono.defer(() -> {
+            List<JsonNode> known = timeline(key);
+            long newestKnown = known == null || known.isEmpty() ? Long.MIN_VALUE : id(known.get(0));
+            int pageSize = known == null ? properties.getPageSize() : INCREMENTAL_PAGE_SIZE;
+            return fetchNewer(pageLoader, 1, pageSize, newestKnown, -1, new ArrayList<>())
+                    .map(fresh -> {
+                        fetchedEntries.addAndGet(fresh.items().size());
+                        log.debug("[配置历史缓存] {} 新增 {} 条历史", key, fresh.items().size());
+                        return new PagedFetcher.Page<>(fresh.totalCount(), merge(key, fresh.items()));
+                    });
+        });
+    }
+
+    /**
+     * 读取某个历史版本的配置内容，同一个版本只向 Nacos 请求一次
+     *
+     * @param key    配置坐标
+     * @param id     历史 id
+     * @param loader 从 Nacos 加载该版本的内容
+     * @return 配置内容
+     */
+    public Mono<String> revision(ConfigKey key, long id, Mono<String> loader) {
+        if (!properties.isEnabled()) {
+            return loader;
+        }
+        return Mono.defer(() -> {
+            Revision revision = new Revision(key, id);
+            String cached = lookup(revision);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return Mono.just(cached);
+            }
+            misses.incrementAndGet();
+            return loader.doOnNext(content -> put(revision, content));
+        });
+    }
+
+    public Stats stats() {
+        synchronized (this) {
+            return new Stats(hits.get(), misses.get(), fetchedEntries.get(), evictions.get(), timelines.size(), revisions.size(), revisionBytes);
+        }
+    }
+
+    /**
+     * 从第一页起拉取比已知最新条目更新的部分，总数取第一页（最新）的
+     */
+    private Mono<PagedFetcher.Page<JsonNode>> fetchNewer(BiFunction<Integer, Integer, Mono<PagedFetcher.Page<JsonNode>>> pageLoader,
+                                                         int pageNo, int pageSize, long newestKnown, int totalCount, List<JsonNode> collected) {
+        return pageLoader.apply(pageNo, pageSize).flatMap(page -> {
+            int latestTotal = totalCount < 0 ? page.totalCount() : totalCount;
+            boolean reachedKnown = false;
+            for (JsonNode item : page.items()) {
+                if (id(item) <= newestKnown) {
+                    reachedKnown = true;
+                    break;
+                }
+                collected.add(item);
+            }
+            boolean lastPage = page.items().size() < pageSize || (long) pageNo * pageSize >= page.totalCount();
+            if (reachedKnown || lastPage || collected.size() >= properties.getMaxEntriesPerConfig()) {
+                return Mono.just(new PagedFetcher.Page<>(latestTotal, collected));
+            }
+            return fetchNewer(pageLoader, pageNo + 1, pageSize, newestKnown, latestTotal, collected);
+        });
+    }
+
+    private synchronized List<JsonNode> timeline(ConfigKey key) {
+        return timelines.get(key);
+    }
+
+    /**
+     * 按 id 合并新旧条目，并发的增量拉取重复写入同一条目不影响结果
+     */
+    private synchronized List<JsonNode> merge(ConfigKey key, List<JsonNode> fresh) {
+        TreeMap<Long, JsonNode> byId = new TreeMap<>(Comparator.reverseOrder());
+        List<JsonNode> known = timelines.get(key);
+        if (known != null) {
+            known.forEach(item -> byId.put(id(item), item));
+        }
+        fresh.forEach(item -> byId.put(id(item), item));
+        List<JsonNode> merged = byId.values().stream().limit(properties.getMaxEntriesPerConfig()).toList();
+        timelines.put(key, merged);
+        Iterator<List<JsonNode>> it = timelines.values().iterator();
+        while (timelines.size() > properties.getMaxConfigs() && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        return merged;
+    }
+
+    private synchronized String lookup(Revision revision) {
+        return revisions.get(revision);
+    }
+
+    private synchronized void put(Revision revision, String content) {
+        long weight = weight(content);
+        long maxBytes = properties.getMaxBytes().toBytes();
+        if (weight > maxBytes || revisions.containsKey(revision)) {
+            return;
+        }
+        revisions.put(revision, content);
+        revisionBytes += weight;
+        Iterator<Map.Entry<Revision, String>> it = revisions.entrySet().iterator();
+        while (revisionBytes > maxBytes && it.hasNext()) {
+            revisionBytes -= weight(it.next().getValue());
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static long weight(String content) {
+        return (long) content.length() * 2 + ENTRY_OVERHEAD;
+    }
+
+    private static long id(JsonNode item) {
+        return item.path("id").asLong(-1);
+    }
+
+    /**
+     * 历史版本坐标
+     *
+     * @param key 配置坐标
+     * @param id  历史 id
+     */
+    private record Revision(ConfigKey key, long id) {
+    }
+
+    /**
+     * 缓存统计
+     *
+     * @param hits           历史详情命中次数
+     * @param misses         历史详情未命中次数
+     * @param fetchedEntries 从 Nacos 拉取的历史列表条目数
+     * @param evictions      被淘汰的历史详情数
+     * @param configs        缓存了历史列表的配置数
+     * @param revisions      缓存的历史详情数
+     * @param bytes          历史详情的估算总大小
+     */
+    public record Stats(long hits, long misses, long fetchedEntries, long evictions, int configs, int revisions, long bytes) {
+    }
+}
@@ -0,0 +1,529 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.bubua12.mcp.nacos.utils.ConfigFlattener;
+import com.bubua12.mcp.nacos.utils.GlobMatcher;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 单个名称空间的配置倒排索引
+ * <p>
+ * 配置内容按小写三元组（trigram）建倒排表，子串查询先求各三元组倒排表的交集，再逐个校验候选配置；
+ * 配置内容展开为 a.b.c=value 后按键建索引，按键精确或通配查找后再按值过滤。正则和不足三个字符的关键字退化为逐个扫描。
+ * 配置内容、倒排表和键索引都按估算字节数计入内存占用，超出上限或条数上限的配置不再加入索引；更新后放不下时保留旧内容。
+ * 删除或更新配置空出的编号留给下一个加入的配置复用，频繁变更时编号表不会无限增长。
+ * <p>
+ * 搜索只在读锁内取出候选配置，匹配在锁外进行，不阻塞增量更新；正则由调用方传入，匹配时按截止时间检查，
+ * 灾难性回溯的表达式超时后报参数错误，而不是一直占用线程。
+ *
+ * @author bubua12
+ * @since 2026/10/17 23:20
+ */
+public final class ConfigIndex {
+
+    /**
+     * 每个配置除内容以外的估算开销（字节）
+     */
+    private static final int DOC_OVERHEAD = 96;
+
+    /**
+     * 每个三元组倒排表的估算开销：HashMap 节点、Long 键、倒排表对象
+     */
+    private static final int POSTINGS_OVERHEAD = 96;
+
+    /**
+     * 每个键值除字符串以外的估算开销
+     */
+    private static final int ENTRY_OVERHEAD = 48;
+
+    private final long maxBytes;
+    private final int maxDocuments;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Doc> docs = new ArrayList<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    private final Map<ConfigKey, Doc> byKey = new HashMap<>();
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+    private final Map<String, Map<Integer, String>> keys = new HashMap<>();
+    private long bytes;
+    private boolean truncated;
+
+    public ConfigIndex(long maxBytes, int maxDocuments) {
+        this.maxBytes = maxBytes;
+        this.maxDocuments = maxDocuments;
+    }
+
+    /**
+     * 解析单个配置：提取三元组、展开键值。不访问索引，可以在多个线程上并行执行
+     *
+     * @param key     配置坐标
+     * @param type    配置类型
+     * @param content 配置内容
+     * @return 解析结果
+     */
+    public static Analyzed analyze(ConfigKey key, String type, String content) {
+        String text = content == null ? "" : content;
+        return new Analyzed(key, type, text, trigrams(text), ConfigFlattener.flatten(key.dataId(), type, text));
+    }
+
+    /**
+     * 加入一个配置，已存在时替换旧内容
+     *
+     * @param analyzed 解析结果
+     * @return 是否加入；超出内存或条数上限时不加入（已有的旧内容保留），并标记索引不完整
+     */
+    public boolean add(Analyzed analyzed) {
+        Removal removal = removal(current(analyzed.key()));
+        lock.writeLock().lock();
+        try {
+            Doc existing = byKey.get(analyzed.key());
+            if (removal == null || removal.doc() != existing) {
+                // 解析旧内容期间配置又被替换，极少发生，在锁内重新解析
+                removal = removal(existing);
+            }
+            long weight = weight(analyzed);
+            // 旧内容独有的三元组按仍然存在计算，估算只会偏大
+            int newTrigrams = newTrigrams(analyzed.trigrams());
+            int documents = byKey.size() - (existing == null ? 0 : 1);
+            long remaining = bytes - (existing == null ? 0 : existing.weight());
+            if (documents >= maxDocuments || remaining + weight + (long) newTrigrams * POSTINGS_OVERHEAD > maxBytes) {
+                truncated = true;
+                return false;
+            }
+            if (existing != null) {
+                remove(removal);
+            }
+            // 移除旧内容后重新统计，旧内容独有的三元组可能已被删除
+            newTrigrams = newTrigrams(analyzed.trigrams());
+            Integer freeId = freeIds.poll();
+            Doc doc = new Doc(freeId == null ? docs.size() : freeId, analyzed.key(), analyzed.type(), analyzed.content(), weight);
+            if (freeId == null) {
+                docs.add(doc);
+            } else {
+                docs.set(freeId, doc);
+            }
+            byKey.put(doc.key(), doc);
+            bytes += weight + (long) newTrigrams * POSTINGS_OVERHEAD;
+            for (long gram : analyzed.trigrams()) {
+                trigrams.computeIfAbsent(gram, g -> new Postings()).add(doc.id());
+            }
+            analyzed.entries().forEach((name, value) -> keys.computeIfAbsent(name, k -> new HashMap<>()).put(doc.id(), value));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 收到变更通知时更新配置，content 为空表示配置已删除
+     * <p>
+     * 新旧内容的解析（提取三元组、展开 YAML 和 properties）都在写锁外进行，写锁内只修改倒排表，不阻塞同一名称空间的搜索。
+     *
+     * @param key     配置坐标
+     * @param content 最新内容
+     */
+    public void update(ConfigKey key, String content) {
+        Doc existing = current(key);
+        if (content != null) {
+            add(analyze(key, existing == null ? null : existing.type(), content));
+            return;
+        }
+        Removal removal = removal(existing);
+        if (removal == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Doc doc = byKey.get(key);
+            if (doc != null) {
+                remove(doc == removal.doc() ? removal : removal(doc));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 编译搜索关键字：正则区分大小写，普通关键字按子串不区分大小写匹配
+     *
+     * @param keyword 关键字
+     * @param regex   关键字是否为正则
+     * @return 编译后的表达式
+     * @throws IllegalArgumentException 正则语法错误
+     */
+    public static Pattern compile(String keyword, boolean regex) {
+        if (!regex) {
+            return Pattern.compile(Pattern.quote(keyword), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        }
+        try {
+            return Pattern.compile(keyword, Pattern.MULTILINE);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("正则表达式有误：" + e.getDescription() + "，位置 " + e.getIndex() + "：" + keyword, e);
+        }
+    }
+
+    /**
+     * 按关键字搜索配置内容
+     *
+     * @param keyword        关键字
+     * @param regex          关键字是否为正则
+     * @param limit          最多返回的匹配行数
+     * @param perConfig      每个配置最多返回的匹配行数
+     * @param maxLineLength  匹配行的最大长度，超出截断
+     * @param timeout        正则匹配的总时长上限
+     * @return 匹配结果
+     * @throws IllegalArgumentException 正则语法错误或匹配超时
+     */
+    public Matches searchContent(String keyword, boolean regex, int limit, int perConfig, int maxLineLength, Duration timeout) {
+        Pattern pattern = compile(keyword, regex);
+        List<Doc> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int id : candidates(regex ? "" : keyword)) {
+                Doc doc = docs.get(id);
+                if (doc != null) {
+                    candidates.add(doc);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        int matched = 0;
+        List<Hit> hits = new ArrayList<>();
+        for (Doc doc : candidates) {
+            if (!pattern.matcher(bounded(doc.content(), regex, deadline, keyword)).find()) {
+                continue;
+            }
+            matched++;
+            String[] lines = doc.content().split("\r?\n");
+            int found = 0;
+            for (int i = 0; i < lines.length && found < perConfig && hits.size() < limit; i++) {
+                if (pattern.matcher(bounded(lines[i], regex, deadline, keyword)).find()) {
+                    hits.add(new Hit(doc.key().dataId(), doc.key().group(), "line " + (i + 1), abbreviate(lines[i].strip(), maxLineLength)));
+                    found++;
+                }
+            }
+        }
+        return new Matches(matched, hits);
+    }
+
+    /**
+     * 按配置项搜索，再按值过滤
+     *
+     * @param keyPattern    配置项，支持 * 和 ? 通配符
+     * @param valueKeyword  值中包含的关键字，为空时不过滤
+     * @param regex         valueKeyword 是否为正则
+     * @param limit         最多返回的条数
+     * @param maxLineLength 值的最大长度，超出截断
+     * @param timeout       正则匹配的总时长上限
+     * @return 匹配结果
+     * @throws IllegalArgumentException 正则语法错误或匹配超时
+     */
+    public Matches searchKey(String keyPattern, String valueKeyword, boolean regex, int limit, int maxLineLength, Duration timeout) {
+        Pattern pattern = StringUtils.hasText(valueKeyword) ? compile(valueKeyword, regex) : null;
+        List<Hit> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<String> names = GlobMatcher.hasWildcard(keyPattern)
+                    ? keys.keySet().stream().filter(GlobMatcher.toPredicate(keyPattern)).toList()
+                    : keys.containsKey(keyPattern) ? List.of(keyPattern) : List.of();
+            for (String name : names) {
+                keys.get(name).forEach((id, value) -> {
+                    Doc doc = docs.get(id);
+                    candidates.add(new Hit(doc.key().dataId(), doc.key().group(), name, value));
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<Hit> all = new ArrayList<>();
+        for (Hit candidate : candidates) {
+            if (pattern == null || pattern.matcher(bounded(candidate.text(), regex, deadline, valueKeyword)).find()) {
+                all.add(new Hit(candidate.dataId(), candidate.group(), candidate.location(), abbreviate(candidate.text(), maxLineLength)));
+            }
+        }
+        all.sort(Comparator.comparing(Hit::dataId).thenComparing(Hit::group).thenComparing(Hit::location));
+        long matched = all.stream().map(hit -> hit.dataId() + "@@" + hit.group()).distinct().count();
+        return new Matches((int) matched, all.subList(0, Math.min(limit, all.size())));
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            return new Stats(byKey.size(), trigrams.size(), keys.size(), bytes, truncated);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 当前索引中的配置坐标
+     */
+    public List<ConfigKey> keys() {
+        lock.readLock().lock();
+        try {
+            return List.copyOf(byKey.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int newTrigrams(long[] grams) {
+        int count = 0;
+        for (long gram : grams) {
+            count += trigrams.containsKey(gram) ? 0 : 1;
+        }
+        return count;
+    }
+
+    private Doc current(ConfigKey key) {
+        lock.readLock().lock();
+        try {
+            return byKey.get(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 移除配置需要它的三元组和配置项，从内容重新解析，调用方尽量在锁外执行
+     */
+    private static Removal removal(Doc doc) {
+        return doc == null ? null
+                : new Removal(doc, trigrams(doc.content()), ConfigFlattener.flatten(doc.key().dataId(), doc.type(), doc.content()).keySet());
+    }
+
+    private void remove(Removal removal) {
+        Doc doc = removal.doc();
+        byKey.remove(doc.key());
+        docs.set(doc.id(), null);
+        freeIds.push(doc.id());
+        bytes -= doc.weight();
+        for (long gram : removal.trigrams()) {
+            Postings postings = trigrams.get(gram);
+            if (postings != null && postings.remove(doc.id()) && postings.size == 0) {
+                trigrams.remove(gram);
+                bytes -= POSTINGS_OVERHEAD;
+            }
+        }
+        removal.names().forEach(name -> {
+            Map<Integer, String> values = keys.get(name);
+            if (values != null && values.remove(doc.id()) != null && values.isEmpty()) {
+                keys.remove(name);
+            }
+        });
+    }
+
+    /**
+     * 候选配置：关键字不少于三个字符时取各三元组倒排表的交集，否则为全部配置
+     */
+    private int[] candidates(String keyword) {
+        if (keyword.length() < 3) {
+            return byKey.values().stream().mapToInt(Doc::id).sorted().toArray();
+        }
+        long[] grams = trigrams(keyword);
+        Postings[] lists = new Postings[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = trigrams.get(grams[i]);
+            if (lists[i] == null) {
+                return new int[0];
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(postings -> postings.size));
+        int[] result = Arrays.copyOf(lists[0].ids, lists[0].size);
+        int size = result.length;
+        for (int i = 1; i < lists.length && size > 0; i++) {
+            int kept = 0;
+            for (int j = 0; j < size; j++) {
+                if (Arrays.binarySearch(lists[i].ids, 0, lists[i].size, result[j]) >= 0) {
+                    result[kept++] = result[j];
+                }
+            }
+            size = kept;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * 文本中去重后的小写三元组，每个三元组的三个字符打包为一个 long
+     */
+    private static long[] trigrams(String text) {
+        if (text.length() < 3) {
+            return new long[0];
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        long[] grams = new long[lower.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) lower.charAt(i) << 32) | ((long) lower.charAt(i + 1) << 16) | lower.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    private static long weight(Analyzed analyzed) {
+        long weight = (long) analyzed.content().length() * 2 + DOC_OVERHEAD + analyzed.trigrams().length * 4L;
+        for (Map.Entry<String, String> entry : analyzed.entries().entrySet()) {
+            weight += (long) (entry.getKey().length() + entry.getValue().length()) * 2 + ENTRY_OVERHEAD;
+        }
+        return weight;
+    }
+
+    /**
+     * 正则匹配的输入套上截止时间检查，普通关键字是线性匹配，不需要
+     */
+    private static CharSequence bounded(String text, boolean regex, long deadline, String keyword) {
+        return regex ? new DeadlineCharSequence(text, deadline, keyword) : text;
+    }
+
+    private static String abbreviate(String text, int maxLength) {
+        return text.length() <= maxLength ? text : text.substring(0, maxLength) + "...";
+    }
+
+    /**
+     * 按配置编号升序排列的倒排表；删除配置空出的编号会被新配置复用，所以新编号不一定在末尾，按序插入
+     */
+    private static final class Postings {
+
+        private int[] ids = new int[2];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            if (size == 0 || ids[size - 1] < id) {
+                ids[size++] = id;
+                return;
+            }
+            int index = -Arrays.binarySearch(ids, 0, size, id) - 1;
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+
+    private record Doc(int id, ConfigKey key, String type, String content, long weight) {
+    }
+
+    /**
+     * 移除一个配置所需的解析结果
+     */
+    private record Removal(Doc doc, long[] trigrams, Set<String> names) {
+    }
+
+    /**
+     * 正则引擎逐字符读取输入，每读取一批字符检查一次截止时间，超时抛出异常中断匹配
+     */
+    private static final class DeadlineCharSequence implements CharSequence {
+
+        private final CharSequence text;
+        private final long deadline;
+        private final String keyword;
+        private int reads;
+
+        private DeadlineCharSequence(CharSequence text, long deadline, String keyword) {
+            this.text = text;
+            this.deadline = deadline;
+            this.keyword = keyword;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if ((++reads & 0xFFF) == 0 && System.nanoTime() > deadline) {
+                throw new IllegalArgumentException("正则表达式匹配超时，请简化表达式（避免嵌套的量词）：" + keyword);
+            }
+            return text.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new DeadlineCharSequence(text.subSequence(start, end), deadline, keyword);
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+
+    /**
+     * 单个配置的解析结果
+     *
+     * @param key      配置坐标
+     * @param type     配置类型
+     * @param content  配置内容
+     * @param trigrams 去重后的三元组
+     * @param entries  展开后的键值
+     */
+    public record Analyzed(ConfigKey key, String type, String content, long[] trigrams, Map<String, String> entries) {
+    }
+
+    /**
+     * 一条匹配
+     *
+     * @param dataId   配置名称
+     * @param group    分组名称
+     * @param location 匹配位置：内容搜索为 "line 行号"，配置项搜索为配置项名称
+     * @param text     匹配的行或配置项的值
+     */
+    public record Hit(String dataId, String group, String location, String text) {
+    }
+
+    /**
+     * 搜索结果
+     *
+     * @param configs 匹配的配置数
+     * @param hits    按 limit 截断后的匹配
+     */
+    public record Matches(int configs, List<Hit> hits) {
+    }
+
+    /**
+     * 索引统计
+     *
+     * @param documents 已索引的配置数
+     * @param trigrams  三元组数
+     * @param keys      配置项数
+     * @param bytes     估算占用字节数
+     * @param truncated 是否因内存或条数上限有配置未加入索引
+     */
+    public record Stats(int documents, int trigrams, int keys, long bytes, boolean truncated) {
+    }
+}
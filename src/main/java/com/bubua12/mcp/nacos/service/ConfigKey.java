@@ -0,0 +1,13 @@
+package com.bubua12.mcp.nacos.service;
+
+/**
+ * 配置坐标
+ *
+ * @param dataId      配置名称
+ * @param group       分组名称
+ * @param namespaceId 名称空间ID，public 为空串
+ * @author bubua12
+ * @since 2026/10/17 14:05
+ */
+public record ConfigKey(String dataId, String group, String namespaceId) {
+}
@@ -0,0 +1,18 @@
+package com.bubua12.mcp.nacos.service;
+
+import org.springframework.ai.tool.annotation.ToolParam;
+
+/**
+ * 批量获取配置时的单个配置
+ *
+ * @param dataId    配置名称
+ * @param group     分组名称
+ * @param namespace 名称空间
+ * @author bubua12
+ * @since 2026/10/17 17:10
+ */
+public record ConfigQuery(
+        @ToolParam(description = "配置名称，如：service-order.yaml") String dataId,
+        @ToolParam(description = "分组名称，如：DEFAULT_GROUP、SEATA_GROUP") String group,
+        @ToolParam(description = "名称空间，如：public、dev、prod等，也可以直接传namespaceId，不传则是public", required = false) String namespace) {
+}
@@ -0,0 +1,201 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 按名称空间维护配置全文索引
+ * <p>
+ * 首次搜索某个名称空间时分页并发拉取全部配置（含内容），在 parallel 调度器上并行解析后建立 {@link ConfigIndex}；
+ * 推送通道可用时为每个已索引的配置注册变更监听，收到通知即增量更新；监听发现不了新建的配置，靠 {@link ScopedIndexes}
+ * 按 refreshInterval 在后台重建补齐，名称空间数按 maxNamespaces 限制。每个索引的内存按估算字节数限制。
+ *
+ * @author bubua12
+ * @since 2026/10/17 23:40
+ */
+@Slf4j
+public class ConfigSearchIndex {
+
+    private final ConfigWatcher watcher;
+    private final NacosProperties.Search properties;
+    private final BiFunction<String, Integer, Mono<PagedFetcher.Result<JsonNode>>> loader;
+
+    private final ScopedIndexes<String, Entry> indexes;
+    private final AtomicLong updates = new AtomicLong();
+
+    /**
+     * @param watcher    配置变更通知来源
+     * @param properties 索引配置
+     * @param loader     按名称空间ID和条数上限拉取全部配置，每条包含 dataId、group、type、content
+     */
+    public ConfigSearchIndex(ConfigWatcher watcher, NacosProperties.Search properties,
+                             BiFunction<String, Integer, Mono<PagedFetcher.Result<JsonNode>>> loader) {
+        this.watcher = watcher;
+        this.properties = properties;
+        this.loader = loader;
+        this.indexes = new ScopedIndexes<>("配置索引", this::build, properties::getRefreshInterval, properties::getMaxNamespaces);
+    }
+
+    /**
+     * 按关键字搜索配置内容
+     *
+     * @param namespaceId 名称空间ID
+     * @param keyword     关键字
+     * @param regex       关键字是否为正则
+     * @param limit       最多返回的匹配行数
+     * @return 搜索结果
+     */
+    public Mono<Result> searchContent(String namespaceId, String keyword, boolean regex, int limit) {
+        return search(namespaceId, keyword, regex, index -> index.searchContent(keyword, regex, limit,
+                properties.getMaxMatchesPerConfig(), properties.getMaxLineLength(), properties.getRegexTimeout()));
+    }
+
+    /**
+     * 按配置项搜索，再按值过滤
+     *
+     * @param namespaceId  名称空间ID
+     * @param key          配置项，支持 * 和 ? 通配符
+     * @param valueKeyword 值中包含的关键字，为空时不过滤
+     * @param regex        valueKeyword 是否为正则
+     * @param limit        最多返回的条数
+     * @return 搜索结果
+     */
+    public Mono<Result> searchKey(String namespaceId, String key, String valueKeyword, boolean regex, int limit) {
+        return search(namespaceId, valueKeyword, regex, index -> index.searchKey(key, valueKeyword, regex, limit,
+                properties.getMaxLineLength(), properties.getRegexTimeout()));
+    }
+
+    public Stats stats() {
+        List<Entry> entries = indexes.entries();
+        int documents = 0;
+        long bytes = 0;
+        for (Entry entry : entries) {
+            ConfigIndex.Stats stats = entry.index().stats();
+            documents += stats.documents();
+            bytes += stats.bytes();
+        }
+        return new Stats(entries.size(), documents, bytes, indexes.buildCount(), updates.get());
+    }
+
+    /**
+     * 取消全部变更监听
+     */
+    public void close() {
+        indexes.close();
+    }
+
+    /**
+     * 先校验正则再取索引，语法错误不会触发索引构建；匹配可能耗时，放到 boundedElastic 上执行，不占用事件循环线程
+     */
+    private Mono<Result> search(String namespaceId, String keyword, boolean regex, Function<ConfigIndex, ConfigIndex.Matches> query) {
+        return Mono.fromRunnable(() -> {
+                    if (regex && keyword != null) {
+                        ConfigIndex.compile(keyword, true);
+                    }
+                })
+                .then(indexes.get(namespaceId))
+                .publishOn(Schedulers.boundedElastic())
+                .map(entry -> {
+                    long start = System.nanoTime();
+                    ConfigIndex.Matches matches = query.apply(entry.index());
+                    ConfigIndex.Stats stats = entry.index().stats();
+                    return new Result(stats.documents(), entry.totalConfigs(), stats.bytes(), stats.truncated(), entry.live(), entry.builtAt(),
+                            (System.nanoTime() - start) / 1_000_000.0, matches.configs(), matches.hits());
+                });
+    }
+
+    /**
+     * 拉取名称空间的全部配置，并行解析后建立索引
+     */
+    private Mono<Entry> build(String namespaceId) {
+        return loader.apply(namespaceId, properties.getMaxDocuments())
+                .flatMap(result -> Flux.fromIterable(result.items())
+                        .parallel()
+                        .runOn(Schedulers.parallel())
+                        .map(item -> ConfigIndex.analyze(new ConfigKey(item.path("dataId").asText(), item.path("group").asText(), namespaceId),
+                                item.path("type").asText(null), item.path("content").asText()))
+                        .sequential()
+                        .collectList()
+                        .flatMap(analyzed -> {
+                            long start = System.nanoTime();
+                            analyzed.sort(Comparator.comparing((ConfigIndex.Analyzed a) -> a.key().group()).thenComparing(a -> a.key().dataId()));
+                            ConfigIndex index = new ConfigIndex(properties.getMaxBytes().toBytes(), properties.getMaxDocuments());
+                            analyzed.forEach(index::add);
+                            ConfigIndex.Stats stats = index.stats();
+                            log.info("[配置索引] 名称空间 {} 索引 {}/{} 个配置，约 {} KB，耗时 {} ms", namespaceId, stats.documents(), result.totalCount(),
+                                    stats.bytes() / 1024, (System.nanoTime() - start) / 1_000_000);
+                            return watchAll(index).map(registrations -> new Entry(index, Instant.now(), result.totalCount(),
+                                    !registrations.isEmpty(), registrations));
+                        }));
+    }
+
+    /**
+     * 推送通道可用时为每个已索引的配置注册变更监听；任何一个注册失败都放弃增量更新，只依赖定期重建
+     */
+    private Mono<List<Disposable>> watchAll(ConfigIndex index) {
+        List<ConfigKey> keys = index.keys();
+        if (!properties.isLiveUpdates() || keys.isEmpty() || !watcher.isConnected(keys.get(0).namespaceId())) {
+            return Mono.just(List.of());
+        }
+        List<Disposable> registrations = Collections.synchronizedList(new ArrayList<>());
+        return Flux.fromIterable(keys)
+                .flatMap(key -> watcher.watch(key, content -> {
+                    updates.incrementAndGet();
+                    index.update(key, content);
+                }), properties.getWatchConcurrency())
+                .doOnNext(registrations::add)
+                .then(Mono.fromSupplier(() -> List.copyOf(registrations)))
+                .onErrorResume(e -> {
+                    log.warn("注册配置监听失败，配置索引只按 refreshInterval 定期重建", e);
+                    ScopedIndexes.release(List.copyOf(registrations));
+                    return Mono.just(List.of());
+                });
+    }
+
+    private record Entry(ConfigIndex index, Instant builtAt, int totalConfigs, boolean live, List<Disposable> registrations)
+            implements ScopedIndexes.Entry {
+    }
+
+    /**
+     * 搜索结果
+     *
+     * @param indexedConfigs 已索引的配置数
+     * @param totalConfigs   构建时名称空间内的配置总数
+     * @param indexBytes     索引估算占用字节数
+     * @param truncated      是否因内存或条数上限有配置未加入索引
+     * @param live           是否通过变更通知增量更新
+     * @param builtAt        索引构建时间
+     * @param tookMillis     查询耗时
+     * @param configs        匹配的配置数
+     * @param hits           按 limit 截断后的匹配
+     */
+    public record Result(int indexedConfigs, int totalConfigs, long indexBytes, boolean truncated, boolean live, Instant builtAt,
+                         double tookMillis, int configs, List<ConfigIndex.Hit> hits) {
+    }
+
+    /**
+     * 索引统计
+     *
+     * @param namespaces 已建立索引的名称空间数
+     * @param documents  已索引的配置总数
+     * @param bytes      索引估算占用字节数
+     * @param builds     累计构建次数
+     * @param updates    累计增量更新次数
+     */
+    public record Stats(int namespaces, int documents, long bytes, long builds, long updates) {
+    }
+}
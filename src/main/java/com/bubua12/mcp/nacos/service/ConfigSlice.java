@@ -0,0 +1,61 @@
+package com.bubua12.mcp.nacos.service;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * 读取配置的一部分：字节范围、行范围或某个配置项
+ *
+ * @param kind    读取方式
+ * @param from    起始位置，字节从 0 开始，行从 1 开始
+ * @param to      结束位置（含），未指定时为 Long.MAX_VALUE
+ * @param keyPath 配置项路径，如 spring.datasource，仅 KEY_PATH 使用
+ * @author bubua12
+ * @since 2026/10/18 04:20
+ */
+public record ConfigSlice(Kind kind, long from, long to, String keyPath) {
+
+    public enum Kind {
+        BYTES, LINES, KEY_PATH
+    }
+
+    public static ConfigSlice bytes(long from, long to) {
+        return new ConfigSlice(Kind.BYTES, from, to, null);
+    }
+
+    /**
+     * 解析工具参数，range 和 keyPath 只能指定一个
+     *
+     * @param range   bytes=起始-结束 或 lines=起始-结束，结束可以省略，如：bytes=0-65535、lines=100-
+     * @param keyPath 配置项路径，如：spring.datasource
+     * @return 读取方式
+     */
+    public static ConfigSlice parse(String range, String keyPath) {
+        if (StringUtils.hasText(range) && StringUtils.hasText(keyPath)) {
+            throw new IllegalArgumentException("range 和 keyPath 只能指定一个");
+        }
+        if (StringUtils.hasText(keyPath)) {
+            return new ConfigSlice(Kind.KEY_PATH, 0, Long.MAX_VALUE, keyPath.trim());
+        }
+        String[] parts = range.trim().split("=", 2);
+        Kind kind = switch (parts[0].trim().toLowerCase()) {
+            case "bytes" -> Kind.BYTES;
+            case "lines" -> Kind.LINES;
+            default -> throw new IllegalArgumentException("range 格式应为 bytes=起始-结束 或 lines=起始-结束: " + range);
+        };
+        String[] bounds = parts.length > 1 ? parts[1].split("-", -1) : new String[0];
+        if (bounds.length != 2 || !StringUtils.hasText(bounds[0])) {
+            throw new IllegalArgumentException("range 格式应为 bytes=起始-结束 或 lines=起始-结束: " + range);
+        }
+        try {
+            long from = Long.parseLong(bounds[0].trim());
+            long to = StringUtils.hasText(bounds[1]) ? Long.parseLong(bounds[1].trim()) : Long.MAX_VALUE;
+            long min = kind == Kind.LINES ? 1 : 0;
+            if (from < min || to < from) {
+                throw new IllegalArgumentException("range 的起始位置不能小于 " + min + "，结束位置不能小于起始位置: " + range);
+            }
+            return new ConfigSlice(kind, from, to, null);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("range 格式应为 bytes=起始-结束 或 lines=起始-结束: " + range, e);
+        }
+    }
+}
@@ -0,0 +1,597 @@
+package com.bubua12.mcp.nacos.service;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HexFormat;
+
+/**
+ * 流式读取配置内容：逐个 DataBuffer 计算大小和 MD5，只保留请求的那一部分
+ * <p>
+ * 配置内容不会整体进入内存，内存占用只取决于返回片段的大小（上限 maxExcerptSize）。超过 maxSize 时停止读取并取消请求。
+ * 响应头已给出 Content-Length 和 Content-MD5 时，字节、行范围读完即取消剩余的读取；否则读到结尾以得到大小和 MD5。
+ * 配置项按行扫描：YAML 按缩进跟踪当前路径，properties 按键前缀匹配，列表下标和流式写法（{a: 1}）不参与路径。
+ * 按字节截取的片段两端对齐到 UTF-8 字符边界，被截断的多字节字符不输出，返回的范围是实际输出的字节。
+ *
+ * @author bubua12
+ * @since 2026/10/18 04:30
+ */
+public class ConfigStreamReader {
+
+    private final long maxSize;
+    private final int maxExcerptSize;
+
+    /**
+     * @param maxSize        读取配置内容的上限，超出后停止读取
+     * @param maxExcerptSize 单次返回的片段上限，超出截断
+     */
+    public ConfigStreamReader(long maxSize, int maxExcerptSize) {
+        this.maxSize = maxSize;
+        this.maxExcerptSize = maxExcerptSize;
+    }
+
+    /**
+     * @param body          配置内容
+     * @param slice         要读取的部分
+     * @param format        配置格式（yaml、properties），按配置项读取时使用
+     * @param contentLength 响应头给出的内容长度，未知时为 -1
+     * @param contentMd5    响应头给出的 MD5，未知时为 null
+     * @return 读取结果
+     */
+    public Mono<Excerpt> read(Flux<DataBuffer> body, ConfigSlice slice, String format, long contentLength, String contentMd5) {
+        return Mono.defer(() -> {
+            State state = new State(extractor(slice, format), contentLength, contentMd5, maxSize);
+            return body.handle((DataBuffer buffer, SynchronousSink<Void> sink) -> {
+                        try {
+                            state.accept(buffer);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                        if (state.done()) {
+                            sink.complete();
+                        }
+                    })
+                    .then(Mono.fromSupplier(state::excerpt));
+        });
+    }
+
+    /**
+     * 截取已在内存中的完整配置的开头 maxExcerptSize 字节
+     * <p>
+     * 内容已经整体读入，不受 maxSize 限制，大小和 MD5 按全部内容计算。
+     *
+     * @param content 配置内容
+     * @return 读取结果
+     */
+    public Excerpt head(byte[] content) {
+        State state = new State(new ByteRange(0, maxExcerptSize - 1L), content.length, null, Long.MAX_VALUE);
+        state.accept(content);
+        return state.excerpt();
+    }
+
+    private Extractor extractor(ConfigSlice slice, String format) {
+        return switch (slice.kind()) {
+            case BYTES -> new ByteRange(slice.from(), slice.to());
+            case LINES -> new LineRange(slice.from(), slice.to());
+            case KEY_PATH -> switch (format) {
+                case "yaml" -> new YamlKeyPath(slice.keyPath());
+                case "properties" -> new PropertiesKeyPath(slice.keyPath());
+                default -> throw new IllegalArgumentException("keyPath 只支持 YAML 和 properties 格式的配置");
+            };
+        };
+    }
+
+    private final class State {
+
+        private final Extractor extractor;
+        private final long contentLength;
+        private final String contentMd5;
+        private final long limit;
+        private final MessageDigest digest;
+        private long size;
+        private boolean exceeded;
+
+        private State(Extractor extractor, long contentLength, String contentMd5, long limit) {
+            this.extractor = extractor;
+            this.contentLength = contentLength;
+            this.contentMd5 = contentMd5;
+            this.limit = limit;
+            try {
+                this.digest = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void accept(DataBuffer buffer) {
+            byte[] chunk = new byte[buffer.readableByteCount()];
+            buffer.read(chunk);
+            accept(chunk);
+        }
+
+        private void accept(byte[] chunk) {
+            if (size + chunk.length > limit) {
+                exceeded = true;
+                chunk = Arrays.copyOf(chunk, (int) (limit - size));
+            }
+            digest.update(chunk);
+            if (!extractor.complete()) {
+                extractor.accept(chunk, size);
+            }
+            size += chunk.length;
+        }
+
+        /**
+         * 超过上限，或者片段已读完且大小和 MD5 已由响应头给出时，不再读取
+         */
+        private boolean done() {
+            return exceeded || (extractor.complete() && contentLength >= 0 && contentMd5 != null);
+        }
+
+        private Excerpt excerpt() {
+            extractor.finish();
+            boolean complete = !exceeded && !done();
+            long total = complete ? size : contentLength;
+            String md5 = complete ? HexFormat.of().formatHex(digest.digest()) : contentMd5;
+            return new Excerpt(total, exceeded ? limit : -1, md5, extractor.selection(), extractor.matches(),
+                    extractor.truncated, extractor.text());
+        }
+    }
+
+    /**
+     * 从内容中挑出片段，按 maxExcerptSize 截断
+     */
+    private abstract class Extractor {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private boolean truncated;
+
+        /**
+         * @param chunk    一段内容
+         * @param position chunk[0] 在配置内容中的字节偏移
+         */
+        abstract void accept(byte[] chunk, long position);
+
+        /**
+         * 内容读完（或停止读取）时调用
+         */
+        void finish() {
+        }
+
+        /**
+         * 片段是否已完整，之后的内容不再需要
+         */
+        boolean complete() {
+            return truncated;
+        }
+
+        abstract String selection();
+
+        int matches() {
+            return -1;
+        }
+
+        void write(byte[] bytes, int offset, int length) {
+            int room = maxExcerptSize - out.size();
+            if (length > room) {
+                out.write(bytes, offset, Math.max(room, 0));
+                truncated = true;
+            } else {
+                out.write(bytes, offset, length);
+            }
+        }
+
+        /**
+         * 片段中完整字符的字节数，末尾被截断的多字节字符不计入
+         */
+        int textLength() {
+            return utf8Boundary(out.toByteArray());
+        }
+
+        String text() {
+            byte[] bytes = out.toByteArray();
+            return new String(bytes, 0, utf8Boundary(bytes), StandardCharsets.UTF_8);
+        }
+    }
+
+    private final class ByteRange extends Extractor {
+
+        private final long from;
+        private final long to;
+        private long read;
+        private int skipped;
+        private boolean aligned;
+
+        private ByteRange(long from, long to) {
+            this.from = from;
+            this.to = to;
+            this.aligned = from == 0;
+        }
+
+        @Override
+        void accept(byte[] chunk, long position) {
+            long start = Math.max(from, position);
+            long end = Math.min(to == Long.MAX_VALUE ? Long.MAX_VALUE : to + 1, position + chunk.length);
+            if (start < end) {
+                int offset = (int) (start - position);
+                int length = (int) (end - start);
+                // 起点落在多字节字符中间时跳过该字符剩余的字节
+                while (!aligned && length > 0 && isContinuation(chunk[offset]) && skipped < 3) {
+                    offset++;
+                    length--;
+                    skipped++;
+                }
+                aligned |= length > 0;
+                write(chunk, offset, length);
+            }
+            read = position + chunk.length;
+        }
+
+        @Override
+        boolean complete() {
+            return super.complete() || (to != Long.MAX_VALUE && read > to);
+        }
+
+        @Override
+        String selection() {
+            long first = from + skipped;
+            int length = textLength();
+            return "bytes=" + first + "-" + (length == 0 ? "" : String.valueOf(first + length - 1));
+        }
+    }
+
+    private final class LineRange extends Extractor {
+
+        private final long from;
+        private final long to;
+        private long line = 1;
+        private long lastLine;
+
+        private LineRange(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        void accept(byte[] chunk, long position) {
+            int i = 0;
+            while (i < chunk.length && !complete()) {
+                int newline = indexOf(chunk, i);
+                int end = newline < 0 ? chunk.length : newline + 1;
+                if (line >= from) {
+                    write(chunk, i, end - i);
+                    lastLine = line;
+                }
+                if (newline >= 0) {
+                    line++;
+                }
+                i = end;
+            }
+        }
+
+        @Override
+        boolean complete() {
+            return super.complete() || line > to;
+        }
+
+        @Override
+        String selection() {
+            return "lines=" + from + "-" + (lastLine == 0 ? "" : String.valueOf(lastLine));
+        }
+    }
+
+    /**
+     * 按行读取配置项，跨 DataBuffer 的行先拼接再按 UTF-8 解码
+     */
+    private abstract class KeyPath extends Extractor {
+
+        final String path;
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        private int matches;
+
+        private KeyPath(String path) {
+            this.path = path;
+        }
+
+        @Override
+        void accept(byte[] chunk, long position) {
+            int i = 0;
+            while (i < chunk.length && !complete()) {
+                int newline = indexOf(chunk, i);
+                if (newline < 0) {
+                    pending.write(chunk, i, chunk.length - i);
+                    return;
+                }
+                pending.write(chunk, i, newline - i);
+                flushLine();
+                i = newline + 1;
+            }
+        }
+
+        @Override
+        void finish() {
+            if (pending.size() > 0 && !complete()) {
+                flushLine();
+            }
+            end();
+        }
+
+        @Override
+        String selection() {
+            return "keyPath=" + path;
+        }
+
+        @Override
+        int matches() {
+            return matches;
+        }
+
+        abstract void line(String line);
+
+        /**
+         * 内容结束，输出还在拼接中的内容
+         */
+        void end() {
+        }
+
+        void matched() {
+            matches++;
+        }
+
+        void emit(String line) {
+            byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+            write(bytes, 0, bytes.length);
+        }
+
+        private void flushLine() {
+            String line = pending.toString(StandardCharsets.UTF_8);
+            pending.reset();
+            line(line.endsWith("\r") ? line.substring(0, line.length() - 1) : line);
+        }
+    }
+
+    /**
+     * YAML：按缩进维护当前路径，匹配到的键连同缩进更深的子内容一起输出；多文档（---）分别匹配
+     */
+    private final class YamlKeyPath extends KeyPath {
+
+        private final Deque<Frame> frames = new ArrayDeque<>();
+        private int captureIndent = -1;
+        private int blockIndent = -1;
+
+        private YamlKeyPath(String path) {
+            super(path);
+        }
+
+        @Override
+        void line(String line) {
+            String trimmed = line.strip();
+            if (trimmed.equals("---") || trimmed.equals("...")) {
+                frames.clear();
+                captureIndent = -1;
+                blockIndent = -1;
+                return;
+            }
+            int indent = indent(line);
+            boolean skip = trimmed.isEmpty() || trimmed.startsWith("#");
+            if (captureIndent >= 0) {
+                // 列表可以与键同一缩进：key:\n- a
+                if (skip || indent > captureIndent || (indent == captureIndent && trimmed.startsWith("- "))) {
+                    emit(line);
+                    return;
+                }
+                captureIndent = -1;
+            }
+            if (skip) {
+                return;
+            }
+            if (blockIndent >= 0) {
+                if (indent > blockIndent) {
+                    return;
+                }
+                blockIndent = -1;
+            }
+            while (!frames.isEmpty() && frames.peek().indent() >= indent) {
+                frames.pop();
+            }
+            int colon = keyEnd(trimmed);
+            if (trimmed.startsWith("- ") || colon < 0) {
+                return;
+            }
+            String key = unquote(trimmed.substring(0, colon).strip());
+            String keyPath = frames.isEmpty() ? key : frames.peek().path() + "." + key;
+            frames.push(new Frame(indent, keyPath));
+            String value = trimmed.substring(colon + 1).strip();
+            if (value.startsWith("|") || value.startsWith(">")) {
+                blockIndent = indent;
+            }
+            if (keyPath.equals(path)) {
+                matched();
+                captureIndent = indent;
+                blockIndent = -1;
+                emit(line);
+            }
+        }
+
+        /**
+         * 键后的冒号：后面是空白或行尾，且不在引号内
+         */
+        private static int keyEnd(String line) {
+            char quote = 0;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quote != 0) {
+                    quote = c == quote ? 0 : quote;
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == ':' && (i + 1 == line.length() || Character.isWhitespace(line.charAt(i + 1)))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static String unquote(String key) {
+            if (key.length() >= 2 && (key.charAt(0) == '"' || key.charAt(0) == '\'') && key.charAt(key.length() - 1) == key.charAt(0)) {
+                return key.substring(1, key.length() - 1);
+            }
+            return key;
+        }
+
+        private static int indent(String line) {
+            int indent = 0;
+            while (indent < line.length() && line.charAt(indent) == ' ') {
+                indent++;
+            }
+            return indent;
+        }
+
+        private record Frame(int indent, String path) {
+        }
+    }
+
+    /**
+     * properties：键等于路径或以“路径.”开头的条目全部输出，续行（行尾反斜杠）与所在条目一起输出
+     */
+    private final class PropertiesKeyPath extends KeyPath {
+
+        private final StringBuilder logical = new StringBuilder();
+
+        private PropertiesKeyPath(String path) {
+            super(path);
+        }
+
+        @Override
+        void line(String line) {
+            logical.append(line).append('\n');
+            if (!continued(line)) {
+                entry(logical.toString());
+                logical.setLength(0);
+            }
+        }
+
+        @Override
+        void end() {
+            if (!logical.isEmpty()) {
+                entry(logical.toString());
+                logical.setLength(0);
+            }
+        }
+
+        private void entry(String entry) {
+            String text = entry.stripLeading();
+            if (text.isEmpty() || text.startsWith("#") || text.startsWith("!")) {
+                return;
+            }
+            String key = key(text);
+            if (key.equals(path) || key.startsWith(path + ".")) {
+                matched();
+                emit(entry.substring(0, entry.length() - 1));
+            }
+        }
+
+        /**
+         * 键在第一个未转义的 =、: 或空白处结束
+         */
+        private static String key(String text) {
+            StringBuilder key = new StringBuilder();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '\\' && i + 1 < text.length()) {
+                    key.append(text.charAt(++i));
+                } else if (c == '=' || c == ':' || Character.isWhitespace(c)) {
+                    break;
+                } else {
+                    key.append(c);
+                }
+            }
+            return key.toString();
+        }
+
+        private static boolean continued(String line) {
+            int backslashes = 0;
+            for (int i = line.length() - 1; i >= 0 && line.charAt(i) == '\\'; i--) {
+                backslashes++;
+            }
+            return backslashes % 2 == 1;
+        }
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    /**
+     * 去掉末尾不完整的 UTF-8 字符后的长度：从末尾找到最后一个字符的首字节，按首字节判断字符是否完整
+     */
+    private static int utf8Boundary(byte[] bytes) {
+        int end = bytes.length;
+        for (int i = end - 1; i >= Math.max(0, end - 4); i--) {
+            if (!isContinuation(bytes[i])) {
+                int lead = bytes[i] & 0xFF;
+                int length = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+                return i + length <= end ? end : i;
+            }
+        }
+        return end;
+    }
+
+    private static int indexOf(byte[] chunk, int from) {
+        for (int i = from; i < chunk.length; i++) {
+            if (chunk[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 读取结果
+     *
+     * @param size      配置内容的字节数，超过上限且响应头未给出长度时为 -1
+     * @param limit     超过上限时为上限字节数，否则为 -1
+     * @param md5       配置内容的 MD5，超过上限且响应头未给出时为 null
+     * @param selection 实际返回的部分，如 bytes=0-1023、lines=10-20、keyPath=spring.datasource
+     * @param matches   按配置项读取时匹配的条目数，其他方式为 -1
+     * @param truncated 片段是否因 maxExcerptSize 截断
+     * @param content   片段内容
+     */
+    public record Excerpt(long size, long limit, String md5, String selection, int matches, boolean truncated, String content) {
+
+        public boolean exceeded() {
+            return limit >= 0;
+        }
+
+        /**
+         * 先输出大小、MD5 和实际返回的范围，空一行后是片段内容
+         */
+        public String render() {
+            StringBuilder text = new StringBuilder();
+            text.append("size: ").append(size >= 0 ? String.valueOf(size) : ">" + limit).append('\n');
+            if (md5 != null) {
+                text.append("md5: ").append(md5).append('\n');
+            }
+            if (exceeded()) {
+                text.append("exceeded: 配置超过 ").append(limit).append(" 字节上限，已停止读取\n");
+            }
+            text.append("range: ").append(selection).append('\n');
+            if (matches >= 0) {
+                text.append("matches: ").append(matches).append('\n');
+            }
+            if (truncated) {
+                text.append("truncated: 片段超过单次返回上限，可用 range 分段读取\n");
+            }
+            return text.append('\n').append(content).toString();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.utils.UnifiedDiff;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.DigestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 配置变更订阅：MCP 会话订阅一组配置，配置发布后把新的 MD5（可选附带 diff）推送给订阅者
+ * <p>
+ * 每个配置只向 {@link ConfigWatcher} 注册一次监听，所有会话在这里扇出，变更推送复用 nacos-client 每个名称空间一条的长连接；
+ * 1000 个会话订阅同一批配置，上游仍然只有这些配置的监听。订阅有有效期，到期或推送失败（会话已断开）时自动取消，
+ * 最后一个订阅者离开时注销监听。
+ *
+ * @author bubua12
+ * @since 2026/10/18 02:50
+ */
+@Slf4j
+public class ConfigWatchHub {
+
+    private final ConfigWatcher watcher;
+    private final NacosProperties.Watch properties;
+    private final Function<ConfigKey, Mono<String>> loader;
+
+    private final Map<ConfigKey, Mono<Topic>> topics = new ConcurrentHashMap<>();
+    private final AtomicLong notifications = new AtomicLong();
+    private final Disposable cleanup;
+
+    /**
+     * @param watcher    配置变更通知来源
+     * @param properties 订阅配置
+     * @param loader     读取配置的当前内容作为比较基线，配置不存在时为空
+     */
+    public ConfigWatchHub(ConfigWatcher watcher, NacosProperties.Watch properties, Function<ConfigKey, Mono<String>> loader) {
+        this.watcher = watcher;
+        this.properties = properties;
+        this.loader = loader;
+        long interval = properties.getCleanupInterval().toMillis();
+        this.cleanup = Schedulers.parallel().schedulePeriodically(this::expire, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 订阅配置变更，同一会话重复订阅同一个配置时更新 diff 选项并续期
+     *
+     * @param session     订阅方，按对象身份区分
+     * @param keys        配置坐标
+     * @param includeDiff 通知中是否附带 diff
+     * @param sink        发送通知，返回的 Mono 失败时取消该会话的全部订阅
+     * @return 每个配置当前的 MD5
+     */
+    public Mono<List<Watched>> subscribe(Object session, List<ConfigKey> keys, boolean includeDiff,
+                                         Function<ConfigChange, Mono<Void>> sink) {
+        long existing = topics.values().stream()
+                .map(this::resolved)
+                .filter(topic -> topic != null && topic.subscribers.containsKey(session) && !keys.contains(topic.key))
+                .count();
+        if (existing + keys.stream().distinct().count() > properties.getMaxKeysPerSession()) {
+            return Mono.error(new IllegalArgumentException("每个会话最多订阅 " + properties.getMaxKeysPerSession() + " 个配置"));
+        }
+        long expireAt = System.nanoTime() + properties.getTtl().toNanos();
+        Subscriber subscriber = new Subscriber(includeDiff, sink, expireAt);
+        return Flux.fromIterable(keys)
+                .distinct()
+                .concatMap(key -> join(key, session, subscriber))
+                .collectList();
+    }
+
+    /**
+     * 取消订阅
+     *
+     * @param session 订阅方
+     * @param keys    要取消的配置，为空时取消该会话的全部订阅
+     * @return 取消的订阅数
+     */
+    public int unsubscribe(Object session, List<ConfigKey> keys) {
+        int removed = 0;
+        for (Mono<Topic> mono : List.copyOf(topics.values())) {
+            Topic topic = resolved(mono);
+            if (topic != null && (keys == null || keys.isEmpty() || keys.contains(topic.key))
+                    && topic.subscribers.remove(session) != null) {
+                removed++;
+                releaseIfIdle(topic);
+            }
+        }
+        return removed;
+    }
+
+    public Stats stats() {
+        int subscriptions = topics.values().stream()
+                .map(this::resolved)
+                .mapToInt(topic -> topic == null ? 0 : topic.subscribers.size())
+                .sum();
+        return new Stats(topics.size(), subscriptions, notifications.get());
+    }
+
+    public void close() {
+        cleanup.dispose();
+        topics.values().stream().map(this::resolved).filter(topic -> topic != null).forEach(topic -> topic.registration.dispose());
+        topics.clear();
+    }
+
+    /**
+     * 每个配置一个 Topic：先读取当前内容作为基线，再注册监听；并发订阅同一个配置时共享同一次注册
+     */
+    private Mono<Topic> topic(ConfigKey key) {
+        return topics.computeIfAbsent(key, k -> loader.apply(k)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(content -> {
+                    Topic topic = new Topic(k, content.orElse(null));
+                    return watcher.watch(k, topic::changed).map(registration -> {
+                        topic.registration = registration;
+                        return topic;
+                    });
+                })
+                .doOnError(e -> topics.remove(k))
+                .cache());
+    }
+
+    private Mono<Watched> join(ConfigKey key, Object session, Subscriber subscriber) {
+        return topic(key).flatMap(topic -> {
+            synchronized (topic) {
+                if (!topic.released) {
+                    topic.subscribers.put(session, subscriber);
+                    return Mono.just(new Watched(key, topic.md5));
+                }
+            }
+            // 最后一个订阅者刚离开、监听已注销，重新注册
+            return join(key, session, subscriber);
+        });
+    }
+
+    private Topic resolved(Mono<Topic> mono) {
+        return mono.onErrorResume(e -> Mono.empty()).toFuture().getNow(null);
+    }
+
+    /**
+     * 没有订阅者时注销监听，与 {@link #join} 在同一把锁下判断，已注销的 Topic 不再接受订阅者
+     */
+    private void releaseIfIdle(Topic topic) {
+        synchronized (topic) {
+            if (topic.subscribers.isEmpty() && !topic.released) {
+                topic.released = true;
+                topics.remove(topic.key);
+                topic.registration.dispose();
+                log.debug("[配置订阅] {} 没有订阅者，注销监听", topic.key);
+            }
+        }
+    }
+
+    private void expire() {
+        long now = System.nanoTime();
+        for (Mono<Topic> mono : List.copyOf(topics.values())) {
+            Topic topic = resolved(mono);
+            if (topic != null) {
+                topic.subscribers.values().removeIf(subscriber -> now >= subscriber.expireAt());
+                releaseIfIdle(topic);
+            }
+        }
+    }
+
+    private static String md5(String content) {
+        return content == null ? "" : DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private final class Topic {
+
+        private final ConfigKey key;
+        private final Map<Object, Subscriber> subscribers = new ConcurrentHashMap<>();
+        private volatile String content;
+        private volatile String md5;
+        private volatile Disposable registration;
+        private boolean released;
+
+        private Topic(ConfigKey key, String content) {
+            this.key = key;
+            this.content = content;
+            this.md5 = md5(content);
+        }
+
+        /**
+         * 在 nacos-client 的通知线程上执行：计算一次 MD5 和 diff，扇出给全部订阅者
+         */
+        private void changed(String newContent) {
+            String previous = content;
+            String previousMd5 = md5;
+            String newMd5 = md5(newContent);
+            if (newMd5.equals(previousMd5)) {
+                return;
+            }
+            content = newContent;
+            md5 = newMd5;
+            Instant changedAt = Instant.now();
+            String diff = subscribers.values().stream().anyMatch(Subscriber::includeDiff) ? diff(previous, newContent) : null;
+            subscribers.forEach((session, subscriber) -> {
+                ConfigChange change = new ConfigChange(key, newMd5, previousMd5, newContent == null,
+                        subscriber.includeDiff() ? diff : null, changedAt);
+                notifications.incrementAndGet();
+                subscriber.sink().apply(change).subscribe(null, e -> {
+                    log.debug("[配置订阅] 推送 {} 的变更失败，取消该会话的订阅：{}", key, e.getMessage());
+                    unsubscribe(session, null);
+                });
+            });
+        }
+
+        private String diff(String from, String to) {
+            String diff = UnifiedDiff.diff(key.dataId() + "@" + md5(from), key.dataId() + "@" + md5(to),
+                    from == null ? "" : from, to == null ? "" : to, properties.getDiffContext());
+            int max = (int) properties.getMaxDiffSize().toBytes();
+            return diff.length() <= max ? diff : diff.substring(0, max) + "\n...（diff 超过 " + max + " 字符，已截断）";
+        }
+    }
+
+    private record Subscriber(boolean includeDiff, Function<ConfigChange, Mono<Void>> sink, long expireAt) {
+    }
+
+    /**
+     * 订阅成功的配置
+     *
+     * @param key 配置坐标
+     * @param md5 当前内容的 MD5，配置不存在时为空串
+     */
+    public record Watched(ConfigKey key, String md5) {
+    }
+
+    /**
+     * 配置变更通知
+     *
+     * @param key         配置坐标
+     * @param md5         新内容的 MD5，配置被删除时为空串
+     * @param previousMd5 变更前的 MD5
+     * @param deleted     配置是否被删除
+     * @param diff        与变更前内容的 unified diff，未要求时为 null
+     * @param changedAt   收到变更的时间
+     */
+    public record ConfigChange(ConfigKey key, String md5, String previousMd5, boolean deleted, String diff, Instant changedAt) {
+    }
+
+    /**
+     * 订阅统计
+     *
+     * @param topics        上游注册的配置监听数
+     * @param subscriptions 会话订阅数
+     * @param notifications 已发出的通知数
+     */
+    public record Stats(int topics, int subscriptions, long notifications) {
+    }
+}
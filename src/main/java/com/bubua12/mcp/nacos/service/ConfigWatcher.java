@@ -0,0 +1,32 @@
+package com.bubua12.mcp.nacos.service;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Consumer;
+
+/**
+ * 配置变更通知来源
+ *
+ * @author bubua12
+ * @since 2026/10/17 14:10
+ */
+public interface ConfigWatcher {
+
+    /**
+     * 与 Nacos 的变更推送通道是否可用，不可用时不能依赖变更通知保证数据新鲜。该方法不阻塞，首次调用时在后台建立连接
+     *
+     * @param namespaceId 名称空间ID
+     * @return 是否可用
+     */
+    boolean isConnected(String namespaceId);
+
+    /**
+     * 监听配置变更，同一个配置的多个监听者共享一个 Nacos Listener
+     *
+     * @param key      配置坐标
+     * @param onChange 收到变更时回调，参数为最新配置内容
+     * @return 取消监听的句柄
+     */
+    Mono<Disposable> watch(ConfigKey key, Consumer<String> onChange);
+}
@@ -0,0 +1,350 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 单个名称空间、单个分组下全部服务实例的 IP 反向索引
+ * <p>
+ * 每个实例压缩为一条 Posting：服务和集群名换成字典下标，权重存 float，健康/启用/临时三个状态合成一个字节，
+ * 内容相同的元数据共享同一个 Map，IP 字符串在索引内只保留一份。按 IP 精确查找是一次哈希查找；
+ * 按网段过滤时每个不同的 IP 只判断一次；按集群、元数据、健康状态过滤时顺序扫描全部 Posting。
+ * 服务的实例按服务整体替换，实例数超出上限的服务不再加入索引。
+ *
+ * @author bubua12
+ * @since 2026/10/18 03:30
+ */
+public final class InstanceIndex {
+
+    /**
+     * 每个实例的估算开销：Posting 对象，以及它在按 IP、按服务两个数组中的引用
+     */
+    private static final int POSTING_OVERHEAD = 48;
+
+    /**
+     * 每个不同 IP 除字符串以外的估算开销：HashMap 节点、Posting 数组
+     */
+    private static final int IP_OVERHEAD = 64;
+
+    /**
+     * 每个服务或集群字典项除字符串以外的估算开销
+     */
+    private static final int NAME_OVERHEAD = 64;
+
+    /**
+     * 每组不同元数据的估算开销：Map 对象、在共享池中的节点，以及每个键值对的节点
+     */
+    private static final int METADATA_OVERHEAD = 64;
+    private static final int METADATA_ENTRY_OVERHEAD = 32;
+
+    private static final byte HEALTHY = 1;
+    private static final byte ENABLED = 2;
+    private static final byte EPHEMERAL = 4;
+
+    private static final Posting[] EMPTY = new Posting[0];
+
+    private final int maxInstances;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<String> services = new ArrayList<>();
+    private final Map<String, Integer> serviceIds = new HashMap<>();
+    private final List<String> clusters = new ArrayList<>();
+    private final Map<String, Integer> clusterIds = new HashMap<>();
+    private final Map<Map<String, String>, Map<String, String>> metadataPool = new HashMap<>();
+    private final List<Posting[]> byService = new ArrayList<>();
+    private final Map<String, Posting[]> byIp = new HashMap<>();
+    private int instances;
+    private long bytes;
+    private boolean truncated;
+
+    public InstanceIndex(int maxInstances) {
+        this.maxInstances = maxInstances;
+    }
+
+    /**
+     * 用服务最新的实例列表替换索引中该服务的全部实例
+     *
+     * @param serviceName 服务名
+     * @param hosts       服务的全部实例，为空表示服务已没有实例
+     * @return 是否替换；超出实例数上限时保留原有实例，并标记索引不完整
+     */
+    public boolean replace(String serviceName, List<Host> hosts) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = serviceIds.get(serviceName);
+            Posting[] previous = existing == null ? EMPTY : byService.get(existing);
+            if (instances - previous.length + hosts.size() > maxInstances) {
+                truncated = true;
+                return false;
+            }
+            int serviceId = existing != null ? existing : register(serviceName);
+            for (Posting posting : previous) {
+                unlink(posting);
+            }
+            Posting[] postings = new Posting[hosts.size()];
+            for (int i = 0; i < postings.length; i++) {
+                postings[i] = link(serviceId, hosts.get(i));
+            }
+            byService.set(serviceId, postings);
+            instances += postings.length - previous.length;
+            bytes += (long) (postings.length - previous.length) * POSTING_OVERHEAD;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 跨全部服务查找实例，结果按服务名、IP、端口排序
+     *
+     * @param selector 实例选择条件，为空时不按地址、集群和元数据过滤
+     * @param healthy  只返回健康（true）或不健康（false）的实例，为空时不过滤
+     * @param limit    最多返回的条数
+     * @return 匹配的实例
+     */
+    public Matches find(InstanceSelector selector, Boolean healthy, int limit) {
+        InstanceSelector address = selector == null ? null : new InstanceSelector(selector.ips(), selector.cidr(), null, null);
+        InstanceSelector attributes = selector == null ? null : new InstanceSelector(null, null, selector.clusterName(), selector.metadata());
+        Collector collector = new Collector(attributes, healthy, limit);
+        lock.readLock().lock();
+        try {
+            if (address != null && !CollectionUtils.isEmpty(address.ips())) {
+                for (String ip : address.ips().stream().distinct().toList()) {
+                    if (address.matches(ip, null, key -> null)) {
+                        collector.accept(byIp.getOrDefault(ip, EMPTY));
+                    }
+                }
+            } else if (address != null && StringUtils.hasText(address.cidr())) {
+                byIp.forEach((ip, postings) -> {
+                    if (address.matches(ip, null, key -> null)) {
+                        collector.accept(postings);
+                    }
+                });
+            } else {
+                byService.forEach(collector::accept);
+            }
+            return new Matches(collector.matched, collector.hits.stream()
+                    .map(this::hit)
+                    .sorted(Comparator.comparing(Hit::serviceName).thenComparing(Hit::ip).thenComparingInt(Hit::port))
+                    .toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            return new Stats(services.size(), instances, byIp.size(), bytes, truncated);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已索引的服务名
+     */
+    public List<String> services() {
+        lock.readLock().lock();
+        try {
+            return List.copyOf(services);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int register(String serviceName) {
+        int serviceId = services.size();
+        services.add(serviceName);
+        serviceIds.put(serviceName, serviceId);
+        byService.add(EMPTY);
+        bytes += NAME_OVERHEAD + stringBytes(serviceName);
+        return serviceId;
+    }
+
+    private Posting link(int serviceId, Host host) {
+        Posting[] sameIp = byIp.get(host.ip());
+        // 同一 IP 上的实例共享一份 IP 字符串
+        String ip = sameIp == null ? host.ip() : sameIp[0].ip();
+        byte flags = (byte) ((host.healthy() ? HEALTHY : 0) | (host.enabled() ? ENABLED : 0) | (host.ephemeral() ? EPHEMERAL : 0));
+        Posting posting = new Posting(serviceId, ip, host.port(), (float) host.weight(), flags,
+                cluster(host.clusterName()), metadata(host.metadata()));
+        if (sameIp == null) {
+            byIp.put(ip, new Posting[]{posting});
+            bytes += IP_OVERHEAD + stringBytes(ip);
+        } else {
+            Posting[] postings = Arrays.copyOf(sameIp, sameIp.length + 1);
+            postings[sameIp.length] = posting;
+            byIp.put(ip, postings);
+        }
+        return posting;
+    }
+
+    private void unlink(Posting posting) {
+        Posting[] sameIp = byIp.get(posting.ip());
+        if (sameIp.length == 1) {
+            byIp.remove(posting.ip());
+            bytes -= IP_OVERHEAD + stringBytes(posting.ip());
+            return;
+        }
+        Posting[] postings = new Posting[sameIp.length - 1];
+        int i = 0;
+        for (Posting other : sameIp) {
+            if (other != posting && i < postings.length) {
+                postings[i++] = other;
+            }
+        }
+        byIp.put(posting.ip(), postings);
+    }
+
+    private int cluster(String clusterName) {
+        String name = clusterName == null ? "" : clusterName;
+        return clusterIds.computeIfAbsent(name, n -> {
+            clusters.add(n);
+            bytes += NAME_OVERHEAD + stringBytes(n);
+            return clusters.size() - 1;
+        });
+    }
+
+    /**
+     * 内容相同的元数据共享同一个 Map，同一版本、同一机房的实例通常只占一份
+     */
+    private Map<String, String> metadata(Map<String, String> metadata) {
+        if (metadata == null || metadata.isEmpty()) {
+            return Map.of();
+        }
+        return metadataPool.computeIfAbsent(Map.copyOf(metadata), m -> {
+            bytes += METADATA_OVERHEAD;
+            m.forEach((key, value) -> bytes += METADATA_ENTRY_OVERHEAD + stringBytes(key) + stringBytes(value));
+            return m;
+        });
+    }
+
+    private Hit hit(Posting posting) {
+        return new Hit(posting.ip(), posting.port(), services.get(posting.service()), clusters.get(posting.cluster()),
+                Double.parseDouble(Float.toString(posting.weight())), (posting.flags() & HEALTHY) != 0,
+                (posting.flags() & ENABLED) != 0, (posting.flags() & EPHEMERAL) != 0, posting.metadata());
+    }
+
+    /**
+     * 字符串的估算大小：对象头、数组头和 Latin-1 编码的字符
+     */
+    private static long stringBytes(String value) {
+        return 40L + value.length();
+    }
+
+    /**
+     * 按集群、元数据和健康状态过滤，统计全部匹配数，只保留前 limit 条
+     */
+    private final class Collector {
+
+        private final InstanceSelector attributes;
+        private final Boolean healthy;
+        private final int limit;
+        private final List<Posting> hits = new ArrayList<>();
+        private int matched;
+
+        private Collector(InstanceSelector attributes, Boolean healthy, int limit) {
+            this.attributes = attributes;
+            this.healthy = healthy;
+            this.limit = limit;
+        }
+
+        private void accept(Posting[] postings) {
+            for (Posting posting : postings) {
+                if (healthy != null && healthy != ((posting.flags() & HEALTHY) != 0)) {
+                    continue;
+                }
+                if (attributes != null && !attributes.matches(posting.ip(), clusters.get(posting.cluster()), posting.metadata()::get)) {
+                    continue;
+                }
+                if (matched++ < limit) {
+                    hits.add(posting);
+                }
+            }
+        }
+    }
+
+    private record Posting(int service, String ip, int port, float weight, byte flags, int cluster, Map<String, String> metadata) {
+    }
+
+    /**
+     * 加入索引的实例
+     *
+     * @param ip          实例IP
+     * @param port        端口
+     * @param weight      权重
+     * @param healthy     是否健康
+     * @param enabled     是否上线
+     * @param ephemeral   是否临时实例
+     * @param clusterName 集群名称
+     * @param metadata    元数据
+     */
+    public record Host(String ip, int port, double weight, boolean healthy, boolean enabled, boolean ephemeral,
+                       String clusterName, Map<String, String> metadata) {
+
+        /**
+         * @param host /nacos/v2/ns/instance/list 返回的 hosts 元素
+         */
+        public static Host of(JsonNode host) {
+            Map<String, String> metadata = new LinkedHashMap<>();
+            host.path("metadata").fields().forEachRemaining(field -> metadata.put(field.getKey(), field.getValue().asText()));
+            return new Host(host.path("ip").asText(), host.path("port").asInt(), host.path("weight").asDouble(1.0),
+                    host.path("healthy").asBoolean(), host.path("enabled").asBoolean(true), host.path("ephemeral").asBoolean(true),
+                    host.path("clusterName").asText(), metadata);
+        }
+
+        /**
+         * @param instance NamingService 推送的实例
+         */
+        public static Host of(Instance instance) {
+            return new Host(instance.getIp(), instance.getPort(), instance.getWeight(), instance.isHealthy(), instance.isEnabled(),
+                    instance.isEphemeral(), instance.getClusterName(), instance.getMetadata());
+        }
+    }
+
+    /**
+     * 匹配的实例
+     *
+     * @param ip          实例IP
+     * @param port        端口
+     * @param serviceName 服务名
+     * @param clusterName 集群名称
+     * @param weight      权重
+     * @param healthy     是否健康
+     * @param enabled     是否上线
+     * @param ephemeral   是否临时实例
+     * @param metadata    元数据
+     */
+    public record Hit(String ip, int port, String serviceName, String clusterName, double weight, boolean healthy,
+                      boolean enabled, boolean ephemeral, Map<String, String> metadata) {
+    }
+
+    /**
+     * @param matched 匹配的实例总数
+     * @param hits    按 limit 截断后的匹配
+     */
+    public record Matches(int matched, List<Hit> hits) {
+    }
+
+    /**
+     * @param services  已索引的服务数
+     * @param instances 已索引的实例数
+     * @param ips       不同的 IP 数
+     * @param bytes     估算占用字节数
+     * @param truncated 是否因实例数上限有服务未加入索引
+     */
+    public record Stats(int services, int instances, int ips, long bytes, boolean truncated) {
+    }
+}
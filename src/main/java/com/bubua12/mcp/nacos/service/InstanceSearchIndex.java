@@ -0,0 +1,201 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * 按名称空间和分组维护服务实例的 IP 反向索引
+ * <p>
+ * 首次查询某个分组时分页拉取全部服务名，再按有限并发拉取每个服务的实例列表，建立 {@link InstanceIndex}；
+ * 推送通道可用时为每个已索引的服务订阅实例变更，收到推送即整体替换该服务的实例。新注册的服务只能靠重建发现，
+ * 缓存、后台重建和分组数上限交给 {@link ScopedIndexes}，本类只负责拉取服务和实例、维护订阅。每个索引的实例数有上限。
+ *
+ * @author bubua12
+ * @since 2026/10/18 03:40
+ */
+@Slf4j
+public class InstanceSearchIndex {
+
+    private final InstanceWatcher watcher;
+    private final NacosProperties.InstanceSearch properties;
+    private final BiFunction<Scope, Integer, Mono<PagedFetcher.Result<JsonNode>>> serviceLoader;
+    private final BiFunction<Scope, String, Mono<List<JsonNode>>> instanceLoader;
+
+    private final ScopedIndexes<Scope, Entry> indexes;
+    private final AtomicLong updates = new AtomicLong();
+
+    /**
+     * @param watcher        实例变更通知来源
+     * @param properties     索引配置
+     * @param serviceLoader  按范围和条数上限拉取全部服务名
+     * @param instanceLoader 拉取单个服务的实例列表，元素格式与 /nacos/v2/ns/instance/list 的 hosts 一致
+     */
+    public InstanceSearchIndex(InstanceWatcher watcher, NacosProperties.InstanceSearch properties,
+                               BiFunction<Scope, Integer, Mono<PagedFetcher.Result<JsonNode>>> serviceLoader,
+                               BiFunction<Scope, String, Mono<List<JsonNode>>> instanceLoader) {
+        this.watcher = watcher;
+        this.properties = properties;
+        this.serviceLoader = serviceLoader;
+        this.instanceLoader = instanceLoader;
+        this.indexes = new ScopedIndexes<>("实例索引", this::build, properties::getRefreshInterval, properties::getMaxScopes);
+    }
+
+    /**
+     * 跨全部服务查找实例
+     *
+     * @param scope    名称空间和分组
+     * @param selector 实例选择条件，为空时不按地址、集群和元数据过滤
+     * @param healthy  只返回健康（true）或不健康（false）的实例，为空时不过滤
+     * @param limit    最多返回的条数
+     * @return 查找结果
+     */
+    public Mono<Result> find(Scope scope, InstanceSelector selector, Boolean healthy, int limit) {
+        return indexes.get(scope).map(entry -> {
+            long start = System.nanoTime();
+            InstanceIndex.Matches matches = entry.index().find(selector, healthy, limit);
+            InstanceIndex.Stats stats = entry.index().stats();
+            return new Result(stats.services(), entry.totalServices(), entry.failedServices(), stats.instances(), stats.ips(),
+                    stats.bytes(), stats.truncated() || entry.truncated(), entry.live(), entry.builtAt(),
+                    (System.nanoTime() - start) / 1_000_000.0, matches.matched(), matches.hits());
+        });
+    }
+
+    public Stats stats() {
+        List<Entry> entries = indexes.entries();
+        int instances = 0;
+        long bytes = 0;
+        for (Entry entry : entries) {
+            InstanceIndex.Stats stats = entry.index().stats();
+            instances += stats.instances();
+            bytes += stats.bytes();
+        }
+        return new Stats(entries.size(), instances, bytes, indexes.buildCount(), updates.get());
+    }
+
+    /**
+     * 取消全部实例订阅
+     */
+    public void close() {
+        indexes.close();
+    }
+
+    /**
+     * 拉取分组的全部服务名，再按有限并发拉取实例；单个服务的实例拉取失败时跳过该服务并计入 failedServices
+     */
+    private Mono<Entry> build(Scope scope) {
+        return serviceLoader.apply(scope, properties.getMaxServices())
+                .flatMap(services -> {
+                    long start = System.nanoTime();
+                    InstanceIndex index = new InstanceIndex(properties.getMaxInstances());
+                    AtomicInteger failed = new AtomicInteger();
+                    return Flux.fromIterable(services.items())
+                            .map(JsonNode::asText)
+                            .flatMap(serviceName -> instanceLoader.apply(scope, serviceName)
+                                    .map(hosts -> index.replace(serviceName, hosts.stream().map(InstanceIndex.Host::of).toList()))
+                                    .onErrorResume(e -> {
+                                        log.debug("[实例索引] 拉取 {} 服务 {} 的实例失败：{}", scope, serviceName, e.getMessage());
+                                        failed.incrementAndGet();
+                                        return Mono.empty();
+                                    }), properties.getConcurrency())
+                            .then(Mono.defer(() -> {
+                                InstanceIndex.Stats stats = index.stats();
+                                log.info("[实例索引] {} 索引 {}/{} 个服务、{} 个实例、{} 个 IP，约 {} KB，耗时 {} ms", scope, stats.services(),
+                                        services.totalCount(), stats.instances(), stats.ips(), stats.bytes() / 1024,
+                                        (System.nanoTime() - start) / 1_000_000);
+                                return watchAll(scope, index).map(registrations -> new Entry(index, Instant.now(), services.totalCount(),
+                                        failed.get(), services.truncated(), !registrations.isEmpty(), registrations));
+                            }));
+                });
+    }
+
+    /**
+     * 推送通道可用时为每个已索引的服务订阅实例变更；任何一个订阅失败都放弃增量更新，只依赖定期重建
+     */
+    private Mono<List<Disposable>> watchAll(Scope scope, InstanceIndex index) {
+        List<String> services = index.services();
+        if (!properties.isLiveUpdates() || services.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return watcher.isConnected(scope.namespaceId())
+                .flatMap(connected -> connected ? subscribeAll(scope, index, services) : Mono.just(List.of()));
+    }
+
+    private Mono<List<Disposable>> subscribeAll(Scope scope, InstanceIndex index, List<String> services) {
+        List<Disposable> registrations = Collections.synchronizedList(new ArrayList<>());
+        return Flux.fromIterable(services)
+                .flatMap(serviceName -> watcher.watch(scope.namespaceId(), scope.group(), serviceName, instances -> {
+                    updates.incrementAndGet();
+                    index.replace(serviceName, instances.stream().map(InstanceIndex.Host::of).toList());
+                }), properties.getConcurrency())
+                .doOnNext(registrations::add)
+                .then(Mono.fromSupplier(() -> List.copyOf(registrations)))
+                .onErrorResume(e -> {
+                    log.warn("订阅服务实例变更失败，实例索引只按 refreshInterval 定期重建", e);
+                    ScopedIndexes.release(List.copyOf(registrations));
+                    return Mono.just(List.of());
+                });
+    }
+
+    private record Entry(InstanceIndex index, Instant builtAt, int totalServices, int failedServices, boolean truncated, boolean live,
+                         List<Disposable> registrations) implements ScopedIndexes.Entry {
+    }
+
+    /**
+     * 索引范围：Nacos 的服务列表按分组分页，索引也按名称空间和分组建立
+     *
+     * @param namespaceId 名称空间ID
+     * @param group       分组名称
+     */
+    public record Scope(String namespaceId, String group) {
+
+        @Override
+        public String toString() {
+            return namespaceId + "/" + group;
+        }
+    }
+
+    /**
+     * 查找结果
+     *
+     * @param indexedServices 已索引的服务数
+     * @param totalServices   构建时分组内的服务总数
+     * @param failedServices  构建时实例拉取失败、未加入索引的服务数
+     * @param instances       已索引的实例数
+     * @param distinctIps     不同的 IP 数
+     * @param indexBytes      索引估算占用字节数
+     * @param truncated       是否因服务数或实例数上限有服务未加入索引
+     * @param live            是否通过实例变更推送增量更新
+     * @param builtAt         索引构建时间
+     * @param tookMillis      查询耗时
+     * @param matched         匹配的实例总数
+     * @param hits            按 limit 截断后的匹配
+     */
+    public record Result(int indexedServices, int totalServices, int failedServices, int instances, int distinctIps,
+                         long indexBytes, boolean truncated, boolean live, Instant builtAt, double tookMillis,
+                         int matched, List<InstanceIndex.Hit> hits) {
+    }
+
+    /**
+     * 索引统计
+     *
+     * @param scopes    已建立索引的分组数
+     * @param instances 已索引的实例总数
+     * @param bytes     索引估算占用字节数
+     * @param builds    累计构建次数
+     * @param updates   累计增量更新次数
+     */
+    public record Stats(int scopes, int instances, long bytes, long builds, long updates) {
+    }
+}
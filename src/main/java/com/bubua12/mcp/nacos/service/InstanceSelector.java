@@ -0,0 +1,116 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.netty.util.NetUtil;
+import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 实例选择条件，用于批量上下线和跨服务查找实例，多个条件同时生效（与关系）
+ *
+ * @param ips         实例IP列表
+ * @param cidr        网段
+ * @param clusterName 集群名称
+ * @param metadata    元数据匹配
+ * @author bubua12
+ * @since 2026/10/17 18:00
+ */
+public record InstanceSelector(
+        @ToolParam(description = "实例IP列表，如：[\"10.0.3.17\", \"10.0.3.18\"]", required = false) List<String> ips,
+        @ToolParam(description = "网段，如：10.0.3.0/24", required = false) String cidr,
+        @ToolParam(description = "集群名称，如：DEFAULT", required = false) String clusterName,
+        @ToolParam(description = "元数据匹配，实例元数据需包含全部键值，如：{\"zone\": \"az1\"}", required = false) Map<String, String> metadata) {
+
+    public boolean isEmpty() {
+        return CollectionUtils.isEmpty(ips) && !StringUtils.hasText(cidr) && !StringUtils.hasText(clusterName)
+                && CollectionUtils.isEmpty(metadata);
+    }
+
+    /**
+     * 在访问 Nacos 之前校验条件，实例列表为空时也能发现写错的网段
+     *
+     * @throws IllegalArgumentException 网段无法解析
+     */
+    public void validate() {
+        if (StringUtils.hasText(cidr)) {
+            parseCidr(cidr);
+        }
+    }
+
+    /**
+     * @param host /nacos/v2/ns/instance/list 返回的 hosts 元素
+     */
+    public boolean matches(JsonNode host) {
+        JsonNode instanceMetadata = host.path("metadata");
+        return matches(host.path("ip").asText(), host.path("clusterName").asText(), key -> instanceMetadata.path(key).asText(null));
+    }
+
+    /**
+     * @param ip          实例IP
+     * @param clusterName 实例所在集群
+     * @param metadata    按键读取实例元数据，不存在时返回 null
+     */
+    public boolean matches(String ip, String clusterName, Function<String, String> metadata) {
+        if (!CollectionUtils.isEmpty(ips) && !ips.contains(ip)) {
+            return false;
+        }
+        if (StringUtils.hasText(cidr) && !inCidr(ip, cidr)) {
+            return false;
+        }
+        if (StringUtils.hasText(this.clusterName) && !this.clusterName.equals(clusterName)) {
+            return false;
+        }
+        if (!CollectionUtils.isEmpty(this.metadata)) {
+            for (Map.Entry<String, String> entry : this.metadata.entrySet()) {
+                if (!entry.getValue().equals(metadata.apply(entry.getKey()))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean inCidr(String ip, String cidr) {
+        Cidr network = parseCidr(cidr);
+        byte[] address = NetUtil.createByteArrayFromIpAddressString(ip);
+        if (address == null || address.length != network.address().length) {
+            return false;
+        }
+        for (int i = 0; i < network.prefix(); i++) {
+            int mask = 0x80 >> (i % 8);
+            if ((address[i / 8] & mask) != (network.address()[i / 8] & mask)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 只接受 IP 字面量，不做 DNS 解析；掩码位数超出地址长度时报参数错误
+     */
+    private static Cidr parseCidr(String cidr) {
+        String[] parts = cidr.trim().split("/", 2);
+        byte[] network = NetUtil.createByteArrayFromIpAddressString(parts[0].trim());
+        if (network == null) {
+            throw new IllegalArgumentException("网段必须是 IP 地址加掩码位数，如 10.0.3.0/24: " + cidr);
+        }
+        int prefix;
+        try {
+            prefix = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : network.length * 8;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("无法解析的网段: " + cidr, e);
+        }
+        if (prefix < 0 || prefix > network.length * 8) {
+            throw new IllegalArgumentException("网段掩码位数应在 0 到 " + network.length * 8 + " 之间: " + cidr);
+        }
+        return new Cidr(network, prefix);
+    }
+
+    private record Cidr(byte[] address, int prefix) {
+    }
+}
@@ -0,0 +1,36 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 服务实例变更通知来源
+ *
+ * @author bubua12
+ * @since 2026/10/18 03:20
+ */
+public interface InstanceWatcher {
+
+    /**
+     * 与 Nacos 的实例推送通道是否可用，不可用时不能依赖变更通知保证数据新鲜。首次调用时建立连接并等待，建立超时或失败时为 false
+     *
+     * @param namespaceId 名称空间ID
+     * @return 是否可用
+     */
+    Mono<Boolean> isConnected(String namespaceId);
+
+    /**
+     * 订阅服务的实例变更
+     *
+     * @param namespaceId 名称空间ID
+     * @param group       分组名称
+     * @param serviceName 服务名
+     * @param onChange    收到变更时回调，参数为服务最新的全部实例
+     * @return 取消订阅的句柄
+     */
+    Mono<Disposable> watch(String namespaceId, String group, String serviceName, Consumer<List<Instance>> onChange);
+}
@@ -0,0 +1,120 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.util.retry.Retry;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 在后台完成 Nacos 登录和 namespace 加载，不阻塞 Spring 容器启动
+ * <p>
+ * 失败后按退避一直重试，直到成功或关闭；重试期间工具调用照常按需登录，能用本地快照的读请求返回快照。
+ * 当前状态供 readiness 探针使用，与进程存活分开上报。
+ *
+ * @author bubua12
+ * @since 2026/10/18 01:20
+ */
+@Slf4j
+public class NacosBootstrap {
+
+    private final NacosTokenManager tokenManager;
+    private final NamespaceResolver namespaceResolver;
+    private final NacosProperties.Bootstrap properties;
+
+    private final AtomicReference<Status> status = new AtomicReference<>(new Status(State.STARTING, Instant.now(), 0, null));
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final AtomicReference<Disposable> task = new AtomicReference<>();
+
+    public NacosBootstrap(NacosTokenManager tokenManager, NamespaceResolver namespaceResolver, NacosProperties.Bootstrap properties) {
+        this.tokenManager = tokenManager;
+        this.namespaceResolver = namespaceResolver;
+        this.properties = properties;
+    }
+
+    /**
+     * 启动后台登录，立即返回
+     */
+    public void start() {
+        if (namespaceResolver.isLoaded()) {
+            update(State.SNAPSHOT, null);
+        }
+        long start = System.nanoTime();
+        Disposable previous = task.getAndSet(tokenManager.getToken()
+                .then(namespaceResolver.reload())
+                .doOnSubscribe(subscription -> attempts.incrementAndGet())
+                .doOnError(e -> {
+                    log.warn("连接 Nacos 失败（第 {} 次），稍后重试: {}", attempts.get(), e.toString());
+                    update(namespaceResolver.isLoaded() ? State.SNAPSHOT : State.UNAVAILABLE, e.toString());
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, properties.getRetryBackoff())
+                        .maxBackoff(properties.getMaxRetryBackoff()))
+                .subscribe(v -> { }, e -> log.error("连接 Nacos 失败，停止重试", e), () -> {
+                    log.info("已连接 Nacos，耗时 {} ms", (System.nanoTime() - start) / 1_000_000);
+                    update(State.READY, null);
+                }));
+        if (previous != null) {
+            previous.dispose();
+        }
+    }
+
+    public Status status() {
+        return status.get();
+    }
+
+    /**
+     * 是否可以接收流量：已连接 Nacos，或 Nacos 不可达但已有本地快照且允许降级服务
+     */
+    public boolean isReady() {
+        State state = status.get().state();
+        return state == State.READY || (state == State.SNAPSHOT && properties.isReadyOnSnapshot());
+    }
+
+    public void close() {
+        Disposable current = task.getAndSet(null);
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    private void update(State state, String lastError) {
+        status.set(new Status(state, Instant.now(), attempts.get(), lastError));
+    }
+
+    public enum State {
+
+        /**
+         * 首次连接进行中，没有可用的本地快照
+         */
+        STARTING,
+
+        /**
+         * 尚未连上 Nacos，读请求可以回退到本地快照
+         */
+        SNAPSHOT,
+
+        /**
+         * 已登录并加载 namespace
+         */
+        READY,
+
+        /**
+         * 连接失败且没有本地快照，后台重试中
+         */
+        UNAVAILABLE
+    }
+
+    /**
+     * 连接状态
+     *
+     * @param state     状态
+     * @param since     进入该状态的时间
+     * @param attempts  已尝试连接的次数
+     * @param lastError 最近一次失败的原因
+     */
+    public record Status(State state, Instant since, int attempts, String lastError) {
+    }
+}
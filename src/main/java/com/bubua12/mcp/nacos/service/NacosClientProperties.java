@@ -0,0 +1,36 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.alibaba.nacos.api.PropertyKeyConst;
+import com.bubua12.mcp.nacos.config.NacosProperties;
+
+import java.net.URI;
+import java.util.Properties;
+
+/**
+ * nacos-client（ConfigService / NamingService）连接参数
+ *
+ * @author bubua12
+ * @since 2026/10/17 15:20
+ */
+public final class NacosClientProperties {
+
+    private NacosClientProperties() {
+    }
+
+    /**
+     * 由 HTTP 地址推导 nacos-client 所需的 serverAddr，并带上账号和名称空间
+     *
+     * @param properties  连接配置
+     * @param namespaceId 名称空间ID，public 为空串
+     * @return nacos-client 参数
+     */
+    public static Properties of(NacosProperties properties, String namespaceId) {
+        URI server = URI.create(properties.getServer());
+        Properties props = new Properties();
+        props.put(PropertyKeyConst.SERVER_ADDR, server.getHost() + ":" + (server.getPort() > 0 ? server.getPort() : 8848));
+        props.put(PropertyKeyConst.NAMESPACE, namespaceId);
+        props.put(PropertyKeyConst.USERNAME, properties.getUsername());
+        props.put(PropertyKeyConst.PASSWORD, properties.getPassword());
+        return props;
+    }
+}
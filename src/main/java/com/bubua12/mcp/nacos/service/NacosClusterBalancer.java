@@ -0,0 +1,353 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 客户端负载均衡：把读请求分摊到 Nacos 集群的各个节点
+ * <p>
+ * 集群成员从 /nacos/v2/core/cluster/node/list 定期发现，只保留 UP 的节点；发往 nacos.server 的 GET 请求按
+ * power-of-two-choices 在健康节点中选择在途请求最少（或在途数 × 延迟最小）的节点。连续失败的节点被摘除，
+ * 后台用 /self/health 探活后恢复。可选对慢请求在 hedgeDelay 后向另一个节点发出对冲请求，先返回的生效。
+ * 写请求（PUT/POST/DELETE）和登录仍然发往 nacos.server，由 Nacos 在集群内转发。
+ *
+ * @author bubua12
+ * @since 2026/10/17 20:20
+ */
+@Slf4j
+public class NacosClusterBalancer implements ExchangeFilterFunction {
+
+    private static final String NODE_LIST_PATH = "/nacos/v2/core/cluster/node/list";
+    private static final String HEALTH_PATH = "/nacos/v2/core/cluster/node/self/health";
+
+    private final NacosProperties.Cluster cluster;
+    private final Node seed;
+    private final WebClient directClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicReference<List<Node>> nodes = new AtomicReference<>();
+    private final Disposable.Composite tasks = Disposables.composite();
+
+    /**
+     * @param cluster      集群配置
+     * @param server       nacos.server，作为种子节点和写请求的目标
+     * @param directClient 不经过负载均衡的 WebClient，用于成员发现和探活
+     */
+    public NacosClusterBalancer(NacosProperties.Cluster cluster, String server, WebClient directClient) {
+        this.cluster = cluster;
+        URI uri = URI.create(server);
+        this.seed = new Node(uri.getScheme(), uri.getHost(), port(uri));
+        this.directClient = directClient;
+        this.nodes.set(List.of(seed));
+    }
+
+    /**
+     * 开始定期发现集群成员并探活被摘除的节点
+     *
+     * @param token 获取 accessToken
+     */
+    public void start(Supplier<Mono<String>> token) {
+        long refreshMillis = cluster.getRefreshInterval().toMillis();
+        long probeMillis = cluster.getProbeInterval().toMillis();
+        tasks.add(Schedulers.parallel().schedulePeriodically(() -> refreshMembers(token).subscribe(),
+                0, refreshMillis, TimeUnit.MILLISECONDS));
+        tasks.add(Schedulers.parallel().schedulePeriodically(() -> probeEjected(token).subscribe(),
+                probeMillis, probeMillis, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * 从第一个能访问的节点拉取集群成员；拉取失败时保留现有成员
+     */
+    public Mono<Void> refreshMembers(Supplier<Mono<String>> token) {
+        List<Node> candidates = new ArrayList<>();
+        candidates.add(seed);
+        nodes.get().stream().filter(node -> !node.ejected && !node.equals(seed)).forEach(candidates::add);
+        return Flux.fromIterable(candidates)
+                .concatMap(node -> token.get()
+                        .flatMap(accessToken -> directClient.get()
+                                .uri(node.base() + NODE_LIST_PATH + "?accessToken={token}", accessToken)
+                                .retrieve()
+                                .bodyToMono(String.class))
+                        .onErrorResume(e -> {
+                            log.debug("从节点 {} 拉取集群成员失败：{}", node.address(), e.getMessage());
+                            return Mono.empty();
+                        }), 1)
+                .next()
+                .doOnNext(this::updateMembers)
+                .then();
+    }
+
+    /**
+     * 各节点的负载和健康状态
+     */
+    public List<NodeStats> nodeStats() {
+        return nodes.get().stream()
+                .map(node -> new NodeStats(node.address(), node.ejected, node.outstanding.get(), node.latencyMillis))
+                .toList();
+    }
+
+    public void close() {
+        tasks.dispose();
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (request.method() != HttpMethod.GET || !seed.serves(request.url())) {
+            return next.exchange(request);
+        }
+        return Mono.defer(() -> {
+            Node primary = select(null);
+            Mono<ClientResponse> first = send(primary, request, next);
+            Duration hedgeDelay = cluster.getHedgeDelay();
+            if (hedgeDelay == null || hedgeDelay.isZero() || hedgeDelay.isNegative()) {
+                return first;
+            }
+            Node secondary = select(primary);
+            if (secondary == primary) {
+                return first;
+            }
+            AtomicBoolean settled = new AtomicBoolean();
+            Mono<ClientResponse> hedge = Mono.delay(hedgeDelay).then(Mono.defer(() -> send(secondary, request, next)));
+            // 两个请求都失败时 firstWithValue 抛出 NoSuchElementException，还原为第一个请求的异常，便于上层判断是否重试
+            return Mono.firstWithValue(claim(settled, first), claim(settled, hedge))
+                    .onErrorMap(NoSuchElementException.class, e -> e.getSuppressed().length > 0 ? e.getSuppressed()[0] : e);
+        });
+    }
+
+    /**
+     * 对冲的两个请求只有先拿到响应的那个生效；落败的响应已经占用了连接，必须释放响应体，否则连接不会归还连接池
+     */
+    private static Mono<ClientResponse> claim(AtomicBoolean settled, Mono<ClientResponse> exchange) {
+        return exchange
+                .flatMap(response -> {
+                    if (settled.compareAndSet(false, true)) {
+                        return Mono.just(response);
+                    }
+                    response.releaseBody().subscribe();
+                    return Mono.<ClientResponse>empty();
+                })
+                .doOnDiscard(ClientResponse.class, response -> response.releaseBody().subscribe());
+    }
+
+    /**
+     * power-of-two-choices：随机取两个可用节点，选负载较低的那个；没有可用节点时退回全部节点
+     *
+     * @param exclude 需要排除的节点，对冲请求用来避开主请求的节点
+     * @return 选中的节点；排除后没有可用节点时返回 exclude
+     */
+    private Node select(Node exclude) {
+        List<Node> all = nodes.get();
+        List<Node> candidates = all.stream().filter(node -> !node.ejected && node != exclude).toList();
+        if (candidates.isEmpty()) {
+            if (exclude != null) {
+                return exclude;
+            }
+            candidates = all;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(candidates.size());
+        int j = random.nextInt(candidates.size() - 1);
+        if (j >= i) {
+            j++;
+        }
+        Node a = candidates.get(i);
+        Node b = candidates.get(j);
+        return score(a) <= score(b) ? a : b;
+    }
+
+    private double score(Node node) {
+        if (cluster.getStrategy() == NacosProperties.Cluster.Strategy.LATENCY_WEIGHTED) {
+            return (node.outstanding.get() + 1) * Math.max(node.latencyMillis, 1);
+        }
+        return node.outstanding.get();
+    }
+
+    private Mono<ClientResponse> send(Node node, ClientRequest request, ExchangeFunction next) {
+        ClientRequest routed = ClientRequest.from(request).url(node.rewrite(request.url())).build();
+        return Mono.defer(() -> {
+            node.outstanding.incrementAndGet();
+            long start = System.nanoTime();
+            return next.exchange(routed)
+                    .doOnNext(response -> {
+                        if (response.statusCode().is5xxServerError()) {
+                            failed(node, "HTTP " + response.statusCode().value());
+                        } else {
+                            node.succeeded(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        }
+                    })
+                    .doOnError(WebClientRequestException.class, e -> failed(node, e.getMessage()))
+                    .doFinally(signal -> node.outstanding.decrementAndGet());
+        });
+    }
+
+    private void failed(Node node, String reason) {
+        if (node.failures.incrementAndGet() >= cluster.getFailureThreshold() && !node.ejected) {
+            node.ejected = true;
+            log.warn("Nacos 节点 {} 连续失败 {} 次，暂时摘除：{}", node.address(), node.failures.get(), reason);
+        }
+    }
+
+    /**
+     * 探活被摘除的节点，/self/health 返回 2xx 且未报告不健康时恢复
+     */
+    private Mono<Void> probeEjected(Supplier<Mono<String>> token) {
+        return Flux.fromIterable(nodes.get())
+                .filter(node -> node.ejected)
+                .flatMap(node -> token.get()
+                        .flatMap(accessToken -> directClient.get()
+                                .uri(node.base() + HEALTH_PATH + "?accessToken={token}", accessToken)
+                                .retrieve()
+                                .bodyToMono(String.class))
+                        .map(this::reportsHealthy)
+                        .onErrorReturn(false)
+                        .filter(Boolean::booleanValue)
+                        .doOnNext(healthy -> {
+                            node.failures.set(0);
+                            node.ejected = false;
+                            log.info("Nacos 节点 {} 探活成功，恢复使用", node.address());
+                        }))
+                .then();
+    }
+
+    private boolean reportsHealthy(String body) {
+        try {
+            return objectMapper.readTree(body).path("data").path("healthy").asBoolean(true);
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    /**
+     * 用发现的 UP 节点替换成员列表，已有节点保留其负载和健康状态；没有发现任何节点时只使用种子节点
+     */
+    private void updateMembers(String body) {
+        JsonNode data;
+        try {
+            data = objectMapper.readTree(body).path("data");
+        } catch (Exception e) {
+            log.warn("解析集群成员失败：{}", e.getMessage());
+            return;
+        }
+        Map<String, Node> existing = new LinkedHashMap<>();
+        nodes.get().forEach(node -> existing.put(node.address(), node));
+        List<Node> members = new ArrayList<>();
+        for (JsonNode member : data) {
+            String ip = member.path("ip").asText();
+            int port = member.path("port").asInt();
+            if (ip.isEmpty() || port <= 0 || !"UP".equals(member.path("state").asText())) {
+                continue;
+            }
+            Node node = existing.get(ip + ":" + port);
+            members.add(node != null ? node : new Node(seed.scheme, ip, port));
+        }
+        if (members.isEmpty()) {
+            members.add(seed);
+        }
+        List<Node> previous = nodes.getAndSet(List.copyOf(members));
+        if (previous.size() != members.size() || !previous.containsAll(members)) {
+            log.info("Nacos 集群成员更新为：{}", members.stream().map(Node::address).toList());
+        }
+    }
+
+    /**
+     * 单个节点的负载和健康状态
+     *
+     * @param address       节点地址
+     * @param ejected       是否已被摘除
+     * @param outstanding   在途请求数
+     * @param latencyMillis 响应延迟的指数加权平均
+     */
+    public record NodeStats(String address, boolean ejected, int outstanding, double latencyMillis) {
+    }
+
+    /**
+     * URL 未写端口时按协议的默认端口，与 WebClient 实际连接的端口一致（VIP、域名后通常是 80 或 443）
+     */
+    private static int port(URI uri) {
+        if (uri.getPort() >= 0) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
+    private static final class Node {
+
+        private final String scheme;
+        private final String host;
+        private final int port;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile boolean ejected;
+        // 并发更新可能丢失个别样本，只影响平均值的精度
+        private volatile double latencyMillis;
+
+        private Node(String scheme, String host, int port) {
+            this.scheme = scheme;
+            this.host = host;
+            this.port = port;
+        }
+
+        private String address() {
+            return host + ":" + port;
+        }
+
+        private String base() {
+            return scheme + "://" + address();
+        }
+
+        private boolean serves(URI url) {
+            return host.equalsIgnoreCase(url.getHost()) && port == port(url);
+        }
+
+        private URI rewrite(URI url) {
+            return URI.create(base() + url.getRawPath() + (url.getRawQuery() == null ? "" : "?" + url.getRawQuery()));
+        }
+
+        private void succeeded(long millis) {
+            failures.set(0);
+            latencyMillis = latencyMillis == 0 ? millis : latencyMillis * 0.8 + millis * 0.2;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Node node && address().equals(node.address());
+        }
+
+        @Override
+        public int hashCode() {
+            return address().hashCode();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * getConfig 的读穿透缓存
+ * <p>
+ * 按条数和字节数双重限制的 LRU，条目的生命周期与它的配置变更监听绑定：收到变更通知即失效，被淘汰即取消监听。
+ * 推送通道不可用时不缓存也不命中，宁可多访问一次 Nacos 也不返回旧数据。
+ * <p>
+ * 未命中时先注册监听再加载，加载期间到达的变更通知不会漏掉：通知的内容与加载结果不同时，该次结果只用于本次返回，不写入缓存。
+ * 是否作废只看同一个配置的通知，其他配置的变更不影响。nacos-client 为新注册的监听补发一次当前内容，这类内容（MD5）
+ * 与加载结果或缓存相同的通知直接忽略，首次读取即可写入缓存。
+ *
+ * @author bubua12
+ * @since 2026/10/17 14:30
+ */
+@Slf4j
+public class NacosConfigCache {
+
+    /**
+     * 每个条目除内容以外的估算开销（字节）
+     */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    /**
+     * 加载期间收到过内容各不相同的通知，结果一定已过时
+     */
+    private static final String CHANGED = "changed";
+
+    /**
+     * 配置已删除时通知内容为空
+     */
+    private static final String ABSENT = "absent";
+
+    private final ConfigWatcher watcher;
+    private final NacosProperties.ConfigCache properties;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LinkedHashMap<ConfigKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public NacosConfigCache(ConfigWatcher watcher, NacosProperties.ConfigCache properties) {
+        this.watcher = watcher;
+        this.properties = properties;
+    }
+
+    /**
+     * 读取配置，未命中时通过 loader 加载并在推送通道可用时写入缓存
+     *
+     * @param key    配置坐标
+     * @param loader 从 Nacos 加载配置
+     * @return 配置响应
+     */
+    public Mono<NacosResponse> get(ConfigKey key, Mono<NacosResponse> loader) {
+        if (!properties.isEnabled() || !StringUtils.hasText(key.dataId()) || !StringUtils.hasText(key.group())) {
+            return loader;
+        }
+        return Mono.defer(() -> {
+            boolean connected = watcher.isConnected(key.namespaceId());
+            NacosResponse cached = connected ? lookup(key) : null;
+            if (cached != null) {
+                hits.incrementAndGet();
+                log.debug("[配置缓存] 命中：{}", key);
+                return Mono.just(cached);
+            }
+            misses.incrementAndGet();
+            if (!connected) {
+                return loader;
+            }
+            // 加载期间收到的通知内容的 MD5，多个不同内容时为 CHANGED
+            AtomicReference<String> notified = new AtomicReference<>();
+            return watcher.watch(key, content -> onChange(key, md5(content), notified))
+                    .onErrorResume(e -> {
+                        log.warn("注册配置监听失败，本次结果不缓存: {}", key, e);
+                        notified.set(CHANGED);
+                        return Mono.just(Disposables.disposed());
+                    })
+                    .flatMap(registration -> loader
+                            .doOnNext(response -> put(key, response, registration, notified))
+                            .doOnError(e -> release(List.of(registration)))
+                            .doOnCancel(() -> release(List.of(registration))));
+        });
+    }
+
+    /**
+     * 使指定配置的缓存失效
+     *
+     * @param key 配置坐标
+     */
+    public void invalidate(ConfigKey key) {
+        Entry removed;
+        synchronized (this) {
+            removed = entries.remove(key);
+            if (removed != null) {
+                totalBytes -= removed.weight();
+            }
+        }
+        if (removed != null) {
+            log.debug("[配置缓存] 收到变更通知，失效：{}", key);
+            release(List.of(removed.registration()));
+        }
+    }
+
+    /**
+     * 变更通知：内容与缓存的相同（如 nacos-client 补发的首次通知）时忽略，否则失效
+     */
+    private void onChange(ConfigKey key, String md5, AtomicReference<String> notified) {
+        notified.accumulateAndGet(md5, (seen, next) -> seen == null || seen.equals(next) ? next : CHANGED);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null || md5.equals(contentMd5(entry.response()))) {
+            return;
+        }
+        Entry removed = null;
+        synchronized (this) {
+            if (entries.get(key) == entry) {
+                removed = entries.remove(key);
+                totalBytes -= removed.weight();
+            }
+        }
+        if (removed != null) {
+            log.debug("[配置缓存] 收到变更通知，失效：{}", key);
+            release(List.of(removed.registration()));
+        }
+    }
+
+    public Stats stats() {
+        synchronized (this) {
+            return new Stats(hits.get(), misses.get(), evictions.get(), entries.size(), totalBytes);
+        }
+    }
+
+    private synchronized NacosResponse lookup(ConfigKey key) {
+        Entry entry = entries.get(key);
+        return entry == null ? null : entry.response();
+    }
+
+    /**
+     * 写入缓存；加载期间收到过内容不同的变更通知、响应不是 2xx 或已有条目时只取消本次注册的监听
+     */
+    private void put(ConfigKey key, NacosResponse response, Disposable registration, AtomicReference<String> notified) {
+        long weight = (long) response.body().length() * 2 + ENTRY_OVERHEAD;
+        // 只有收到过通知时才需要解析响应比较内容
+        String seen = notified.get();
+        boolean stale = seen != null && (CHANGED.equals(seen) || !response.isOk() || !seen.equals(contentMd5(response)));
+        List<Disposable> released = new ArrayList<>();
+        synchronized (this) {
+            if (stale || !response.isOk() || entries.containsKey(key) || weight > properties.getMaxBytes().toBytes()) {
+                released.add(registration);
+            } else {
+                entries.put(key, new Entry(response, registration, weight));
+                totalBytes += weight;
+                Iterator<Map.Entry<ConfigKey, Entry>> it = entries.entrySet().iterator();
+                while ((entries.size() > properties.getMaxEntries() || totalBytes > properties.getMaxBytes().toBytes()) && it.hasNext()) {
+                    Entry eldest = it.next().getValue();
+                    it.remove();
+                    totalBytes -= eldest.weight();
+                    evictions.incrementAndGet();
+                    released.add(eldest.registration());
+                }
+            }
+        }
+        release(released);
+    }
+
+    /**
+     * 取消监听涉及 nacos-client 内部锁，放到 boundedElastic 上执行
+     */
+    private void release(List<Disposable> released) {
+        if (!released.isEmpty()) {
+            Schedulers.boundedElastic().schedule(() -> released.forEach(Disposable::dispose));
+        }
+    }
+
+    /**
+     * 响应中的配置内容的 MD5：/nacos/v2/cs/config 的 data 字段，不是该格式时按整个响应体计算
+     */
+    private String contentMd5(NacosResponse response) {
+        try {
+            JsonNode data = objectMapper.readTree(response.body()).path("data");
+            if (data.isTextual()) {
+                return md5(data.asText());
+            }
+        } catch (Exception e) {
+            // 不是 JSON，按原文比较
+        }
+        return md5(response.body());
+    }
+
+    private static String md5(String content) {
+        return content == null ? ABSENT : DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private record Entry(NacosResponse response, Disposable registration, long weight) {
+    }
+
+    /**
+     * 缓存统计
+     *
+     * @param hits      命中次数
+     * @param misses    未命中次数
+     * @param evictions 因容量淘汰的条目数
+     * @param entries   当前条目数
+     * @param bytes     当前估算占用字节数
+     */
+    public record Stats(long hits, long misses, long evictions, int entries, long bytes) {
+    }
+}
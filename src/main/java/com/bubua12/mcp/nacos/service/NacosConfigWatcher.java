@@ -0,0 +1,119 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.alibaba.nacos.api.NacosFactory;
+import com.alibaba.nacos.api.config.ConfigService;
+import com.alibaba.nacos.api.config.listener.AbstractListener;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 基于 nacos-client ConfigService 长连接的配置变更通知
+ * <p>
+ * 每个名称空间一个 ConfigService，每个配置一个 Listener，多个监听者在 Listener 内部扇出。
+ * ConfigService 的创建和监听注册都是阻塞调用，统一放在 boundedElastic 上执行。
+ *
+ * @author bubua12
+ * @since 2026/10/17 14:15
+ */
+@Slf4j
+public class NacosConfigWatcher implements ConfigWatcher {
+
+    private final NacosProperties properties;
+
+    private final Map<String, Mono<ConfigService>> configServices = new ConcurrentHashMap<>();
+    private final Map<ConfigKey, KeyListener> listeners = new ConcurrentHashMap<>();
+
+    public NacosConfigWatcher(NacosProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public boolean isConnected(String namespaceId) {
+        ConfigService configService = configService(namespaceId)
+                .onErrorResume(e -> Mono.empty())
+                .toFuture()
+                .getNow(null);
+        return configService != null && "UP".equals(configService.getServerStatus());
+    }
+
+    @Override
+    public Mono<Disposable> watch(ConfigKey key, Consumer<String> onChange) {
+        return configService(key.namespaceId())
+                .publishOn(Schedulers.boundedElastic())
+                .map(configService -> {
+                    listeners.compute(key, (k, existing) -> {
+                        KeyListener listener = existing != null ? existing : register(configService, k);
+                        listener.callbacks.add(onChange);
+                        return listener;
+                    });
+                    return (Disposable) () -> unwatch(configService, key, onChange);
+                });
+    }
+
+    /**
+     * 关闭全部 ConfigService
+     */
+    public void close() {
+        configServices.values().forEach(mono -> {
+            ConfigService configService = mono.onErrorResume(e -> Mono.empty()).toFuture().getNow(null);
+            if (configService != null) {
+                try {
+                    configService.shutDown();
+                } catch (NacosException e) {
+                    log.warn("关闭 ConfigService 失败", e);
+                }
+            }
+        });
+    }
+
+    private Mono<ConfigService> configService(String namespaceId) {
+        return configServices.computeIfAbsent(namespaceId, ns -> Mono.fromCallable(() -> NacosFactory.createConfigService(NacosClientProperties.of(properties, ns)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnError(e -> {
+                    log.warn("创建 namespace [{}] 的 ConfigService 失败", ns, e);
+                    configServices.remove(ns);
+                })
+                .cache());
+    }
+
+    private KeyListener register(ConfigService configService, ConfigKey key) {
+        KeyListener listener = new KeyListener();
+        try {
+            configService.addListener(key.dataId(), key.group(), listener);
+        } catch (NacosException e) {
+            throw new IllegalStateException("注册配置监听失败: " + key, e);
+        }
+        return listener;
+    }
+
+    private void unwatch(ConfigService configService, ConfigKey key, Consumer<String> onChange) {
+        listeners.computeIfPresent(key, (k, listener) -> {
+            listener.callbacks.remove(onChange);
+            if (!listener.callbacks.isEmpty()) {
+                return listener;
+            }
+            configService.removeListener(k.dataId(), k.group(), listener);
+            return null;
+        });
+    }
+
+    private static class KeyListener extends AbstractListener {
+
+        private final List<Consumer<String>> callbacks = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void receiveConfigInfo(String configInfo) {
+            callbacks.forEach(callback -> callback.accept(configInfo));
+        }
+    }
+}
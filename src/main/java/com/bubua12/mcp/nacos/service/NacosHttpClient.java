@@ -0,0 +1,253 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 访问 Nacos OpenAPI 的 HTTP 传输层
+ * <p>
+ * 基于 Reactor Netty 的连接池：限制连接数和排队数，后台回收空闲连接，开启 TCP keep-alive 和 gzip；
+ * 连接、响应都有超时，幂等的 GET 请求在网络错误和超时时按指数退避重试，响应体的内存上限可配置。
+ * 开启集群负载均衡时，读请求经 {@link NacosClusterBalancer} 分摊到各节点，重试会重新选择节点。
+ *
+ * @author bubua12
+ * @since 2026/10/17 19:40
+ */
+@Slf4j
+public class NacosHttpClient {
+
+    private static final String POOL_NAME = "nacos";
+
+    private final ConnectionProvider connectionProvider;
+    private final Map<String, ConnectionPoolMetrics> poolMetrics = new ConcurrentHashMap<>();
+    private final WebClient webClient;
+    private final WebClient directClient;
+    private final NacosClusterBalancer balancer;
+
+    public NacosHttpClient(NacosProperties properties) {
+        this(properties, Metrics.globalRegistry);
+    }
+
+    public NacosHttpClient(NacosProperties properties, MeterRegistry meterRegistry) {
+        NacosProperties.Http http = properties.getHttp();
+        this.connectionProvider = ConnectionProvider.builder(POOL_NAME)
+                .maxConnections(http.getMaxConnections())
+                .pendingAcquireMaxCount(http.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(http.getPendingAcquireTimeout())
+                .maxIdleTime(http.getMaxIdleTime())
+                .maxLifeTime(http.getMaxLifeTime())
+                .evictInBackground(http.getEvictInterval())
+                .metrics(true, () -> new PoolMetricsRegistrar(poolMetrics, meterRegistry))
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) http.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .compress(http.isCompression())
+                .responseTimeout(http.getResponseTimeout());
+        WebClient.Builder builder = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .exchangeStrategies(ExchangeStrategies.builder()
+                        .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize((int) http.getMaxInMemorySize().toBytes()))
+                        .build());
+        ExchangeFilterFunction upstreamTimer = timeUpstream(meterRegistry);
+        this.directClient = builder.clone().filter(upstreamTimer).build();
+        this.balancer = properties.getCluster().isEnabled()
+                ? new NacosClusterBalancer(properties.getCluster(), properties.getServer(), directClient)
+                : null;
+        // 先加入的过滤器在外层：重试包住负载均衡，每次重试重新选择节点；计时在最内层，记录每一次实际发出的请求
+        builder.baseUrl(properties.getServer())
+                .filter(retryIdempotent(http));
+        if (balancer != null) {
+            builder.filter(balancer);
+        }
+        this.webClient = builder.filter(upstreamTimer).build();
+    }
+
+    public WebClient webClient() {
+        return webClient;
+    }
+
+    /**
+     * 不经过负载均衡和重试的 WebClient，请求发往 URL 中指定的节点，用于逐个节点的探测
+     */
+    public WebClient directClient() {
+        return directClient;
+    }
+
+    /**
+     * 开始发现集群成员，未开启负载均衡时不做任何事
+     *
+     * @param token 获取 accessToken
+     */
+    public void startDiscovery(Supplier<Mono<String>> token) {
+        if (balancer != null) {
+            balancer.start(token);
+        }
+    }
+
+    /**
+     * 集群各节点的负载和健康状态，未开启负载均衡时为空
+     */
+    public List<NacosClusterBalancer.NodeStats> nodeStats() {
+        return balancer == null ? List.of() : balancer.nodeStats();
+    }
+
+    /**
+     * 连接池使用情况，每个 Nacos 节点一项
+     */
+    public List<PoolStats> poolStats() {
+        return poolMetrics.entrySet().stream()
+                .map(entry -> {
+                    ConnectionPoolMetrics metrics = entry.getValue();
+                    return new PoolStats(entry.getKey(), metrics.acquiredSize(), metrics.idleSize(),
+                            metrics.allocatedSize(), metrics.maxAllocatedSize(), metrics.pendingAcquireSize());
+                })
+                .toList();
+    }
+
+    /**
+     * 关闭连接池
+     */
+    public void close() {
+        if (balancer != null) {
+            balancer.close();
+        }
+        connectionProvider.dispose();
+    }
+
+    /**
+     * 只重试 GET：连接失败、连接被提前关闭、响应超时都可以安全重放；连接池排队超时不重试，避免放大拥塞
+     */
+    private static ExchangeFilterFunction retryIdempotent(NacosProperties.Http http) {
+        return (request, next) -> {
+            if (request.method() != HttpMethod.GET || http.getMaxRetries() <= 0) {
+                return next.exchange(request);
+            }
+            return next.exchange(request)
+                    .retryWhen(Retry.backoff(http.getMaxRetries(), http.getRetryBackoff())
+                            .maxBackoff(http.getMaxRetryBackoff())
+                            .filter(NacosHttpClient::isRetryable)
+                            .doBeforeRetry(signal -> log.warn("请求 Nacos 失败，第 {} 次重试：{} {}，原因：{}",
+                                    signal.totalRetries() + 1, request.method(), request.url().getPath(), signal.failure().getMessage()))
+                            .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        };
+    }
+
+    /**
+     * 按接口路径、方法和状态码记录每次请求的耗时；收到响应头即结束计时，被取消的请求（如对冲中落败的一方）记为 CANCELLED
+     */
+    private static ExchangeFilterFunction timeUpstream(MeterRegistry meterRegistry) {
+        return (request, next) -> Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            AtomicReference<HttpStatusCode> status = new AtomicReference<>();
+            return next.exchange(request)
+                    .doOnNext(response -> status.set(response.statusCode()))
+                    .doFinally(signal -> {
+                        HttpStatusCode code = status.get();
+                        String outcome = code != null ? outcome(code)
+                                : signal == SignalType.CANCEL ? "CANCELLED" : "IO_ERROR";
+                        sample.stop(Timer.builder("nacos.upstream.requests")
+                                .description("调用 Nacos OpenAPI 的耗时")
+                                .tag("endpoint", request.url().getPath())
+                                .tag("method", request.method().name())
+                                .tag("status", code != null ? String.valueOf(code.value()) : "NONE")
+                                .tag("outcome", outcome)
+                                .publishPercentileHistogram()
+                                .register(meterRegistry));
+                    });
+        });
+    }
+
+    private static String outcome(HttpStatusCode code) {
+        if (code.is2xxSuccessful()) {
+            return "SUCCESS";
+        }
+        return code.is4xxClientError() ? "CLIENT_ERROR" : code.is5xxServerError() ? "SERVER_ERROR" : "UNKNOWN";
+    }
+
+    private static boolean isRetryable(Throwable e) {
+        if (!(e instanceof WebClientRequestException)) {
+            return false;
+        }
+        Throwable cause = e.getCause();
+        return cause instanceof IOException || cause instanceof io.netty.handler.timeout.TimeoutException;
+    }
+
+    /**
+     * 单个 Nacos 节点的连接池状态
+     *
+     * @param remoteAddress  节点地址
+     * @param acquired       正在使用的连接数
+     * @param idle           空闲连接数
+     * @param allocated      已建立的连接数
+     * @param maxAllocated   最大连接数
+     * @param pendingAcquire 排队等待连接的请求数
+     */
+    public record PoolStats(String remoteAddress, int acquired, int idle, int allocated, int maxAllocated, int pendingAcquire) {
+    }
+
+    /**
+     * 收集 Reactor Netty 为每个远端地址创建的连接池指标，并注册为 nacos.http.pool.* 指标
+     */
+    private record PoolMetricsRegistrar(Map<String, ConnectionPoolMetrics> poolMetrics,
+                                        MeterRegistry meterRegistry) implements ConnectionProvider.MeterRegistrar {
+
+        @Override
+        public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+            String remote = String.valueOf(remoteAddress);
+            poolMetrics.put(remote, metrics);
+            gauge("nacos.http.pool.acquired", "正在使用的连接数", remote, metrics, ConnectionPoolMetrics::acquiredSize);
+            gauge("nacos.http.pool.idle", "空闲连接数", remote, metrics, ConnectionPoolMetrics::idleSize);
+            gauge("nacos.http.pool.allocated", "已建立的连接数", remote, metrics, ConnectionPoolMetrics::allocatedSize);
+            gauge("nacos.http.pool.max", "最大连接数", remote, metrics, ConnectionPoolMetrics::maxAllocatedSize);
+            gauge("nacos.http.pool.pending", "排队等待连接的请求数", remote, metrics, ConnectionPoolMetrics::pendingAcquireSize);
+        }
+
+        @Override
+        public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+            String remote = String.valueOf(remoteAddress);
+            poolMetrics.remove(remote);
+            for (String name : List.of("nacos.http.pool.acquired", "nacos.http.pool.idle", "nacos.http.pool.allocated",
+                    "nacos.http.pool.max", "nacos.http.pool.pending")) {
+                meterRegistry.find(name).tag("remote", remote).meters().forEach(meterRegistry::remove);
+            }
+        }
+
+        private void gauge(String name, String description, String remote, ConnectionPoolMetrics metrics,
+                           ToDoubleFunction<ConnectionPoolMetrics> value) {
+            Gauge.builder(name, metrics, value)
+                    .description(description)
+                    .tag("remote", remote)
+                    .strongReference(true)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 基于 nacos-client NamingService 长连接的实例变更通知
+ * <p>
+ * NamingService 由 {@link NamingServices} 按名称空间共享，与实例视图共用同一条长连接，生命周期也由它管理。
+ * 每次订阅一个 EventListener，订阅后 Nacos 先推送一次当前实例列表。订阅和取消订阅是阻塞调用，放在 boundedElastic 上执行。
+ *
+ * @author bubua12
+ * @since 2026/10/18 03:20
+ */
+@Slf4j
+public class NacosInstanceWatcher implements InstanceWatcher {
+
+    private final NamingServices namingServices;
+    private final Duration connectTimeout;
+
+    /**
+     * @param namingServices 共享的 NamingService
+     * @param connectTimeout 等待 NamingService 建立的时长上限
+     */
+    public NacosInstanceWatcher(NamingServices namingServices, Duration connectTimeout) {
+        this.namingServices = namingServices;
+        this.connectTimeout = connectTimeout;
+    }
+
+    @Override
+    public Mono<Boolean> isConnected(String namespaceId) {
+        return namingServices.get(namespaceId)
+                .map(namingService -> "UP".equals(namingService.getServerStatus()))
+                .timeout(connectTimeout, Mono.fromSupplier(() -> {
+                    log.warn("等待 namespace [{}] 的 NamingService 超过 {}，本次不订阅实例变更", namespaceId, connectTimeout);
+                    return false;
+                }))
+                .onErrorReturn(false);
+    }
+
+    @Override
+    public Mono<Disposable> watch(String namespaceId, String group, String serviceName, Consumer<List<Instance>> onChange) {
+        return namingServices.get(namespaceId)
+                .publishOn(Schedulers.boundedElastic())
+                .map(namingService -> {
+                    EventListener listener = event -> {
+                        if (event instanceof NamingEvent namingEvent) {
+                            onChange.accept(namingEvent.getInstances());
+                        }
+                    };
+                    try {
+                        namingService.subscribe(serviceName, group, listener);
+                    } catch (NacosException e) {
+                        throw new IllegalStateException("订阅服务实例失败: " + group + "@@" + serviceName, e);
+                    }
+                    return (Disposable) () -> {
+                        try {
+                            namingService.unsubscribe(serviceName, group, listener);
+                        } catch (NacosException e) {
+                            log.warn("取消订阅服务 [{}@@{}] 失败", group, serviceName, e);
+                        }
+                    };
+                });
+    }
+}
@@ -1,21 +1,48 @@
 package com.bubua12.mcp.nacos.service;
 
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.utils.ConfigFlattener;
+import com.bubua12.mcp.nacos.utils.GlobMatcher;
+import com.bubua12.mcp.nacos.utils.UnifiedDiff;
+import com.bubua12.mcp.nacos.utils.ValidateChecker;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.modelcontextprotocol.server.McpAsyncServerExchange;
+import io.modelcontextprotocol.spec.McpSchema;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.mcp.McpToolUtils;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
-import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.time.Instant;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Nacos MCP Service
@@ -28,84 +55,208 @@ import java.util.Map;
 @SuppressWarnings("unused")
 public class NacosMCPService {
 
+    /**
+     * 配置变更通知使用的 MCP 日志 logger 名称
+     */
+    private static final String WATCH_LOGGER = "nacos.config.watch";
+
+    private final NacosHttpClient httpClient;
     private final WebClient webClient;
+    private final NacosProperties properties;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    private final String username;
-    private final String password;
-
-    private String accessToken;
-    private Instant tokenExpireAt;
+    private final NacosTokenManager tokenManager;
+    private final NacosSnapshot snapshot;
+    private final NamespaceResolver namespaceResolver;
+    private final NacosBootstrap bootstrap;
+    private final RequestCoalescer coalescer;
+    private final ClusterSweep clusterSweep;
+    private final NacosConfigWatcher configWatcher;
+    private final NacosConfigCache configCache;
+    private final ConfigHistoryCache historyCache;
+    private final ConfigSearchIndex searchIndex;
+    private final ConfigWatchHub watchHub;
+    private final NamingServices namingServices;
+    private final ServiceInstanceRegistry instanceRegistry;
+    private final NacosInstanceWatcher instanceWatcher;
+    private final InstanceSearchIndex instanceSearch;
+    private final ResponseProjector projector;
+    private final ConfigStreamReader streamReader;
 
-    private final Map<String, String> namespaceCache = new HashMap<>();
+    public NacosMCPService(NacosProperties properties) {
+        this(properties, Metrics.globalRegistry);
+    }
 
-    public NacosMCPService(
-            @Value("${nacos.server}") String nacosServer,
-            @Value("${nacos.username:nacos}") String username,
-            @Value("${nacos.password:nacos}") String password) {
-        this.username = username;
-        this.password = password;
-        this.webClient = WebClient.builder()
-                .baseUrl(nacosServer)
-                .build();
+    @Autowired
+    public NacosMCPService(NacosProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.httpClient = new NacosHttpClient(properties, meterRegistry);
+        this.webClient = httpClient.webClient();
+        this.tokenManager = new NacosTokenManager(webClient, properties.getUsername(), properties.getPassword(), meterRegistry);
+        httpClient.startDiscovery(tokenManager::getToken);
+        this.snapshot = new NacosSnapshot(properties.getSnapshot());
+        this.namespaceResolver = new NamespaceResolver(webClient, tokenManager, properties.getNamespace(), meterRegistry, snapshot);
+        this.bootstrap = new NacosBootstrap(tokenManager, namespaceResolver, properties.getBootstrap());
+        this.configWatcher = new NacosConfigWatcher(properties);
+        this.configCache = new NacosConfigCache(configWatcher, properties.getConfigCache());
+        this.historyCache = new ConfigHistoryCache(properties.getHistory());
+        this.searchIndex = new ConfigSearchIndex(configWatcher, properties.getSearch(), this::allConfigs);
+        this.watchHub = new ConfigWatchHub(configWatcher, properties.getWatch(), this::currentContent);
+        this.namingServices = new NamingServices(properties);
+        this.instanceRegistry = new ServiceInstanceRegistry(properties.getRegistry(), namingServices);
+        this.instanceWatcher = new NacosInstanceWatcher(namingServices, properties.getInstanceSearch().getConnectTimeout());
+        this.instanceSearch = new InstanceSearchIndex(instanceWatcher, properties.getInstanceSearch(), this::allServices, this::serviceHosts);
+        this.projector = new ResponseProjector(properties.getResponse().isCompact());
+        this.streamReader = new ConfigStreamReader(properties.getConfigRead().getMaxSize().toBytes(),
+                (int) properties.getConfigRead().getMaxInlineSize().toBytes());
+        this.coalescer = new RequestCoalescer(properties.getCoalesce());
+        this.clusterSweep = new ClusterSweep(httpClient.directClient(), properties.getServer(), properties.getSweep());
+        bindCacheMetrics(meterRegistry);
     }
 
     /**
      * 获取指定配置
+     * <p>
+     * 不指定 range、keyPath 时经过配置缓存和本地快照读取完整内容，超过 maxInlineSize 时只返回开头部分；
+     * 指定时流式读取，只保留请求的部分，先输出配置的总大小和 MD5。
      *
      * @param dataId 配置名称
      * @param group 所属分类
      * @param namespace 名称空间
+     * @param range 字节或行范围
+     * @param keyPath 配置项路径
      * @return 详情
      */
-    @Tool(description = "获取Nacos指定配置，输入精确的配置名称(dataId)、分组名称(group)、名称空间(namespace)")
-    public String getConfig(
+    @Tool(description = "获取Nacos指定配置，输入精确的配置名称(dataId)、分组名称(group)、名称空间(namespace)；"
+            + "大配置可按字节范围、行范围或配置项读取其中一部分，此时先返回配置的总大小(size)和md5")
+    public Mono<String> getConfig(
             @ToolParam(description = "配置名称，如：service-order.yaml") String dataId,
             @ToolParam(description = "分组名称，如：DEFAULT_GROUP、SEATA_GROUP") String group,
-            @ToolParam(description = "名称空间，如：public、dev、prod等") String namespace) {
-        log.debug("[获取指定配置] 调用 getConfig 方法，接收参数：dataId: {}，group: {}，namespace: {}", dataId, group, namespace);
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/nacos/v2/cs/config")
-                        .queryParam("dataId", dataId)
-                        .queryParam("group", group)
-                        .queryParam("namespaceId", getNamespaceId(namespace))
-                        .queryParam("accessToken", getToken()) // 你自己写的获取 token 方法
-                        .build())
-                .exchangeToMono(response ->
-                        response.bodyToMono(String.class)
-                                .map(body -> "HTTP " + response.statusCode() + "\n" + body))
-                .block();
+            @ToolParam(description = "名称空间，如：public、dev、prod等，也可以直接传namespaceId") String namespace,
+            @ToolParam(description = "读取范围，bytes=起始-结束（从0开始）或 lines=起始-结束（从1开始），结束可省略，如：lines=1-200；不传则读取全部", required = false) String range,
+            @ToolParam(description = "只读取某个配置项及其子项，支持YAML和properties，如：spring.datasource；不能与range同时指定", required = false) String keyPath) {
+        log.debug("[获取指定配置] 调用 getConfig 方法，接收参数：dataId: {}，group: {}，namespace: {}，range: {}，keyPath: {}",
+                dataId, group, namespace, range, keyPath);
+        if (!StringUtils.hasText(range) && !StringUtils.hasText(keyPath)) {
+            return coalescer.execute(callKey("getConfig", dataId, group, namespace),
+                    () -> namespaceResolver.resolve(namespace)
+                            .flatMap(namespaceId -> fullConfig(new ConfigKey(dataId, group, namespaceId))));
+        }
+        return coalescer.execute(callKey("getConfig", dataId, group, namespace, range, keyPath),
+                () -> Mono.fromCallable(() -> ConfigSlice.parse(range, keyPath))
+                        .flatMap(slice -> namespaceResolver.resolve(namespace)
+                                .flatMap(namespaceId -> readConfig(new ConfigKey(dataId, group, namespaceId), slice)))
+                        .map(response -> response.isOk() ? response.toText() : projector.project(response, ResponseView.PLAIN, null)));
     }
 
 
     /**
-     * 获取配置历史
+     * 批量获取配置
+     *
+     * @param configs 配置列表
+     * @return 每个配置的获取结果
+     */
+    @Tool(description = "批量获取Nacos配置，一次传入多个配置的dataId、group、namespace，并发获取；单个配置不存在、失败或超时不影响其他配置，结果中逐个标明状态")
+    public Mono<String> batchGetConfigs(@ToolParam(description = "要获取的配置列表") List<ConfigQuery> configs) {
+        log.debug("[批量获取配置] 调用 batchGetConfigs 方法，接收参数：configs: {}", configs);
+        ValidateChecker.checkNonNull(configs, "configs 不能为空");
+        NacosProperties.Batch batch = properties.getBatch();
+        if (configs.size() > batch.getMaxItems()) {
+            return Mono.error(new IllegalArgumentException("单次最多获取 " + batch.getMaxItems() + " 个配置，本次传入 " + configs.size() + " 个"));
+        }
+        return coalescer.execute(callKey("batchGetConfigs", configs),
+                () -> Flux.fromIterable(configs)
+                        .flatMapSequential(query -> fetchConfig(query.dataId(), query.group(), query.namespace())
+                                .timeout(batch.getItemTimeout())
+                                .map(response -> batchItem(query, response))
+                                .onErrorResume(e -> Mono.just(batchError(query, e))), batch.getConcurrency())
+                        .collectList()
+                        .map(items -> {
+                            ObjectNode data = objectMapper.createObjectNode();
+                            data.put("total", items.size());
+                            data.put("succeeded", items.stream().filter(item -> "OK".equals(item.path("status").asText())).count());
+                            data.putArray("items").addAll(items);
+                            return projector.project(success(data), ResponseView.ITEMS, null);
+                        }));
+    }
+
+
+    /**
+     * 获取配置历史，历史列表在本地缓存，每次只向 Nacos 拉取新增的条目
      *
      * @param dataId dataId
      * @param group 所属分类
      * @param namespace 名称空间
+     * @param fields 需要返回的字段
      * @return 配置历史
      */
     @Tool(description = "获取Nacos里某个配置的历史，输入配置名称(dataId)、它的所属分组(group)、名称空间(namespace)")
-    public String getConfigHistory(
+    public Mono<String> getConfigHistory(
             @ToolParam(description = "配置名称，如：service-order.yaml") String dataId,
             @ToolParam(description = "分组名称，如：DEFAULT_GROUP、SEATA_GROUP") String group,
-            @ToolParam(description = "名称空间，如：public、dev、prod等") String namespace
-    ) {
+            @ToolParam(description = "名称空间，如：public、dev、prod等，也可以直接传namespaceId") String namespace,
+            @ToolParam(description = "需要返回的字段，逗号分隔，支持a.b形式的嵌套字段，如：id,opType,srcUser,lastModifiedTime；不传则返回默认字段", required = false) String fields) {
         log.debug("[获取配置历史] 调用 getConfigHistory 方法，接收参数：dataId: {}，group: {}，namespace: {}", dataId, group, namespace);
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/nacos/v2/cs/history/list")
-                        .queryParam("dataId", dataId)
-                        .queryParam("group", group)
-                        .queryParam("namespaceId", getNamespaceId(namespace))
-                        .queryParam("accessToken", getToken())
-                        .build())
-                .exchangeToMono(response ->
-                        response.bodyToMono(String.class)
-                                .map(body -> "HTTP " + response.statusCode() + "\n" + body))
-                .block();
+        int pageSize = properties.getHistory().getPageSize();
+        return coalescer.execute(callKey("getConfigHistory", dataId, group, namespace, fields),
+                () -> namespaceResolver.resolve(namespace)
+                        .flatMap(namespaceId -> historyCache.entries(new ConfigKey(dataId, group, namespaceId),
+                                (pageNo, size) -> historyPage(dataId, group, namespaceId, pageNo, size)))
+                        .map(history -> {
+                            // totalCount 是 Nacos 最新一页给出的总数；cachedCount 是本地已知的条数，受 maxEntriesPerConfig 限制，
+                            // 也可能包含 Nacos 已按保留期清理的历史
+                            List<JsonNode> entries = history.items();
+                            ObjectNode data = objectMapper.createObjectNode();
+                            data.put("totalCount", history.totalCount());
+                            data.put("cachedCount", entries.size());
+                            data.putArray("pageItems").addAll(entries.subList(0, Math.min(entries.size(), pageSize)));
+                            return success(data);
+                        })
+                        .onErrorResume(NacosResponseException.class, e -> Mono.just(e.getResponse()))
+                        .map(response -> projector.project(response, ResponseView.CONFIG_HISTORY, fields)));
+    }
+
+
+    /**
+     * 对比配置的两个历史版本，或某个历史版本与当前配置
+     * <p>
+     * Nacos 的历史版本记录的是该次变更之前的内容。历史版本的内容按 id 缓存，只有差异返回给调用方。
+     *
+     * @param dataId 配置名称
+     * @param group 分组名称
+     * @param namespace 名称空间
+     * @param fromId 旧版本的历史 id
+     * @param toId 新版本的历史 id，为空时与当前配置对比
+     * @param context 差异上下文行数
+     * @return unified diff
+     */
+    @Tool(description = "在服务端对比Nacos配置的两个历史版本，或某个历史版本与当前配置，只返回unified diff格式的差异；历史版本id可通过getConfigHistory获取")
+    public Mono<String> diffConfigHistory(
+            @ToolParam(description = "配置名称，如：service-order.yaml") String dataId,
+            @ToolParam(description = "分组名称，如：DEFAULT_GROUP、SEATA_GROUP") String group,
+            @ToolParam(description = "名称空间，如：public、dev、prod等，也可以直接传namespaceId") String namespace,
+            @ToolParam(description = "旧版本的历史id") Long fromId,
+            @ToolParam(description = "新版本的历史id，不传则与当前配置对比", required = false) Long toId,
+            @ToolParam(description = "每处差异前后保留的上下文行数，不传则使用默认值", required = false) Integer context) {
+        log.debug("[对比配置历史] 调用 diffConfigHistory 方法，接收参数：dataId: {}，group: {}，namespace: {}，fromId: {}，toId: {}",
+                dataId, group, namespace, fromId, toId);
+        ValidateChecker.checkNonNull(fromId, "fromId 不能为空");
+        int contextLines = context == null || context < 0 ? properties.getHistory().getDiffContext() : context;
+        return coalescer.execute(callKey("diffConfigHistory", dataId, group, namespace, fromId, toId, context),
+                () -> namespaceResolver.resolve(namespace)
+                        .flatMap(namespaceId -> {
+                            ConfigKey key = new ConfigKey(dataId, group, namespaceId);
+                            Mono<String> target = toId == null
+                                    ? fetchConfig(dataId, group, namespace).map(response -> readBody(response).path("data").asText())
+                                    : historyContent(key, toId);
+                            return Mono.zip(historyContent(key, fromId), target);
+                        })
+                        .map(contents -> {
+                            String diff = UnifiedDiff.diff(dataId + "@" + fromId, dataId + "@" + (toId == null ? "current" : toId),
+                                    contents.getT1(), contents.getT2(), contextLines);
+                            return new NacosResponse(HttpStatus.OK, diff.isEmpty() ? "两个版本内容相同" : diff).toText();
+                        })
+                        .onErrorResume(NacosResponseException.class, e -> Mono.just(projector.project(e.getResponse(), ResponseView.PLAIN, null))));
     }
 
 
@@ -113,41 +264,178 @@ public class NacosMCPService {
      * 查询指定命名空间下的配置列表
      *
      * @param namespace 名称空间
+     * @param dataIdPattern dataId 前缀或通配符
+     * @param group 分组名称
+     * @param limit 最多返回条数
      * @return 配置列表
      */
-    @Tool(description = "查询指定命名空间下的Nacos配置列表，输入名称空间(namespace)，如 public、dev、prod等")
-    public String listConfigsByNamespace(@ToolParam(description = "名称空间，如：public、dev、prod等") String namespace) {
-        log.debug("[查询指定命名空间下的配置列表] 调用 listConfigsByNamespace 方法，接收参数：namespace: {}", namespace);
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/nacos/v2/cs/history/configs")
-                        .queryParam("namespaceId", getNamespaceId(namespace))
-                        .queryParam("accessToken", getToken())
-                        .build())
-                .exchangeToMono(response ->
-                        response.bodyToMono(String.class)
-                                .map(body -> "HTTP " + response.statusCode() + "\n" + body))
-                .block();
+    @Tool(description = "查询指定命名空间下的Nacos配置列表，输入名称空间(namespace)，如 public、dev、prod等；自动翻页拉取全部配置，可按dataId前缀或通配符、分组过滤")
+    public Mono<String> listConfigsByNamespace(
+            @ToolParam(description = "名称空间，如：public、dev、prod等，也可以直接传namespaceId") String namespace,
+            @ToolParam(description = "dataId前缀或通配符(*、?)，如：service-、*.yaml，不传则不过滤", required = false) String dataIdPattern,
+            @ToolParam(description = "分组名称，如：DEFAULT_GROUP，不传则不过滤", required = false) String group,
+            @ToolParam(description = "最多返回的条数，不传则使用默认上限", required = false) Integer limit) {
+        log.debug("[查询指定命名空间下的配置列表] 调用 listConfigsByNamespace 方法，接收参数：namespace: {}，dataIdPattern: {}，group: {}，limit: {}",
+                namespace, dataIdPattern, group, limit);
+        NacosProperties.Paging paging = properties.getPaging();
+        Predicate<String> dataIdFilter = GlobMatcher.toPredicate(dataIdPattern);
+        return coalescer.execute(callKey("listConfigsByNamespace", namespace, dataIdPattern, group, limit),
+                () -> namespaceResolver.resolve(namespace)
+                        .flatMap(namespaceId -> PagedFetcher.fetch(
+                                pageNo -> configPage(namespaceId, GlobMatcher.toBlurPattern(dataIdPattern), group, pageNo, paging.getConfigPageSize(), false),
+                                paging.getConfigPageSize(), paging.getConcurrency(),
+                                config -> dataIdFilter.test(config.path("dataId").asText()),
+                                limitOrDefault(limit)))
+                        .map(result -> pagedResponse(result, "configs"))
+                        .onErrorResume(NacosResponseException.class, e -> Mono.just(e.getResponse()))
+                        .map(response -> projector.project(response, ResponseView.CONFIGS, null)));
+    }
+
+
+    /**
+     * 在名称空间的全部配置中搜索
+     *
+     * @param namespace 名称空间
+     * @param keyword 关键字
+     * @param key 配置项
+     * @param regex keyword 是否为正则
+     * @param limit 最多返回条数
+     * @return 匹配的配置和位置
+     */
+    @Tool(description = "在指定名称空间的全部Nacos配置中搜索：按关键字（子串，不区分大小写）或正则匹配配置内容，或按配置项(key)查找并用关键字过滤值，"
+            + "如查找哪些配置把spring.datasource.url指向某个主机；基于本地索引，首次搜索某个名称空间时建立索引")
+    public Mono<String> searchConfigs(
+            @ToolParam(description = "名称空间，如：public、dev、prod等，也可以直接传namespaceId") String namespace,
+            @ToolParam(description = "关键字；指定key时用于过滤配置项的值，不传则返回该配置项的全部值", required = false) String keyword,
+            @ToolParam(description = "配置项，如：spring.datasource.url，支持*、?通配符；YAML、properties、JSON配置展开为a.b.c形式，列表元素为a[0]", required = false) String key,
+            @ToolParam(description = "keyword是否为正则表达式，正则区分大小写，可用(?i)忽略大小写；默认false", required = false) Boolean regex,
+            @ToolParam(description = "最多返回的条数，不传则使用默认值", required = false) Integer limit) {
+        log.debug("[搜索配置] 调用 searchConfigs 方法，接收参数：namespace: {}，keyword: {}，key: {}，regex: {}，limit: {}",
+                namespace, keyword, key, regex, limit);
+        if (!StringUtils.hasText(keyword) && !StringUtils.hasText(key)) {
+            return Mono.error(new IllegalArgumentException("keyword 和 key 至少传一个"));
+        }
+        boolean isRegex = Boolean.TRUE.equals(regex);
+        int max = limit == null || limit <= 0 ? properties.getSearch().getDefaultLimit() : Math.min(limit, properties.getPaging().getMaxLimit());
+        return coalescer.execute(callKey("searchConfigs", namespace, keyword, key, regex, limit),
+                () -> namespaceResolver.resolve(namespace)
+                        .flatMap(namespaceId -> StringUtils.hasText(key)
+                                ? searchIndex.searchKey(namespaceId, key, keyword, isRegex, max)
+                                : searchIndex.searchContent(namespaceId, keyword, isRegex, max))
+                        .map(result -> {
+                            ObjectNode data = objectMapper.createObjectNode();
+                            data.put("indexedConfigs", result.indexedConfigs());
+                            data.put("totalConfigs", result.totalConfigs());
+                            data.put("indexKB", result.indexBytes() / 1024);
+                            data.put("truncated", result.truncated());
+                            data.put("live", result.live());
+                            data.put("builtAt", result.builtAt().toString());
+                            data.put("tookMillis", Math.round(result.tookMillis() * 100) / 100.0);
+                            data.put("matchedConfigs", result.configs());
+                            data.set("items", objectMapper.valueToTree(result.hits()));
+                            return success(data);
+                        })
+                        .onErrorResume(NacosResponseException.class, e -> Mono.just(e.getResponse()))
+                        .map(response -> projector.project(response, ResponseView.ITEMS, null)));
+    }
+
+
+    /**
+     * 订阅配置变更
+     *
+     * @param configs     要订阅的配置
+     * @param includeDiff 通知中是否附带 diff
+     * @param toolContext 工具调用上下文，包含所在的 MCP 会话
+     * @return 订阅结果和各配置当前的 MD5
+     */
+    @Tool(description = "订阅配置变更，用于等待配置发布生效，代替反复调用getConfig轮询：配置发布后通过MCP日志通知（notifications/message，logger为"
+            + WATCH_LOGGER + "）推送新的md5，可选附带与上一版本的diff；订阅在有效期后自动取消")
+    public Mono<String> watchConfigs(
+            @ToolParam(description = "要订阅的配置列表") List<ConfigQuery> configs,
+            @ToolParam(description = "通知中是否附带与上一版本的diff，默认false", required = false) Boolean includeDiff,
+            ToolContext toolContext) {
+        log.debug("[订阅配置变更] 调用 watchConfigs 方法，接收参数：configs: {}，includeDiff: {}", configs, includeDiff);
+        McpAsyncServerExchange exchange = exchange(toolContext);
+        if (exchange == null) {
+            return Mono.error(new IllegalStateException("watchConfigs 需要通过 MCP 会话调用，变更通知推送到该会话"));
+        }
+        return resolveKeys(configs)
+                .flatMap(keys -> watchHub.subscribe(exchange, keys, Boolean.TRUE.equals(includeDiff),
+                        change -> exchange.loggingNotification(changeNotification(change))))
+                .map(watched -> {
+                    ObjectNode data = objectMapper.createObjectNode();
+                    data.put("watching", watched.size());
+                    data.put("expiresIn", properties.getWatch().getTtl().toString());
+                    ArrayNode items = data.putArray("items");
+                    for (ConfigWatchHub.Watched item : watched) {
+                        items.addObject()
+                                .put("dataId", item.key().dataId())
+                                .put("group", item.key().group())
+                                .put("namespaceId", item.key().namespaceId())
+                                .put("md5", item.md5())
+                                .put("live", configWatcher.isConnected(item.key().namespaceId()));
+                    }
+                    return success(data);
+                })
+                .onErrorResume(NacosResponseException.class, e -> Mono.just(e.getResponse()))
+                .map(response -> projector.project(response, ResponseView.ITEMS, null));
+    }
+
+
+    /**
+     * 取消订阅配置变更
+     *
+     * @param configs     要取消的配置
+     * @param toolContext 工具调用上下文，包含所在的 MCP 会话
+     * @return 取消的订阅数
+     */
+    @Tool(description = "取消当前会话对配置变更的订阅，不传configs则取消全部订阅")
+    public Mono<String> unwatchConfigs(
+            @ToolParam(description = "要取消订阅的配置列表", required = false) List<ConfigQuery> configs,
+            ToolContext toolContext) {
+        log.debug("[取消订阅配置变更] 调用 unwatchConfigs 方法，接收参数：configs: {}", configs);
+        McpAsyncServerExchange exchange = exchange(toolContext);
+        if (exchange == null) {
+            return Mono.error(new IllegalStateException("unwatchConfigs 需要通过 MCP 会话调用"));
+        }
+        return resolveKeys(configs == null ? List.of() : configs)
+                .map(keys -> {
+                    ObjectNode data = objectMapper.createObjectNode();
+                    data.put("removed", watchHub.unsubscribe(exchange, keys));
+                    return projector.project(success(data), ResponseView.PLAIN, null);
+                });
     }
 
 
     /**
      * 查询服务列表
      *
+     * @param namespace 名称空间
+     * @param group 分组名称
+     * @param namePattern 服务名前缀或通配符
+     * @param limit 最多返回条数
      * @return 服务列表
      */
-    @Tool(description = "查询服务列表，查询当前Nacos里的服务概览")
-    public String listServices() {
-        log.debug("[查询服务列表] 调用 listServices 方法");
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/nacos/v2/ns/service/list")
-                        .queryParam("accessToken", getToken())
-                        .build())
-                .exchangeToMono(response ->
-                        response.bodyToMono(String.class)
-                                .map(body -> "HTTP " + response.statusCode() + "\n" + body))
-                .block();
+    @Tool(description = "查询服务列表，查询当前Nacos里的服务概览；自动翻页拉取全部服务，可按分组、服务名前缀或通配符过滤")
+    public Mono<String> listServices(
+            @ToolParam(description = "名称空间，如：public、dev、prod等，不传则是public", required = false) String namespace,
+            @ToolParam(description = "分组名称，如：DEFAULT_GROUP、SEATA_GROUP，不传则是DEFAULT_GROUP", required = false) String group,
+            @ToolParam(description = "服务名前缀或通配符(*、?)，如：service-、*order*，不传则不过滤", required = false) String namePattern,
+            @ToolParam(description = "最多返回的条数，不传则使用默认上限", required = false) Integer limit) {
+        log.debug("[查询服务列表] 调用 listServices 方法，接收参数：namespace: {}，group: {}，namePattern: {}，limit: {}",
+                namespace, group, namePattern, limit);
+        NacosProperties.Paging paging = properties.getPaging();
+        Predicate<String> nameFilter = GlobMatcher.toPredicate(namePattern);
+        return coalescer.execute(callKey("listServices", namespace, group, namePattern, limit),
+                () -> namespaceResolver.resolve(namespace)
+                        .flatMap(namespaceId -> PagedFetcher.fetch(
+                                pageNo -> servicePage(namespaceId, group, pageNo, paging.getPageSize()),
+                                paging.getPageSize(), paging.getConcurrency(),
+                                service -> nameFilter.test(service.asText()),
+                                limitOrDefault(limit)))
+                        .map(result -> pagedResponse(result, "services"))
+                        .onErrorResume(NacosResponseException.class, e -> Mono.just(e.getResponse()))
+                        .map(response -> projector.project(response, ResponseView.SERVICES, null)));
     }
 
 
@@ -155,21 +443,23 @@ public class NacosMCPService {
      * 查询指定服务的实例列表
      *
      * @param serviceName 服务名，如service-product
+     * @param fields 需要返回的字段
      * @return 服务下的实例列表
      */
     @Tool(description = "查询Nacos里指定服务的实例列表，输入服务名(serviceName)查询")
-    public String listServiceInstances(@ToolParam(description = "服务名，如ms-gateway、service-product等") String serviceName) {
+    public Mono<String> listServiceInstances(
+            @ToolParam(description = "服务名，如ms-gateway、service-product等") String serviceName,
+            @ToolParam(description = "需要返回的字段，逗号分隔，支持a.b形式的嵌套字段，如：ip,port,healthy；不传则返回默认字段", required = false) String fields) {
         log.debug("[查询指定服务的实例列表] 调用 listServiceInstances 方法，接收参数：serviceName: {}", serviceName);
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/nacos/v2/ns/instance/list")
-                        .queryParam("serviceName", serviceName)
-                        .queryParam("accessToken", getToken())
-                        .build())
-                .exchangeToMono(response ->
-                        response.bodyToMono(String.class)
-                                .map(body -> "HTTP " + response.statusCode() + "\n" + body))
-                .block();
+        return coalescer.execute(callKey("listServiceInstances", serviceName, fields),
+                () -> snapshot.readThrough(NacosSnapshot.instancesKey(serviceName), instanceRegistry.instanceList(serviceName)
+                                .switchIfEmpty(request(token -> webClient.get()
+                                        .uri(uriBuilder -> uriBuilder
+                                                .path("/nacos/v2/ns/instance/list")
+                                                .queryParam("serviceName", serviceName)
+                                                .queryParam("accessToken", token)
+                                                .build()))))
+                        .map(response -> projector.project(response, ResponseView.INSTANCES, fields)));
     }
 
 
@@ -184,31 +474,156 @@ public class NacosMCPService {
      * @param enabled true=上线, false=下线
      */
     @Tool(description = "对服务的实例进行上线或者下线操作，根据传入的enabled来判断")
-    public String updateInstanceStatus(
+    public Mono<String> updateInstanceStatus(
             @ToolParam(description = "服务名，如ms-gateway、service-product等") String serviceName,
             @ToolParam(description = "分组名称，如：DEFAULT_GROUP、SEATA_GROUP，没有特殊说明则是DEFAULT_GROUP") String group,
-            @ToolParam(description = "名称空间，如：public、dev、prod等，没有特殊说明则是public") String namespace,
+            @ToolParam(description = "名称空间，如：public、dev、prod等，也可以直接传namespaceId，没有特殊说明则是public") String namespace,
             @ToolParam(description = "服务实例IP，必填") String ip,
             @ToolParam(description = "服务实例的端口号，必填，结合服务实例IP进行操作") int port,
             @ToolParam(description = "对服务进行上线还是下线，上线则为true，下线则为false") boolean enabled
     ) {
         log.debug("[服务实例上下线] 调用 updateInstanceStatus 方法，接收参数：serviceName: {}，group: {}，namespace: {}，ip: {}，port: {}，enabled: {}",
                 serviceName, group, namespace, ip, port, enabled);
-        return webClient.put()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/nacos/v2/ns/instance")
-                        .queryParam("serviceName", serviceName)
-                        .queryParam("group", group)
-                        .queryParam("namespace", getNamespaceId(namespace))
-                        .queryParam("ip", ip)
-                        .queryParam("port", port)
-                        .queryParam("enabled", enabled)
-                        .queryParam("accessToken", getToken())
-                        .build())
-                .exchangeToMono(response ->
-                        response.bodyToMono(String.class)
-                                .map(body -> "HTTP " + response.statusCode() + "\n" + body))
-                .block();
+        return namespaceResolver.resolve(namespace)
+                .flatMap(namespaceId -> exchange(ResponseView.PLAIN, null, token -> webClient.put()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/nacos/v2/ns/instance")
+                                .queryParam("serviceName", serviceName)
+                                .queryParam("group", group)
+                                .queryParam("namespace", namespaceId)
+                                .queryParam("ip", ip)
+                                .queryParam("port", port)
+                                .queryParam("enabled", enabled)
+                                .queryParam("accessToken", token)
+                                .build())));
+    }
+
+
+    /**
+     * 批量对服务实例进行上线或者下线
+     *
+     * @param serviceName 服务名
+     * @param group 分组名称
+     * @param namespace 名称空间
+     * @param selector 实例选择条件
+     * @param enabled true=上线, false=下线
+     * @param rollbackThreshold 失败比例阈值
+     * @return 每个实例的操作结果
+     */
+    @Tool(description = "批量对服务的实例进行上线或者下线操作，按IP列表、网段、集群名称或元数据选择实例，限速并发执行；失败比例超过阈值时可自动回滚已变更的实例")
+    public Mono<String> bulkUpdateInstanceStatus(
+            @ToolParam(description = "服务名，如ms-gateway、service-product等") String serviceName,
+            @ToolParam(description = "分组名称，如：DEFAULT_GROUP、SEATA_GROUP，不传则是DEFAULT_GROUP", required = false) String group,
+            @ToolParam(description = "名称空间，如：public、dev、prod等，也可以直接传namespaceId，不传则是public", required = false) String namespace,
+            @ToolParam(description = "实例选择条件，至少指定一项，多项同时满足才会被选中") InstanceSelector selector,
+            @ToolParam(description = "对实例进行上线还是下线，上线则为true，下线则为false") boolean enabled,
+            @ToolParam(description = "失败比例阈值(0~1)，失败比例超过该值时把已成功变更的实例恢复原状态，不传则不回滚", required = false) Double rollbackThreshold
+    ) {
+        log.debug("[批量服务实例上下线] 调用 bulkUpdateInstanceStatus 方法，接收参数：serviceName: {}，group: {}，namespace: {}，selector: {}，enabled: {}，rollbackThreshold: {}",
+                serviceName, group, namespace, selector, enabled, rollbackThreshold);
+        ValidateChecker.checkNonNull(selector, "selector 不能为空");
+        if (selector.isEmpty()) {
+            return Mono.error(new IllegalArgumentException("selector 至少需要指定 ips、cidr、clusterName、metadata 中的一项"));
+        }
+        selector.validate();
+        String groupName = StringUtils.hasText(group) ? group : "DEFAULT_GROUP";
+        NacosProperties.Bulk bulk = properties.getBulk();
+        return namespaceResolver.resolve(namespace)
+                .flatMap(namespaceId -> request(token -> webClient.get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/nacos/v2/ns/instance/list")
+                                .queryParam("serviceName", serviceName)
+                                .queryParam("groupName", groupName)
+                                .queryParam("namespaceId", namespaceId)
+                                .queryParam("accessToken", token)
+                                .build()))
+                        .flatMap(response -> {
+                            List<JsonNode> targets = new ArrayList<>();
+                            readBody(response).path("data").path("hosts").forEach(host -> {
+                                if (selector.matches(host)) {
+                                    targets.add(host);
+                                }
+                            });
+                            return applyInstanceStatus(namespaceId, groupName, serviceName, targets, enabled, bulk)
+                                    .flatMap(items -> {
+                                        long failed = items.stream().filter(item -> !"OK".equals(item.path("status").asText())).count();
+                                        double failureRatio = items.isEmpty() ? 0 : (double) failed / items.size();
+                                        boolean rollback = rollbackThreshold != null && failed > 0 && failureRatio > rollbackThreshold;
+                                        Mono<List<ObjectNode>> result = rollback
+                                                ? rollbackInstanceStatus(namespaceId, groupName, serviceName, items, bulk)
+                                                : Mono.just(items);
+                                        return result.map(finalItems -> {
+                                            finalItems.forEach(item -> item.remove("instance"));
+                                            ObjectNode data = objectMapper.createObjectNode();
+                                            data.put("serviceName", serviceName);
+                                            data.put("enabled", enabled);
+                                            data.put("matched", finalItems.size());
+                                            // 回滚后只有恢复失败的实例仍停留在目标状态
+                                            long restored = finalItems.stream().filter(item -> "OK".equals(item.path("rollback").asText())).count();
+                                            data.put("succeeded", finalItems.size() - failed - restored);
+                                            data.put("failed", failed);
+                                            data.put("restored", restored);
+                                            data.put("failureRatio", failureRatio);
+                                            data.put("rolledBack", rollback);
+                                            data.putArray("items").addAll(finalItems);
+                                            return success(data);
+                                        });
+                                    });
+                        }))
+                .onErrorResume(NacosResponseException.class, e -> Mono.just(e.getResponse()))
+                .map(response -> projector.project(response, ResponseView.ITEMS, null));
+    }
+
+
+    /**
+     * 跨服务按 IP 等条件查找实例
+     *
+     * @param namespace 名称空间
+     * @param group 分组名称
+     * @param selector 实例选择条件
+     * @param healthy 健康状态
+     * @param limit 最多返回条数
+     * @param fields 需要返回的字段
+     * @return 匹配的实例及其所属服务
+     */
+    @Tool(description = "按IP反查服务实例：在分组内的全部服务中按IP、网段、集群、元数据和健康状态查找实例，返回每个实例所属的服务、端口、健康状态和权重，"
+            + "如查找某台主机上注册了哪些服务、某个网段内有哪些不健康的实例；基于本地IP反向索引，首次查询某个分组时建立索引")
+    public Mono<String> findInstances(
+            @ToolParam(description = "名称空间，如：public、dev、prod等，也可以直接传namespaceId，不传则是public", required = false) String namespace,
+            @ToolParam(description = "分组名称，如：DEFAULT_GROUP、SEATA_GROUP，不传则是DEFAULT_GROUP", required = false) String group,
+            @ToolParam(description = "实例选择条件，多项同时满足才会被选中；不传则不按IP、网段、集群、元数据过滤", required = false) InstanceSelector selector,
+            @ToolParam(description = "只返回健康(true)或不健康(false)的实例，不传则不过滤", required = false) Boolean healthy,
+            @ToolParam(description = "最多返回的条数，不传则使用默认值", required = false) Integer limit,
+            @ToolParam(description = "需要返回的字段，逗号分隔，支持a.b形式的嵌套字段，如：ip,serviceName,port,metadata.version；不传则返回默认字段", required = false) String fields) {
+        log.debug("[按IP反查实例] 调用 findInstances 方法，接收参数：namespace: {}，group: {}，selector: {}，healthy: {}，limit: {}",
+                namespace, group, selector, healthy, limit);
+        if (selector != null) {
+            selector.validate();
+        }
+        String groupName = StringUtils.hasText(group) ? group : "DEFAULT_GROUP";
+        int max = limit == null || limit <= 0 ? properties.getInstanceSearch().getDefaultLimit() : Math.min(limit, properties.getPaging().getMaxLimit());
+        return coalescer.execute(callKey("findInstances", namespace, group, selector, healthy, limit, fields),
+                () -> namespaceResolver.resolve(namespace)
+                        .flatMap(namespaceId -> instanceSearch.find(new InstanceSearchIndex.Scope(namespaceId, groupName), selector, healthy, max))
+                        .map(result -> {
+                            ObjectNode data = objectMapper.createObjectNode();
+                            data.put("group", groupName);
+                            data.put("indexedServices", result.indexedServices());
+                            data.put("totalServices", result.totalServices());
+                            data.put("failedServices", result.failedServices());
+                            data.put("indexedInstances", result.instances());
+                            data.put("distinctIps", result.distinctIps());
+                            data.put("indexKB", result.indexBytes() / 1024);
+                            data.put("truncated", result.truncated());
+                            data.put("live", result.live());
+                            data.put("builtAt", result.builtAt().toString());
+                            data.put("tookMillis", Math.round(result.tookMillis() * 100) / 100.0);
+                            data.put("matched", result.matched());
+                            data.set("instances", objectMapper.valueToTree(result.hits()));
+                            return success(data);
+                        })
+                        .onErrorResume(NacosResponseException.class, e -> Mono.just(e.getResponse()))
+                        .map(response -> projector.project(response, ResponseView.INSTANCE_SEARCH, fields)));
     }
 
 
@@ -216,21 +631,22 @@ public class NacosMCPService {
      * 查询服务详情
      *
      * @param serviceName 服务维度的详情信息
+     * @param fields 需要返回的字段
      * @return 服务详情
      */
     @Tool(description = "根据提供的服务名称查询Nacos里的服务详情")
-    public String getServiceDetail(@ToolParam(description = "服务名，如ms-gateway、service-product等") String serviceName) {
+    public Mono<String> getServiceDetail(
+            @ToolParam(description = "服务名，如ms-gateway、service-product等") String serviceName,
+            @ToolParam(description = "需要返回的字段，逗号分隔，支持a.b形式的嵌套字段，如：name,groupName,clusterMap；不传则返回默认字段", required = false) String fields) {
         log.debug("[查询服务详情] 调用 getServiceDetail 方法，接收参数：serviceName: {}", serviceName);
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/nacos/v2/ns/service")
-                        .queryParam("serviceName", serviceName)
-                        .queryParam("accessToken", getToken())
-                        .build())
-                .exchangeToMono(response ->
-                        response.bodyToMono(String.class)
-                                .map(body -> "HTTP " + response.statusCode() + "\n" + body))
-                .block();
+        return coalescer.execute(callKey("getServiceDetail", serviceName, fields),
+                () -> instanceRegistry.serviceDetail(serviceName, request(token -> webClient.get()
+                                .uri(uriBuilder -> uriBuilder
+                                        .path("/nacos/v2/ns/service")
+                                        .queryParam("serviceName", serviceName)
+                                        .queryParam("accessToken", token)
+                                        .build())))
+                        .map(response -> projector.project(response, ResponseView.PLAIN, fields)));
     }
 
 
@@ -240,17 +656,14 @@ public class NacosMCPService {
      * @return 系统当前数据指标
      */
     @Tool(description = "查询Nacos目前的数据指标情况")
-    public String getSystemMetrics() {
+    public Mono<String> getSystemMetrics() {
         log.debug("[查询系统当前数据指标] 调用 getSystemMetrics 方法");
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/nacos/v2/ns/operator/metrics")
-                        .queryParam("accessToken", getToken())
-                        .build())
-                .exchangeToMono(response ->
-                        response.bodyToMono(String.class)
-                                .map(body -> "HTTP " + response.statusCode() + "\n" + body))
-                .block();
+        return coalescer.execute(callKey("getSystemMetrics"),
+                () -> exchange(ResponseView.PLAIN, null, token -> webClient.get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/nacos/v2/ns/operator/metrics")
+                                .queryParam("accessToken", token)
+                                .build())));
     }
 
 
@@ -260,17 +673,14 @@ public class NacosMCPService {
      * @return 客户端列表
      */
     @Tool(description = "查询当前Nacos的客户端列表，显示连接的客户端信息")
-    public String listClients() {
+    public Mono<String> listClients() {
         log.debug("[查询客户端列表] 调用 listClients 方法");
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/nacos/v2/ns/client/list")
-                        .queryParam("accessToken", getToken())
-                        .build())
-                .exchangeToMono(response ->
-                        response.bodyToMono(String.class)
-                                .map(body -> "HTTP " + response.statusCode() + "\n" + body))
-                .block();
+        return coalescer.execute(callKey("listClients"),
+                () -> exchange(ResponseView.PLAIN, null, token -> webClient.get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/nacos/v2/ns/client/list")
+                                .queryParam("accessToken", token)
+                                .build())));
     }
 
 
@@ -281,39 +691,36 @@ public class NacosMCPService {
      * @return 查询客户端信息
      */
     @Tool(description = "根据提供的客户端ID，进一步查询连接的客户端信息")
-    public String getClientInfoByClientID(
+    public Mono<String> getClientInfoByClientID(
             @ToolParam(description = "客户端ID，clientId 格式为time_ip_port，如：1664527081276_127.0.0.1_4400") String clientId) {
         log.debug("[查询客户端信息] 调用 getClientInfoByClientID 方法，接收参数：clientId: {}", clientId);
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/nacos/v2/ns/client")
-                        .queryParam("clientId", clientId)
-                        .queryParam("accessToken", getToken())
-                        .build())
-                .exchangeToMono(response ->
-                        response.bodyToMono(String.class)
-                                .map(body -> "HTTP " + response.statusCode() + "\n" + body))
-                .block();
+        return coalescer.execute(callKey("getClientInfoByClientID", clientId),
+                () -> exchange(ResponseView.PLAIN, null, token -> webClient.get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/nacos/v2/ns/client")
+                                .queryParam("clientId", clientId)
+                                .queryParam("accessToken", token)
+                                .build())));
     }
 
 
     /**
      * 查询命名空间列表
      *
+     * @param fields 需要返回的字段
      * @return 命名空间列表
      */
     @Tool(description = "查询Nacos里的命名空间列表")
-    public String listNamespaces() {
+    public Mono<String> listNamespaces(
+            @ToolParam(description = "需要返回的字段，逗号分隔，支持a.b形式的嵌套字段，如：namespace,namespaceShowName；不传则返回默认字段", required = false) String fields) {
         log.debug("[查询命名空间列表] 调用 listNamespaces 方法");
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/nacos/v2/console/namespace/list")
-                        .queryParam("accessToken", getToken())
-                        .build())
-                .exchangeToMono(response ->
-                        response.bodyToMono(String.class)
-                                .map(body -> "HTTP " + response.statusCode() + "\n" + body))
-                .block();
+        return coalescer.execute(callKey("listNamespaces", fields),
+                () -> snapshot.readThrough(NacosSnapshot.NAMESPACE_LIST, request(token -> webClient.get()
+                                .uri(uriBuilder -> uriBuilder
+                                        .path("/nacos/v2/console/namespace/list")
+                                        .queryParam("accessToken", token)
+                                        .build())))
+                        .map(response -> projector.project(response, ResponseView.NAMESPACES, fields)));
     }
 
 
@@ -324,58 +731,54 @@ public class NacosMCPService {
      * @return 具体ns详情
      */
     @Tool(description = "根据名称空间，查询Nacos里的具体的命名空间")
-    public String getNamespaceDetail(@ToolParam(description = "名称空间，如：public、dev、prod等") String namespace) {
+    public Mono<String> getNamespaceDetail(@ToolParam(description = "名称空间，如：public、dev、prod等，也可以直接传namespaceId") String namespace) {
         log.debug("[查询具体命名空间] 调用 getNamespaceDetail 方法，接收参数：namespace: {}", namespace);
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/nacos/v2/console/namespace")
-                        .queryParam("namespaceId", getNamespaceId(namespace))
-                        .queryParam("accessToken", getToken())
-                        .build())
-                .exchangeToMono(response ->
-                        response.bodyToMono(String.class)
-                                .map(body -> "HTTP " + response.statusCode() + "\n" + body))
-                .block();
+        return coalescer.execute(callKey("getNamespaceDetail", namespace),
+                () -> namespaceResolver.resolve(namespace)
+                        .flatMap(namespaceId -> exchange(ResponseView.PLAIN, null, token -> webClient.get()
+                                .uri(uriBuilder -> uriBuilder
+                                        .path("/nacos/v2/console/namespace")
+                                        .queryParam("namespaceId", namespaceId)
+                                        .queryParam("accessToken", token)
+                                        .build()))));
     }
 
 
     /**
      * 查询当前节点信息
      *
+     * @param fields 需要返回的字段
      * @return 当前节点信息
      */
-    @Tool(description = "根据名称空间，查询Nacos里的具体的命名空间")
-    public String getCurrentNodeInfo() {
+    @Tool(description = "查询当前连接的Nacos节点信息，包括节点地址、状态(state)、失败访问次数以及版本等扩展信息")
+    public Mono<String> getCurrentNodeInfo(
+            @ToolParam(description = "需要返回的字段，逗号分隔，支持a.b形式的嵌套字段，如：address,state,extendInfo.version；不传则返回默认字段", required = false) String fields) {
         log.debug("[查询当前节点信息] 调用 getCurrentNodeInfo 方法");
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/nacos/v2/core/cluster/node/self")
-                        .queryParam("accessToken", getToken())
-                        .build())
-                .exchangeToMono(response ->
-                        response.bodyToMono(String.class)
-                                .map(body -> "HTTP " + response.statusCode() + "\n" + body))
-                .block();
+        return coalescer.execute(callKey("getCurrentNodeInfo", fields),
+                () -> exchange(ResponseView.NODE, fields, token -> webClient.get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/nacos/v2/core/cluster/node/self")
+                                .queryParam("accessToken", token)
+                                .build())));
     }
 
 
     /**
      * 查询集群节点列表
      *
+     * @param fields 需要返回的字段
      * @return 集群节点列表
      */
     @Tool(description = "查询Nacos集群节点列表")
-    public String listClusterNodes() {
+    public Mono<String> listClusterNodes(
+            @ToolParam(description = "需要返回的字段，逗号分隔，支持a.b形式的嵌套字段，如：address,state；不传则返回默认字段", required = false) String fields) {
         log.debug("[查询Nacos集群节点列表] 调用 listClusterNodes 方法");
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/nacos/v2/core/cluster/node/list")
-                        .queryParam("accessToken", getToken())
-                        .build())
-                .exchangeToMono(response ->
-                        response.bodyToMono(String.class)
-                                .map(body -> "HTTP " + response.statusCode() + "\n" + body))
-                .block();
+        return coalescer.execute(callKey("listClusterNodes", fields),
+                () -> exchange(ResponseView.NODE, fields, token -> webClient.get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/nacos/v2/core/cluster/node/list")
+                                .queryParam("accessToken", token)
+                                .build())));
     }
 
 
@@ -385,112 +788,593 @@ public class NacosMCPService {
      * @return 节点健康状态
      */
     @Tool(description = "查询当前节点健康状态")
-    public String getCurrentNodeHealth() {
+    public Mono<String> getCurrentNodeHealth() {
         log.debug("[查询当前节点健康状态] 调用 getCurrentNodeHealth 方法");
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/nacos/v2/core/cluster/node/self/health")
-                        .queryParam("accessToken", getToken())
-                        .build())
-                .exchangeToMono(response ->
-                        response.bodyToMono(String.class)
-                                .map(body -> "HTTP " + response.statusCode() + "\n" + body))
-                .block();
+        return coalescer.execute(callKey("getCurrentNodeHealth"),
+                () -> exchange(ResponseView.PLAIN, null, token -> webClient.get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/nacos/v2/core/cluster/node/self/health")
+                                .queryParam("accessToken", token)
+                                .build())));
+    }
+
+
+    /**
+     * 巡检整个集群
+     *
+     * @param timeoutMillis 整体超时时间
+     * @param fields        需要返回的字段
+     * @return 集群报告
+     */
+    @Tool(description = "并发巡检Nacos集群的全部节点，汇总每个节点的健康状态、版本和数据指标，标记宕机、超时、数据落后（LAGGING）、版本不一致（VERSION）和指标离群（OUTLIER）的节点")
+    public Mono<String> sweepCluster(
+            @ToolParam(description = "整体超时时间（毫秒），到期未响应的节点标记为 TIMEOUT；不传则使用默认值", required = false) Integer timeoutMillis,
+            @ToolParam(description = "需要返回的字段，逗号分隔，如：address,status,flags；不传则返回默认字段", required = false) String fields) {
+        log.debug("[巡检Nacos集群] 调用 sweepCluster 方法，接收参数：timeoutMillis: {}", timeoutMillis);
+        Duration timeout = timeoutMillis == null || timeoutMillis <= 0 ? properties.getSweep().getTimeout() : Duration.ofMillis(timeoutMillis);
+        return coalescer.execute(callKey("sweepCluster", timeoutMillis, fields),
+                () -> Mono.defer(() -> {
+                    long deadline = System.nanoTime() + timeout.toNanos();
+                    return request(token -> webClient.get()
+                                    .uri(uriBuilder -> uriBuilder
+                                            .path("/nacos/v2/core/cluster/node/list")
+                                            .queryParam("accessToken", token)
+                                            .build()))
+                            .timeout(timeout)
+                            .map(response -> readBody(response).path("data"))
+                            .flatMap(members -> tokenManager.getToken()
+                                    .flatMap(token -> clusterSweep.sweep(members, token, deadline)))
+                            .map(report -> projector.project(success(report), ResponseView.CLUSTER, fields))
+                            .onErrorResume(NacosResponseException.class, e -> Mono.just(projector.project(e.getResponse(), ResponseView.PLAIN, null)));
+                }));
     }
 
 
+    /**
+     * 在后台登录并加载 namespace 列表，不阻塞容器启动；连接状态由 {@link #bootstrap()} 上报给 readiness 探针
+     */
     @PostConstruct
     public void init() {
-        login();
-        refreshNamespaces();
+        bootstrap.start();
+    }
+
+    public NacosBootstrap bootstrap() {
+        return bootstrap;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        bootstrap.close();
+        tokenManager.close();
+        searchIndex.close();
+        watchHub.close();
+        configWatcher.close();
+        instanceSearch.close();
+        instanceRegistry.close();
+        namingServices.close();
+        httpClient.close();
+        snapshot.close();
+    }
+
+    private void bindCacheMetrics(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("nacos.config.cache.requests", configCache, cache -> cache.stats().hits())
+                .description("getConfig 缓存命中次数")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("nacos.config.cache.requests", configCache, cache -> cache.stats().misses())
+                .description("getConfig 缓存未命中次数")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("nacos.config.cache.evictions", configCache, cache -> cache.stats().evictions())
+                .register(meterRegistry);
+        Gauge.builder("nacos.config.cache.entries", configCache, cache -> cache.stats().entries())
+                .register(meterRegistry);
+        Gauge.builder("nacos.config.cache.bytes", configCache, cache -> cache.stats().bytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("nacos.config.history.requests", historyCache, cache -> cache.stats().hits())
+                .description("历史版本内容缓存命中次数")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("nacos.config.history.requests", historyCache, cache -> cache.stats().misses())
+                .description("历史版本内容缓存未命中次数")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("nacos.config.history.fetched", historyCache, cache -> cache.stats().fetchedEntries())
+                .description("从 Nacos 拉取的历史列表条目数")
+                .register(meterRegistry);
+        Gauge.builder("nacos.config.history.bytes", historyCache, cache -> cache.stats().bytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("nacos.config.search.documents", searchIndex, index -> index.stats().documents())
+                .description("配置搜索索引中的配置数")
+                .register(meterRegistry);
+        Gauge.builder("nacos.config.search.bytes", searchIndex, index -> index.stats().bytes())
+                .description("配置搜索索引的估算内存")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("nacos.config.search.updates", searchIndex, index -> index.stats().updates())
+                .description("配置搜索索引按变更通知增量更新的次数")
+                .register(meterRegistry);
+        Gauge.builder("nacos.config.watch.topics", watchHub, hub -> hub.stats().topics())
+                .description("配置变更订阅在上游注册的监听数")
+                .register(meterRegistry);
+        Gauge.builder("nacos.config.watch.subscriptions", watchHub, hub -> hub.stats().subscriptions())
+                .description("MCP 会话的配置变更订阅数")
+                .register(meterRegistry);
+        FunctionCounter.builder("nacos.config.watch.notifications", watchHub, hub -> hub.stats().notifications())
+                .description("推送给 MCP 会话的配置变更通知数")
+                .register(meterRegistry);
+        Gauge.builder("nacos.instance.search.instances", instanceSearch, index -> index.stats().instances())
+                .description("实例反向索引中的实例数")
+                .register(meterRegistry);
+        Gauge.builder("nacos.instance.search.bytes", instanceSearch, index -> index.stats().bytes())
+                .description("实例反向索引的估算内存")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("nacos.instance.search.updates", instanceSearch, index -> index.stats().updates())
+                .description("实例反向索引按实例变更推送增量更新的次数")
+                .register(meterRegistry);
+        Gauge.builder("nacos.snapshot.entries", snapshot, store -> store.stats().entries())
+                .register(meterRegistry);
+        Gauge.builder("nacos.snapshot.file.bytes", snapshot, store -> store.stats().fileBytes())
+                .description("本地快照文件大小")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("nacos.snapshot.stale.reads", snapshot, store -> store.stats().staleReads())
+                .description("Nacos 不可达时返回本地快照的次数")
+                .register(meterRegistry);
+        FunctionCounter.builder("nacos.mcp.coalesce.requests", coalescer, c -> c.stats().executed())
+                .description("实际执行的读工具调用数")
+                .tag("result", "executed")
+                .register(meterRegistry);
+        FunctionCounter.builder("nacos.mcp.coalesce.requests", coalescer, c -> c.stats().joined())
+                .description("共享在途调用结果的读工具调用数")
+                .tag("result", "joined")
+                .register(meterRegistry);
+        FunctionCounter.builder("nacos.mcp.coalesce.requests", coalescer, c -> c.stats().cached())
+                .description("复用 ttl 内结果的读工具调用数")
+                .tag("result", "cached")
+                .register(meterRegistry);
+        Gauge.builder("nacos.mcp.coalesce.ratio", coalescer, c -> c.stats().collapseRatio())
+                .description("被合并掉的读工具调用占比")
+                .register(meterRegistry);
     }
 
     /**
-     * 登录获取 token
+     * 获取单个配置，经过 namespace 解析、本地快照和配置缓存
      */
-    private synchronized void login() {
-        try {
-            String resp = webClient.post()
-                    .uri("/nacos/v1/auth/login")
-                    .body(BodyInserters.fromFormData("username", username)
-                            .with("password", password))
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            JsonNode node = objectMapper.readTree(resp);
-            this.accessToken = node.get("accessToken").asText();
-            long ttl = node.get("tokenTtl").asLong();
-            this.tokenExpireAt = Instant.now().plusSeconds(ttl - 60);
-            log.info("登录 Nacos 成功，token 有效期 {} 秒", ttl);
-        } catch (Exception e) {
-            log.error("登录 Nacos 失败", e);
-            throw new RuntimeException("Login Nacos failed", e);
+    private Mono<NacosResponse> fetchConfig(String dataId, String group, String namespace) {
+        return namespaceResolver.resolve(namespace)
+                .flatMap(namespaceId -> fetchConfig(new ConfigKey(dataId, group, namespaceId)));
+    }
+
+    private Mono<NacosResponse> fetchConfig(ConfigKey key) {
+        return snapshot.readThrough(NacosSnapshot.configKey(key), configCache.get(key,
+                request(token -> webClient.get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/nacos/v2/cs/config")
+                                .queryParam("dataId", key.dataId())
+                                .queryParam("group", key.group())
+                                .queryParam("namespaceId", key.namespaceId())
+                                .queryParam("accessToken", token)
+                                .build()))));
+    }
+
+    /**
+     * 完整读取配置；响应体超过 http.maxInMemorySize 无法整体读入时，改为流式读取开头 maxInlineSize 字节，
+     * 大小和 MD5 取自 v1 接口的 Content-Length 和 Content-MD5 响应头
+     */
+    private Mono<String> fullConfig(ConfigKey key) {
+        return fetchConfig(key)
+                .flatMap(this::inlineConfig)
+                .onErrorResume(NacosMCPService::exceedsMemoryLimit, e -> {
+                    log.debug("[获取指定配置] {} 超过内存上限，改为流式读取开头部分：{}", key, e.getMessage());
+                    long maxInline = properties.getConfigRead().getMaxInlineSize().toBytes();
+                    return readConfig(key, ConfigSlice.bytes(0, maxInline - 1))
+                            .map(response -> response.isOk() ? response.toText() : projector.project(response, ResponseView.PLAIN, null));
+                });
+    }
+
+    /**
+     * WebClient 可能把解码时的 DataBufferLimitException 包装一层再抛出
+     */
+    static boolean exceedsMemoryLimit(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataBufferLimitException) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
-     * 获取 token，自动刷新
+     * 完整读取的配置不超过 maxInlineSize 时原样输出，超过时只输出开头部分，并附上总大小和 MD5
      */
-    private String getToken() {
-        if (this.accessToken == null || Instant.now().isAfter(tokenExpireAt)) {
-            login();
+    private Mono<String> inlineConfig(NacosResponse response) {
+        long maxInline = properties.getConfigRead().getMaxInlineSize().toBytes();
+        // 每个字符的 UTF-8 编码不超过 3 字节，响应体本身足够小时不用解析
+        if (!response.isOk() || response.body().length() * 3L <= maxInline) {
+            return Mono.just(projector.project(response, ResponseView.PLAIN, null));
         }
-        return this.accessToken;
+        byte[] content = readBody(response).path("data").asText().getBytes(StandardCharsets.UTF_8);
+        if (content.length <= maxInline) {
+            return Mono.just(projector.project(response, ResponseView.PLAIN, null));
+        }
+        return Mono.just(new NacosResponse(response.status(), streamReader.head(content).render(), response.snapshotAt()).toText());
     }
 
     /**
-     * 刷新 namespace 缓存
+     * 流式读取配置的一部分
+     * <p>
+     * /nacos/v1/cs/configs 直接返回配置原文，响应头带有 Content-MD5 和配置类型，不需要像 v2 接口那样整体解析 JSON。
      */
-    private void refreshNamespaces() {
-        try {
-            String resp = webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/nacos/v1/console/namespaces")
-                            .queryParam("accessToken", getToken())
-                            .build())
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            JsonNode root = objectMapper.readTree(resp);
-            JsonNode data = root.get("data");
-            if (data != null && data.isArray()) {
-                namespaceCache.clear();
-                Iterator<JsonNode> it = data.elements();
-                while (it.hasNext()) {
-                    JsonNode ns = it.next();
-                    String nsId = ns.get("namespace").asText();
-                    String nsName = ns.get("namespaceShowName").asText();
-                    namespaceCache.put(nsName, nsId);
-                }
-                namespaceCache.put("public", ""); // public 特殊处理
-                log.info("已刷新 namespace 缓存: {}", namespaceCache);
+    private Mono<NacosResponse> readConfig(ConfigKey key, ConfigSlice slice) {
+        return tokenManager.withToken(token -> webClient.get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/nacos/v1/cs/configs")
+                                .queryParam("dataId", key.dataId())
+                                .queryParam("group", key.group())
+                                .queryParam("tenant", key.namespaceId())
+                                .queryParam("accessToken", token)
+                                .build())
+                        .exchangeToMono(response -> {
+                            if (!response.statusCode().is2xxSuccessful()) {
+                                return response.bodyToMono(String.class)
+                                        .defaultIfEmpty("")
+                                        .map(body -> new NacosResponse(response.statusCode(), body));
+                            }
+                            HttpHeaders headers = response.headers().asHttpHeaders();
+                            // 压缩传输时 Content-Length 是压缩后的长度，不能作为配置大小
+                            long contentLength = headers.containsKey(HttpHeaders.CONTENT_ENCODING) ? -1 : headers.getContentLength();
+                            return streamReader.read(response.bodyToFlux(DataBuffer.class), slice,
+                                            ConfigFlattener.format(key.dataId(), headers.getFirst("Config-Type")),
+                                            contentLength, headers.getFirst("Content-MD5"))
+                                    .map(excerpt -> new NacosResponse(response.statusCode(), excerpt.render()));
+                        }),
+                response -> response.status().value() == HttpStatus.FORBIDDEN.value());
+    }
+
+    /**
+     * 配置的当前内容，配置不存在时为空，用作变更订阅的比较基线
+     */
+    private Mono<String> currentContent(ConfigKey key) {
+        return fetchConfig(key)
+                .filter(response -> response.status().value() != HttpStatus.NOT_FOUND.value())
+                .map(response -> readBody(response).path("data").asText());
+    }
+
+    private Mono<List<ConfigKey>> resolveKeys(List<ConfigQuery> configs) {
+        return Flux.fromIterable(configs)
+                .concatMap(query -> namespaceResolver.resolve(query.namespace())
+                        .map(namespaceId -> new ConfigKey(query.dataId(), query.group(), namespaceId)))
+                .collectList();
+    }
+
+    /**
+     * 把配置变更转为 MCP 日志通知（notifications/message），data 为 JSON
+     */
+    private McpSchema.LoggingMessageNotification changeNotification(ConfigWatchHub.ConfigChange change) {
+        ObjectNode data = objectMapper.createObjectNode();
+        data.put("event", change.deleted() ? "configDeleted" : "configChanged");
+        data.put("dataId", change.key().dataId());
+        data.put("group", change.key().group());
+        data.put("namespaceId", change.key().namespaceId());
+        data.put("md5", change.md5());
+        data.put("previousMd5", change.previousMd5());
+        data.put("changedAt", change.changedAt().toString());
+        if (change.diff() != null) {
+            data.put("diff", change.diff());
+        }
+        return McpSchema.LoggingMessageNotification.builder()
+                .level(McpSchema.LoggingLevel.INFO)
+                .logger(WATCH_LOGGER)
+                .data(data.toString())
+                .build();
+    }
+
+    /**
+     * 工具调用所在的 MCP 会话，不是通过 MCP 调用时为 null
+     */
+    private static McpAsyncServerExchange exchange(ToolContext toolContext) {
+        Object exchange = toolContext == null ? null : toolContext.getContext().get(McpToolUtils.TOOL_CONTEXT_MCP_EXCHANGE_KEY);
+        return exchange instanceof McpAsyncServerExchange asyncExchange ? asyncExchange : null;
+    }
+
+    private ObjectNode batchItem(ConfigQuery query, NacosResponse response) {
+        ObjectNode item = batchKey(query);
+        item.put("httpStatus", response.status().value());
+        if (response.isOk()) {
+            item.put("status", "OK");
+            if (response.isStale()) {
+                item.put("snapshotAt", response.snapshotAt().toString());
             }
-        } catch (Exception e) {
-            log.error("刷新 namespace 缓存失败", e);
+            item.set("content", readBody(response).path("data"));
+        } else {
+            item.put("status", response.status().value() == HttpStatus.NOT_FOUND.value() ? "NOT_FOUND" : "ERROR");
+            item.put("error", response.body());
         }
+        return item;
     }
 
+    private ObjectNode batchError(ConfigQuery query, Throwable e) {
+        ObjectNode item = batchKey(query);
+        item.put("status", e instanceof TimeoutException ? "TIMEOUT" : "ERROR");
+        item.put("error", String.valueOf(e.getMessage()));
+        return item;
+    }
+
+    private ObjectNode batchKey(ConfigQuery query) {
+        ObjectNode item = objectMapper.createObjectNode();
+        item.put("dataId", query.dataId());
+        item.put("group", query.group());
+        item.put("namespace", query.namespace());
+        return item;
+    }
 
     /**
-     * 根据 namespace 名称获取 namespaceId
-     *
-     * @param namespaceName namespace名称
-     * @return namespaceId
+     * 按限速和并发上限逐个修改实例的 enabled，保留实例原有的权重、元数据等属性
      */
-    private String getNamespaceId(String namespaceName) {
-        if (!StringUtils.hasText(namespaceName) || "public".equalsIgnoreCase(namespaceName)) {
-            return null;
-        }
-        String nsId = namespaceCache.get(namespaceName);
-        if (nsId == null) {
-            refreshNamespaces();
-            nsId = namespaceCache.get(namespaceName);
+    private Mono<List<ObjectNode>> applyInstanceStatus(String namespaceId, String groupName, String serviceName,
+                                                       List<JsonNode> hosts, boolean enabled, NacosProperties.Bulk bulk) {
+        return Flux.fromIterable(hosts)
+                .delayElements(Duration.ofMillis(1000L / Math.max(bulk.getRatePerSecond(), 1)))
+                .flatMapSequential(host -> {
+                    ObjectNode item = objectMapper.createObjectNode();
+                    item.put("ip", host.path("ip").asText());
+                    item.put("port", host.path("port").asInt());
+                    item.put("clusterName", host.path("clusterName").asText());
+                    item.put("previousEnabled", host.path("enabled").asBoolean(true));
+                    item.set("instance", host);
+                    return putInstanceStatus(namespaceId, groupName, serviceName, host, enabled)
+                            .map(response -> {
+                                item.put("status", response.isOk() ? "OK" : "ERROR");
+                                item.put("httpStatus", response.status().value());
+                                if (!response.isOk()) {
+                                    item.put("error", response.body());
+                                }
+                                return item;
+                            })
+                            .onErrorResume(e -> {
+                                item.put("status", "ERROR");
+                                item.put("error", String.valueOf(e.getMessage()));
+                                return Mono.just(item);
+                            });
+                }, bulk.getConcurrency())
+                .collectList();
+    }
+
+    /**
+     * 把已成功变更的实例恢复为变更前的 enabled
+     */
+    private Mono<List<ObjectNode>> rollbackInstanceStatus(String namespaceId, String groupName, String serviceName,
+                                                          List<ObjectNode> items, NacosProperties.Bulk bulk) {
+        log.warn("[批量服务实例上下线] 服务 {} 失败比例超过阈值，回滚已变更的实例", serviceName);
+        return Flux.fromIterable(items)
+                .delayElements(Duration.ofMillis(1000L / Math.max(bulk.getRatePerSecond(), 1)))
+                .flatMapSequential(item -> {
+                    if (!"OK".equals(item.path("status").asText())) {
+                        return Mono.just(item);
+                    }
+                    return putInstanceStatus(namespaceId, groupName, serviceName, item.path("instance"), item.path("previousEnabled").asBoolean())
+                            .map(response -> item.put("rollback", response.isOk() ? "OK" : "ERROR"))
+                            .onErrorResume(e -> Mono.just(item.put("rollback", "ERROR")));
+                }, bulk.getConcurrency())
+                .collectList();
+    }
+
+    private Mono<NacosResponse> putInstanceStatus(String namespaceId, String groupName, String serviceName, JsonNode host, boolean enabled) {
+        return request(token -> webClient.put()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/nacos/v2/ns/instance")
+                        .queryParam("namespaceId", namespaceId)
+                        .queryParam("groupName", groupName)
+                        .queryParam("serviceName", serviceName)
+                        .queryParam("clusterName", host.path("clusterName").asText())
+                        .queryParam("ip", host.path("ip").asText())
+                        .queryParam("port", host.path("port").asInt())
+                        .queryParam("weight", host.path("weight").asDouble(1.0))
+                        .queryParam("ephemeral", host.path("ephemeral").asBoolean(true))
+                        .queryParam("metadata", "{metadata}")
+                        .queryParam("enabled", enabled)
+                        .queryParam("accessToken", token)
+                        .build(Map.of("metadata", host.path("metadata").toString()))));
+    }
+
+    /**
+     * 拉取一页配置历史，Nacos 按 id 倒序返回
+     */
+    private Mono<PagedFetcher.Page<JsonNode>> historyPage(String dataId, String group, String namespaceId, int pageNo, int pageSize) {
+        return request(token -> webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/nacos/v2/cs/history/list")
+                        .queryParam("dataId", dataId)
+                        .queryParam("group", group)
+                        .queryParam("namespaceId", namespaceId)
+                        .queryParam("pageNo", pageNo)
+                        .queryParam("pageSize", pageSize)
+                        .queryParam("accessToken", token)
+                        .build()))
+                .map(response -> {
+                    JsonNode data = readBody(response).path("data");
+                    return new PagedFetcher.Page<>(data.path("totalCount").asInt(), toList(data.path("pageItems")));
+                });
+    }
+
+    /**
+     * 读取某个历史版本的配置内容，经过历史缓存
+     */
+    private Mono<String> historyContent(ConfigKey key, long id) {
+        return historyCache.revision(key, id, request(token -> webClient.get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/nacos/v2/cs/history")
+                                .queryParam("nid", id)
+                                .queryParam("dataId", key.dataId())
+                                .queryParam("group", key.group())
+                                .queryParam("namespaceId", key.namespaceId())
+                                .queryParam("accessToken", token)
+                                .build()))
+                .map(response -> readBody(response).path("data").path("content").asText()));
+    }
+
+    /**
+     * 拉取一页服务名
+     */
+    private Mono<PagedFetcher.Page<JsonNode>> servicePage(String namespaceId, String group, int pageNo, int pageSize) {
+        return request(token -> webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/nacos/v2/ns/service/list")
+                        .queryParam("namespaceId", namespaceId)
+                        .queryParamIfPresent("groupName", Optional.ofNullable(group).filter(StringUtils::hasText))
+                        .queryParam("pageNo", pageNo)
+                        .queryParam("pageSize", pageSize)
+                        .queryParam("accessToken", token)
+                        .build()))
+                .map(response -> {
+                    JsonNode data = readBody(response).path("data");
+                    return new PagedFetcher.Page<>(data.path("count").asInt(), toList(data.path("services")));
+                });
+    }
+
+    /**
+     * 拉取分组下的全部服务名，用于建立实例索引
+     */
+    private Mono<PagedFetcher.Result<JsonNode>> allServices(InstanceSearchIndex.Scope scope, int limit) {
+        NacosProperties.Paging paging = properties.getPaging();
+        return PagedFetcher.fetch(pageNo -> servicePage(scope.namespaceId(), scope.group(), pageNo, paging.getPageSize()),
+                paging.getPageSize(), paging.getConcurrency(), service -> true, limit);
+    }
+
+    /**
+     * 拉取单个服务的全部实例
+     */
+    private Mono<List<JsonNode>> serviceHosts(InstanceSearchIndex.Scope scope, String serviceName) {
+        return request(token -> webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/nacos/v2/ns/instance/list")
+                        .queryParam("serviceName", serviceName)
+                        .queryParam("groupName", scope.group())
+                        .queryParam("namespaceId", scope.namespaceId())
+                        .queryParam("accessToken", token)
+                        .build()))
+                .map(response -> toList(readBody(response).path("data").path("hosts")));
+    }
+
+    /**
+     * 拉取名称空间下的全部配置（含内容），用于建立搜索索引
+     */
+    private Mono<PagedFetcher.Result<JsonNode>> allConfigs(String namespaceId, int limit) {
+        NacosProperties.Paging paging = properties.getPaging();
+        return PagedFetcher.fetch(pageNo -> configPage(namespaceId, null, null, pageNo, paging.getConfigPageSize(), true),
+                paging.getConfigPageSize(), paging.getConcurrency(), config -> true, limit);
+    }
+
+    /**
+     * 拉取一页配置，只保留 dataId、group、type、md5，withContent 为 true 时保留配置内容
+     */
+    private Mono<PagedFetcher.Page<JsonNode>> configPage(String namespaceId, String dataIdBlur, String group, int pageNo, int pageSize,
+                                                         boolean withContent) {
+        return request(token -> webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/nacos/v1/cs/configs")
+                        .queryParam("search", "blur")
+                        .queryParam("dataId", Optional.ofNullable(dataIdBlur).orElse(""))
+                        .queryParam("group", Optional.ofNullable(group).orElse(""))
+                        .queryParam("tenant", namespaceId)
+                        .queryParam("pageNo", pageNo)
+                        .queryParam("pageSize", pageSize)
+                        .queryParam("accessToken", token)
+                        .build()))
+                .map(response -> {
+                    JsonNode root = readBody(response);
+                    List<JsonNode> configs = new ArrayList<>();
+                    for (JsonNode item : root.path("pageItems")) {
+                        ObjectNode config = objectMapper.createObjectNode();
+                        config.set("dataId", item.path("dataId"));
+                        config.set("group", item.path("group"));
+                        config.set("type", item.path("type"));
+                        config.set("md5", item.path("md5"));
+                        if (withContent) {
+                            config.set("content", item.path("content"));
+                        }
+                        configs.add(config);
+                    }
+                    return new PagedFetcher.Page<>(root.path("totalCount").asInt(), configs);
+                });
+    }
+
+    private NacosResponse pagedResponse(PagedFetcher.Result<JsonNode> result, String field) {
+        ObjectNode data = objectMapper.createObjectNode();
+        data.put("totalCount", result.totalCount());
+        data.put("count", result.items().size());
+        data.put("truncated", result.truncated());
+        data.putArray(field).addAll(result.items());
+        return success(data);
+    }
+
+    /**
+     * 按 Nacos v2 的格式包装本地组装的结果
+     */
+    private NacosResponse success(JsonNode data) {
+        ObjectNode root = objectMapper.createObjectNode();
+        root.put("code", 0);
+        root.put("message", "success");
+        root.set("data", data);
+        return new NacosResponse(HttpStatus.OK, root.toString());
+    }
+
+    /**
+     * 读工具调用的合并 key：工具名加全部参数的 JSON
+     */
+    private String callKey(String tool, Object... args) {
+        return tool + objectMapper.valueToTree(args);
+    }
+
+    private int limitOrDefault(Integer limit) {
+        int max = properties.getPaging().getMaxLimit();
+        return limit == null || limit <= 0 ? max : Math.min(limit, max);
+    }
+
+    private JsonNode readBody(NacosResponse response) {
+        if (!response.isOk()) {
+            throw new NacosResponseException(response);
         }
-        if (nsId == null) {
-            throw new IllegalArgumentException("未知 namespace 名称: " + namespaceName);
+        try {
+            return objectMapper.readTree(response.body());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("解析 Nacos 响应失败", e);
         }
-        return nsId;
     }
-}
\ No newline at end of file
+
+    private static List<JsonNode> toList(JsonNode array) {
+        List<JsonNode> items = new ArrayList<>(array.size());
+        array.forEach(items::add);
+        return items;
+    }
+
+    /**
+     * 携带 token 发起请求并按视图输出 "HTTP 状态码 + 精简后的响应"
+     *
+     * @param view    响应视图
+     * @param fields  调用方指定的字段，为空时使用视图默认字段
+     * @param request 根据 token 构建的请求
+     * @return 响应文本
+     */
+    private Mono<String> exchange(ResponseView view, String fields, Function<String, WebClient.RequestHeadersSpec<?>> request) {
+        return request(request).map(response -> projector.project(response, view, fields));
+    }
+
+    /**
+     * 携带 token 发起请求，token 被拒绝（403）时重新登录后重试一次
+     *
+     * @param request 根据 token 构建的请求
+     * @return 原始响应
+     */
+    private Mono<NacosResponse> request(Function<String, WebClient.RequestHeadersSpec<?>> request) {
+        return tokenManager.withToken(token -> request.apply(token)
+                        .exchangeToMono(response -> response.bodyToMono(String.class)
+                                .defaultIfEmpty("")
+                                .map(body -> new NacosResponse(response.statusCode(), body))),
+                response -> response.status().value() == HttpStatus.FORBIDDEN.value());
+    }
+}
@@ -0,0 +1,46 @@
+package com.bubua12.mcp.nacos.service;
+
+import org.springframework.http.HttpStatusCode;
+
+import java.time.Instant;
+
+/**
+ * Nacos OpenAPI 的原始响应
+ *
+ * @param status     HTTP 状态码
+ * @param body       响应体
+ * @param snapshotAt 来自本地快照时为快照的保存时间，实时响应为 null
+ * @author bubua12
+ * @since 2026/10/17 14:05
+ */
+public record NacosResponse(HttpStatusCode status, String body, Instant snapshotAt) {
+
+    public NacosResponse(HttpStatusCode status, String body) {
+        this(status, body, null);
+    }
+
+    public boolean isOk() {
+        return status.is2xxSuccessful();
+    }
+
+    /**
+     * 是否为 Nacos 不可达时返回的本地快照
+     */
+    public boolean isStale() {
+        return snapshotAt != null;
+    }
+
+    /**
+     * 状态行："HTTP 状态码"，快照数据追加 "STALE snapshotAt=保存时间"
+     */
+    public String statusLine() {
+        return "HTTP " + status + (isStale() ? " STALE snapshotAt=" + snapshotAt : "");
+    }
+
+    /**
+     * 工具返回给模型的文本：状态行换行后接响应体
+     */
+    public String toText() {
+        return statusLine() + "\n" + body;
+    }
+}
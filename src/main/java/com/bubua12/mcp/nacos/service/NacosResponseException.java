@@ -0,0 +1,20 @@
+package com.bubua12.mcp.nacos.service;
+
+import lombok.Getter;
+
+/**
+ * Nacos 返回非 2xx 响应，携带原始响应以便原样返回给调用方
+ *
+ * @author bubua12
+ * @since 2026/10/17 16:15
+ */
+@Getter
+public class NacosResponseException extends RuntimeException {
+
+    private final NacosResponse response;
+
+    public NacosResponseException(NacosResponse response) {
+        super("HTTP " + response.status() + " " + response.body());
+        this.response = response;
+    }
+}
@@ -0,0 +1,572 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Nacos 读结果的本地磁盘快照
+ * <p>
+ * 保存 namespace 列表、最近读取的配置和服务实例列表。文件只追加：每条记录为 "长度 + CRC32 + 内容"，
+ * 内容相同的重复写入直接跳过；启动时顺序读一遍即可恢复，遇到进程崩溃留下的残缺记录就从那里截断。
+ * 被覆盖或淘汰的记录占到文件一半以上时在写线程上压缩重写，关闭时再压缩一次。
+ * <p>
+ * 锁只保护内存中的条目和计数，文件只由写线程（以及写线程结束后的 close）读写：追加、压缩和 force 都不持有锁，
+ * 经由事件循环线程调用的 {@link #get}、{@link #put} 不会被磁盘 I/O 阻塞。
+ * <p>
+ * 读请求经过 {@link #readThrough} 时，成功的响应写入快照；Nacos 不可达（连接失败、超时、5xx）时返回快照内容，
+ * 并通过 {@link NacosResponse#snapshotAt()} 标记为过期数据。
+ * <p>
+ * 快照以明文保存配置内容，其中可能有数据库密码等敏感信息：默认关闭，开启后新建的目录和文件只有属主可读写（POSIX 文件系统）。
+ *
+ * @author bubua12
+ * @since 2026/10/18 00:40
+ */
+@Slf4j
+public class NacosSnapshot {
+
+    /**
+     * 服务端 namespace 列表，供 {@link NamespaceResolver} 启动时直接恢复索引
+     */
+    public static final String NAMESPACE_INDEX = "namespace-index";
+
+    /**
+     * listNamespaces 的响应
+     */
+    public static final String NAMESPACE_LIST = "namespace-list";
+
+    private static final byte[] MAGIC = {'N', 'M', 'S', '1'};
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+
+    /**
+     * 单条记录的长度上限，超出视为文件损坏
+     */
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * 记录头：长度 + CRC32
+     */
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    /**
+     * 每个条目除内容外的估算开销
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    /**
+     * 可回收空间超过该值且超过有效记录大小时才压缩，避免小文件频繁重写
+     */
+    private static final long COMPACT_MIN_WASTE = 1024 * 1024;
+
+    private static final String OWNER_ONLY_FILE = "rw-------";
+    private static final String OWNER_ONLY_DIR = "rwx------";
+
+    private final boolean enabled;
+    private final Path path;
+    private final int maxEntries;
+    private final long maxBytes;
+
+    private final LinkedHashMap<String, Slot> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+    private long liveRecordBytes;
+
+    private final ExecutorService writer;
+    /**
+     * 只在构造、写线程和 close 中访问
+     */
+    private volatile FileChannel channel;
+    private long fileBytes;
+
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong staleReads = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+
+    public NacosSnapshot(NacosProperties.Snapshot properties) {
+        this.enabled = properties.isEnabled();
+        this.path = Path.of(properties.getPath());
+        this.maxEntries = properties.getMaxEntries();
+        this.maxBytes = properties.getMaxBytes().toBytes();
+        this.writer = enabled ? Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nacos-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        if (enabled) {
+            long start = System.nanoTime();
+            load();
+            log.info("[本地快照] 从 {} 加载 {} 条，约 {} KB，耗时 {} ms", path, entries.size(), bytes / 1024,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * 不落盘、不回退的空快照
+     */
+    public static NacosSnapshot disabled() {
+        NacosProperties.Snapshot properties = new NacosProperties.Snapshot();
+        properties.setEnabled(false);
+        return new NacosSnapshot(properties);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 读取快照条目
+     *
+     * @param key 条目名称
+     * @return 条目，不存在时为 null
+     */
+    public synchronized Entry get(String key) {
+        Slot slot = entries.get(key);
+        return slot == null ? null : slot.entry();
+    }
+
+    /**
+     * 写入快照，内容没有变化时只刷新内存中的保存时间，不重复写盘
+     */
+    public void put(String key, String body) {
+        if (!enabled || body == null) {
+            return;
+        }
+        synchronized (this) {
+            Slot previous = entries.get(key);
+            Entry entry = new Entry(body, Instant.now());
+            if (previous != null && previous.entry().body().equals(body)) {
+                entries.put(key, new Slot(entry, previous.recordBytes()));
+                return;
+            }
+            byte[] record = encode(PUT, key, entry);
+            store(key, new Slot(entry, record.length));
+            append(record);
+            evict();
+        }
+    }
+
+    /**
+     * 删除快照条目，如配置已在 Nacos 删除
+     */
+    public void remove(String key) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            if (discard(key)) {
+                append(encode(REMOVE, key, null));
+            }
+        }
+    }
+
+    /**
+     * 经过快照执行一次读请求：成功的响应写入快照，404 删除快照；Nacos 不可达时返回快照并标记为过期，没有快照则原样返回错误
+     *
+     * @param key    条目名称
+     * @param loader 读请求
+     * @return 响应
+     */
+    public Mono<NacosResponse> readThrough(String key, Mono<NacosResponse> loader) {
+        if (!enabled) {
+            return loader;
+        }
+        return loader
+                .flatMap(response -> {
+                    if (response.isOk()) {
+                        put(key, response.body());
+                    } else if (response.status().value() == HttpStatus.NOT_FOUND.value()) {
+                        remove(key);
+                    } else if (response.status().is5xxServerError()) {
+                        return stale(key, response.toText()).defaultIfEmpty(response);
+                    }
+                    return Mono.just(response);
+                })
+                .onErrorResume(NacosSnapshot::isUnavailable, e -> stale(key, e.toString()).switchIfEmpty(Mono.error(e)));
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(entries.size(), bytes, fileBytes, writes.get(), staleReads.get(), compactions.get());
+    }
+
+    /**
+     * 等待排队的写入完成，压缩后关闭文件
+     */
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        writer.shutdown();
+        boolean terminated = false;
+        try {
+            terminated = writer.awaitTermination(5, TimeUnit.SECONDS);
+            if (!terminated) {
+                log.warn("[本地快照] 等待写入完成超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (channel == null) {
+            return;
+        }
+        try {
+            List<byte[]> live;
+            synchronized (this) {
+                // 写线程仍在运行时不压缩，避免与它同时操作文件
+                live = terminated && fileBytes > MAGIC.length + liveRecordBytes ? liveRecords() : null;
+            }
+            if (live != null) {
+                compact(live);
+            }
+            channel.close();
+            channel = null;
+        } catch (IOException e) {
+            log.warn("[本地快照] 关闭快照文件 {} 失败", path, e);
+        }
+    }
+
+    public static String configKey(ConfigKey key) {
+        return "config|" + key.namespaceId() + "|" + key.group() + "|" + key.dataId();
+    }
+
+    public static String instancesKey(String serviceName) {
+        return "instances|" + serviceName;
+    }
+
+    /**
+     * 参数错误、Nacos 明确返回的错误和响应体超过内存上限不回退快照，其余异常（连接失败、超时、登录失败等）都视为 Nacos 不可达
+     */
+    private static boolean isUnavailable(Throwable e) {
+        return !(e instanceof NacosResponseException) && !(e instanceof IllegalArgumentException) && !NacosMCPService.exceedsMemoryLimit(e);
+    }
+
+    private Mono<NacosResponse> stale(String key, String cause) {
+        return Mono.fromSupplier(() -> {
+            Entry entry = get(key);
+            if (entry == null) {
+                return null;
+            }
+            staleReads.incrementAndGet();
+            log.warn("[本地快照] Nacos 不可用（{}），返回 {} 在 {} 的快照", cause, key, entry.savedAt());
+            return new NacosResponse(HttpStatus.OK, entry.body(), entry.savedAt());
+        });
+    }
+
+    private void store(String key, Slot slot) {
+        Slot previous = entries.put(key, slot);
+        if (previous != null) {
+            bytes -= weight(key, previous.entry());
+            liveRecordBytes -= previous.recordBytes();
+        }
+        bytes += weight(key, slot.entry());
+        liveRecordBytes += slot.recordBytes();
+    }
+
+    private boolean discard(String key) {
+        Slot previous = entries.remove(key);
+        if (previous == null) {
+            return false;
+        }
+        bytes -= weight(key, previous.entry());
+        liveRecordBytes -= previous.recordBytes();
+        return true;
+    }
+
+    /**
+     * 按条目数和总大小淘汰最久未访问的条目
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Slot>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+            Map.Entry<String, Slot> eldest = it.next();
+            bytes -= weight(eldest.getKey(), eldest.getValue().entry());
+            liveRecordBytes -= eldest.getValue().recordBytes();
+            it.remove();
+            append(encode(REMOVE, eldest.getKey(), null));
+        }
+    }
+
+    /**
+     * 在写线程上追加记录，调用方持有锁，保证写盘顺序与内存中的修改顺序一致
+     */
+    private void append(byte[] record) {
+        if (writer.isShutdown()) {
+            return;
+        }
+        try {
+            writer.execute(() -> flush(record));
+        } catch (RejectedExecutionException e) {
+            log.debug("[本地快照] 快照已关闭，丢弃写入");
+        }
+    }
+
+    /**
+     * 在写线程上执行，文件 I/O 不持有锁；压缩只在锁内取出有效记录
+     */
+    private void flush(byte[] record) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            write(channel, record);
+            List<byte[]> live = null;
+            synchronized (this) {
+                fileBytes += record.length;
+                writes.incrementAndGet();
+                long waste = fileBytes - MAGIC.length - liveRecordBytes;
+                if (waste > COMPACT_MIN_WASTE && waste > liveRecordBytes) {
+                    live = liveRecords();
+                }
+            }
+            if (live != null) {
+                compact(live);
+            }
+        } catch (IOException e) {
+            log.warn("[本地快照] 写入快照文件 {} 失败", path, e);
+        }
+    }
+
+    /**
+     * 顺序读取快照文件，遇到残缺或校验失败的记录时截断文件
+     */
+    private void load() {
+        try {
+            if (path.getParent() != null && !Files.isDirectory(path.getParent())) {
+                Files.createDirectories(path.getParent(), ownerOnly(OWNER_ONLY_DIR));
+            }
+            long valid = 0;
+            if (Files.exists(path)) {
+                valid = read();
+                if (valid > 0 && valid < Files.size(path)) {
+                    log.warn("[本地快照] {} 末尾有 {} 字节残缺记录，已截断", path, Files.size(path) - valid);
+                }
+            }
+            channel = FileChannel.open(path, Set.of(StandardOpenOption.CREATE, StandardOpenOption.WRITE), ownerOnly(OWNER_ONLY_FILE));
+            restrict(path);
+            if (valid == 0) {
+                channel.truncate(0);
+                write(channel, MAGIC);
+                valid = MAGIC.length;
+            }
+            channel.truncate(valid);
+            channel.position(valid);
+            fileBytes = valid;
+            evict();
+        } catch (IOException e) {
+            log.warn("[本地快照] 打开快照文件 {} 失败，本次运行不保存快照", path, e);
+            channel = null;
+        }
+    }
+
+    /**
+     * @return 有效内容的字节数，文件头不对时为 0
+     */
+    private long read() throws IOException {
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 64 * 1024))) {
+            if (!Arrays.equals(in.readNBytes(MAGIC.length), MAGIC)) {
+                log.warn("[本地快照] {} 不是快照文件，将被覆盖", path);
+                return 0;
+            }
+            long valid = MAGIC.length;
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) {
+                        return valid;
+                    }
+                    payload = in.readNBytes(length);
+                } catch (EOFException e) {
+                    return valid;
+                }
+                crc.reset();
+                crc.update(payload);
+                if (payload.length < length || (int) crc.getValue() != checksum) {
+                    return valid;
+                }
+                apply(payload);
+                valid += RECORD_HEADER_BYTES + length;
+            }
+        }
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = in.readByte();
+        long savedAt = in.readLong();
+        String key = in.readUTF();
+        if (op == REMOVE) {
+            discard(key);
+            return;
+        }
+        String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        store(key, new Slot(new Entry(body, Instant.ofEpochMilli(savedAt)), RECORD_HEADER_BYTES + payload.length));
+    }
+
+    /**
+     * 当前有效条目的记录，调用方持有锁
+     */
+    private List<byte[]> liveRecords() {
+        List<byte[]> records = new ArrayList<>(entries.size());
+        entries.forEach((key, slot) -> records.add(encode(PUT, key, slot.entry())));
+        return records;
+    }
+
+    /**
+     * 把有效记录写入临时文件，再原子替换；只在写线程或 close 中调用，不持有锁
+     * <p>
+     * 取出记录之后才排队的写入由写线程在压缩完成后追加到新文件，不会丢失；取出时已在内存生效、尚未写盘的记录会在新文件中重复一次，
+     * 恢复时以后写的为准。
+     */
+    private void compact(List<byte[]> records) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        long size = MAGIC.length;
+        Files.deleteIfExists(temp);
+        try (FileChannel out = FileChannel.open(temp, Set.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+                ownerOnly(OWNER_ONLY_FILE))) {
+            write(out, MAGIC);
+            for (byte[] record : records) {
+                write(out, record);
+                size += record.length;
+            }
+            out.force(false);
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        FileChannel reopened = FileChannel.open(path, StandardOpenOption.WRITE);
+        reopened.position(size);
+        channel = reopened;
+        synchronized (this) {
+            log.debug("[本地快照] 压缩快照文件 {}：{} KB -> {} KB", path, fileBytes / 1024, size / 1024);
+            fileBytes = size;
+        }
+        compactions.incrementAndGet();
+    }
+
+    private static byte[] encode(byte op, String key, Entry entry) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(op);
+            out.writeLong(entry == null ? System.currentTimeMillis() : entry.savedAt().toEpochMilli());
+            out.writeUTF(key);
+            if (entry != null) {
+                out.write(entry.body().getBytes(StandardCharsets.UTF_8));
+            }
+            byte[] record = buffer.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(record, RECORD_HEADER_BYTES, record.length - RECORD_HEADER_BYTES);
+            ByteBuffer.wrap(record).putInt(record.length - RECORD_HEADER_BYTES).putInt((int) crc.getValue());
+            return record;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 新建文件和目录时的权限，文件系统不支持 POSIX 权限时不设置
+     */
+    private static FileAttribute<?>[] ownerOnly(String permissions) {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return new FileAttribute<?>[0];
+        }
+        return new FileAttribute<?>[]{PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(permissions))};
+    }
+
+    /**
+     * 已存在的快照文件（如旧版本按 umask 创建的）收紧为只有属主可读写
+     */
+    private static void restrict(Path file) throws IOException {
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString(OWNER_ONLY_FILE));
+        }
+    }
+
+    private static void write(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static long weight(String key, Entry entry) {
+        return 2L * (key.length() + entry.body().length()) + ENTRY_OVERHEAD;
+    }
+
+
+    /**
+     * @param entry       条目
+     * @param recordBytes 条目在快照文件中对应记录的字节数，用于判断何时压缩
+     */
+    private record Slot(Entry entry, int recordBytes) {
+    }
+
+    /**
+     * 快照条目
+     *
+     * @param body    响应体
+     * @param savedAt 最后一次从 Nacos 读到该内容的时间
+     */
+    public record Entry(String body, Instant savedAt) {
+    }
+
+    /**
+     * 快照统计
+     *
+     * @param entries     条目数
+     * @param bytes       内存中条目的估算字节数
+     * @param fileBytes   快照文件大小
+     * @param writes      累计写盘记录数
+     * @param staleReads  Nacos 不可达时返回快照的次数
+     * @param compactions 累计压缩次数
+     */
+    public record Stats(int entries, long bytes, long fileBytes, long writes, long staleReads, long compactions) {
+    }
+}
@@ -0,0 +1,213 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Nacos accessToken 管理
+ * <p>
+ * 同一时刻最多只有一次登录请求在途，并发调用方共享它的结果；token 过期前在后台提前刷新，刷新期间调用方继续使用仍然有效的旧 token。
+ *
+ * @author bubua12
+ * @since 2026/10/17 11:10
+ */
+@Slf4j
+public class NacosTokenManager {
+
+    /**
+     * 登录失败后的后台重试间隔
+     */
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+
+    /**
+     * 过期时间预留的余量上限，有效期较短时按有效期的 1/10 预留
+     */
+    private static final Duration EXPIRY_MARGIN = Duration.ofSeconds(60);
+
+    /**
+     * 登录成功后至少间隔这么久才开始后台刷新，避免有效期很短时反复登录
+     */
+    private static final Duration MIN_REFRESH_DELAY = Duration.ofSeconds(5);
+
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MeterRegistry meterRegistry;
+
+    private final String username;
+    private final String password;
+
+    private final AtomicReference<AccessToken> current = new AtomicReference<>();
+    private final AtomicReference<Sinks.One<AccessToken>> inflight = new AtomicReference<>();
+    private final AtomicReference<Disposable> scheduledRefresh = new AtomicReference<>();
+
+    public NacosTokenManager(WebClient webClient, String username, String password) {
+        this(webClient, username, password, Metrics.globalRegistry);
+    }
+
+    public NacosTokenManager(WebClient webClient, String username, String password, MeterRegistry meterRegistry) {
+        this.webClient = webClient;
+        this.username = username;
+        this.password = password;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 获取可用 token：有效则直接返回，进入刷新窗口时顺带触发后台刷新，已过期则等待在途的那一次登录
+     */
+    public Mono<String> getToken() {
+        return Mono.defer(() -> {
+            AccessToken token = current.get();
+            Instant now = Instant.now();
+            if (token == null || now.isAfter(token.expireAt())) {
+                return refresh().map(AccessToken::value);
+            }
+            if (now.isAfter(token.refreshAt())) {
+                refresh().subscribe(t -> { }, e -> { });
+            }
+            return Mono.just(token.value());
+        });
+    }
+
+    /**
+     * 带 token 执行一次调用，结果被判定为 token 失效（如 403）时合并重新登录并重试一次
+     *
+     * @param call     使用 token 的调用
+     * @param rejected 判断结果是否为 token 被拒绝
+     */
+    public <T> Mono<T> withToken(Function<String, Mono<T>> call, Predicate<T> rejected) {
+        return getToken().flatMap(token -> call.apply(token)
+                .flatMap(result -> {
+                    if (!rejected.test(result)) {
+                        return Mono.just(result);
+                    }
+                    log.warn("accessToken 被 Nacos 拒绝，重新登录后重试");
+                    return refreshIfCurrent(token).flatMap(call);
+                }));
+    }
+
+    /**
+     * 取消后台刷新任务
+     */
+    public void close() {
+        Disposable task = scheduledRefresh.getAndSet(null);
+        if (task != null) {
+            task.dispose();
+        }
+    }
+
+    /**
+     * 仅当失效的仍是当前 token 时才重新登录，别的调用方已经换过 token 则直接使用新的
+     */
+    private Mono<String> refreshIfCurrent(String staleToken) {
+        return Mono.defer(() -> {
+            AccessToken token = current.get();
+            if (token != null && !token.value().equals(staleToken)) {
+                return Mono.just(token.value());
+            }
+            return refresh().map(AccessToken::value);
+        });
+    }
+
+    /**
+     * single-flight 登录：已有在途登录时直接共享其结果
+     */
+    private Mono<AccessToken> refresh() {
+        return Mono.defer(() -> {
+            Sinks.One<AccessToken> sink = Sinks.one();
+            if (!inflight.compareAndSet(null, sink)) {
+                Sinks.One<AccessToken> existing = inflight.get();
+                return existing != null ? existing.asMono() : refresh();
+            }
+            // 登录请求不挂在任何调用方的订阅上，单个调用方取消不会中断共享的登录
+            Timer.Sample sample = Timer.start(meterRegistry);
+            login().subscribe(token -> {
+                sample.stop(refreshTimer("success"));
+                current.set(token);
+                inflight.set(null);
+                scheduleRefresh(Duration.between(Instant.now(), token.refreshAt()));
+                sink.tryEmitValue(token);
+            }, e -> {
+                sample.stop(refreshTimer("failure"));
+                inflight.set(null);
+                AccessToken token = current.get();
+                if (token != null && Instant.now().isBefore(token.expireAt())) {
+                    scheduleRefresh(RETRY_DELAY);
+                }
+                sink.tryEmitError(e);
+            });
+            return sink.asMono();
+        });
+    }
+
+    private Timer refreshTimer(String outcome) {
+        return Timer.builder("nacos.token.refresh")
+                .description("登录 Nacos 获取 accessToken 的耗时")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private void scheduleRefresh(Duration delay) {
+        long delayMillis = Math.max(delay.toMillis(), 0);
+        Disposable task = Schedulers.parallel().schedule(() -> refresh().subscribe(t -> { }, e -> { }),
+                delayMillis, TimeUnit.MILLISECONDS);
+        Disposable previous = scheduledRefresh.getAndSet(task);
+        if (previous != null) {
+            previous.dispose();
+        }
+    }
+
+    /**
+     * 登录获取 token
+     */
+    private Mono<AccessToken> login() {
+        return webClient.post()
+                .uri("/nacos/v1/auth/login")
+                .body(BodyInserters.fromFormData("username", username)
+                        .with("password", password))
+                .retrieve()
+                .bodyToMono(String.class)
+                .handle((String resp, SynchronousSink<AccessToken> sink) -> {
+                    try {
+                        JsonNode node = objectMapper.readTree(resp);
+                        Duration ttl = Duration.ofSeconds(node.get("tokenTtl").asLong());
+                        Instant now = Instant.now();
+                        // 过期时间预留 1/10 有效期（最多 60 秒）的余量，在剩余 1/10 有效期时开始后台刷新，但不早于 MIN_REFRESH_DELAY
+                        Duration margin = ttl.dividedBy(10).compareTo(EXPIRY_MARGIN) < 0 ? ttl.dividedBy(10) : EXPIRY_MARGIN;
+                        Instant expireAt = now.plus(ttl).minus(margin);
+                        Instant refreshAt = expireAt.minus(ttl.dividedBy(10));
+                        if (refreshAt.isBefore(now.plus(MIN_REFRESH_DELAY))) {
+                            refreshAt = now.plus(MIN_REFRESH_DELAY);
+                        }
+                        log.info("登录 Nacos 成功，token 有效期 {} 秒", ttl.toSeconds());
+                        sink.next(new AccessToken(node.get("accessToken").asText(), refreshAt, expireAt));
+                    } catch (Exception e) {
+                        sink.error(e);
+                    }
+                })
+                .onErrorMap(e -> {
+                    log.error("登录 Nacos 失败", e);
+                    return new RuntimeException("Login Nacos failed", e);
+                });
+    }
+
+    private record AccessToken(String value, Instant refreshAt, Instant expireAt) {
+    }
+}
@@ -0,0 +1,243 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.publisher.SynchronousSink;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * namespace 名称解析
+ * <p>
+ * 刷新时整体构建新索引再原子替换，读方永远看到完整的一份；索引过期后在后台刷新，并发刷新合并为一次请求；
+ * 未知名称在 missTtl 窗口内直接失败，避免重复的错误名称反复拉取 namespace 列表。
+ * 每次刷新成功后写入本地快照，启动时先从快照恢复索引，首次解析时再在后台与 Nacos 核对。
+ *
+ * @author bubua12
+ * @since 2026/10/17 13:10
+ */
+@Slf4j
+public class NamespaceResolver {
+
+    /**
+     * 负缓存条目上限，超过后整体清空
+     */
+    private static final int MAX_MISSES = 1024;
+
+    private final WebClient webClient;
+    private final NacosTokenManager tokenManager;
+    private final NacosProperties.Namespace properties;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MeterRegistry meterRegistry;
+    private final NacosSnapshot snapshot;
+
+    private final AtomicReference<NamespaceIndex> index = new AtomicReference<>();
+    private final AtomicReference<Sinks.One<NamespaceIndex>> inflight = new AtomicReference<>();
+    private final Map<String, Instant> misses = new ConcurrentHashMap<>();
+
+    public NamespaceResolver(WebClient webClient, NacosTokenManager tokenManager, NacosProperties.Namespace properties) {
+        this(webClient, tokenManager, properties, Metrics.globalRegistry);
+    }
+
+    public NamespaceResolver(WebClient webClient, NacosTokenManager tokenManager, NacosProperties.Namespace properties,
+                             MeterRegistry meterRegistry) {
+        this(webClient, tokenManager, properties, meterRegistry, NacosSnapshot.disabled());
+    }
+
+    public NamespaceResolver(WebClient webClient, NacosTokenManager tokenManager, NacosProperties.Namespace properties,
+                             MeterRegistry meterRegistry, NacosSnapshot snapshot) {
+        this.webClient = webClient;
+        this.tokenManager = tokenManager;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.snapshot = snapshot;
+        restore();
+    }
+
+    /**
+     * 根据 namespace 名称或 ID 获取 namespaceId，public 返回空串
+     *
+     * @param namespace namespace 名称（namespaceShowName）或 ID
+     * @return namespaceId
+     */
+    public Mono<String> resolve(String namespace) {
+        if (!StringUtils.hasText(namespace) || "public".equalsIgnoreCase(namespace)) {
+            return Mono.just("");
+        }
+        return Mono.defer(() -> {
+            NamespaceIndex current = index.get();
+            if (current == null) {
+                return refresh().flatMap(loaded -> lookupOrMiss(loaded, namespace));
+            }
+            if (current.isExpired(properties)) {
+                refresh().subscribe(loaded -> { }, e -> { });
+            }
+            String nsId = current.lookup(namespace);
+            if (nsId != null) {
+                return Mono.just(nsId);
+            }
+            Instant missExpireAt = misses.get(namespace);
+            if (missExpireAt != null && Instant.now().isBefore(missExpireAt)) {
+                return Mono.error(unknown(namespace));
+            }
+            return refresh().flatMap(loaded -> lookupOrMiss(loaded, namespace));
+        });
+    }
+
+    /**
+     * 强制刷新 namespace 索引
+     */
+    public Mono<Void> reload() {
+        return refresh().then();
+    }
+
+    /**
+     * 是否已有可用的索引，来自 Nacos 或本地快照
+     */
+    public boolean isLoaded() {
+        return index.get() != null;
+    }
+
+    /**
+     * 用快照恢复索引，加载时间取快照的保存时间，过期后照常在后台刷新
+     */
+    private void restore() {
+        NacosSnapshot.Entry entry = snapshot.get(NacosSnapshot.NAMESPACE_INDEX);
+        if (entry == null) {
+            return;
+        }
+        try {
+            NamespaceIndex restored = parse(entry.body(), entry.savedAt());
+            index.set(restored);
+            log.info("已从本地快照恢复 namespace 缓存: {}", restored.byName());
+        } catch (Exception e) {
+            log.warn("本地快照中的 namespace 列表无法解析，忽略", e);
+        }
+    }
+
+    private Mono<String> lookupOrMiss(NamespaceIndex loaded, String namespace) {
+        String nsId = loaded.lookup(namespace);
+        if (nsId != null) {
+            misses.remove(namespace);
+            return Mono.just(nsId);
+        }
+        if (misses.size() >= MAX_MISSES) {
+            misses.clear();
+        }
+        misses.put(namespace, Instant.now().plus(properties.getMissTtl()));
+        return Mono.error(unknown(namespace));
+    }
+
+    private IllegalArgumentException unknown(String namespace) {
+        return new IllegalArgumentException("未知 namespace 名称: " + namespace);
+    }
+
+    /**
+     * single-flight 刷新：已有在途刷新时直接共享其结果；刷新失败时保留旧索引
+     */
+    private Mono<NamespaceIndex> refresh() {
+        return Mono.defer(() -> {
+            Sinks.One<NamespaceIndex> sink = Sinks.one();
+            if (!inflight.compareAndSet(null, sink)) {
+                Sinks.One<NamespaceIndex> existing = inflight.get();
+                return existing != null ? existing.asMono() : refresh();
+            }
+            Timer.Sample sample = Timer.start(meterRegistry);
+            fetch().subscribe(loaded -> {
+                sample.stop(reloadTimer("success"));
+                index.set(loaded);
+                inflight.set(null);
+                sink.tryEmitValue(loaded);
+            }, e -> {
+                sample.stop(reloadTimer("failure"));
+                log.error("刷新 namespace 缓存失败", e);
+                inflight.set(null);
+                NamespaceIndex previous = index.get();
+                if (previous != null) {
+                    sink.tryEmitValue(previous);
+                } else {
+                    sink.tryEmitError(e);
+                }
+            });
+            return sink.asMono();
+        });
+    }
+
+    private Timer reloadTimer(String outcome) {
+        return Timer.builder("nacos.namespace.reload")
+                .description("刷新 namespace 列表的耗时")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private Mono<NamespaceIndex> fetch() {
+        return tokenManager.getToken()
+                .flatMap(token -> webClient.get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/nacos/v1/console/namespaces")
+                                .queryParam("accessToken", token)
+                                .build())
+                        .retrieve()
+                        .bodyToMono(String.class))
+                .handle((String resp, SynchronousSink<NamespaceIndex> sink) -> {
+                    try {
+                        NamespaceIndex loaded = parse(resp, Instant.now());
+                        log.info("已刷新 namespace 缓存: {}", loaded.byName());
+                        snapshot.put(NacosSnapshot.NAMESPACE_INDEX, resp);
+                        sink.next(loaded);
+                    } catch (Exception e) {
+                        sink.error(e);
+                    }
+                });
+    }
+
+    private NamespaceIndex parse(String resp, Instant loadedAt) throws IOException {
+        JsonNode data = objectMapper.readTree(resp).get("data");
+        if (data == null || !data.isArray()) {
+            throw new IllegalStateException("namespace 列表格式异常: " + resp);
+        }
+        Map<String, String> byName = new HashMap<>();
+        for (JsonNode ns : data) {
+            byName.put(ns.get("namespaceShowName").asText(), ns.get("namespace").asText());
+        }
+        byName.put("public", ""); // public 特殊处理
+        return new NamespaceIndex(Map.copyOf(byName), Set.copyOf(byName.values()), loadedAt);
+    }
+
+    /**
+     * 不可变的 namespace 索引
+     *
+     * @param byName   namespaceShowName -> namespaceId
+     * @param ids      全部 namespaceId
+     * @param loadedAt 加载时间
+     */
+    private record NamespaceIndex(Map<String, String> byName, Set<String> ids, Instant loadedAt) {
+
+        String lookup(String namespace) {
+            String nsId = byName.get(namespace);
+            if (nsId == null && ids.contains(namespace)) {
+                nsId = namespace;
+            }
+            return nsId;
+        }
+
+        boolean isExpired(NacosProperties.Namespace properties) {
+            return Instant.now().isAfter(loadedAt.plus(properties.getCacheTtl()));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.alibaba.nacos.api.NacosFactory;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按名称空间共享的 NamingService
+ * <p>
+ * 每个名称空间只创建一个 NamingService（一条 gRPC 长连接），实例视图和实例索引共用。创建是阻塞调用，放在 boundedElastic 上执行，
+ * 并发的首次获取共享同一次创建，创建失败后下次获取重新创建。
+ *
+ * @author bubua12
+ * @since 2026/10/18 05:30
+ */
+@Slf4j
+public class NamingServices {
+
+    private final Factory factory;
+    private final Map<String, Mono<NamingService>> namingServices = new ConcurrentHashMap<>();
+
+    public NamingServices(NacosProperties properties) {
+        this(namespaceId -> NacosFactory.createNamingService(NacosClientProperties.of(properties, namespaceId)));
+    }
+
+    public NamingServices(Factory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * @param namespaceId 名称空间ID，public 为空串
+     * @return 该名称空间的 NamingService
+     */
+    public Mono<NamingService> get(String namespaceId) {
+        return namingServices.computeIfAbsent(namespaceId, ns -> Mono.fromCallable(() -> factory.create(ns))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnError(e -> {
+                    log.warn("创建 namespace [{}] 的 NamingService 失败", ns, e);
+                    namingServices.remove(ns);
+                })
+                .cache());
+    }
+
+    /**
+     * 已创建完成的 NamingService，不等待创建
+     *
+     * @param namespaceId 名称空间ID
+     * @return 尚未创建或创建失败时为 null
+     */
+    public NamingService current(String namespaceId) {
+        Mono<NamingService> existing = namingServices.get(namespaceId);
+        return existing == null ? null : existing.onErrorResume(e -> Mono.empty()).toFuture().getNow(null);
+    }
+
+    /**
+     * 关闭全部 NamingService
+     */
+    public void close() {
+        namingServices.keySet().forEach(namespaceId -> {
+            NamingService namingService = current(namespaceId);
+            if (namingService != null) {
+                try {
+                    namingService.shutDown();
+                } catch (NacosException e) {
+                    log.warn("关闭 namespace [{}] 的 NamingService 失败", namespaceId, e);
+                }
+            }
+        });
+        namingServices.clear();
+    }
+
+    @FunctionalInterface
+    public interface Factory {
+
+        NamingService create(String namespaceId) throws NacosException;
+    }
+}
@@ -0,0 +1,63 @@
+package com.bubua12.mcp.nacos.service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * 分页拉取：先取第一页得到总数，其余页按有限并发拉取并按页序合并
+ * <p>
+ * 任意时刻最多 concurrency 页在途，达到 limit 后取消剩余请求，内存占用与页大小和 limit 成正比而与总数无关。
+ *
+ * @author bubua12
+ * @since 2026/10/17 16:20
+ */
+public final class PagedFetcher {
+
+    private PagedFetcher() {
+    }
+
+    /**
+     * @param loader      按页号（从 1 开始）加载一页
+     * @param pageSize    页大小
+     * @param concurrency 并发拉取的页数上限
+     * @param filter      逐条过滤
+     * @param limit       最多返回条数
+     * @return 合并结果
+     */
+    public static <T> Mono<Result<T>> fetch(IntFunction<Mono<Page<T>>> loader, int pageSize, int concurrency,
+                                            Predicate<T> filter, int limit) {
+        return loader.apply(1).flatMap(first -> {
+            int pages = (first.totalCount() + pageSize - 1) / pageSize;
+            Flux<T> rest = Flux.range(2, Math.max(pages - 1, 0))
+                    .flatMapSequential(loader::apply, concurrency, 1)
+                    .flatMapIterable(Page::items);
+            return Flux.fromIterable(first.items())
+                    .concatWith(rest)
+                    .filter(filter)
+                    .take(limit + 1L)
+                    .collectList()
+                    .map(items -> items.size() > limit
+                            ? new Result<>(first.totalCount(), items.subList(0, limit), true)
+                            : new Result<>(first.totalCount(), items, false));
+        });
+    }
+
+    /**
+     * @param totalCount 服务端总数
+     * @param items      本页数据
+     */
+    public record Page<T>(int totalCount, List<T> items) {
+    }
+
+    /**
+     * @param totalCount 服务端总数
+     * @param items      过滤并截断后的数据
+     * @param truncated  是否因 limit 截断
+     */
+    public record Result<T>(int totalCount, List<T> items, boolean truncated) {
+    }
+}
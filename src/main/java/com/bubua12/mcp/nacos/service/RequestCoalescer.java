@@ -0,0 +1,116 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 合并相同的并发读调用
+ * <p>
+ * 同一个 key 同时只有一次调用在途，期间到达的相同调用直接共享它的结果；配置了 ttl 时成功的结果再保留一小段时间，
+ * 吸收紧随其后的突发调用。失败和非 2xx 的结果不保留。
+ *
+ * @author bubua12
+ * @since 2026/10/18 01:50
+ */
+public class RequestCoalescer {
+
+    private final NacosProperties.Coalesce properties;
+
+    private final Map<String, Mono<String>> inflight = new ConcurrentHashMap<>();
+    private final Map<String, Completed> recent = new ConcurrentHashMap<>();
+
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong joined = new AtomicLong();
+    private final AtomicLong cached = new AtomicLong();
+
+    public RequestCoalescer(NacosProperties.Coalesce properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * @param key  调用的唯一标识，工具名和全部参数
+     * @param call 实际调用
+     * @return 调用结果，可能来自其他调用方发起的同一次调用
+     */
+    public Mono<String> execute(String key, Supplier<Mono<String>> call) {
+        if (!properties.isEnabled()) {
+            return Mono.defer(call);
+        }
+        return Mono.defer(() -> {
+            Completed completed = recent.get(key);
+            if (completed != null && System.nanoTime() < completed.expireAt()) {
+                cached.incrementAndGet();
+                return Mono.just(completed.result());
+            }
+            boolean[] created = {false};
+            Mono<String> shared = inflight.computeIfAbsent(key, k -> {
+                created[0] = true;
+                return share(k, call);
+            });
+            (created[0] ? executed : joined).incrementAndGet();
+            return shared;
+        });
+    }
+
+    /**
+     * 在结果交给调用方之前移除在途记录：cache() 先把结果发给订阅者，doFinally 之后才执行，调用方拿到结果后立即发起的相同调用
+     * 会加入已经结束的旧调用。只移除自己，不会误删之后新建的在途调用。
+     */
+    private Mono<String> share(String key, Supplier<Mono<String>> call) {
+        AtomicReference<Mono<String>> self = new AtomicReference<>();
+        Mono<String> shared = Mono.defer(call)
+                .doOnNext(result -> remember(key, result))
+                .doOnTerminate(() -> inflight.remove(key, self.get()))
+                .doOnCancel(() -> inflight.remove(key, self.get()))
+                .cache();
+        self.set(shared);
+        return shared;
+    }
+
+    public Stats stats() {
+        return new Stats(executed.get(), joined.get(), cached.get(), inflight.size());
+    }
+
+    private void remember(String key, String result) {
+        long ttl = properties.getTtl().toNanos();
+        if (ttl <= 0 || !result.startsWith("HTTP 2")) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (recent.size() >= properties.getMaxEntries()) {
+            recent.values().removeIf(entry -> now >= entry.expireAt());
+            if (recent.size() >= properties.getMaxEntries()) {
+                recent.clear();
+            }
+        }
+        recent.put(key, new Completed(result, now + ttl));
+    }
+
+    private record Completed(String result, long expireAt) {
+    }
+
+    /**
+     * 合并统计
+     *
+     * @param executed 实际发起的调用数
+     * @param joined   共享在途调用的次数
+     * @param cached   命中 ttl 内结果的次数
+     * @param inflight 当前在途的调用数
+     */
+    public record Stats(long executed, long joined, long cached, int inflight) {
+
+        /**
+         * 被合并掉的调用占全部调用的比例
+         */
+        public double collapseRatio() {
+            long total = executed + joined + cached;
+            return total == 0 ? 0 : (double) (joined + cached) / total;
+        }
+    }
+}
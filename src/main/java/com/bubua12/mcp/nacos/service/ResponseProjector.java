@@ -0,0 +1,173 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 把 Nacos 的 JSON 响应投影为省 token 的精简文本
+ * <p>
+ * 去掉 code/message 外层包装、空字段和等于视图默认值的字段；对象输出为 "key: value" 行，对象列表输出为以 | 分隔的表格
+ * （首行为列名，单元格内的 \、| 和换行转义），字符串列表每行一个，字符串结果原样输出。非 2xx 响应和非 JSON 响应保持原样。
+ * <p>
+ * 响应体在 {@link NacosResponse} 中已经是完整字符串（缓存、快照和合并请求都按字符串共享），这里解析为树再投影；
+ * 未指定列时表格的列取决于全部行，本身也需要看完整个列表。
+ *
+ * @author bubua12
+ * @since 2026/10/17 19:05
+ */
+public class ResponseProjector {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final boolean compact;
+
+    public ResponseProjector(boolean compact) {
+        this.compact = compact;
+    }
+
+    /**
+     * @param response Nacos 响应
+     * @param view     视图
+     * @param fields   调用方指定的字段，逗号分隔，为空时使用视图默认字段
+     * @return 工具输出文本
+     */
+    public String project(NacosResponse response, ResponseView view, String fields) {
+        if (!compact || !response.isOk()) {
+            return response.toText();
+        }
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(response.body());
+        } catch (Exception e) {
+            return response.toText();
+        }
+        if (root == null || root.isMissingNode()) {
+            return response.toText();
+        }
+        JsonNode data = root.isObject() && root.has("data") && root.has("code") ? root.get("data") : root;
+        List<String> selected = StringUtils.hasText(fields)
+                ? Arrays.stream(fields.split(",")).map(String::trim).filter(StringUtils::hasText).toList()
+                : view.defaultFields();
+        // 调用方指定了 fields 时按原值输出，不省略默认值
+        Map<String, String> defaults = StringUtils.hasText(fields) ? Map.of() : view.defaults();
+
+        StringBuilder out = new StringBuilder(response.statusLine()).append('\n');
+        if (data.isValueNode() || data.isNull()) {
+            // 字符串结果（如配置内容）原样输出，保留末尾换行
+            return out.append(data.isNull() ? "" : data.asText()).toString();
+        }
+        if (data.isArray()) {
+            renderArray(out, data, selected, defaults);
+        } else if (view.rowsField() != null && data.path(view.rowsField()).isArray()) {
+            renderObject(out, data, List.of(), view.rowsField(), defaults);
+            renderArray(out, data.get(view.rowsField()), selected, defaults);
+        } else {
+            renderObject(out, data, selected, null, defaults);
+        }
+        return out.toString().stripTrailing();
+    }
+
+    private void renderObject(StringBuilder out, JsonNode node, List<String> fields, String skipField, Map<String, String> defaults) {
+        if (!fields.isEmpty()) {
+            for (String field : fields) {
+                JsonNode value = at(node, field);
+                if (!isEmpty(value) && !isDefault(defaults, field, value)) {
+                    out.append(field).append(": ").append(text(value)).append('\n');
+                }
+            }
+            return;
+        }
+        Iterator<Map.Entry<String, JsonNode>> it = node.fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            if (!entry.getKey().equals(skipField) && !isEmpty(entry.getValue()) && !isDefault(defaults, entry.getKey(), entry.getValue())) {
+                out.append(entry.getKey()).append(": ").append(text(entry.getValue())).append('\n');
+            }
+        }
+    }
+
+    private void renderArray(StringBuilder out, JsonNode rows, List<String> fields, Map<String, String> defaults) {
+        boolean scalars = true;
+        for (JsonNode row : rows) {
+            scalars &= row.isValueNode();
+        }
+        if (scalars) {
+            rows.forEach(row -> out.append(row.asText()).append('\n'));
+            return;
+        }
+        List<String> columns = (fields.isEmpty() ? nonEmptyKeys(rows) : fields).stream()
+                .filter(column -> !allDefault(rows, column, defaults))
+                .toList();
+        out.append(String.join("|", columns)).append('\n');
+        for (JsonNode row : rows) {
+            List<String> cells = new ArrayList<>(columns.size());
+            for (String column : columns) {
+                JsonNode value = at(row, column);
+                cells.add(isEmpty(value) ? "" : cell(value));
+            }
+            out.append(String.join("|", cells)).append('\n');
+        }
+    }
+
+    /**
+     * 所有行中至少有一行非空的字段，按首次出现的顺序
+     */
+    private static List<String> nonEmptyKeys(JsonNode rows) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (JsonNode row : rows) {
+            row.fields().forEachRemaining(entry -> {
+                if (!isEmpty(entry.getValue())) {
+                    keys.add(entry.getKey());
+                }
+            });
+        }
+        return new ArrayList<>(keys);
+    }
+
+    /**
+     * 列在每一行都为空或等于默认值时整列省略
+     */
+    private static boolean allDefault(JsonNode rows, String column, Map<String, String> defaults) {
+        if (!defaults.containsKey(column)) {
+            return false;
+        }
+        for (JsonNode row : rows) {
+            JsonNode value = at(row, column);
+            if (!isEmpty(value) && !isDefault(defaults, column, value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDefault(Map<String, String> defaults, String field, JsonNode value) {
+        String defaultValue = defaults.get(field);
+        return defaultValue != null && value.isValueNode() && defaultValue.equals(value.asText());
+    }
+
+    private static JsonNode at(JsonNode node, String path) {
+        return node.at("/" + path.replace('.', '/'));
+    }
+
+    private static boolean isEmpty(JsonNode value) {
+        return value == null || value.isMissingNode() || value.isNull()
+                || (value.isTextual() && value.asText().isEmpty())
+                || (value.isContainerNode() && value.isEmpty());
+    }
+
+    private static String text(JsonNode value) {
+        return value.isValueNode() ? value.asText() : value.toString();
+    }
+
+    private static String cell(JsonNode value) {
+        return text(value).replace("\\", "\\\\").replace("|", "\\|").replace("\r", "\\r").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,52 @@
+package com.bubua12.mcp.nacos.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 工具响应的精简视图：列表所在字段、默认保留的列和字段的默认值
+ *
+ * @param rowsField     data 为对象时，列表所在的字段名；data 本身是列表时为 null
+ * @param defaultFields 未指定 fields 时保留的字段，支持 a.b 形式的嵌套路径；为空表示保留全部非空字段
+ * @param defaults      Nacos 字段的默认值（按文本比较）；未指定 fields 时，等于默认值的字段不输出，所有行都等于默认值的列不输出
+ * @author bubua12
+ * @since 2026/10/17 19:00
+ */
+public record ResponseView(String rowsField, List<String> defaultFields, Map<String, String> defaults) {
+
+    public static final ResponseView PLAIN = new ResponseView(null, List.of());
+
+    public static final ResponseView CONFIG_HISTORY = new ResponseView("pageItems",
+            List.of("id", "opType", "srcUser", "srcIp", "md5", "lastModifiedTime"));
+
+    public static final ResponseView CONFIGS = new ResponseView("configs", List.of());
+
+    public static final ResponseView SERVICES = new ResponseView("services", List.of());
+
+    public static final ResponseView INSTANCES = new ResponseView("hosts",
+            List.of("ip", "port", "weight", "healthy", "enabled", "ephemeral", "clusterName", "metadata"),
+            Map.of("weight", "1.0", "enabled", "true", "ephemeral", "true", "clusterName", "DEFAULT",
+                    "cacheMillis", "10000", "allIPs", "false", "reachProtectionThreshold", "false", "valid", "true"));
+
+    public static final ResponseView INSTANCE_SEARCH = new ResponseView("instances",
+            List.of("ip", "port", "serviceName", "clusterName", "weight", "healthy", "enabled"),
+            Map.of("weight", "1.0", "enabled", "true", "clusterName", "DEFAULT"));
+
+    public static final ResponseView NAMESPACES = new ResponseView(null,
+            List.of("namespace", "namespaceShowName", "namespaceDesc", "configCount", "quota"),
+            Map.of("quota", "200"));
+
+    public static final ResponseView NODE = new ResponseView(null,
+            List.of("address", "state", "failAccessCnt", "extendInfo.version", "extendInfo.lastRefreshTime", "extendInfo.readyToUpgrade"),
+            Map.of("failAccessCnt", "0"));
+
+    public static final ResponseView CLUSTER = new ResponseView("nodes",
+            List.of("address", "status", "flags", "latencyMillis", "version", "serviceCount", "instanceCount",
+                    "clientCount", "subscribeCount", "cpu", "load", "mem", "error"));
+
+    public static final ResponseView ITEMS = new ResponseView("items", List.of());
+
+    public ResponseView(String rowsField, List<String> defaultFields) {
+        this(rowsField, defaultFields, Map.of());
+    }
+}
@@ -0,0 +1,159 @@
+package com.bubua12.mcp.nacos.service;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 按范围缓存的索引，配置搜索（范围为名称空间）和实例搜索（范围为名称空间 + 分组）共用
+ * <p>
+ * 范围首次被查询时构建索引并等待，同一个范围同时只有一次构建；索引超过刷新间隔后在后台重建，重建完成前继续返回旧索引。
+ * 范围数按 LRU 限制，被替换或淘汰的索引在 boundedElastic 上取消变更监听。刷新间隔和范围上限每次使用时读取，运行时修改即时生效。
+ *
+ * @param <K> 范围
+ * @param <E> 索引及其构建信息
+ * @author bubua12
+ * @since 2026/10/18 07:10
+ */
+@Slf4j
+public class ScopedIndexes<K, E extends ScopedIndexes.Entry> {
+
+    private final String name;
+    private final Function<K, Mono<E>> builder;
+    private final Supplier<Duration> refreshInterval;
+    private final IntSupplier maxScopes;
+
+    private final LinkedHashMap<K, E> indexes = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<K, Mono<E>> builds = new ConcurrentHashMap<>();
+    private final AtomicLong buildCount = new AtomicLong();
+
+    /**
+     * @param name            索引名称，用于日志
+     * @param builder         构建一个范围的索引
+     * @param refreshInterval 索引的刷新间隔
+     * @param maxScopes       最多保留的范围数
+     */
+    public ScopedIndexes(String name, Function<K, Mono<E>> builder, Supplier<Duration> refreshInterval, IntSupplier maxScopes) {
+        this.name = name;
+        this.builder = builder;
+        this.refreshInterval = refreshInterval;
+        this.maxScopes = maxScopes;
+    }
+
+    /**
+     * 取范围的索引：没有时构建并等待，过期时在后台重建并先返回旧索引
+     *
+     * @param scope 范围
+     * @return 索引
+     */
+    public Mono<E> get(K scope) {
+        return Mono.defer(() -> {
+            E current = lookup(scope);
+            if (current == null) {
+                return build(scope);
+            }
+            if (Duration.between(current.builtAt(), Instant.now()).compareTo(refreshInterval.get()) > 0) {
+                build(scope).subscribe(entry -> { }, e -> log.warn("重建 {} 的{}失败", scope, name, e));
+            }
+            return Mono.just(current);
+        });
+    }
+
+    /**
+     * @return 当前保留的全部索引
+     */
+    public synchronized List<E> entries() {
+        return List.copyOf(indexes.values());
+    }
+
+    /**
+     * @return 累计构建次数
+     */
+    public long buildCount() {
+        return buildCount.get();
+    }
+
+    /**
+     * 丢弃全部索引并取消其变更监听
+     */
+    public void close() {
+        List<E> released;
+        synchronized (this) {
+            released = new ArrayList<>(indexes.values());
+            indexes.clear();
+        }
+        release(released.stream().flatMap(entry -> entry.registrations().stream()).toList());
+    }
+
+    /**
+     * 取消监听涉及 nacos-client 内部锁，放到 boundedElastic 上执行
+     *
+     * @param registrations 变更监听句柄
+     */
+    public static void release(List<Disposable> registrations) {
+        if (!registrations.isEmpty()) {
+            Schedulers.boundedElastic().schedule(() -> registrations.forEach(Disposable::dispose));
+        }
+    }
+
+    /**
+     * 并发的查询共享同一次构建，构建结束后无论成败都允许下一次构建
+     */
+    private Mono<E> build(K scope) {
+        return builds.computeIfAbsent(scope, s -> builder.apply(s)
+                .doOnNext(entry -> install(s, entry))
+                .doFinally(signal -> builds.remove(s))
+                .cache());
+    }
+
+    private synchronized E lookup(K scope) {
+        return indexes.get(scope);
+    }
+
+    private void install(K scope, E entry) {
+        buildCount.incrementAndGet();
+        List<Disposable> released = new ArrayList<>();
+        synchronized (this) {
+            E previous = indexes.put(scope, entry);
+            if (previous != null) {
+                released.addAll(previous.registrations());
+            }
+            Iterator<E> it = indexes.values().iterator();
+            while (indexes.size() > maxScopes.getAsInt() && it.hasNext()) {
+                released.addAll(it.next().registrations());
+                it.remove();
+            }
+        }
+        release(released);
+    }
+
+    /**
+     * 一次构建的结果
+     */
+    public interface Entry {
+
+        /**
+         * @return 构建时间，用于判断是否需要重建
+         */
+        Instant builtAt();
+
+        /**
+         * @return 索引注册的变更监听，索引被替换或淘汰时取消
+         */
+        List<Disposable> registrations();
+    }
+}
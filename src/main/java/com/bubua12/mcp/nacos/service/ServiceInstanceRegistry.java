@@ -0,0 +1,226 @@
+package com.bubua12.mcp.nacos.service;
+
+import com.alibaba.nacos.api.common.Constants;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.Event;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 由 NamingService 推送维护的服务实例视图
+ * <p>
+ * 服务第一次被查询时订阅，之后实例列表直接从内存返回，变化由 Nacos 推送更新；超过 idleTimeout 未被查询的服务取消订阅。
+ * 推送通道不可用、订阅失败或超时时返回空，由调用方回退到 OpenAPI 查询；超时后才完成的订阅会自行取消，不会留下无人管理的监听器。
+ *
+ * @author bubua12
+ * @since 2026/10/17 15:30
+ */
+@Slf4j
+public class ServiceInstanceRegistry {
+
+    private final NacosProperties.Registry registryProperties;
+    private final NamingServices namingServices;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, Mono<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final Disposable idleSweeper;
+
+    /**
+     * @param registryProperties 实例视图配置
+     * @param namingServices     共享的 NamingService，使用 public 名称空间
+     */
+    public ServiceInstanceRegistry(NacosProperties.Registry registryProperties, NamingServices namingServices) {
+        this.registryProperties = registryProperties;
+        this.namingServices = namingServices;
+        long sweepMillis = Math.max(registryProperties.getIdleTimeout().toMillis() / 2, 1000);
+        this.idleSweeper = Schedulers.parallel()
+                .schedulePeriodically(this::releaseIdle, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 从内存返回服务的实例列表，格式与 /nacos/v2/ns/instance/list 一致
+     *
+     * @param serviceName 服务名
+     * @return 实例列表，不可用时为空
+     */
+    public Mono<NacosResponse> instanceList(String serviceName) {
+        if (!registryProperties.isEnabled()) {
+            return Mono.empty();
+        }
+        return available(serviceName)
+                .map(subscription -> {
+                    ObjectNode data = objectMapper.createObjectNode();
+                    data.put("name", Constants.DEFAULT_GROUP + Constants.SERVICE_INFO_SPLITER + serviceName);
+                    data.put("groupName", Constants.DEFAULT_GROUP);
+                    data.put("clusters", "");
+                    data.set("hosts", objectMapper.valueToTree(subscription.instances));
+                    ObjectNode root = objectMapper.createObjectNode();
+                    root.put("code", 0);
+                    root.put("message", "success");
+                    root.set("data", data);
+                    return new NacosResponse(HttpStatus.OK, root.toString());
+                });
+    }
+
+    /**
+     * 服务详情：已订阅的服务缓存 detailTtl，收到实例变更推送时失效
+     *
+     * @param serviceName 服务名
+     * @param loader      从 Nacos 加载服务详情
+     * @return 服务详情
+     */
+    public Mono<NacosResponse> serviceDetail(String serviceName, Mono<NacosResponse> loader) {
+        if (!registryProperties.isEnabled()) {
+            return loader;
+        }
+        return available(serviceName)
+                .flatMap(subscription -> {
+                    Detail detail = subscription.detail;
+                    if (detail != null && System.currentTimeMillis() - detail.loadedAt() < registryProperties.getDetailTtl().toMillis()) {
+                        return Mono.just(detail.response());
+                    }
+                    return loader.doOnNext(response -> {
+                        if (response.isOk()) {
+                            subscription.detail = new Detail(response, System.currentTimeMillis());
+                        }
+                    });
+                })
+                .switchIfEmpty(loader);
+    }
+
+    /**
+     * 停止空闲清理，NamingService 由 {@link NamingServices} 统一关闭
+     */
+    public void close() {
+        idleSweeper.dispose();
+    }
+
+    /**
+     * 已订阅且推送通道可用的服务
+     */
+    private Mono<Subscription> available(String serviceName) {
+        return subscription(serviceName)
+                .onErrorResume(e -> Mono.empty())
+                .filter(subscription -> {
+                    NamingService naming = namingServices.current("");
+                    return naming != null && "UP".equals(naming.getServerStatus());
+                })
+                .doOnNext(subscription -> subscription.lastAccess = System.currentTimeMillis());
+    }
+
+    /**
+     * 并发的首次查询共享同一次订阅
+     * <p>
+     * 超时只是不再等待，boundedElastic 上的 subscribe 仍可能随后完成；订阅失败或超时时把订阅标记为放弃，
+     * 已经注册的监听器立即取消，尚未注册的在注册完成后自行取消。
+     */
+    private Mono<Subscription> subscription(String serviceName) {
+        return subscriptions.computeIfAbsent(serviceName, name -> {
+            Subscription subscription = new Subscription();
+            return namingServices.get("")
+                    .flatMap(naming -> Mono.fromCallable(() -> {
+                        naming.subscribe(name, subscription);
+                        if (!subscription.attach(naming)) {
+                            // 已超时放弃，调用方不再等待这个结果
+                            unsubscribe(naming, name, subscription);
+                            return subscription;
+                        }
+                        subscription.instances = List.copyOf(naming.getAllInstances(name, true));
+                        log.info("已订阅服务 [{}] 的实例变更，当前实例数 {}", name, subscription.instances.size());
+                        return subscription;
+                    }).subscribeOn(Schedulers.boundedElastic()))
+                    .timeout(registryProperties.getSubscribeTimeout())
+                    .doOnError(e -> {
+                        log.warn("订阅服务 [{}] 失败，回退到 OpenAPI 查询", name, e);
+                        subscriptions.remove(name);
+                        NamingService attached = subscription.abandon();
+                        if (attached != null) {
+                            Schedulers.boundedElastic().schedule(() -> unsubscribe(attached, name, subscription));
+                        }
+                    })
+                    .cache();
+        });
+    }
+
+    private static void unsubscribe(NamingService naming, String serviceName, Subscription subscription) {
+        try {
+            naming.unsubscribe(serviceName, subscription);
+        } catch (NacosException e) {
+            log.warn("取消订阅服务 [{}] 失败", serviceName, e);
+        }
+    }
+
+    private void releaseIdle() {
+        long idleBefore = System.currentTimeMillis() - registryProperties.getIdleTimeout().toMillis();
+        subscriptions.forEach((name, mono) -> {
+            Subscription subscription = mono.onErrorResume(e -> Mono.empty()).toFuture().getNow(null);
+            if (subscription == null || subscription.lastAccess > idleBefore || !subscriptions.remove(name, mono)) {
+                return;
+            }
+            NamingService naming = subscription.abandon();
+            if (naming != null) {
+                Schedulers.boundedElastic().schedule(() -> {
+                    unsubscribe(naming, name, subscription);
+                    log.info("服务 [{}] 长时间未被查询，已取消订阅", name);
+                });
+            }
+        });
+    }
+
+    private record Detail(NacosResponse response, long loadedAt) {
+    }
+
+    private static class Subscription implements EventListener {
+
+        private volatile List<Instance> instances = List.of();
+        private volatile Detail detail;
+        private volatile long lastAccess = System.currentTimeMillis();
+        private NamingService naming;
+        private boolean abandoned;
+
+        /**
+         * 监听器注册完成后调用
+         *
+         * @return 订阅已被放弃时为 false，调用方负责取消刚注册的监听器
+         */
+        synchronized boolean attach(NamingService naming) {
+            this.naming = naming;
+            return !abandoned;
+        }
+
+        /**
+         * 放弃订阅
+         *
+         * @return 已注册监听器的 NamingService，需要取消订阅；尚未注册时为 null
+         */
+        synchronized NamingService abandon() {
+            abandoned = true;
+            NamingService attached = naming;
+            naming = null;
+            return attached;
+        }
+
+        @Override
+        public void onEvent(Event event) {
+            if (event instanceof NamingEvent namingEvent) {
+                instances = List.copyOf(namingEvent.getInstances());
+                detail = null;
+            }
+        }
+    }
+}
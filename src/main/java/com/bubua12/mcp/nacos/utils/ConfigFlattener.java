@@ -0,0 +1,116 @@
+package com.bubua12.mcp.nacos.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.util.StringUtils;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 把 properties、YAML、JSON 格式的配置内容展开为 a.b.c=value 形式的键值，列表元素以 a[0] 表示
+ * <p>
+ * 格式优先取 Nacos 记录的配置类型，没有时按 dataId 后缀判断；无法识别或解析失败的内容返回空 Map。
+ *
+ * @author bubua12
+ * @since 2026/10/17 23:10
+ */
+public class ConfigFlattener {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * 展开配置内容
+     *
+     * @param dataId  配置名称，用于推断格式
+     * @param type    Nacos 记录的配置类型，如 yaml、properties、json，可以为空
+     * @param content 配置内容
+     * @return 按出现顺序排列的键值
+     */
+    public static Map<String, String> flatten(String dataId, String type, String content) {
+        Map<String, String> entries = new LinkedHashMap<>();
+        if (!StringUtils.hasText(content)) {
+            return entries;
+        }
+        try {
+            switch (format(dataId, type)) {
+                case "yaml" -> {
+                    Yaml yaml = new Yaml(new SafeConstructor(new LoaderOptions()));
+                    for (Object document : yaml.loadAll(content)) {
+                        flattenObject("", document, entries);
+                    }
+                }
+                case "properties" -> {
+                    Properties properties = new Properties();
+                    properties.load(new StringReader(content));
+                    properties.stringPropertyNames().stream().sorted()
+                            .forEach(name -> entries.put(name, properties.getProperty(name)));
+                }
+                case "json" -> flattenJson("", OBJECT_MAPPER.readTree(content), entries);
+                default -> {
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            entries.clear();
+        }
+        return entries;
+    }
+
+    /**
+     * 判断配置格式
+     *
+     * @param dataId 配置名称，没有 type 时按后缀判断
+     * @param type   Nacos 记录的配置类型，可以为空
+     * @return yaml、properties、json，无法识别时为空串
+     */
+    public static String format(String dataId, String type) {
+        String format = StringUtils.hasText(type) ? type.toLowerCase()
+                : dataId == null ? "" : dataId.substring(dataId.lastIndexOf('.') + 1).toLowerCase();
+        return switch (format) {
+            case "yaml", "yml" -> "yaml";
+            case "properties" -> "properties";
+            case "json" -> "json";
+            default -> "";
+        };
+    }
+
+    private static void flattenObject(String prefix, Object value, Map<String, String> entries) {
+        if (value instanceof Map<?, ?> map) {
+            map.forEach((key, child) -> flattenObject(join(prefix, String.valueOf(key)), child, entries));
+        } else if (value instanceof List<?> list) {
+            for (int i = 0; i < list.size(); i++) {
+                flattenObject(prefix + "[" + i + "]", list.get(i), entries);
+            }
+        } else if (!prefix.isEmpty()) {
+            entries.put(prefix, value == null ? "" : String.valueOf(value));
+        }
+    }
+
+    private static void flattenJson(String prefix, JsonNode node, Map<String, String> entries) {
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                flattenJson(join(prefix, field.getKey()), field.getValue(), entries);
+            }
+        } else if (node.isArray()) {
+            for (int i = 0; i < node.size(); i++) {
+                flattenJson(prefix + "[" + i + "]", node.get(i), entries);
+            }
+        } else if (!prefix.isEmpty()) {
+            entries.put(prefix, node.isNull() ? "" : node.asText());
+        }
+    }
+
+    private static String join(String prefix, String key) {
+        return prefix.isEmpty() ? key : prefix + "." + key;
+    }
+}
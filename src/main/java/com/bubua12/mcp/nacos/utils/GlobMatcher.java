@@ -0,0 +1,50 @@
+package com.bubua12.mcp.nacos.utils;
+
+import org.springframework.util.StringUtils;
+
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * 名称匹配工具类：不含通配符时按前缀匹配，含 * 或 ? 时按通配符完整匹配
+ *
+ * @author bubua12
+ * @since 2026/10/17 16:10
+ */
+public class GlobMatcher {
+
+    public static boolean hasWildcard(String pattern) {
+        return pattern != null && (pattern.indexOf('*') >= 0 || pattern.indexOf('?') >= 0);
+    }
+
+    public static Predicate<String> toPredicate(String pattern) {
+        if (!StringUtils.hasText(pattern)) {
+            return name -> true;
+        }
+        if (!hasWildcard(pattern)) {
+            return name -> name != null && name.startsWith(pattern);
+        }
+        StringBuilder regex = new StringBuilder();
+        for (char c : pattern.toCharArray()) {
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        Pattern compiled = Pattern.compile(regex.toString());
+        return name -> name != null && compiled.matcher(name).matches();
+    }
+
+    /**
+     * 转换为 Nacos 模糊查询（search=blur）的参数，Nacos 只识别 *，? 放宽为 * 后由 {@link #toPredicate(String)} 再精确过滤
+     */
+    public static String toBlurPattern(String pattern) {
+        if (!StringUtils.hasText(pattern)) {
+            return null;
+        }
+        return hasWildcard(pattern) ? pattern.replace('?', '*') : pattern + "*";
+    }
+}
@@ -0,0 +1,202 @@
+package com.bubua12.mcp.nacos.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按行计算统一格式（unified diff）的文本差异
+ * <p>
+ * 去掉公共的首尾行后用 Myers 算法求最短编辑脚本；编辑距离超过上限时不再求最优解，按整段删除再整段新增输出，
+ * 避免两份差异很大的配置占用过多内存。
+ *
+ * @author bubua12
+ * @since 2026/10/17 22:40
+ */
+public class UnifiedDiff {
+
+    /**
+     * Myers 算法的最大编辑距离，回溯记录的内存与它的平方成正比
+     */
+    private static final int MAX_EDIT_DISTANCE = 1000;
+
+    /**
+     * 计算两段文本的差异
+     *
+     * @param fromName 旧文本的名称，输出在 --- 行
+     * @param toName   新文本的名称，输出在 +++ 行
+     * @param from     旧文本
+     * @param to       新文本
+     * @param context  每处差异前后保留的上下文行数
+     * @return 统一格式的差异，内容相同时为空串
+     */
+    public static String diff(String fromName, String toName, String from, String to, int context) {
+        List<Edit> edits = edits(lines(from), lines(to));
+        StringBuilder out = new StringBuilder();
+        int i = 0;
+        while (i < edits.size()) {
+            while (i < edits.size() && edits.get(i).type() == ' ') {
+                i++;
+            }
+            if (i == edits.size()) {
+                break;
+            }
+            // 相邻两处差异之间的相同行不超过 2 * context 时合并为一个 hunk
+            int lastChange = i;
+            for (int j = i; j < edits.size(); j++) {
+                if (edits.get(j).type() != ' ') {
+                    lastChange = j;
+                } else if (j - lastChange > 2 * context) {
+                    break;
+                }
+            }
+            if (out.isEmpty()) {
+                out.append("--- ").append(fromName).append('\n').append("+++ ").append(toName).append('\n');
+            }
+            int end = Math.min(edits.size(), lastChange + context + 1);
+            appendHunk(out, edits, Math.max(0, i - context), end);
+            i = end;
+        }
+        return out.toString();
+    }
+
+    private static void appendHunk(StringBuilder out, List<Edit> edits, int start, int end) {
+        int fromCount = 0;
+        int toCount = 0;
+        for (int i = start; i < end; i++) {
+            char type = edits.get(i).type();
+            fromCount += type == '+' ? 0 : 1;
+            toCount += type == '-' ? 0 : 1;
+        }
+        Edit first = edits.get(start);
+        out.append("@@ -").append(range(first.fromLine(), fromCount))
+                .append(" +").append(range(first.toLine(), toCount)).append(" @@\n");
+        for (int i = start; i < end; i++) {
+            out.append(edits.get(i).type()).append(edits.get(i).line()).append('\n');
+        }
+    }
+
+    /**
+     * hunk 头中的行号范围：起始行从 1 开始，行数为 0 时起始行取它之前的行号
+     */
+    private static String range(int index, int count) {
+        int start = count == 0 ? index : index + 1;
+        return count == 1 ? String.valueOf(start) : start + "," + count;
+    }
+
+    private static List<String> lines(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        List<String> lines = new ArrayList<>(Arrays.asList(text.split("\r?\n", -1)));
+        if (lines.get(lines.size() - 1).isEmpty()) {
+            lines.remove(lines.size() - 1);
+        }
+        return lines;
+    }
+
+    private static List<Edit> edits(List<String> from, List<String> to) {
+        int prefix = 0;
+        while (prefix < from.size() && prefix < to.size() && from.get(prefix).equals(to.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < from.size() - prefix && suffix < to.size() - prefix
+                && from.get(from.size() - 1 - suffix).equals(to.get(to.size() - 1 - suffix))) {
+            suffix++;
+        }
+        List<String> fromMiddle = from.subList(prefix, from.size() - suffix);
+        List<String> toMiddle = to.subList(prefix, to.size() - suffix);
+        String script = myers(fromMiddle, toMiddle);
+        if (script == null) {
+            script = "-".repeat(fromMiddle.size()) + "+".repeat(toMiddle.size());
+        }
+
+        List<Edit> edits = new ArrayList<>(from.size() + toMiddle.size());
+        int x = 0;
+        int y = 0;
+        for (; x < prefix; x++, y++) {
+            edits.add(new Edit(' ', from.get(x), x, y));
+        }
+        for (char op : script.toCharArray()) {
+            if (op == '+') {
+                edits.add(new Edit('+', to.get(y), x, y));
+                y++;
+            } else {
+                edits.add(new Edit(op, from.get(x), x, y));
+                x++;
+                y += op == ' ' ? 1 : 0;
+            }
+        }
+        for (; x < from.size(); x++, y++) {
+            edits.add(new Edit(' ', from.get(x), x, y));
+        }
+        return edits;
+    }
+
+    /**
+     * Myers 最短编辑脚本，按顺序由 ' '（相同）、'-'（删除）、'+'（新增）组成；超过最大编辑距离时返回 null
+     */
+    private static String myers(List<String> from, List<String> to) {
+        int n = from.size();
+        int m = to.size();
+        int max = n + m;
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        // 第 d 步开始前 v 在 [-d-1, d+1] 上的快照，回溯时使用
+        List<int[]> trace = new ArrayList<>();
+        int found = -1;
+        for (int d = 0; d <= max && found < 0; d++) {
+            if (d > MAX_EDIT_DISTANCE) {
+                return null;
+            }
+            trace.add(Arrays.copyOfRange(v, offset - d - 1, offset + d + 2));
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1]) ? v[offset + k + 1] : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && from.get(x).equals(to.get(y))) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    found = d;
+                    break;
+                }
+            }
+        }
+
+        StringBuilder ops = new StringBuilder();
+        int x = n;
+        int y = m;
+        for (int d = found; d >= 0; d--) {
+            int[] snapshot = trace.get(d);
+            int k = x - y;
+            int prevK = k == -d || (k != d && snapshot[k + d] < snapshot[k + d + 2]) ? k + 1 : k - 1;
+            int prevX = snapshot[prevK + d + 1];
+            int prevY = prevX - prevK;
+            while (x > prevX && y > prevY) {
+                ops.append(' ');
+                x--;
+                y--;
+            }
+            if (d > 0) {
+                ops.append(x == prevX ? '+' : '-');
+            }
+            x = prevX;
+            y = prevY;
+        }
+        return ops.reverse().toString();
+    }
+
+    /**
+     * 编辑脚本中的一行
+     *
+     * @param type     ' '、'-' 或 '+'
+     * @param line     行内容
+     * @param fromLine 该行之前已消耗的旧文本行数
+     * @param toLine   该行之前已消耗的新文本行数
+     */
+    private record Edit(char type, String line, int fromLine, int toLine) {
+    }
+}
@@ -0,0 +1,58 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.ConfigQuery;
+import com.bubua12.mcp.nacos.service.NacosMCPService;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 批量获取配置：单个配置失败不影响整批，结果保持输入顺序
+ *
+ * @author bubua12
+ * @since 2026/10/17 17:30
+ */
+public class BatchGetConfigsTests {
+
+    private FakeNacosServer fakeNacos;
+    private NacosMCPService nacosService;
+
+    @BeforeEach
+    public void setUp() {
+        fakeNacos = new FakeNacosServer(Duration.ofMillis(50));
+        NacosProperties properties = fakeNacos.properties();
+        // 按 JSON 校验结果，关闭精简输出
+        properties.getResponse().setCompact(false);
+        nacosService = new NacosMCPService(properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        nacosService.destroy();
+        fakeNacos.close();
+    }
+
+    @Test
+    public void failedItemDoesNotFailTheBatch() throws Exception {
+        String result = nacosService.batchGetConfigs(List.of(
+                new ConfigQuery("common.properties", "order", "dev"),
+                new ConfigQuery("common.properties", "order", "no-such-namespace"),
+                new ConfigQuery("service-order.yaml", "DEFAULT_GROUP", null))).block(Duration.ofSeconds(10));
+
+        JsonNode data = new ObjectMapper().readTree(result.substring(result.indexOf('\n') + 1)).path("data");
+        assertEquals(3, data.path("total").asInt());
+        assertEquals(2, data.path("succeeded").asInt());
+        assertEquals("OK", data.path("items").get(0).path("status").asText());
+        assertEquals("ERROR", data.path("items").get(1).path("status").asText());
+        assertEquals("key=value", data.path("items").get(2).path("content").asText());
+    }
+}
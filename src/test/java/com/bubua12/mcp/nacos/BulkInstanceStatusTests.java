@@ -0,0 +1,124 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.InstanceSelector;
+import com.bubua12.mcp.nacos.service.NacosMCPService;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 批量上下线：按选择条件挑选实例，失败比例超过阈值时回滚已变更的实例
+ * <p>
+ * 替身的 10 个实例为 10.0.0.1 ~ 10.0.0.10，第 i 个实例的元数据 version 为 1.0.(i-1)
+ *
+ * @author bubua12
+ * @since 2026/10/18 05:10
+ */
+public class BulkInstanceStatusTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private FakeNacosServer fakeNacos;
+    private NacosMCPService nacosService;
+
+    @BeforeEach
+    public void setUp() {
+        fakeNacos = new FakeNacosServer(Duration.ofMillis(1)).instances(10);
+        NacosProperties properties = fakeNacos.properties();
+        // 按 JSON 校验结果，关闭精简输出
+        properties.getResponse().setCompact(false);
+        properties.getBulk().setRatePerSecond(1000);
+        nacosService = new NacosMCPService(properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        nacosService.destroy();
+        fakeNacos.close();
+    }
+
+    @Test
+    public void selectorPicksMatchingInstances() throws Exception {
+        JsonNode byIpAndCidr = update(new InstanceSelector(List.of("10.0.0.2", "10.0.0.3", "10.0.0.9"), "10.0.0.0/29", null, null), null);
+        assertEquals(2, byIpAndCidr.path("matched").asInt());
+        assertEquals(2, byIpAndCidr.path("succeeded").asInt());
+        assertEquals(Set.of("10.0.0.2=false", "10.0.0.3=false"), Set.copyOf(fakeNacos.instanceUpdates()));
+
+        JsonNode byMetadata = update(new InstanceSelector(null, null, "DEFAULT", Map.of("version", "1.0.4")), null);
+        assertEquals(1, byMetadata.path("matched").asInt());
+        assertEquals("10.0.0.5", byMetadata.path("items").get(0).path("ip").asText());
+        assertTrue(byMetadata.path("items").get(0).path("previousEnabled").asBoolean());
+
+        assertThrows(IllegalArgumentException.class, () -> update(new InstanceSelector(null, "10.0.0.0/33", null, null), null));
+        assertThrows(IllegalArgumentException.class, () -> update(new InstanceSelector(null, "nacos.local/24", null, null), null));
+        assertEquals(3, fakeNacos.instanceUpdates().size());
+    }
+
+    @Test
+    public void malformedCidrIsRejectedBeforeAnyRequest() {
+        long requests = fakeNacos.requestCount("/nacos/v2/ns/instance/list");
+        // 服务没有实例时也要报错，而不是静默匹配 0 个
+        assertThrows(IllegalArgumentException.class, () -> nacosService.bulkUpdateInstanceStatus("service-empty", null, null,
+                new InstanceSelector(null, "10.0.0.0/33", null, null), false, null).block(Duration.ofSeconds(10)));
+        assertEquals(requests, fakeNacos.requestCount("/nacos/v2/ns/instance/list"));
+    }
+
+    @Test
+    public void rollbackWhenFailureRatioExceedsThreshold() throws Exception {
+        fakeNacos.failInstanceUpdates("10.0.0.1", "10.0.0.2", "10.0.0.3");
+        JsonNode data = update(new InstanceSelector(null, "10.0.0.0/24", null, null), 0.2);
+
+        assertEquals(10, data.path("matched").asInt());
+        assertEquals(3, data.path("failed").asInt());
+        assertTrue(data.path("rolledBack").asBoolean());
+        assertEquals(7, data.path("restored").asInt());
+        assertEquals(0, data.path("succeeded").asInt());
+        for (JsonNode item : data.path("items")) {
+            boolean failed = Set.of("10.0.0.1", "10.0.0.2", "10.0.0.3").contains(item.path("ip").asText());
+            assertEquals(failed ? "ERROR" : "OK", item.path("status").asText());
+            assertEquals(failed ? "" : "OK", item.path("rollback").asText());
+        }
+        // 成功下线的 7 个实例各被恢复一次，失败的 3 个不回滚
+        List<String> restores = fakeNacos.instanceUpdates().stream().filter(update -> update.endsWith("=true")).toList();
+        assertEquals(IntStream.rangeClosed(4, 10).mapToObj(i -> "10.0.0." + i + "=true").collect(Collectors.toSet()), Set.copyOf(restores));
+        assertEquals(7, restores.size());
+    }
+
+    @Test
+    public void noRollbackBelowThreshold() throws Exception {
+        fakeNacos.failInstanceUpdates("10.0.0.1");
+        JsonNode data = update(new InstanceSelector(null, "10.0.0.0/24", null, null), 0.5);
+
+        assertEquals(1, data.path("failed").asInt());
+        assertEquals(9, data.path("succeeded").asInt());
+        assertEquals(0, data.path("restored").asInt());
+        assertFalse(data.path("rolledBack").asBoolean());
+        for (JsonNode item : data.path("items")) {
+            assertTrue(item.path("rollback").isMissingNode());
+        }
+        assertEquals(10, fakeNacos.instanceUpdates().size());
+        assertTrue(fakeNacos.instanceUpdates().stream().allMatch(update -> update.endsWith("=false")));
+    }
+
+    private JsonNode update(InstanceSelector selector, Double rollbackThreshold) throws Exception {
+        String result = nacosService.bulkUpdateInstanceStatus("service-order", null, null, selector, false, rollbackThreshold)
+                .block(Duration.ofSeconds(10));
+        return objectMapper.readTree(result.substring(result.indexOf('\n') + 1)).path("data");
+    }
+}
@@ -0,0 +1,86 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.service.NacosMCPService;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 集群巡检：全部节点并发探测，在截止时间内汇总，标记宕机、超时、数据落后和指标离群的节点
+ *
+ * @author bubua12
+ * @since 2026/10/18 02:20
+ */
+public class ClusterSweepTests {
+
+    private static final String SELF = "/nacos/v2/core/cluster/node/self";
+    private static final String HEALTH = "/nacos/v2/core/cluster/node/self/health";
+    private static final String METRICS = "/nacos/v2/ns/operator/metrics";
+
+    private final List<FakeNacosServer> nodes = new ArrayList<>();
+    private NacosMCPService nacosService;
+
+    @AfterEach
+    public void tearDown() {
+        if (nacosService != null) {
+            nacosService.destroy();
+        }
+        nodes.forEach(FakeNacosServer::close);
+    }
+
+    @Test
+    public void sweepFlagsUnhealthyNodesWithinDeadline() {
+        FakeNacosServer healthy = node("2.4.3", "UP", 200, 0.1);
+        FakeNacosServer lagging = node("2.3.2", "UP", 150, 0.1);
+        FakeNacosServer busy = node("2.4.3", "UP", 200, 0.95);
+        FakeNacosServer stalled = node("2.4.3", "UP", 200, 0.1);
+        FakeNacosServer down = node("2.4.3", "DOWN", 200, 0.1);
+        stalled.stall(SELF);
+        stalled.stall(HEALTH);
+        stalled.stall(METRICS);
+        healthy.clusterMembers(healthy, lagging, busy, stalled, down);
+        nacosService = new NacosMCPService(healthy.properties());
+
+        long start = System.nanoTime();
+        String report = nacosService.sweepCluster(500, null).block(Duration.ofSeconds(5));
+        long elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertTrue(elapsed < 2000, "巡检耗时 " + elapsed + "ms");
+        assertTrue(report.contains("total: 5"), report);
+        assertTrue(report.contains("up: 3"), report);
+        assertTrue(report.contains("down: 1"), report);
+        assertTrue(report.contains("timeout: 1"), report);
+        assertTrue(row(report, healthy).startsWith(address(healthy) + "|UP||"), report);
+        assertTrue(row(report, lagging).contains("LAGGING(instanceCount=150,max=200)"), report);
+        assertTrue(row(report, lagging).contains("VERSION(2.3.2,majority=2.4.3)"), report);
+        assertTrue(row(report, busy).contains("OUTLIER(cpu=0.95,median=0.10)"), report);
+        assertTrue(row(report, stalled).startsWith(address(stalled) + "|TIMEOUT|"), report);
+        assertTrue(row(report, down).startsWith(address(down) + "|DOWN|"), report);
+        assertEquals(1, stalled.requestCount(METRICS));
+    }
+
+    private FakeNacosServer node(String version, String health, int instanceCount, double cpu) {
+        FakeNacosServer node = new FakeNacosServer(Duration.ofMillis(10))
+                .respond(SELF, "{\"state\":\"UP\",\"extendInfo\":{\"version\":\"" + version + "\"}}")
+                .respond(HEALTH, "\"" + health + "\"")
+                .respond(METRICS, "{\"status\":\"UP\",\"serviceCount\":10,\"instanceCount\":" + instanceCount
+                        + ",\"subscribeCount\":30,\"clientCount\":20,\"cpu\":" + cpu + ",\"load\":0.5,\"mem\":0.4}");
+        nodes.add(node);
+        return node;
+    }
+
+    private static String address(FakeNacosServer node) {
+        return node.baseUrl().substring("http://".length());
+    }
+
+    private static String row(String report, FakeNacosServer node) {
+        return report.lines().filter(line -> line.startsWith(address(node) + "|")).findFirst().orElse("");
+    }
+}
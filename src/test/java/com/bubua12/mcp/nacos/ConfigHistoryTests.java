@@ -0,0 +1,142 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.NacosMCPService;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import com.bubua12.mcp.nacos.utils.UnifiedDiff;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 配置历史：列表增量拉取，总数取自 Nacos，历史版本内容按 id 缓存，差异在服务端计算
+ *
+ * @author bubua12
+ * @since 2026/10/17 22:55
+ */
+public class ConfigHistoryTests {
+
+    private static final String HISTORY_LIST = "/nacos/v2/cs/history/list";
+    private static final String HISTORY_DETAIL = "/nacos/v2/cs/history";
+
+    private FakeNacosServer fakeNacos;
+    private NacosMCPService nacosService;
+
+    @BeforeEach
+    public void setUp() {
+        fakeNacos = new FakeNacosServer(Duration.ofMillis(5)).historyEntries(30);
+        NacosProperties properties = fakeNacos.properties();
+        // 按 JSON 校验结果，关闭精简输出
+        properties.getResponse().setCompact(false);
+        nacosService = new NacosMCPService(properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        nacosService.destroy();
+        fakeNacos.close();
+    }
+
+    @Test
+    public void historyListIsFetchedIncrementally() throws Exception {
+        JsonNode first = history();
+        assertEquals(30, first.path("totalCount").asInt());
+        assertEquals(30, first.path("cachedCount").asInt());
+        assertEquals("30", first.path("pageItems").get(0).path("id").asText());
+
+        fakeNacos.addHistory("common=shared\nrevision=31\n");
+        JsonNode second = history();
+        assertEquals(31, second.path("totalCount").asInt());
+        assertEquals("31", second.path("pageItems").get(0).path("id").asText());
+        assertEquals("1", second.path("pageItems").get(30).path("id").asText());
+        assertEquals(2, fakeNacos.requestCount(HISTORY_LIST));
+    }
+
+    @Test
+    public void totalCountComesFromNacos() throws Exception {
+        // 本地最多保留 maxEntriesPerConfig（200）条，总数仍按 Nacos 返回
+        fakeNacos.historyEntries(250);
+        JsonNode first = history();
+        assertEquals(250, first.path("totalCount").asInt());
+        assertEquals(200, first.path("cachedCount").asInt());
+
+        fakeNacos.addHistory("common=shared\nrevision=251\n");
+        JsonNode second = history();
+        assertEquals(251, second.path("totalCount").asInt());
+        assertEquals(200, second.path("cachedCount").asInt());
+        assertEquals("251", second.path("pageItems").get(0).path("id").asText());
+    }
+
+    @Test
+    public void revisionsAreDiffedOnceAndCached() {
+        String expected = """
+                HTTP 200 OK
+                --- common.properties@1
+                +++ common.properties@2
+                @@ -1,2 +1,2 @@
+                 common=shared
+                -revision=1
+                +revision=2
+                """;
+        assertEquals(expected, nacosService.diffConfigHistory("common.properties", "order", "dev", 1L, 2L, null).block(Duration.ofSeconds(10)));
+        assertEquals(expected, nacosService.diffConfigHistory("common.properties", "order", "dev", 1L, 2L, null).block(Duration.ofSeconds(10)));
+        assertEquals(2, fakeNacos.requestCount(HISTORY_DETAIL));
+    }
+
+    @Test
+    public void revisionIsDiffedAgainstCurrentConfig() {
+        String result = nacosService.diffConfigHistory("common.properties", "order", "dev", 3L, null, 0).block(Duration.ofSeconds(10));
+
+        assertEquals("""
+                HTTP 200 OK
+                --- common.properties@3
+                +++ common.properties@current
+                @@ -1,2 +1 @@
+                -common=shared
+                -revision=3
+                +key=value
+                """, result);
+    }
+
+    @Test
+    public void nearbyChangesShareOneHunk() {
+        String from = "a\nb\nc\nd\ne\nf\ng\nh\ni\nj\nk\nl\nm\nn\no\np\n";
+        String to = "a\nB\nc\nd\ne\nf\ng\nH\ni\nj\nk\nl\nm\nn\no\np\nq\n";
+
+        assertEquals("""
+                --- from
+                +++ to
+                @@ -1,11 +1,11 @@
+                 a
+                -b
+                +B
+                 c
+                 d
+                 e
+                 f
+                 g
+                -h
+                +H
+                 i
+                 j
+                 k
+                @@ -14,3 +14,4 @@
+                 n
+                 o
+                 p
+                +q
+                """, UnifiedDiff.diff("from", "to", from, to, 3));
+        assertEquals("", UnifiedDiff.diff("from", "to", from, from, 3));
+    }
+
+    private JsonNode history() throws Exception {
+        String result = nacosService.getConfigHistory("common.properties", "order", "dev", null).block(Duration.ofSeconds(10));
+        return new ObjectMapper().readTree(result.substring(result.indexOf('\n') + 1)).path("data");
+    }
+}
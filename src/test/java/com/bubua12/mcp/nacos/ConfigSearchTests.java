@@ -0,0 +1,181 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.ConfigKey;
+import com.bubua12.mcp.nacos.service.ConfigSearchIndex;
+import com.bubua12.mcp.nacos.service.NacosMCPService;
+import com.bubua12.mcp.nacos.service.PagedFetcher;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import com.bubua12.mcp.nacos.support.StubConfigWatcher;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 配置搜索：子串、正则、配置项=值查询，正则校验和超时，变更通知增量更新，内存上限
+ *
+ * @author bubua12
+ * @since 2026/10/18 00:05
+ */
+public class ConfigSearchTests {
+
+    private static final String NAMESPACE = "dev-id";
+    private static final ConfigKey ORDER = new ConfigKey("order.yaml", "DEFAULT_GROUP", NAMESPACE);
+    private static final ConfigKey USER = new ConfigKey("user.properties", "DEFAULT_GROUP", NAMESPACE);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StubConfigWatcher watcher = new StubConfigWatcher();
+    private final NacosProperties.Search properties = new NacosProperties.Search();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final ConfigSearchIndex index = new ConfigSearchIndex(watcher, properties, (namespaceId, limit) -> Mono.fromSupplier(() -> {
+        loads.incrementAndGet();
+        List<JsonNode> configs = List.of(
+                config("order.yaml", "yaml", "spring:\n  datasource:\n    url: jdbc:mysql://db-prod:3306/order\n"),
+                config("user.properties", "properties", "spring.datasource.url=jdbc:mysql://db-test:3306/user\nserver.port=8080\n"),
+                config("feature.json", "json", "{\"feature\":{\"enabled\":true}}"));
+        return new PagedFetcher.Result<>(configs.size(), configs, false);
+    }));
+
+    @Test
+    public void contentIsSearchedBySubstringAndRegex() {
+        ConfigSearchIndex.Result result = index.searchContent(NAMESPACE, "DB-PROD", false, 10).block();
+        assertEquals(1, result.configs());
+        assertEquals("order.yaml", result.hits().get(0).dataId());
+        assertEquals("line 3", result.hits().get(0).location());
+
+        assertEquals("user.properties", index.searchContent(NAMESPACE, "port=80\\d0", true, 10).block().hits().get(0).dataId());
+        assertEquals(2, index.searchContent(NAMESPACE, "db", false, 10).block().configs());
+        assertEquals(0, index.searchContent(NAMESPACE, "db-staging", false, 10).block().configs());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void keysAreSearchedAcrossFormats() {
+        ConfigSearchIndex.Result exact = index.searchKey(NAMESPACE, "spring.datasource.url", "db-test", false, 10).block();
+        assertEquals(1, exact.hits().size());
+        assertEquals("user.properties", exact.hits().get(0).dataId());
+        assertEquals("jdbc:mysql://db-test:3306/user", exact.hits().get(0).text());
+
+        assertEquals(2, index.searchKey(NAMESPACE, "spring.datasource.*", null, false, 10).block().configs());
+        assertEquals("true", index.searchKey(NAMESPACE, "feature.enabled", null, false, 10).block().hits().get(0).text());
+    }
+
+    @Test
+    public void changeNotificationsUpdateTheIndex() {
+        assertTrue(index.searchContent(NAMESPACE, "db-prod", false, 10).block().live());
+        assertEquals(3, watcher.watchCount());
+
+        watcher.publish(ORDER, "spring:\n  datasource:\n    url: jdbc:mysql://db-new:3306/order\n");
+        watcher.publish(USER, null);
+
+        assertEquals(0, index.searchContent(NAMESPACE, "db-prod", false, 10).block().configs());
+        assertEquals("jdbc:mysql://db-new:3306/order", index.searchKey(NAMESPACE, "spring.datasource.url", null, false, 10).block().hits().get(0).text());
+        assertEquals(0, index.searchContent(NAMESPACE, "db-test", false, 10).block().configs());
+        assertEquals(1, loads.get());
+        assertEquals(2, index.stats().updates());
+    }
+
+    @Test
+    public void deletedSlotsAreReused() {
+        index.searchContent(NAMESPACE, "db", false, 10).block();
+        for (int i = 0; i < 200; i++) {
+            watcher.publish(ORDER, null);
+            watcher.publish(USER, null);
+            watcher.publish(USER, "spring.datasource.url=jdbc:mysql://db-test-" + i + ":3306/user\n");
+            watcher.publish(ORDER, "url: jdbc:mysql://db-prod-" + i + ":3306/order\n");
+        }
+
+        // 复用的编号按序插入倒排表，交集查询仍然正确
+        ConfigSearchIndex.Result result = index.searchContent(NAMESPACE, "db-prod-199", false, 10).block();
+        assertEquals(1, result.configs());
+        assertEquals("order.yaml", result.hits().get(0).dataId());
+        assertEquals(2, index.searchContent(NAMESPACE, "jdbc:mysql", false, 10).block().configs());
+        assertEquals(3, result.indexedConfigs());
+    }
+
+    @Test
+    public void invalidAndRunawayRegexAreRejected() {
+        // 语法错误在构建索引之前就报参数错误
+        assertThrows(IllegalArgumentException.class, () -> index.searchContent(NAMESPACE, "port=(80", true, 10).block());
+        assertEquals(0, loads.get());
+
+        properties.setRegexTimeout(Duration.ofMillis(100));
+        index.searchContent(NAMESPACE, "db", false, 10).block();
+        watcher.publish(ORDER, "a".repeat(64) + "\n");
+        long start = System.nanoTime();
+        // 反向引用让 java.util.regex 无法记忆化嵌套量词，(a+)+b 这类表达式在新版 JDK 上已经不会回溯
+        assertThrows(IllegalArgumentException.class, () -> index.searchContent(NAMESPACE, "((a+)+)\\2b", true, 10).block());
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+    }
+
+    @Test
+    public void indexStaysWithinMemoryLimit() {
+        properties.setMaxBytes(DataSize.ofBytes(6000));
+        ConfigSearchIndex.Result result = index.searchContent(NAMESPACE, "db", false, 10).block();
+
+        assertTrue(result.truncated());
+        assertTrue(result.indexedConfigs() > 0 && result.indexedConfigs() < 3);
+        assertTrue(result.indexBytes() <= 6000);
+        assertEquals(3, result.totalConfigs());
+    }
+
+    @Test
+    public void oversizedUpdateKeepsPreviousContent() {
+        properties.setMaxBytes(DataSize.ofKilobytes(16));
+        assertFalse(index.searchContent(NAMESPACE, "db", false, 10).block().truncated());
+
+        // 更新后的内容放不下，索引保留旧内容而不是丢掉这个配置
+        watcher.publish(ORDER, "spring:\n  datasource:\n    url: jdbc:mysql://db-new:3306/order\n" + "x".repeat(32 * 1024));
+        ConfigSearchIndex.Result result = index.searchContent(NAMESPACE, "db-prod", false, 10).block();
+        assertEquals(1, result.configs());
+        assertEquals(3, result.indexedConfigs());
+        assertTrue(result.truncated());
+        assertTrue(result.indexBytes() <= 16 * 1024);
+    }
+
+    @Test
+    public void searchToolBuildsIndexFromBulkFetch() throws Exception {
+        try (FakeNacosServer fakeNacos = new FakeNacosServer(Duration.ofMillis(5)).configs(250)) {
+            NacosProperties nacosProperties = fakeNacos.properties();
+            // 按 JSON 校验结果，关闭精简输出
+            nacosProperties.getResponse().setCompact(false);
+            NacosMCPService nacosService = new NacosMCPService(nacosProperties);
+            try {
+                JsonNode byKey = data(nacosService.searchConfigs("dev", "db-1", "spring.datasource.url", null, 500).block(Duration.ofSeconds(10)));
+                assertEquals(250, byKey.path("indexedConfigs").asInt());
+                assertEquals(83, byKey.path("matchedConfigs").asInt());
+                assertFalse(byKey.path("live").asBoolean());
+
+                JsonNode byContent = data(nacosService.searchConfigs("dev", "port: 8105", null, null, null).block(Duration.ofSeconds(10)));
+                assertEquals(1, byContent.path("matchedConfigs").asInt());
+                assertEquals("config-105.yaml", byContent.path("items").get(0).path("dataId").asText());
+                assertEquals(3, fakeNacos.requestCount("/nacos/v1/cs/configs"));
+            } finally {
+                nacosService.destroy();
+            }
+        }
+    }
+
+    private JsonNode config(String dataId, String type, String content) {
+        return objectMapper.createObjectNode()
+                .put("dataId", dataId)
+                .put("group", "DEFAULT_GROUP")
+                .put("type", type)
+                .put("content", content);
+    }
+
+    private JsonNode data(String result) throws Exception {
+        return objectMapper.readTree(result.substring(result.indexOf('\n') + 1)).path("data");
+    }
+}
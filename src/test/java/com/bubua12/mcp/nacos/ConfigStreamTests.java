@@ -0,0 +1,184 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.NacosMCPService;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 大配置的流式读取：字节范围、行范围、配置项读取，读取上限，完整读取的截断和超过内存上限时的流式回退，UTF-8 字符边界
+ *
+ * @author bubua12
+ * @since 2026/10/18 04:50
+ */
+public class ConfigStreamTests {
+
+    private static final String YAML = """
+            server:
+              port: 8080
+            spring:
+              application:
+                name: order
+              datasource:
+                url: jdbc:mysql://db:3306/order
+                hikari:
+                  maximum-pool-size: 20
+                password: |
+                  spring:
+                    not-a-key
+              redis:
+                host: redis
+            ---
+            spring:
+              datasource:
+                url: jdbc:mysql://db-2:3306/order
+            """;
+
+    private static final String PROPERTIES = """
+            server.port=8080
+            spring.datasource.url=jdbc:mysql://db:3306/order
+            spring.datasource.username=order
+            spring.datasourceX=ignored
+            spring.redis.host=redis
+            """;
+
+    private static final String LARGE = IntStream.rangeClosed(1, 2000)
+            .mapToObj(i -> String.format("line-%04d=%s", i, "v".repeat(20)))
+            .collect(Collectors.joining("\n", "", "\n"));
+
+    /**
+     * 每个字符 3 字节，4096 字节处落在字符中间
+     */
+    private static final String CHINESE = "中".repeat(2000) + "\n";
+
+    private FakeNacosServer fakeNacos;
+    private NacosMCPService nacosService;
+
+    @BeforeEach
+    public void setUp() {
+        fakeNacos = new FakeNacosServer(Duration.ofMillis(1))
+                .rawConfig("order.yaml", "yaml", YAML)
+                .rawConfig("order.properties", "properties", PROPERTIES)
+                .rawConfig("large.properties", "properties", LARGE)
+                .rawConfig("chinese.properties", "properties", CHINESE);
+        NacosProperties properties = fakeNacos.properties();
+        properties.getConfigRead().setMaxSize(DataSize.ofKilobytes(32));
+        properties.getConfigRead().setMaxInlineSize(DataSize.ofKilobytes(4));
+        nacosService = new NacosMCPService(properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        nacosService.destroy();
+        fakeNacos.close();
+    }
+
+    @Test
+    public void rangesAreReadWithSizeAndMd5() {
+        String bytes = read("large.properties", "bytes=0-9", null);
+        assertTrue(bytes.startsWith("HTTP 200 OK\nsize: " + LARGE.length() + "\nmd5: " + md5(LARGE) + "\n"), bytes);
+        assertTrue(bytes.endsWith("range: bytes=0-9\n\nline-0001="), bytes);
+
+        String lines = read("large.properties", "lines=1000-1002", null);
+        assertTrue(lines.contains("range: lines=1000-1002\n"), lines);
+        assertTrue(lines.endsWith("\n\nline-1000=" + "v".repeat(20) + "\nline-1001=" + "v".repeat(20)
+                + "\nline-1002=" + "v".repeat(20) + "\n"), lines);
+
+        String tail = read("order.properties", "lines=4-", null);
+        assertTrue(tail.endsWith("range: lines=4-5\n\nspring.datasourceX=ignored\nspring.redis.host=redis\n"), tail);
+    }
+
+    @Test
+    public void keyPathIsReadFromYamlAndProperties() {
+        String yaml = read("order.yaml", null, "spring.datasource");
+        assertTrue(yaml.contains("md5: " + md5(YAML) + "\n"), yaml);
+        assertTrue(yaml.contains("matches: 2\n"), yaml);
+        assertTrue(yaml.contains("url: jdbc:mysql://db:3306/order"), yaml);
+        assertTrue(yaml.contains("maximum-pool-size: 20"), yaml);
+        assertTrue(yaml.contains("not-a-key"), yaml);
+        assertTrue(yaml.contains("url: jdbc:mysql://db-2:3306/order"), yaml);
+        assertTrue(!yaml.contains("redis") && !yaml.contains("8080"), yaml);
+
+        String properties = read("order.properties", null, "spring.datasource");
+        assertTrue(properties.contains("matches: 2\n"), properties);
+        assertTrue(properties.endsWith("\n\nspring.datasource.url=jdbc:mysql://db:3306/order\nspring.datasource.username=order\n"), properties);
+
+        String missing = read("order.yaml", null, "spring.kafka");
+        assertTrue(missing.contains("matches: 0\n"), missing);
+    }
+
+    @Test
+    public void readStopsAtMaxSize() {
+        String result = read("large.properties", null, "line-2000");
+        assertTrue(result.contains("size: " + LARGE.length() + "\n"), result);
+        assertTrue(result.contains("exceeded: 配置超过 32768 字节上限，已停止读取\n"), result);
+        assertTrue(result.contains("matches: 0\n"), result);
+    }
+
+    @Test
+    public void fullReadIsTruncatedToInlineSize() {
+        String full = nacosService.getConfig("large.properties", "DEFAULT_GROUP", "dev", null, null).block(Duration.ofSeconds(10));
+        assertTrue(full.startsWith("HTTP 200 OK\nsize: " + LARGE.length() + "\nmd5: " + md5(LARGE) + "\n"), full);
+        assertTrue(full.contains("range: bytes=0-4095\n"), full);
+        assertTrue(full.endsWith("\n\n" + LARGE.substring(0, 4096)), full);
+
+        String small = nacosService.getConfig("order.properties", "DEFAULT_GROUP", "dev", null, null).block(Duration.ofSeconds(10));
+        assertEquals("HTTP 200 OK\n" + PROPERTIES, small);
+    }
+
+    @Test
+    public void byteRangesAlignToCharacterBoundaries() {
+        String full = nacosService.getConfig("chinese.properties", "DEFAULT_GROUP", "dev", null, null).block(Duration.ofSeconds(10));
+        assertTrue(full.contains("range: bytes=0-4094\n"), full);
+        assertTrue(full.endsWith("\n\n" + "中".repeat(1365)), full);
+
+        // 起点跳过半个字符，终点去掉不完整的字符
+        String range = read("chinese.properties", "bytes=1-7", null);
+        assertTrue(range.endsWith("range: bytes=3-5\n\n中"), range);
+    }
+
+    @Test
+    public void oversizedFullReadFallsBackToStreaming() {
+        NacosProperties properties = fakeNacos.properties();
+        properties.getConfigRead().setMaxInlineSize(DataSize.ofKilobytes(4));
+        // v2 接口整体读取会超过内存上限
+        properties.getHttp().setMaxInMemorySize(DataSize.ofKilobytes(16));
+        NacosMCPService limited = new NacosMCPService(properties);
+        try {
+            String full = limited.getConfig("large.properties", "DEFAULT_GROUP", "dev", null, null).block(Duration.ofSeconds(10));
+            assertTrue(full.startsWith("HTTP 200 OK\nsize: " + LARGE.length() + "\nmd5: " + md5(LARGE) + "\n"), full);
+            assertTrue(full.contains("range: bytes=0-4095\n"), full);
+            assertTrue(full.endsWith("\n\n" + LARGE.substring(0, 4096)), full);
+        } finally {
+            limited.destroy();
+        }
+    }
+
+    @Test
+    public void invalidArgumentsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> read("order.yaml", "lines=1-2", "spring"));
+        assertThrows(IllegalArgumentException.class, () -> read("order.yaml", "chars=1-2", null));
+        assertThrows(IllegalArgumentException.class, () -> read("order.yaml", "lines=0-2", null));
+    }
+
+    private String read(String dataId, String range, String keyPath) {
+        return nacosService.getConfig(dataId, "DEFAULT_GROUP", "dev", range, keyPath).block(Duration.ofSeconds(10));
+    }
+
+    private static String md5(String content) {
+        return DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,151 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.ConfigKey;
+import com.bubua12.mcp.nacos.service.ConfigWatchHub;
+import com.bubua12.mcp.nacos.service.ConfigWatcher;
+import com.bubua12.mcp.nacos.support.StubConfigWatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 配置变更订阅：所有会话共享每个配置的一个上游监听，变更扇出给全部订阅者
+ *
+ * @author bubua12
+ * @since 2026/10/18 02:50
+ */
+public class ConfigWatchHubTests {
+
+    private static final ConfigKey KEY = new ConfigKey("service-order.yaml", "DEFAULT_GROUP", "dev-id");
+
+    private final StubConfigWatcher stub = new StubConfigWatcher();
+    private final AtomicInteger registrations = new AtomicInteger();
+    private final NacosProperties.Watch properties = new NacosProperties.Watch();
+    private ConfigWatchHub hub;
+
+    @BeforeEach
+    public void setUp() {
+        ConfigWatcher counting = new ConfigWatcher() {
+            @Override
+            public boolean isConnected(String namespaceId) {
+                return true;
+            }
+
+            @Override
+            public Mono<Disposable> watch(ConfigKey key, Consumer<String> onChange) {
+                registrations.incrementAndGet();
+                return stub.watch(key, onChange);
+            }
+        };
+        hub = new ConfigWatchHub(counting, properties, key -> Mono.just("replicas: 2\n"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        hub.close();
+    }
+
+    @Test
+    public void thousandSessionsShareOneUpstreamListener() {
+        Queue<ConfigWatchHub.ConfigChange> received = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < 1000; i++) {
+            List<ConfigWatchHub.Watched> watched = hub.subscribe(new Object(), List.of(KEY), i % 2 == 0,
+                    change -> Mono.fromRunnable(() -> received.add(change))).block();
+            assertEquals(1, watched.size());
+        }
+        assertEquals(1, registrations.get());
+        assertEquals(1, hub.stats().topics());
+        assertEquals(1000, hub.stats().subscriptions());
+
+        stub.publish(KEY, "replicas: 3\n");
+
+        assertEquals(1000, received.size());
+        ConfigWatchHub.ConfigChange change = received.peek();
+        assertEquals(32, change.md5().length());
+        assertEquals(500, received.stream().filter(c -> c.diff() != null).count());
+        assertTrue(received.stream().filter(c -> c.diff() != null).findFirst().orElseThrow().diff()
+                .contains("-replicas: 2\n+replicas: 3"));
+    }
+
+    @Test
+    public void unchangedContentIsNotNotified() {
+        AtomicInteger notified = new AtomicInteger();
+        hub.subscribe(new Object(), List.of(KEY), false, change -> Mono.fromRunnable(notified::incrementAndGet)).block();
+
+        stub.publish(KEY, "replicas: 2\n");
+        stub.publish(KEY, "replicas: 3\n");
+        stub.publish(KEY, null);
+
+        assertEquals(2, notified.get());
+    }
+
+    @Test
+    public void lastUnsubscribeReleasesListener() {
+        Object a = new Object();
+        Object b = new Object();
+        hub.subscribe(a, List.of(KEY), false, change -> Mono.empty()).block();
+        hub.subscribe(b, List.of(KEY), false, change -> Mono.empty()).block();
+
+        assertEquals(1, hub.unsubscribe(a, null));
+        assertEquals(1, stub.watchCount());
+        assertEquals(1, hub.unsubscribe(b, List.of(KEY)));
+        assertEquals(0, stub.watchCount());
+        assertEquals(0, hub.stats().topics());
+
+        hub.subscribe(a, List.of(KEY), false, change -> Mono.empty()).block();
+        assertEquals(2, registrations.get());
+    }
+
+    @Test
+    public void failedDeliveryDropsSession() {
+        Object closed = new Object();
+        hub.subscribe(closed, List.of(KEY), false, change -> Mono.error(new IllegalStateException("session closed"))).block();
+        hub.subscribe(new Object(), List.of(KEY), false, change -> Mono.empty()).block();
+
+        stub.publish(KEY, "replicas: 3\n");
+
+        assertEquals(1, hub.stats().subscriptions());
+        assertEquals(0, hub.unsubscribe(closed, null));
+    }
+
+    @Test
+    public void subscriptionsPerSessionAreCapped() {
+        properties.setMaxKeysPerSession(2);
+        Object session = new Object();
+        List<ConfigKey> keys = List.of(KEY, new ConfigKey("a.yaml", "DEFAULT_GROUP", "dev-id"), new ConfigKey("b.yaml", "DEFAULT_GROUP", "dev-id"));
+
+        assertThrows(IllegalArgumentException.class, () -> hub.subscribe(session, keys, false, change -> Mono.empty()).block());
+        assertEquals(2, hub.subscribe(session, keys.subList(0, 2), false, change -> Mono.empty()).block().size());
+    }
+
+    @Test
+    public void expiredSubscriptionsAreRemoved() throws InterruptedException {
+        hub.close();
+        properties.setTtl(Duration.ofMillis(50));
+        properties.setCleanupInterval(Duration.ofMillis(20));
+        hub = new ConfigWatchHub(stub, properties, key -> Mono.empty());
+        List<ConfigWatchHub.Watched> watched = hub.subscribe(new Object(), List.of(KEY), false, change -> Mono.empty()).block();
+        assertEquals("", watched.get(0).md5());
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (hub.stats().topics() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, hub.stats().topics());
+        assertEquals(0, stub.watchCount());
+    }
+}
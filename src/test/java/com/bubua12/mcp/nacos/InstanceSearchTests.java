@@ -0,0 +1,220 @@
+package com.bubua12.mcp.nacos;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.InstanceIndex;
+import com.bubua12.mcp.nacos.service.InstanceSearchIndex;
+import com.bubua12.mcp.nacos.service.InstanceSelector;
+import com.bubua12.mcp.nacos.service.InstanceWatcher;
+import com.bubua12.mcp.nacos.service.NacosInstanceWatcher;
+import com.bubua12.mcp.nacos.service.NacosMCPService;
+import com.bubua12.mcp.nacos.service.NamingServices;
+import com.bubua12.mcp.nacos.service.PagedFetcher;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import com.bubua12.mcp.nacos.support.FakeNamingService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 按 IP 反查实例：跨服务的 IP、网段、集群、元数据、健康状态查询，实例变更推送增量更新，首次构建等待推送通道建立
+ *
+ * @author bubua12
+ * @since 2026/10/18 04:00
+ */
+public class InstanceSearchTests {
+
+    private static final InstanceSearchIndex.Scope SCOPE = new InstanceSearchIndex.Scope("dev-id", "DEFAULT_GROUP");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Consumer<List<Instance>>> callbacks = new ConcurrentHashMap<>();
+    private final InstanceWatcher watcher = new InstanceWatcher() {
+        @Override
+        public Mono<Boolean> isConnected(String namespaceId) {
+            return Mono.just(true);
+        }
+
+        @Override
+        public Mono<Disposable> watch(String namespaceId, String group, String serviceName, Consumer<List<Instance>> onChange) {
+            callbacks.put(serviceName, onChange);
+            return Mono.just(() -> callbacks.remove(serviceName, onChange));
+        }
+    };
+    private final NacosProperties.InstanceSearch properties = new NacosProperties.InstanceSearch();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final InstanceSearchIndex index = new InstanceSearchIndex(watcher, properties,
+            (scope, limit) -> Mono.fromSupplier(() -> {
+                List<JsonNode> services = List.of(objectMapper.valueToTree("service-order"),
+                        objectMapper.valueToTree("service-user"), objectMapper.valueToTree("gateway"));
+                return new PagedFetcher.Result<>(services.size(), services, false);
+            }),
+            (scope, serviceName) -> Mono.fromSupplier(() -> {
+                loads.incrementAndGet();
+                return switch (serviceName) {
+                    case "service-order" -> List.of(host("10.0.3.17", 8080, true, "DEFAULT", "az1"),
+                            host("10.0.3.18", 8080, false, "DEFAULT", "az2"));
+                    case "service-user" -> List.of(host("10.0.3.17", 8081, true, "DEFAULT", "az1"),
+                            host("10.0.4.20", 8081, true, "BACKUP", "az1"));
+                    default -> List.of(host("10.0.3.17", 80, true, "DEFAULT", "az1"));
+                };
+            }));
+
+    @AfterEach
+    public void tearDown() {
+        index.close();
+    }
+
+    @Test
+    public void instancesAreFoundAcrossServices() {
+        InstanceSearchIndex.Result byIp = index.find(SCOPE, new InstanceSelector(List.of("10.0.3.17"), null, null, null), null, 10).block();
+        assertEquals(3, byIp.matched());
+        assertEquals(List.of("gateway", "service-order", "service-user"),
+                byIp.hits().stream().map(InstanceIndex.Hit::serviceName).toList());
+        assertEquals(3, byIp.indexedServices());
+        assertEquals(5, byIp.instances());
+        assertEquals(3, byIp.distinctIps());
+        assertTrue(byIp.indexBytes() > 0);
+        assertTrue(byIp.live());
+
+        InstanceSearchIndex.Result unhealthy = index.find(SCOPE, new InstanceSelector(null, "10.0.3.0/24", null, null), false, 10).block();
+        assertEquals(1, unhealthy.matched());
+        assertEquals("10.0.3.18", unhealthy.hits().get(0).ip());
+        assertEquals("az2", unhealthy.hits().get(0).metadata().get("zone"));
+
+        InstanceSearchIndex.Result backup = index.find(SCOPE, new InstanceSelector(null, null, "BACKUP", Map.of("zone", "az1")), null, 10).block();
+        assertEquals(1, backup.matched());
+        assertEquals(8081, backup.hits().get(0).port());
+
+        InstanceSearchIndex.Result limited = index.find(SCOPE, null, true, 2).block();
+        assertEquals(4, limited.matched());
+        assertEquals(2, limited.hits().size());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void pushedChangesReplaceServiceInstances() {
+        InstanceSelector moved = new InstanceSelector(List.of("10.0.5.1"), null, null, null);
+        assertEquals(0, index.find(SCOPE, moved, null, 10).block().matched());
+        assertEquals(3, callbacks.size());
+
+        Instance instance = new Instance();
+        instance.setIp("10.0.5.1");
+        instance.setPort(8080);
+        instance.setClusterName("DEFAULT");
+        callbacks.get("service-order").accept(List.of(instance));
+
+        assertEquals(1, index.find(SCOPE, moved, null, 10).block().matched());
+        InstanceSearchIndex.Result old = index.find(SCOPE, new InstanceSelector(List.of("10.0.3.18"), null, null, null), null, 10).block();
+        assertEquals(0, old.matched());
+        assertEquals(3, old.distinctIps());
+        assertEquals(4, old.instances());
+        assertEquals(1, index.stats().updates());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void firstBuildWaitsForNamingService() throws Exception {
+        FakeNamingService naming = new FakeNamingService();
+        CountDownLatch created = new CountDownLatch(1);
+        NamingServices namingServices = new NamingServices(namespaceId -> {
+            await(created);
+            return naming.namingService();
+        });
+        InstanceSearchIndex slow = new InstanceSearchIndex(new NacosInstanceWatcher(namingServices, Duration.ofSeconds(5)), properties,
+                (scope, limit) -> Mono.just(new PagedFetcher.Result<>(1, List.of(objectMapper.valueToTree("service-order")), false)),
+                (scope, serviceName) -> Mono.just(List.of(host("10.0.3.17", 8080, true, "DEFAULT", "az1"))));
+        try {
+            // NamingService 还在创建时，首次构建等待它建立完成后订阅
+            CompletableFuture<InstanceSearchIndex.Result> first = slow.find(SCOPE, null, null, 10).toFuture();
+            Thread.sleep(200);
+            assertFalse(first.isDone());
+            created.countDown();
+            assertTrue(first.get(5, TimeUnit.SECONDS).live());
+            assertEquals(1, naming.listenerCount("service-order"));
+        } finally {
+            slow.close();
+            namingServices.close();
+        }
+
+        CountDownLatch never = new CountDownLatch(1);
+        NamingServices hanging = new NamingServices(namespaceId -> {
+            await(never);
+            return naming.namingService();
+        });
+        InstanceSearchIndex timedOut = new InstanceSearchIndex(new NacosInstanceWatcher(hanging, Duration.ofMillis(100)), properties,
+                (scope, limit) -> Mono.just(new PagedFetcher.Result<>(1, List.of(objectMapper.valueToTree("service-order")), false)),
+                (scope, serviceName) -> Mono.just(List.of(host("10.0.3.17", 8080, true, "DEFAULT", "az1"))));
+        try {
+            assertFalse(timedOut.find(SCOPE, null, null, 10).block(Duration.ofSeconds(5)).live());
+        } finally {
+            never.countDown();
+            timedOut.close();
+            hanging.close();
+        }
+    }
+
+    @Test
+    public void indexIsBuiltFromRegistryOnce() {
+        try (FakeNacosServer server = new FakeNacosServer(Duration.ofMillis(1)).services(300).instances(20)) {
+            NacosMCPService nacosService = new NacosMCPService(server.properties());
+            try {
+                String byIp = nacosService.findInstances("dev", null, new InstanceSelector(List.of("10.0.0.3"), null, null, null),
+                        null, 1000, null).block(Duration.ofSeconds(30));
+                assertTrue(byIp.contains("indexedServices: 300"), byIp);
+                assertTrue(byIp.contains("indexedInstances: 6000"), byIp);
+                assertTrue(byIp.contains("distinctIps: 20"), byIp);
+                assertTrue(byIp.contains("matched: 300"), byIp);
+                assertTrue(byIp.contains("live: false"), byIp);
+
+                String byVersion = nacosService.findInstances("dev", null, new InstanceSelector(null, null, null, Map.of("version", "1.0.3")),
+                        true, 5, "ip,serviceName").block(Duration.ofSeconds(30));
+                assertTrue(byVersion.contains("matched: 600"), byVersion);
+                assertTrue(byVersion.contains("\nip|serviceName\n"), byVersion);
+                assertEquals(5, byVersion.lines().filter(line -> line.startsWith("10.0.0.")).count());
+                assertEquals(300, server.requestCount("/nacos/v2/ns/instance/list"));
+            } finally {
+                nacosService.destroy();
+            }
+        }
+    }
+
+    /**
+     * 由测试放行的 NamingService 创建，放行前一直阻塞
+     */
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private JsonNode host(String ip, int port, boolean healthy, String clusterName, String zone) {
+        return objectMapper.createObjectNode()
+                .put("ip", ip)
+                .put("port", port)
+                .put("weight", 1.0)
+                .put("healthy", healthy)
+                .put("enabled", true)
+                .put("ephemeral", true)
+                .put("clusterName", clusterName)
+                .set("metadata", objectMapper.createObjectNode().put("zone", zone));
+    }
+}
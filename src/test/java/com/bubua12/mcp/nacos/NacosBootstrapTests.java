@@ -0,0 +1,82 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.config.NacosHealthIndicator;
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.NacosBootstrap;
+import com.bubua12.mcp.nacos.service.NacosMCPService;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 启动时在后台连接 Nacos，readiness 单独上报
+ *
+ * @author bubua12
+ * @since 2026/10/18 01:20
+ */
+public class NacosBootstrapTests {
+
+    @Test
+    public void initReturnsBeforeLoginAndReadinessFollows() {
+        try (FakeNacosServer fakeNacos = new FakeNacosServer(Duration.ofMillis(300))) {
+            NacosMCPService nacosService = new NacosMCPService(fakeNacos.properties());
+            NacosHealthIndicator indicator = new NacosHealthIndicator(nacosService);
+            try {
+                nacosService.init();
+                assertEquals(NacosBootstrap.State.STARTING, nacosService.bootstrap().status().state());
+                assertEquals(Status.OUT_OF_SERVICE, indicator.health().block().getStatus());
+
+                await(() -> nacosService.bootstrap().isReady());
+                Health health = indicator.health().block();
+                assertEquals(Status.UP, health.getStatus());
+                assertEquals(NacosBootstrap.State.READY, health.getDetails().get("state"));
+                assertEquals(1, fakeNacos.loginCount());
+            } finally {
+                nacosService.destroy();
+            }
+        }
+    }
+
+    @Test
+    public void unreachableNacosIsRetriedAndReportedDown() {
+        NacosProperties properties;
+        try (FakeNacosServer fakeNacos = new FakeNacosServer(Duration.ofMillis(5))) {
+            properties = fakeNacos.properties();
+        }
+        properties.getHttp().setMaxRetries(0);
+        properties.getBootstrap().setRetryBackoff(Duration.ofMillis(20));
+        properties.getBootstrap().setMaxRetryBackoff(Duration.ofMillis(50));
+        NacosMCPService nacosService = new NacosMCPService(properties);
+        try {
+            nacosService.init();
+            await(() -> nacosService.bootstrap().status().attempts() >= 3);
+
+            assertFalse(nacosService.bootstrap().isReady());
+            assertEquals(NacosBootstrap.State.UNAVAILABLE, nacosService.bootstrap().status().state());
+            assertEquals(Status.DOWN, new NacosHealthIndicator(nacosService).health().block().getStatus());
+        } finally {
+            nacosService.destroy();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "等待超时");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.NacosClusterBalancer;
+import com.bubua12.mcp.nacos.service.NacosHttpClient;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 集群负载均衡：读请求分摊到各节点，宕机节点被摘除，慢节点由对冲请求兜底
+ *
+ * @author bubua12
+ * @since 2026/10/17 20:45
+ */
+public class NacosClusterBalancerTests {
+
+    private static final String CONFIG = "/nacos/v2/cs/config";
+
+    private FakeNacosServer nodeA;
+    private FakeNacosServer nodeB;
+    private NacosHttpClient httpClient;
+
+    @AfterEach
+    public void tearDown() {
+        if (httpClient != null) {
+            httpClient.close();
+            nodeA.close();
+            nodeB.close();
+        }
+    }
+
+    @Test
+    public void seedWithoutPortUsesSchemeDefault() {
+        NacosProperties.Cluster cluster = new NacosProperties.Cluster();
+        assertEquals("nacos.example.com:443", new NacosClusterBalancer(cluster, "https://nacos.example.com", null).nodeStats().get(0).address());
+        assertEquals("nacos.example.com:80", new NacosClusterBalancer(cluster, "http://nacos.example.com", null).nodeStats().get(0).address());
+        assertEquals("10.0.0.1:8848", new NacosClusterBalancer(cluster, "http://10.0.0.1:8848", null).nodeStats().get(0).address());
+    }
+
+    @Test
+    public void readsAreSpreadAcrossNodes() {
+        start(Duration.ofMillis(20), Duration.ofMillis(20), null);
+
+        for (int i = 0; i < 40; i++) {
+            assertTrue(get().startsWith("{"));
+        }
+        assertTrue(nodeA.requestCount(CONFIG) > 0);
+        assertTrue(nodeB.requestCount(CONFIG) > 0);
+    }
+
+    @Test
+    public void failedNodeIsEjected() {
+        start(Duration.ofMillis(10), Duration.ofMillis(10), null);
+        nodeB.close();
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(get().startsWith("{"));
+        }
+        NacosClusterBalancer.NodeStats b = httpClient.nodeStats().stream()
+                .filter(node -> nodeB.baseUrl().endsWith("//" + node.address()))
+                .findFirst().orElseThrow();
+        assertTrue(b.ejected());
+    }
+
+    @Test
+    public void slowReadIsHedged() {
+        start(Duration.ofMillis(800), Duration.ofMillis(10), Duration.ofMillis(50));
+
+        for (int i = 0; i < 10; i++) {
+            long start = System.nanoTime();
+            get();
+            assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofMillis(500)) < 0);
+        }
+    }
+
+    @Test
+    public void losingHedgeReleasesConnection() {
+        // 两个节点几乎同时返回，落败的响应不释放时每个节点 2 个连接很快耗尽
+        start(Duration.ofMillis(20), Duration.ofMillis(20), Duration.ofMillis(1), 2);
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(get().startsWith("{"));
+        }
+    }
+
+    private void start(Duration latencyA, Duration latencyB, Duration hedgeDelay) {
+        start(latencyA, latencyB, hedgeDelay, new NacosProperties.Http().getMaxConnections());
+    }
+
+    private void start(Duration latencyA, Duration latencyB, Duration hedgeDelay, int maxConnections) {
+        nodeA = new FakeNacosServer(latencyA);
+        nodeB = new FakeNacosServer(latencyB);
+        nodeA.clusterMembers(nodeA, nodeB);
+        NacosProperties properties = nodeA.properties();
+        properties.getCluster().setEnabled(true);
+        properties.getCluster().setFailureThreshold(1);
+        properties.getCluster().setProbeInterval(Duration.ofMinutes(1));
+        properties.getCluster().setHedgeDelay(hedgeDelay);
+        properties.getHttp().setRetryBackoff(Duration.ofMillis(10));
+        properties.getHttp().setMaxConnections(maxConnections);
+        properties.getHttp().setPendingAcquireTimeout(Duration.ofMillis(500));
+        httpClient = new NacosHttpClient(properties);
+        httpClient.startDiscovery(() -> Mono.just("token"));
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (httpClient.nodeStats().size() < 2 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(2, httpClient.nodeStats().size());
+    }
+
+    private String get() {
+        return httpClient.webClient().get().uri(CONFIG).retrieve().bodyToMono(String.class).block(Duration.ofSeconds(10));
+    }
+}
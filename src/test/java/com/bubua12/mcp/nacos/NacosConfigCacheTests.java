@@ -0,0 +1,129 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.ConfigKey;
+import com.bubua12.mcp.nacos.service.NacosConfigCache;
+import com.bubua12.mcp.nacos.service.NacosResponse;
+import com.bubua12.mcp.nacos.support.StubConfigWatcher;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 配置缓存：命中、变更失效、加载期间的变更、容量淘汰、推送不可用时直通
+ *
+ * @author bubua12
+ * @since 2026/10/17 14:50
+ */
+public class NacosConfigCacheTests {
+
+    private static final ConfigKey COMMON = new ConfigKey("common.properties", "order", "dev-id");
+
+    private final StubConfigWatcher watcher = new StubConfigWatcher();
+    private final NacosProperties.ConfigCache properties = new NacosProperties.ConfigCache();
+    private final NacosConfigCache cache = new NacosConfigCache(watcher, properties);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void repeatedReadsAreServedLocally() {
+        for (int i = 0; i < 5; i++) {
+            assertEquals("v1", cache.get(COMMON, loader("v1")).block().body());
+        }
+        assertEquals(1, loads.get());
+        assertEquals(4, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    public void changeNotificationInvalidates() {
+        cache.get(COMMON, loader("v1")).block();
+        watcher.publish(COMMON, "v2");
+
+        assertEquals("v2", cache.get(COMMON, loader("v2")).block().body());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void changeDuringLoadIsNotCached() {
+        // 加载期间到达的变更通知：本次结果照常返回，但不写入缓存
+        Mono<NacosResponse> racing = Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            watcher.publish(COMMON, "v2");
+            return new NacosResponse(HttpStatus.OK, "v1");
+        });
+        assertEquals("v1", cache.get(COMMON, racing).block().body());
+        assertEquals(0, cache.stats().entries());
+
+        assertEquals("v2", cache.get(COMMON, loader("v2")).block().body());
+        assertEquals(1, cache.stats().entries());
+    }
+
+    @Test
+    public void initialNotificationWithSameContentIsIgnored() {
+        // nacos-client 为新监听补发当前内容：加载期间或写入缓存之后到达都不影响缓存
+        String body = "{\"code\":0,\"message\":\"success\",\"data\":\"k=v1\"}";
+        Mono<NacosResponse> notifiedDuringLoad = Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            watcher.publish(COMMON, "k=v1");
+            return new NacosResponse(HttpStatus.OK, body);
+        });
+        cache.get(COMMON, notifiedDuringLoad).block();
+        assertEquals(1, cache.stats().entries());
+
+        watcher.publish(COMMON, "k=v1");
+        assertEquals(body, cache.get(COMMON, loader(body)).block().body());
+        assertEquals(1, loads.get());
+
+        watcher.publish(COMMON, "k=v2");
+        assertEquals(0, cache.stats().entries());
+    }
+
+    @Test
+    public void unrelatedChangeDuringLoadIsCached() {
+        ConfigKey other = new ConfigKey("other.properties", "order", "dev-id");
+        Mono<NacosResponse> racing = Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            cache.invalidate(other);
+            return new NacosResponse(HttpStatus.OK, "v1");
+        });
+        cache.get(COMMON, racing).block();
+        cache.get(COMMON, loader("v1")).block();
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().hits());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedBeyondCapacity() {
+        properties.setMaxBytes(DataSize.ofBytes(1024));
+        ConfigKey other = new ConfigKey("other.properties", "order", "dev-id");
+        String large = "x".repeat(300);
+        cache.get(COMMON, loader(large)).block();
+        cache.get(other, loader(large)).block();
+
+        assertEquals(1, cache.stats().entries());
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    public void bypassesCacheWhenPushChannelIsDown() {
+        watcher.setConnected(false);
+        cache.get(COMMON, loader("v1")).block();
+        cache.get(COMMON, loader("v1")).block();
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.stats().entries());
+    }
+
+    private Mono<NacosResponse> loader(String body) {
+        return Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return new NacosResponse(HttpStatus.OK, body);
+        });
+    }
+}
@@ -0,0 +1,88 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.NacosHttpClient;
+import com.bubua12.mcp.nacos.service.NacosMCPService;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HTTP 传输层：卡住的节点按超时失败，只有 GET 会重试，大响应不受默认 256KB 缓冲限制
+ *
+ * @author bubua12
+ * @since 2026/10/17 19:55
+ */
+public class NacosHttpClientTests {
+
+    private static final String STALLED = "/nacos/v2/cs/config/stalled";
+
+    private FakeNacosServer fakeNacos;
+    private NacosHttpClient httpClient;
+
+    @BeforeEach
+    public void setUp() {
+        fakeNacos = new FakeNacosServer(Duration.ofMillis(10));
+        fakeNacos.stall(STALLED);
+        NacosProperties properties = fakeNacos.properties();
+        properties.getHttp().setResponseTimeout(Duration.ofMillis(200));
+        properties.getHttp().setMaxRetries(2);
+        properties.getHttp().setRetryBackoff(Duration.ofMillis(10));
+        httpClient = new NacosHttpClient(properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        httpClient.close();
+        fakeNacos.close();
+    }
+
+    @Test
+    public void stalledGetTimesOutAfterRetries() {
+        long start = System.nanoTime();
+        assertThrows(WebClientRequestException.class, () -> httpClient.webClient().get()
+                .uri(STALLED)
+                .retrieve()
+                .bodyToMono(String.class)
+                .block(Duration.ofSeconds(10)));
+
+        assertEquals(3, fakeNacos.requestCount(STALLED));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(5)) < 0);
+    }
+
+    @Test
+    public void stalledPutIsNotRetried() {
+        assertThrows(WebClientRequestException.class, () -> httpClient.webClient().put()
+                .uri(STALLED)
+                .retrieve()
+                .bodyToMono(String.class)
+                .block(Duration.ofSeconds(10)));
+
+        assertEquals(1, fakeNacos.requestCount(STALLED));
+    }
+
+    @Test
+    public void largeConfigIsReadAndPoolIsReported() {
+        NacosMCPService nacosService = new NacosMCPService(fakeNacos.properties());
+        try {
+            String result = nacosService.getConfig("large-1048576", "DEFAULT_GROUP", null, null, null).block(Duration.ofSeconds(10));
+            assertTrue(result.startsWith("HTTP 200"));
+            assertTrue(result.length() > 1024 * 1024);
+        } finally {
+            nacosService.destroy();
+        }
+
+        httpClient.webClient().get().uri("/nacos/v2/cs/config").retrieve().bodyToMono(String.class).block(Duration.ofSeconds(10));
+        assertFalse(httpClient.poolStats().isEmpty());
+        assertEquals(64, httpClient.poolStats().get(0).maxAllocated());
+    }
+}
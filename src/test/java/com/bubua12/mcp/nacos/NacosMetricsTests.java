@@ -0,0 +1,72 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.config.ReactiveToolSpecifications;
+import com.bubua12.mcp.nacos.service.NacosMCPService;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 指标：工具调用、Nacos 接口、登录和 namespace 刷新都被计时
+ *
+ * @author bubua12
+ * @since 2026/10/17 21:20
+ */
+public class NacosMetricsTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private FakeNacosServer fakeNacos;
+    private NacosMCPService nacosService;
+
+    @BeforeEach
+    public void setUp() {
+        fakeNacos = new FakeNacosServer(Duration.ofMillis(20));
+        nacosService = new NacosMCPService(fakeNacos.properties(), registry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        nacosService.destroy();
+        fakeNacos.close();
+    }
+
+    @Test
+    public void upstreamAndRefreshesAreTimed() {
+        nacosService.getConfig("common.properties", "order", "dev", null, null).block(Duration.ofSeconds(10));
+        nacosService.getConfig("common.properties", "order", "dev", null, null).block(Duration.ofSeconds(10));
+
+        assertEquals(2, registry.get("nacos.upstream.requests")
+                .tags("endpoint", "/nacos/v2/cs/config", "method", "GET", "status", "200", "outcome", "SUCCESS")
+                .timer().count());
+        assertEquals(1, registry.get("nacos.token.refresh").tag("outcome", "success").timer().count());
+        assertEquals(1, registry.get("nacos.namespace.reload").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    public void toolCallsAreTimed() {
+        List<McpServerFeatures.AsyncToolSpecification> tools = ReactiveToolSpecifications.from(registry, nacosService);
+        McpServerFeatures.AsyncToolSpecification getConfig = tools.stream()
+                .filter(tool -> tool.tool().name().equals("getConfig"))
+                .findFirst().orElseThrow();
+
+        McpSchema.CallToolResult result = getConfig.call().apply(null, Map.of()).block(Duration.ofSeconds(10));
+
+        assertFalse(Boolean.TRUE.equals(result.isError()));
+        assertEquals(1, registry.get("nacos.mcp.tool").tags("tool", "getConfig", "status", "200", "outcome", "SUCCESS")
+                .timer().count());
+        assertEquals(0, registry.get("nacos.mcp.tool.inflight").gauge().value());
+        assertTrue(registry.get("nacos.mcp.tool.first.success").timeGauge().value() > 0);
+    }
+}
@@ -0,0 +1,68 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.NacosMCPService;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 并发压测：工具调用全程非阻塞，并发度取决于连接数而不是线程数
+ *
+ * @author bubua12
+ * @since 2026/10/17 10:45
+ */
+public class NacosServiceLoadTests {
+
+    private static final Duration LATENCY = Duration.ofMillis(300);
+
+    /**
+     * 不超过 Reactor Netty 默认连接池的最小连接数（16）
+     */
+    private static final int CONCURRENCY = 16;
+
+    private static FakeNacosServer fakeNacos;
+    private static NacosMCPService nacosService;
+
+    @BeforeAll
+    public static void setUp() {
+        fakeNacos = new FakeNacosServer(LATENCY);
+        NacosProperties properties = fakeNacos.properties();
+        // 每个调用都要真正打到 Nacos，关闭相同调用的合并
+        properties.getCoalesce().setEnabled(false);
+        nacosService = new NacosMCPService(properties);
+        nacosService.getConfig("common.properties", "order", "dev", null, null).block();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        fakeNacos.close();
+    }
+
+    @Test
+    public void concurrentCallsOverlapOnEventLoop() {
+        long start = System.nanoTime();
+        // parallel 调度器上的线程禁止 block()，链路里任何阻塞调用都会直接报错
+        List<String> results = Flux.range(0, CONCURRENCY)
+                .flatMap(i -> nacosService.getConfig("common.properties", "order", "dev", null, null)
+                        .subscribeOn(Schedulers.parallel()), CONCURRENCY)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertEquals(CONCURRENCY, results.size());
+        results.forEach(result -> assertTrue(result.startsWith("HTTP 200")));
+        // 串行需要 CONCURRENCY * LATENCY，重叠执行应接近单次延迟
+        assertTrue(elapsed.compareTo(LATENCY.multipliedBy(3)) < 0,
+                "并发调用未重叠执行，耗时 " + elapsed.toMillis() + "ms");
+    }
+}
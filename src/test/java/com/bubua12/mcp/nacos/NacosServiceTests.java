@@ -19,12 +19,12 @@ public class NacosServiceTests {
 
     @Test
     public void test01() {
-        System.out.println(nacosService.getConfig("common.properties", "order", "dev"));
+        System.out.println(nacosService.getConfig("common.properties", "order", "dev", null, null).block());
     }
 
     @Test
     public void test02() {
-        String json = JSON.toJSONString(nacosService.getConfigHistory("common.properties", "order", "dev"));
+        String json = JSON.toJSONString(nacosService.getConfigHistory("common.properties", "order", "dev", null).block());
         System.out.println();
         System.out.println(json);
     }
@@ -32,12 +32,12 @@ public class NacosServiceTests {
     @Test
     public void test03() {
         System.out.println();
-        System.out.println(nacosService.listConfigsByNamespace("dev"));
+        System.out.println(nacosService.listConfigsByNamespace("dev", null, null, null).block());
     }
 
     @Test
     public void test04() {
-        System.out.println(nacosService.getCurrentNodeHealth());
+        System.out.println(nacosService.getCurrentNodeHealth().block());
     }
 }
 
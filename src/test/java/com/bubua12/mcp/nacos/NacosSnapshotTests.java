@@ -0,0 +1,159 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.NacosMCPService;
+import com.bubua12.mcp.nacos.service.NacosResponse;
+import com.bubua12.mcp.nacos.service.NacosSnapshot;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 本地快照：重启恢复、压缩、残缺记录截断、LRU 淘汰，Nacos 不可达时返回过期快照
+ *
+ * @author bubua12
+ * @since 2026/10/18 00:40
+ */
+public class NacosSnapshotTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void entriesSurviveRestartAndFileIsCompacted() {
+        NacosSnapshot first = open(100);
+        first.put("a", "v1");
+        first.put("a", "v2");
+        first.put("b", "v3");
+        first.remove("b");
+        first.put("a", "v2");
+        first.close();
+        assertEquals(4, first.stats().writes());
+        assertEquals(1, first.stats().compactions());
+
+        NacosSnapshot second = open(100);
+        assertEquals("v2", second.get("a").body());
+        assertNull(second.get("b"));
+        assertEquals(1, second.stats().entries());
+        second.close();
+        assertEquals(0, second.stats().compactions());
+    }
+
+    @Test
+    public void tornTailIsTruncated() throws Exception {
+        NacosSnapshot first = open(100);
+        first.put("a", "配置内容");
+        first.put("b", "key=value");
+        first.close();
+        long size = Files.size(file());
+
+        Files.write(file(), new byte[]{0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+        NacosSnapshot second = open(100);
+        assertEquals("配置内容", second.get("a").body());
+        assertEquals("key=value", second.get("b").body());
+        assertEquals(size, second.stats().fileBytes());
+        second.close();
+    }
+
+    @Test
+    public void leastRecentlyReadEntriesAreEvicted() {
+        NacosSnapshot first = open(2);
+        first.put("a", "1");
+        first.put("b", "2");
+        first.get("a");
+        first.put("c", "3");
+        first.close();
+
+        NacosSnapshot second = open(2);
+        assertEquals("1", second.get("a").body());
+        assertNull(second.get("b"));
+        assertEquals("3", second.get("c").body());
+        second.close();
+    }
+
+    @Test
+    public void readThroughFallsBackToStaleSnapshot() {
+        NacosSnapshot snapshot = open(100);
+        NacosResponse fresh = snapshot.readThrough("k", Mono.just(new NacosResponse(HttpStatus.OK, "{\"data\":\"v\"}"))).block();
+        assertFalse(fresh.isStale());
+
+        NacosResponse stale = snapshot.readThrough("k", Mono.error(new IllegalStateException("Connection refused"))).block();
+        assertTrue(stale.isStale());
+        assertEquals("{\"data\":\"v\"}", stale.body());
+        assertTrue(stale.toText().startsWith("HTTP 200 OK STALE snapshotAt="));
+        assertTrue(snapshot.readThrough("k", Mono.just(new NacosResponse(HttpStatus.SERVICE_UNAVAILABLE, ""))).block().isStale());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> snapshot.readThrough("k", Mono.error(new IllegalArgumentException("未知 namespace 名称"))).block());
+        assertThrows(IllegalStateException.class,
+                () -> snapshot.readThrough("other", Mono.error(new IllegalStateException("Connection refused"))).block());
+
+        snapshot.readThrough("k", Mono.just(new NacosResponse(HttpStatus.NOT_FOUND, "config data not exist"))).block();
+        assertNull(snapshot.get("k"));
+        assertEquals(2, snapshot.stats().staleReads());
+        snapshot.close();
+    }
+
+    @Test
+    public void warmStartServesSnapshotWhileNacosIsDown() {
+        NacosProperties properties;
+        try (FakeNacosServer fakeNacos = new FakeNacosServer(Duration.ofMillis(5))) {
+            properties = fakeNacos.properties();
+            properties.getSnapshot().setEnabled(true);
+            properties.getSnapshot().setPath(file().toString());
+            properties.getHttp().setMaxRetries(0);
+            NacosMCPService nacosService = new NacosMCPService(properties);
+            nacosService.init();
+            assertEquals("HTTP 200 OK\nkey=value", nacosService.getConfig("common.properties", "order", "dev", null, null).block(Duration.ofSeconds(10)));
+            nacosService.destroy();
+        }
+
+        NacosMCPService restarted = new NacosMCPService(properties);
+        try {
+            restarted.init();
+            String result = restarted.getConfig("common.properties", "order", "dev", null, null).block(Duration.ofSeconds(10));
+            assertTrue(result.startsWith("HTTP 200 OK STALE snapshotAt="), result);
+            assertTrue(result.endsWith("\nkey=value"), result);
+        } finally {
+            restarted.destroy();
+        }
+    }
+
+    @Test
+    public void snapshotFileIsOwnerOnly() throws Exception {
+        Assumptions.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        NacosSnapshot snapshot = open(100);
+        snapshot.put("a", "password=secret");
+        snapshot.close();
+
+        assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(file()));
+    }
+
+    private NacosSnapshot open(int maxEntries) {
+        NacosProperties.Snapshot properties = new NacosProperties.Snapshot();
+        properties.setEnabled(true);
+        properties.setPath(file().toString());
+        properties.setMaxEntries(maxEntries);
+        return new NacosSnapshot(properties);
+    }
+
+    private Path file() {
+        return dir.resolve("snapshot.bin");
+    }
+}
@@ -0,0 +1,91 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.NacosMCPService;
+import com.bubua12.mcp.nacos.service.NacosTokenManager;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * token 刷新：并发调用合并为一次登录，403 后透明重登重试
+ *
+ * @author bubua12
+ * @since 2026/10/17 11:40
+ */
+public class NacosTokenManagerTests {
+
+    private FakeNacosServer fakeNacos;
+
+    @BeforeEach
+    public void setUp() {
+        fakeNacos = new FakeNacosServer(Duration.ofMillis(100));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        fakeNacos.close();
+    }
+
+    @Test
+    public void concurrentCallersShareOneLogin() {
+        NacosTokenManager tokenManager = new NacosTokenManager(WebClient.create(fakeNacos.baseUrl()), "nacos", "nacos");
+
+        List<String> tokens = Flux.range(0, 64)
+                .flatMap(i -> tokenManager.getToken())
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(1, fakeNacos.loginCount());
+        assertTrue(tokens.stream().allMatch("fake-token-1"::equals));
+        tokenManager.close();
+    }
+
+    @Test
+    public void shortTtlDoesNotLoopLogins() throws Exception {
+        fakeNacos.tokenTtl(30);
+        NacosTokenManager tokenManager = new NacosTokenManager(WebClient.create(fakeNacos.baseUrl()), "nacos", "nacos");
+        try {
+            tokenManager.getToken().block(Duration.ofSeconds(10));
+            Thread.sleep(500);
+
+            // 有效期短于 60 秒余量时，token 既不能一拿到就过期，也不能立即触发后台刷新
+            List<String> tokens = Flux.range(0, 16)
+                    .flatMap(i -> tokenManager.getToken())
+                    .collectList()
+                    .block(Duration.ofSeconds(10));
+            assertEquals(1, fakeNacos.loginCount());
+            assertTrue(tokens.stream().allMatch("fake-token-1"::equals));
+        } finally {
+            tokenManager.close();
+        }
+    }
+
+    @Test
+    public void revokedTokenIsRefreshedOnceAndRetried() {
+        NacosProperties properties = fakeNacos.properties();
+        // 16 个调用各自携带失效 token 打到 Nacos，关闭相同调用的合并
+        properties.getCoalesce().setEnabled(false);
+        NacosMCPService nacosService = new NacosMCPService(properties);
+        nacosService.getCurrentNodeHealth().block();
+        fakeNacos.revokeIssuedTokens();
+
+        List<String> results = Flux.range(0, 16)
+                .flatMap(i -> nacosService.getCurrentNodeHealth())
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(2, fakeNacos.loginCount());
+        results.forEach(result -> assertTrue(result.startsWith("HTTP 200"), result));
+        nacosService.destroy();
+    }
+}
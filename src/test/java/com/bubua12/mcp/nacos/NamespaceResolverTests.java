@@ -0,0 +1,74 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.NacosTokenManager;
+import com.bubua12.mcp.nacos.service.NamespaceResolver;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * namespace 解析：按名称或 ID 解析、合并刷新、负缓存
+ *
+ * @author bubua12
+ * @since 2026/10/17 13:40
+ */
+public class NamespaceResolverTests {
+
+    private static final String NAMESPACES = "/nacos/v1/console/namespaces";
+
+    private FakeNacosServer fakeNacos;
+    private NacosTokenManager tokenManager;
+    private NamespaceResolver resolver;
+
+    @BeforeEach
+    public void setUp() {
+        fakeNacos = new FakeNacosServer(Duration.ofMillis(50));
+        WebClient webClient = WebClient.create(fakeNacos.baseUrl());
+        tokenManager = new NacosTokenManager(webClient, "nacos", "nacos");
+        resolver = new NamespaceResolver(webClient, tokenManager, new NacosProperties.Namespace());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        tokenManager.close();
+        fakeNacos.close();
+    }
+
+    @Test
+    public void resolvesByNameAndId() {
+        assertEquals("dev-id", resolver.resolve("dev").block());
+        assertEquals("dev-id", resolver.resolve("dev-id").block());
+        assertEquals("", resolver.resolve("public").block());
+        assertEquals(1, fakeNacos.requestCount(NAMESPACES));
+    }
+
+    @Test
+    public void concurrentLookupsShareOneRefresh() {
+        List<String> ids = Flux.range(0, 32)
+                .flatMap(i -> resolver.resolve("dev"))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(32, ids.size());
+        assertEquals(1, fakeNacos.requestCount(NAMESPACES));
+    }
+
+    @Test
+    public void repeatedUnknownNameIsAnsweredFromMissCache() {
+        resolver.resolve("dev").block();
+        for (int i = 0; i < 10; i++) {
+            assertThrows(IllegalArgumentException.class, () -> resolver.resolve("dve").block());
+        }
+        assertEquals(2, fakeNacos.requestCount(NAMESPACES));
+    }
+}
@@ -0,0 +1,64 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.service.PagedFetcher;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分页拉取：按页序合并、并发受限、达到 limit 后停止拉取
+ *
+ * @author bubua12
+ * @since 2026/10/17 16:50
+ */
+public class PagedFetcherTests {
+
+    private static final int TOTAL = 1050;
+    private static final int PAGE_SIZE = 100;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final AtomicInteger maxInflight = new AtomicInteger();
+    private final AtomicInteger loadedPages = new AtomicInteger();
+
+    @Test
+    public void mergesAllPagesInOrderWithBoundedConcurrency() {
+        PagedFetcher.Result<Integer> result = PagedFetcher.fetch(this::page, PAGE_SIZE, 3, i -> true, 5000)
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(TOTAL, result.totalCount());
+        assertEquals(IntStream.range(0, TOTAL).boxed().toList(), result.items());
+        assertFalse(result.truncated());
+        assertTrue(maxInflight.get() <= 3, "在途分页数 " + maxInflight.get());
+    }
+
+    @Test
+    public void stopsFetchingOnceLimitIsReached() {
+        PagedFetcher.Result<Integer> result = PagedFetcher.fetch(this::page, PAGE_SIZE, 2, i -> i % 2 == 0, 60)
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(60, result.items().size());
+        assertTrue(result.truncated());
+        assertTrue(loadedPages.get() < TOTAL / PAGE_SIZE, "拉取了 " + loadedPages.get() + " 页");
+    }
+
+    private Mono<PagedFetcher.Page<Integer>> page(int pageNo) {
+        return Mono.defer(() -> {
+                    maxInflight.accumulateAndGet(inflight.incrementAndGet(), Math::max);
+                    loadedPages.incrementAndGet();
+                    int from = (pageNo - 1) * PAGE_SIZE;
+                    List<Integer> items = IntStream.range(from, Math.min(from + PAGE_SIZE, TOTAL)).boxed().toList();
+                    return Mono.just(new PagedFetcher.Page<>(TOTAL, items))
+                            .delayElement(Duration.ofMillis(20));
+                })
+                // 在发出分页之前减掉：flatMapSequential 在 onNext 里就会请求下一页，doFinally 那时还没执行
+                .doOnTerminate(inflight::decrementAndGet);
+    }
+}
@@ -0,0 +1,125 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.NacosMCPService;
+import com.bubua12.mcp.nacos.service.RequestCoalescer;
+import com.bubua12.mcp.nacos.support.FakeNacosServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 相同的并发读调用共享一次上游请求，可选的 ttl 吸收紧随其后的重复调用
+ *
+ * @author bubua12
+ * @since 2026/10/18 01:50
+ */
+public class RequestCoalescerTests {
+
+    private static final String INSTANCE_LIST = "/nacos/v2/ns/instance/list";
+
+    private FakeNacosServer fakeNacos;
+    private SimpleMeterRegistry registry;
+    private NacosProperties properties;
+    private NacosMCPService nacosService;
+
+    @BeforeEach
+    public void setUp() {
+        fakeNacos = new FakeNacosServer(Duration.ofMillis(200)).instances(20);
+        registry = new SimpleMeterRegistry();
+        properties = fakeNacos.properties();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (nacosService != null) {
+            nacosService.destroy();
+        }
+        fakeNacos.close();
+    }
+
+    @Test
+    public void concurrentIdenticalCallsShareOneRequest() {
+        start();
+        List<String> results = Flux.range(0, 16)
+                .flatMap(i -> nacosService.listServiceInstances("service-order", null))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(16, results.size());
+        assertEquals(1, results.stream().distinct().count());
+        assertEquals(1, fakeNacos.requestCount(INSTANCE_LIST));
+        assertEquals(1, registry.get("nacos.mcp.coalesce.requests").tag("result", "executed").functionCounter().count());
+        assertEquals(15, registry.get("nacos.mcp.coalesce.requests").tag("result", "joined").functionCounter().count());
+        assertEquals(15.0 / 16, registry.get("nacos.mcp.coalesce.ratio").gauge().value(), 1e-9);
+    }
+
+    @Test
+    public void differentArgumentsAreNotMerged() {
+        start();
+        Flux.merge(nacosService.listServiceInstances("service-order", null),
+                        nacosService.listServiceInstances("service-order", "ip,port"),
+                        nacosService.listServiceInstances("service-user", null))
+                .blockLast(Duration.ofSeconds(10));
+
+        assertEquals(3, fakeNacos.requestCount(INSTANCE_LIST));
+    }
+
+    @Test
+    public void ttlAbsorbsBurstsAfterCompletion() {
+        properties.getCoalesce().setTtl(Duration.ofSeconds(5));
+        start();
+        nacosService.listServiceInstances("service-order", null).block(Duration.ofSeconds(10));
+        nacosService.listServiceInstances("service-order", null).block(Duration.ofSeconds(10));
+
+        assertEquals(1, fakeNacos.requestCount(INSTANCE_LIST));
+        assertEquals(1, registry.get("nacos.mcp.coalesce.requests").tag("result", "cached").functionCounter().count());
+    }
+
+    @Test
+    public void failedResultsAreNotKept() {
+        NacosProperties.Coalesce coalesce = new NacosProperties.Coalesce();
+        coalesce.setTtl(Duration.ofSeconds(5));
+        RequestCoalescer coalescer = new RequestCoalescer(coalesce);
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            coalescer.execute("k", () -> Mono.fromSupplier(() -> "HTTP 503 SERVICE_UNAVAILABLE\n" + calls.incrementAndGet())).block();
+            coalescer.execute("e", () -> Mono.error(new IllegalStateException("Connection refused")))
+                    .onErrorResume(e -> Mono.empty())
+                    .block();
+        }
+
+        assertEquals(2, calls.get());
+        assertEquals(4, coalescer.stats().executed());
+    }
+
+    @Test
+    public void sequentialCallsSeeFreshResults() {
+        RequestCoalescer coalescer = new RequestCoalescer(new NacosProperties.Coalesce());
+        AtomicInteger version = new AtomicInteger();
+
+        // 上游每次返回新版本，ttl 为 0 时紧接着的相同调用不能拿到上一次的结果
+        for (int i = 1; i <= 100; i++) {
+            String result = coalescer.execute("k", () -> Mono.fromSupplier(() -> "HTTP 200 OK\n" + version.incrementAndGet())
+                    .subscribeOn(Schedulers.parallel())).block(Duration.ofSeconds(5));
+            assertEquals("HTTP 200 OK\n" + i, result);
+        }
+        assertEquals(100, coalescer.stats().executed());
+        assertEquals(0, coalescer.stats().inflight());
+    }
+
+    private void start() {
+        nacosService = new NacosMCPService(properties, registry);
+    }
+}
@@ -0,0 +1,96 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.service.NacosResponse;
+import com.bubua12.mcp.nacos.service.ResponseProjector;
+import com.bubua12.mcp.nacos.service.ResponseView;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 响应精简：去掉包装、空字段和默认值字段，列表转表格，按 fields 取字段，单元格转义
+ *
+ * @author bubua12
+ * @since 2026/10/17 19:20
+ */
+public class ResponseProjectorTests {
+
+    private static final String INSTANCES = """
+            {"code":0,"message":"success","data":{"name":"DEFAULT_GROUP@@service-order","groupName":"DEFAULT_GROUP",
+            "clusters":"","cacheMillis":10000,"hosts":[
+            {"instanceId":"10.0.0.1#8080#DEFAULT#DEFAULT_GROUP@@service-order","ip":"10.0.0.1","port":8080,"weight":1.0,
+             "healthy":true,"enabled":true,"ephemeral":true,"clusterName":"DEFAULT","serviceName":"DEFAULT_GROUP@@service-order",
+             "metadata":{},"instanceHeartBeatInterval":5000,"instanceHeartBeatTimeOut":15000,"ipDeleteTimeout":30000},
+            {"instanceId":"10.0.0.2#8080#DEFAULT#DEFAULT_GROUP@@service-order","ip":"10.0.0.2","port":8080,"weight":1.0,
+             "healthy":false,"enabled":true,"ephemeral":true,"clusterName":"DEFAULT","serviceName":"DEFAULT_GROUP@@service-order",
+             "metadata":{"zone":"a"},"instanceHeartBeatInterval":5000,"instanceHeartBeatTimeOut":15000,"ipDeleteTimeout":30000}],
+            "lastRefTime":1760680000000,"checksum":"","allIPs":false,"reachProtectionThreshold":false,"valid":true}}
+            """;
+
+    private final ResponseProjector projector = new ResponseProjector(true);
+
+    @Test
+    public void instanceListIsRenderedAsTable() {
+        NacosResponse response = new NacosResponse(HttpStatus.OK, INSTANCES);
+        String text = projector.project(response, ResponseView.INSTANCES, null);
+
+        assertTrue(text.startsWith("HTTP 200"));
+        // weight、enabled、ephemeral、clusterName 每行都是默认值，整列省略
+        assertTrue(text.contains("ip|port|healthy|metadata\n"), text);
+        assertTrue(text.contains("10.0.0.1|8080|true|\n"), text);
+        assertTrue(text.endsWith("10.0.0.2|8080|false|{\"zone\":\"a\"}"), text);
+        // 外层包装、空字段和默认值字段被去掉
+        assertTrue(!text.contains("success") && !text.contains("checksum") && !text.contains("clusters"), text);
+        assertTrue(!text.contains("cacheMillis") && !text.contains("allIPs") && !text.contains("valid"), text);
+        assertTrue(text.length() * 2 < INSTANCES.length(), "精简后应明显小于原始响应");
+    }
+
+    @Test
+    public void fieldsSelectColumns() {
+        NacosResponse response = new NacosResponse(HttpStatus.OK, INSTANCES);
+        String text = projector.project(response, ResponseView.INSTANCES, "ip, healthy,metadata.zone");
+
+        assertEquals("""
+                HTTP 200 OK
+                name: DEFAULT_GROUP@@service-order
+                groupName: DEFAULT_GROUP
+                cacheMillis: 10000
+                lastRefTime: 1760680000000
+                allIPs: false
+                reachProtectionThreshold: false
+                valid: true
+                ip|healthy|metadata.zone
+                10.0.0.1|true|
+                10.0.0.2|false|a""", text);
+    }
+
+    @Test
+    public void explicitFieldsKeepDefaultsAndCellsAreEscaped() {
+        NacosResponse response = new NacosResponse(HttpStatus.OK, INSTANCES);
+        assertTrue(projector.project(response, ResponseView.INSTANCES, "ip,weight,clusterName")
+                .endsWith("ip|weight|clusterName\n10.0.0.1|1.0|DEFAULT\n10.0.0.2|1.0|DEFAULT"));
+
+        String rows = "[{\"dataId\":\"a|b\",\"content\":\"C:\\\\temp\\\\|x\\nnext\"}]";
+        assertEquals("HTTP 200 OK\ndataId|content\na\\|b|C:\\\\temp\\\\\\|x\\nnext",
+                projector.project(new NacosResponse(HttpStatus.OK, rows), ResponseView.PLAIN, null));
+    }
+
+    @Test
+    public void scalarsAndErrorsAreKept() {
+        assertEquals("HTTP 200 OK\nkey=value\nfoo=bar",
+                projector.project(new NacosResponse(HttpStatus.OK, "{\"code\":0,\"message\":\"success\",\"data\":\"key=value\\nfoo=bar\"}"),
+                        ResponseView.PLAIN, null));
+        assertEquals("HTTP 200 OK\nservice-order\nservice-product",
+                projector.project(new NacosResponse(HttpStatus.OK, "[\"service-order\",\"service-product\"]"), ResponseView.PLAIN, null));
+
+        String error = "{\"code\":20004,\"message\":\"resource not found\",\"data\":null}";
+        assertEquals("HTTP 404 NOT_FOUND\n" + error,
+                projector.project(new NacosResponse(HttpStatus.NOT_FOUND, error), ResponseView.PLAIN, null));
+        assertEquals("HTTP 200 OK\nnot json",
+                projector.project(new NacosResponse(HttpStatus.OK, "not json"), ResponseView.PLAIN, null));
+        assertEquals("HTTP 200 OK\n" + INSTANCES,
+                new ResponseProjector(false).project(new NacosResponse(HttpStatus.OK, INSTANCES), ResponseView.INSTANCES, null));
+    }
+}
@@ -0,0 +1,138 @@
+package com.bubua12.mcp.nacos;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import com.bubua12.mcp.nacos.service.NacosResponse;
+import com.bubua12.mcp.nacos.service.NamingServices;
+import com.bubua12.mcp.nacos.service.ServiceInstanceRegistry;
+import com.bubua12.mcp.nacos.support.FakeNamingService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static com.bubua12.mcp.nacos.support.FakeNamingService.instance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 推送维护的实例视图：首次查询才订阅，推送更新实例和服务详情，空闲取消订阅，不可用时回退到 OpenAPI
+ *
+ * @author bubua12
+ * @since 2026/10/18 05:45
+ */
+public class ServiceInstanceRegistryTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FakeNamingService naming = new FakeNamingService()
+            .instances("service-order", instance("10.0.0.1", 8080), instance("10.0.0.2", 8080));
+    private final NamingServices namingServices = new NamingServices(namespaceId -> naming.namingService());
+    private final NacosProperties.Registry properties = new NacosProperties.Registry();
+    private ServiceInstanceRegistry registry;
+
+    @AfterEach
+    public void tearDown() {
+        registry.close();
+        namingServices.close();
+    }
+
+    @Test
+    public void serviceIsSubscribedOnFirstQuery() throws Exception {
+        registry = new ServiceInstanceRegistry(properties, namingServices);
+        assertEquals(0, naming.subscribeCount());
+
+        Flux.range(0, 8)
+                .flatMap(i -> registry.instanceList("service-order"))
+                .blockLast(Duration.ofSeconds(5));
+        assertEquals(1, naming.subscribeCount());
+
+        JsonNode hosts = hosts(registry.instanceList("service-order").block(Duration.ofSeconds(5)));
+        assertEquals(2, hosts.size());
+        assertEquals("10.0.0.1", hosts.get(0).path("ip").asText());
+        assertEquals(1, naming.subscribeCount());
+    }
+
+    @Test
+    public void pushReplacesInstancesAndDetail() throws Exception {
+        registry = new ServiceInstanceRegistry(properties, namingServices);
+        AtomicInteger detailLoads = new AtomicInteger();
+        Mono<NacosResponse> loader = Mono.fromSupplier(() -> new NacosResponse(HttpStatus.OK, "{\"loads\":" + detailLoads.incrementAndGet() + "}"));
+
+        registry.serviceDetail("service-order", loader).block(Duration.ofSeconds(5));
+        registry.serviceDetail("service-order", loader).block(Duration.ofSeconds(5));
+        assertEquals(1, detailLoads.get());
+
+        naming.push("service-order", instance("10.0.0.3", 9090));
+        JsonNode hosts = hosts(registry.instanceList("service-order").block(Duration.ofSeconds(5)));
+        assertEquals(1, hosts.size());
+        assertEquals(9090, hosts.get(0).path("port").asInt());
+
+        registry.serviceDetail("service-order", loader).block(Duration.ofSeconds(5));
+        assertEquals(2, detailLoads.get());
+    }
+
+    @Test
+    public void idleServiceIsUnsubscribed() {
+        properties.setIdleTimeout(Duration.ofMillis(100));
+        registry = new ServiceInstanceRegistry(properties, namingServices);
+        registry.instanceList("service-order").block(Duration.ofSeconds(5));
+        assertEquals(1, naming.listenerCount("service-order"));
+
+        await(() -> naming.listenerCount("service-order") == 0);
+
+        // 再次查询重新订阅
+        registry.instanceList("service-order").block(Duration.ofSeconds(5));
+        assertEquals(2, naming.subscribeCount());
+    }
+
+    @Test
+    public void unavailablePushFallsBackToOpenApi() {
+        registry = new ServiceInstanceRegistry(properties, namingServices);
+        Mono<NacosResponse> loader = Mono.just(new NacosResponse(HttpStatus.OK, "{\"source\":\"openapi\"}"));
+
+        naming.status("DOWN");
+        assertNull(registry.instanceList("service-order").block(Duration.ofSeconds(5)));
+        assertEquals("{\"source\":\"openapi\"}", registry.serviceDetail("service-order", loader).block(Duration.ofSeconds(5)).body());
+
+        properties.setEnabled(false);
+        naming.status("UP");
+        assertNull(registry.instanceList("service-order").block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    public void lateSubscriptionAfterTimeoutIsReleased() {
+        properties.setSubscribeTimeout(Duration.ofMillis(100));
+        naming.subscribeDelay(Duration.ofMillis(500));
+        registry = new ServiceInstanceRegistry(properties, namingServices);
+
+        assertNull(registry.instanceList("service-order").block(Duration.ofSeconds(5)));
+
+        // 超时后 subscribe 才完成，注册的监听器随即被取消
+        await(() -> naming.subscribeCount() == 1);
+        await(() -> naming.listenerCount("service-order") == 0);
+    }
+
+    private JsonNode hosts(NacosResponse response) throws Exception {
+        return objectMapper.readTree(response.body()).path("data").path("hosts");
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "等待超时");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.bubua12.mcp.nacos.support;
+
+import com.bubua12.mcp.nacos.config.NacosProperties;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.springframework.util.DigestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * 进程内的 Nacos 替身，只实现 NacosMCPService 用到的接口，登录和业务接口按固定延迟返回
+ * <p>
+ * 默认业务接口都返回 "key=value"；通过 configSize、instances、services、configs、historyEntries 可以让对应接口
+ * 返回指定大小的数据，供基准测试和压测使用。配置历史的 id 从 1 开始递增，列表按 id 倒序分页返回。
+ *
+ * @author bubua12
+ * @since 2026/10/17 10:40
+ */
+public class FakeNacosServer implements AutoCloseable {
+
+    private final DisposableServer server;
+    private final AtomicLong requests = new AtomicLong();
+    private final Map<String, AtomicLong> requestsByPath = new ConcurrentHashMap<>();
+    private final AtomicInteger logins = new AtomicInteger();
+    private final Set<String> revokedTokens = ConcurrentHashMap.newKeySet();
+    private final Set<String> stalledPaths = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> fixedData = new ConcurrentHashMap<>();
+    private final Map<String, RawConfig> rawConfigs = new ConcurrentHashMap<>();
+    private final Set<String> failingInstanceIps = ConcurrentHashMap.newKeySet();
+    private final List<String> instanceUpdates = new CopyOnWriteArrayList<>();
+    private volatile List<FakeNacosServer> clusterMembers = List.of();
+
+    private volatile String configBody;
+    private volatile String instanceBody;
+    private final List<String> historyContents = new CopyOnWriteArrayList<>();
+    private volatile int serviceCount;
+    private volatile int configCount;
+    private volatile long tokenTtl = 18000;
+
+    public FakeNacosServer(Duration latency) {
+        this.server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .handle((request, response) -> {
+                    requests.incrementAndGet();
+                    QueryStringDecoder query = new QueryStringDecoder(request.uri());
+                    String path = query.path();
+                    requestsByPath.computeIfAbsent(path, key -> new AtomicLong()).incrementAndGet();
+                    if (path.equals("/nacos/v1/auth/login")) {
+                        String token = "fake-token-" + logins.incrementAndGet();
+                        return response.sendString(Mono.just("{\"accessToken\":\"" + token + "\",\"tokenTtl\":" + tokenTtl + ",\"globalAdmin\":true}")
+                                .delayElement(latency));
+                    }
+                    if (stalledPaths.contains(path)) {
+                        return response.sendString(Mono.never());
+                    }
+                    List<String> token = query.parameters().get("accessToken");
+                    if (token != null && revokedTokens.contains(token.get(0))) {
+                        return response.status(HttpResponseStatus.FORBIDDEN)
+                                .sendString(Mono.just("token expired!"));
+                    }
+                    if (path.equals("/nacos/v1/console/namespaces")) {
+                        return response.sendString(Mono.just("{\"code\":200,\"data\":["
+                                + "{\"namespace\":\"\",\"namespaceShowName\":\"public\"},"
+                                + "{\"namespace\":\"dev-id\",\"namespaceShowName\":\"dev\"}]}"));
+                    }
+                    if (path.equals("/nacos/v2/core/cluster/node/list") && !clusterMembers.isEmpty()) {
+                        String members = clusterMembers.stream()
+                                .map(member -> "{\"ip\":\"127.0.0.1\",\"port\":" + member.server.port()
+                                        + ",\"address\":\"127.0.0.1:" + member.server.port() + "\",\"state\":\"UP\"}")
+                                .collect(Collectors.joining(","));
+                        return response.sendString(Mono.just("{\"code\":0,\"message\":\"success\",\"data\":[" + members + "]}"));
+                    }
+                    if (path.equals("/nacos/v2/ns/instance") && request.method() == HttpMethod.PUT) {
+                        String ip = query.parameters().get("ip").get(0);
+                        instanceUpdates.add(ip + "=" + query.parameters().get("enabled").get(0));
+                        if (failingInstanceIps.contains(ip)) {
+                            return response.status(HttpResponseStatus.INTERNAL_SERVER_ERROR)
+                                    .sendString(Mono.just("{\"code\":500,\"message\":\"update failed\",\"data\":null}").delayElement(latency));
+                        }
+                        return response.sendString(Mono.just(success("\"ok\"")).delayElement(latency));
+                    }
+                    List<String> dataId = query.parameters().get("dataId");
+                    if (dataId != null && dataId.get(0).startsWith("large-")) {
+                        // large-<字节数>：返回指定大小的配置内容
+                        String content = "x".repeat(Integer.parseInt(dataId.get(0).substring("large-".length())));
+                        return response.sendString(Mono.just("{\"code\":0,\"message\":\"success\",\"data\":\"" + content + "\"}"));
+                    }
+                    RawConfig raw = dataId == null ? null : rawConfigs.get(dataId.get(0));
+                    if (raw != null && path.equals("/nacos/v1/cs/configs") && !query.parameters().containsKey("search")) {
+                        // v1 接口返回配置原文，按 4KB 分块发送
+                        List<byte[]> chunks = new ArrayList<>();
+                        for (int from = 0; from < raw.content().length; from += 4096) {
+                            chunks.add(Arrays.copyOfRange(raw.content(), from, Math.min(from + 4096, raw.content().length)));
+                        }
+                        return response.header("Content-Length", String.valueOf(raw.content().length))
+                                .header("Content-MD5", DigestUtils.md5DigestAsHex(raw.content()))
+                                .header("Config-Type", raw.type())
+                                .sendByteArray(Flux.fromIterable(chunks).delaySubscription(latency));
+                    }
+                    if (raw != null && path.equals("/nacos/v2/cs/config")) {
+                        String content = new String(raw.content(), StandardCharsets.UTF_8);
+                        return response.sendString(Mono.just(success(quote(escape(content)))).delayElement(latency));
+                    }
+                    String payload = fixedData.containsKey(path) ? success(fixedData.get(path)) : payload(path, query);
+                    if (payload != null) {
+                        return response.sendString(Mono.just(payload).delayElement(latency));
+                    }
+                    return response.sendString(Mono.just("{\"code\":0,\"message\":\"success\",\"data\":\"key=value\"}")
+                            .delayElement(latency));
+                })
+                .bindNow();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.port();
+    }
+
+    /**
+     * 指向本替身的连接配置；替身不提供 gRPC 推送，依赖推送的功能关闭，集群负载均衡和本地快照也默认关闭
+     */
+    public NacosProperties properties() {
+        NacosProperties properties = new NacosProperties();
+        properties.setServer(baseUrl());
+        properties.getConfigCache().setEnabled(false);
+        properties.getRegistry().setEnabled(false);
+        properties.getSearch().setLiveUpdates(false);
+        properties.getInstanceSearch().setLiveUpdates(false);
+        properties.getSnapshot().setEnabled(false);
+        properties.getCluster().setEnabled(false);
+        return properties;
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    public long requestCount(String path) {
+        AtomicLong count = requestsByPath.get(path);
+        return count == null ? 0 : count.get();
+    }
+
+    public int loginCount() {
+        return logins.get();
+    }
+
+    /**
+     * 登录返回的 token 有效期（秒）
+     */
+    public FakeNacosServer tokenTtl(long seconds) {
+        this.tokenTtl = seconds;
+        return this;
+    }
+
+    /**
+     * 让已签发的全部 token 失效，后续携带它们的请求返回 403
+     */
+    public void revokeIssuedTokens() {
+        for (int i = 1; i <= logins.get(); i++) {
+            revokedTokens.add("fake-token-" + i);
+        }
+    }
+
+    /**
+     * /nacos/v2/cs/config 返回的配置内容大小，0 表示返回 "key=value"
+     */
+    public FakeNacosServer configSize(int bytes) {
+        this.configBody = bytes <= 0 ? null : success(quote("k=" + "v".repeat(Math.max(bytes - 2, 0))));
+        return this;
+    }
+
+    /**
+     * /nacos/v2/ns/instance/list 返回的实例数
+     */
+    public FakeNacosServer instances(int count) {
+        StringBuilder hosts = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                hosts.append(',');
+            }
+            String ip = "10.0." + (i / 250) + "." + (i % 250 + 1);
+            hosts.append("{\"instanceId\":\"").append(ip).append("#8080#DEFAULT#DEFAULT_GROUP@@service-order\",")
+                    .append("\"ip\":\"").append(ip).append("\",\"port\":8080,\"weight\":1.0,\"healthy\":true,")
+                    .append("\"enabled\":true,\"ephemeral\":true,\"clusterName\":\"DEFAULT\",")
+                    .append("\"serviceName\":\"DEFAULT_GROUP@@service-order\",\"metadata\":{\"version\":\"1.0.").append(i % 10).append("\"},")
+                    .append("\"instanceHeartBeatInterval\":5000,\"instanceHeartBeatTimeOut\":15000,\"ipDeleteTimeout\":30000}");
+        }
+        this.instanceBody = count <= 0 ? null : success("{\"name\":\"DEFAULT_GROUP@@service-order\",\"groupName\":\"DEFAULT_GROUP\","
+                + "\"clusters\":\"\",\"cacheMillis\":10000,\"hosts\":[" + hosts + "],\"lastRefTime\":0,\"checksum\":\"\","
+                + "\"allIPs\":false,\"reachProtectionThreshold\":false,\"valid\":true}");
+        return this;
+    }
+
+    /**
+     * 让 PUT /nacos/v2/ns/instance 对这些 IP 返回 500
+     */
+    public FakeNacosServer failInstanceUpdates(String... ips) {
+        failingInstanceIps.addAll(List.of(ips));
+        return this;
+    }
+
+    /**
+     * 收到的 PUT /nacos/v2/ns/instance 请求，按到达顺序，格式为 ip=enabled
+     */
+    public List<String> instanceUpdates() {
+        return List.copyOf(instanceUpdates);
+    }
+
+    /**
+     * /nacos/v2/cs/history/list 返回的历史条数，第 i 条历史的内容为 "common=shared\nrevision=i\n"
+     */
+    public FakeNacosServer historyEntries(int count) {
+        historyContents.clear();
+        for (int i = 1; i <= count; i++) {
+            historyContents.add("common=shared\nrevision=" + i + "\n");
+        }
+        return this;
+    }
+
+    /**
+     * 追加一条历史，id 为当前条数加一
+     */
+    public FakeNacosServer addHistory(String content) {
+        historyContents.add(content);
+        return this;
+    }
+
+    /**
+     * /nacos/v2/ns/service/list 分页返回的服务总数
+     */
+    public FakeNacosServer services(int count) {
+        this.serviceCount = count;
+        return this;
+    }
+
+    /**
+     * /nacos/v1/cs/configs 分页返回的配置总数，第 i 个配置为 config-i.yaml，数据源主机为 db-(i % 3)，端口为 8000 + i
+     */
+    public FakeNacosServer configs(int count) {
+        this.configCount = count;
+        return this;
+    }
+
+    /**
+     * 注册一个配置：/nacos/v1/cs/configs 按 dataId 返回原文并带上 Content-MD5、Config-Type，/nacos/v2/cs/config 返回 JSON 包装的内容
+     */
+    public FakeNacosServer rawConfig(String dataId, String type, String content) {
+        rawConfigs.put(dataId, new RawConfig(type, content.getBytes(StandardCharsets.UTF_8)));
+        return this;
+    }
+
+    /**
+     * 让 /nacos/v2/core/cluster/node/list 返回这些替身组成的集群
+     */
+    public void clusterMembers(FakeNacosServer... members) {
+        this.clusterMembers = List.of(members);
+    }
+
+    /**
+     * 让指定路径返回固定的 data，data 为 JSON 文本
+     */
+    public FakeNacosServer respond(String path, String data) {
+        fixedData.put(path, data);
+        return this;
+    }
+
+    /**
+     * 让指定路径的请求一直不返回响应，模拟卡住的 Nacos 节点
+     */
+    public void stall(String path) {
+        stalledPaths.add(path);
+    }
+
+    private String payload(String path, QueryStringDecoder query) {
+        return switch (path) {
+            case "/nacos/v2/cs/config" -> configBody;
+            case "/nacos/v2/ns/instance/list" -> instanceBody;
+            case "/nacos/v2/cs/history/list" -> historyContents.isEmpty() ? null : page(query, historyContents.size(), (from, to) -> {
+                int total = historyContents.size();
+                StringBuilder items = new StringBuilder();
+                for (int i = from; i < to; i++) {
+                    items.append(i > from ? "," : "").append(historyItem(total - i, null));
+                }
+                return success("{\"totalCount\":" + total + ",\"pageNumber\":1,\"pagesAvailable\":1,\"pageItems\":[" + items + "]}");
+            });
+            case "/nacos/v2/cs/history" -> {
+                int id = Integer.parseInt(query.parameters().getOrDefault("nid", List.of("0")).get(0));
+                yield id < 1 || id > historyContents.size() ? null : success(historyItem(id, historyContents.get(id - 1)));
+            }
+            case "/nacos/v2/ns/service/list" -> serviceCount <= 0 ? null : page(query, serviceCount, (from, to) -> {
+                StringBuilder services = new StringBuilder();
+                for (int i = from; i < to; i++) {
+                    services.append(i > from ? "," : "").append(quote("service-" + i));
+                }
+                return success("{\"count\":" + serviceCount + ",\"services\":[" + services + "]}");
+            });
+            case "/nacos/v1/cs/configs" -> configCount <= 0 ? null : page(query, configCount, (from, to) -> {
+                StringBuilder configs = new StringBuilder();
+                for (int i = from; i < to; i++) {
+                    configs.append(i > from ? "," : "").append("{\"dataId\":\"config-").append(i).append(".yaml\",")
+                            .append("\"group\":\"DEFAULT_GROUP\",\"type\":\"yaml\",\"md5\":\"")
+                            .append(String.format("%032x", i)).append("\",\"content\":\"spring:\\n  datasource:\\n    url: jdbc:mysql://db-")
+                            .append(i % 3).append(":3306/app\\nserver:\\n  port: ").append(8000 + i).append("\\n\"}");
+                }
+                return "{\"totalCount\":" + configCount + ",\"pageNumber\":1,\"pagesAvailable\":1,\"pageItems\":[" + configs + "]}";
+            });
+            default -> null;
+        };
+    }
+
+    private static String historyItem(int id, String content) {
+        return "{\"id\":\"" + id + "\",\"dataId\":\"common.properties\",\"group\":\"order\",\"tenant\":\"dev-id\","
+                + "\"opType\":\"U\",\"srcUser\":\"nacos\",\"srcIp\":\"10.0.0.1\",\"md5\":\"" + String.format("%032x", id) + "\","
+                + (content == null ? "" : "\"content\":" + quote(escape(content)) + ",")
+                + "\"createdTime\":\"2026-10-17T10:00:00\",\"lastModifiedTime\":\"2026-10-17T10:00:00\"}";
+    }
+
+    private static String page(QueryStringDecoder query, int total, BiFunction<Integer, Integer, String> render) {
+        int pageNo = Integer.parseInt(query.parameters().getOrDefault("pageNo", List.of("1")).get(0));
+        int pageSize = Integer.parseInt(query.parameters().getOrDefault("pageSize", List.of("100")).get(0));
+        int from = Math.min((pageNo - 1) * pageSize, total);
+        return render.apply(from, Math.min(from + pageSize, total));
+    }
+
+    private static String success(String data) {
+        return "{\"code\":0,\"message\":\"success\",\"data\":" + data + "}";
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private record RawConfig(String type, byte[] content) {
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+}
@@ -0,0 +1,127 @@
+package com.bubua12.mcp.nacos.support;
+
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 进程内的 NamingService 替身，只实现 subscribe、unsubscribe、getAllInstances、getServerStatus 和 shutDown
+ * <p>
+ * 其他方法抛出 UnsupportedOperationException。subscribe 可以设置延迟，模拟推送通道建立缓慢，延迟期间不响应中断。
+ *
+ * @author bubua12
+ * @since 2026/10/18 05:40
+ */
+public class FakeNamingService {
+
+    private final Map<String, List<Instance>> instances = new ConcurrentHashMap<>();
+    private final Map<String, Set<EventListener>> listeners = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribes = new AtomicInteger();
+    private volatile String status = "UP";
+    private volatile Duration subscribeDelay = Duration.ZERO;
+    private volatile boolean shutDown;
+
+    private final NamingService proxy = (NamingService) Proxy.newProxyInstance(NamingService.class.getClassLoader(),
+            new Class<?>[]{NamingService.class}, (target, method, args) -> switch (method.getName()) {
+                case "subscribe" -> {
+                    sleepUninterruptibly(subscribeDelay);
+                    listeners.computeIfAbsent((String) args[0], name -> ConcurrentHashMap.newKeySet()).add(listener(args));
+                    subscribes.incrementAndGet();
+                    yield null;
+                }
+                case "unsubscribe" -> {
+                    listeners.getOrDefault((String) args[0], Set.of()).remove(listener(args));
+                    yield null;
+                }
+                case "getAllInstances" -> instances.getOrDefault((String) args[0], List.of());
+                case "getServerStatus" -> status;
+                case "shutDown" -> {
+                    shutDown = true;
+                    yield null;
+                }
+                case "hashCode" -> System.identityHashCode(target);
+                case "equals" -> target == args[0];
+                case "toString" -> "FakeNamingService";
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+
+    public NamingService namingService() {
+        return proxy;
+    }
+
+    /**
+     * 设置服务的实例，不推送
+     */
+    public FakeNamingService instances(String serviceName, Instance... hosts) {
+        instances.put(serviceName, List.of(hosts));
+        return this;
+    }
+
+    /**
+     * 更新服务的实例并推送给订阅者
+     */
+    public void push(String serviceName, Instance... hosts) {
+        instances(serviceName, hosts);
+        listeners.getOrDefault(serviceName, Set.of())
+                .forEach(listener -> listener.onEvent(new NamingEvent(serviceName, List.of(hosts))));
+    }
+
+    public FakeNamingService status(String status) {
+        this.status = status;
+        return this;
+    }
+
+    public FakeNamingService subscribeDelay(Duration delay) {
+        this.subscribeDelay = delay;
+        return this;
+    }
+
+    public int subscribeCount() {
+        return subscribes.get();
+    }
+
+    public int listenerCount(String serviceName) {
+        return listeners.getOrDefault(serviceName, Set.of()).size();
+    }
+
+    public boolean isShutDown() {
+        return shutDown;
+    }
+
+    public static Instance instance(String ip, int port) {
+        Instance instance = new Instance();
+        instance.setIp(ip);
+        instance.setPort(port);
+        instance.setClusterName("DEFAULT");
+        return instance;
+    }
+
+    /**
+     * nacos-client 的 subscribe 不响应中断，取消等待也不会让它提前返回
+     */
+    private static void sleepUninterruptibly(Duration delay) {
+        long deadline = System.nanoTime() + delay.toNanos();
+        boolean interrupted = false;
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(deadline - System.nanoTime());
+            interrupted |= Thread.interrupted();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static EventListener listener(Object[] args) {
+        return (EventListener) args[args.length - 1];
+    }
+}
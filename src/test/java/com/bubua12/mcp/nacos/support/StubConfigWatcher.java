@@ -0,0 +1,51 @@
+package com.bubua12.mcp.nacos.support;
+
+import com.bubua12.mcp.nacos.service.ConfigKey;
+import com.bubua12.mcp.nacos.service.ConfigWatcher;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 手动触发变更通知的 ConfigWatcher，推送通道默认可用
+ *
+ * @author bubua12
+ * @since 2026/10/17 23:55
+ */
+public class StubConfigWatcher implements ConfigWatcher {
+
+    private final Map<ConfigKey, Consumer<String>> callbacks = new ConcurrentHashMap<>();
+    private volatile boolean connected = true;
+
+    @Override
+    public boolean isConnected(String namespaceId) {
+        return connected;
+    }
+
+    @Override
+    public Mono<Disposable> watch(ConfigKey key, Consumer<String> onChange) {
+        callbacks.put(key, onChange);
+        return Mono.just(() -> callbacks.remove(key, onChange));
+    }
+
+    public void setConnected(boolean connected) {
+        this.connected = connected;
+    }
+
+    public int watchCount() {
+        return callbacks.size();
+    }
+
+    /**
+     * 向指定配置的监听者发送变更通知
+     */
+    public void publish(ConfigKey key, String content) {
+        Consumer<String> callback = callbacks.get(key);
+        if (callback != null) {
+            callback.accept(content);
+        }
+    }
+}